@@ -0,0 +1,243 @@
+package dev.neoobfuscator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.neoobfuscator.model.ApiKey;
+import dev.neoobfuscator.service.ApiKeyService;
+import dev.neoobfuscator.service.ReadinessService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rejects uploads and job submissions from request headers alone, before the
+ * body is read. Every POST to /api/obfuscate is checked, whatever its content
+ * type, since a job can also be submitted for an earlier upload by its id.
+ *
+ * Checks the declared size against the multipart limit (413), the upload
+ * directory's free space minus uploads already in flight (507), uploads in
+ * flight from the same tenant or client address (429), the caller's rate
+ * limit (429) and, for /api/obfuscate, the obfuscation queue and its
+ * estimated wait (429). While
+ * the node drains for shutdown, all uploads are refused (503).
+ * Together with Tomcat only sending
+ * "100 Continue" once the body is read, clients sending
+ * {@code Expect: 100-continue} never transmit a rejected body.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+
+    private final ObjectMapper objectMapper;
+    private final ApiKeyService apiKeys;
+    private final ReadinessService readiness;
+
+    // Declared bytes of uploads being received, not yet on disk
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    // Uploads being received per tenant, or per client address without a key
+    private final Map<String, AtomicInteger> clientUploads = new ConcurrentHashMap<>();
+
+    @Value("${neo.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${neo.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${spring.servlet.multipart.max-request-size:100MB}")
+    private DataSize maxRequestSize;
+
+    // Resumable uploads are not bound by the multipart limit
+    @Value("${neo.uploads.resumable-max-size-mb:4096}")
+    private long resumableMaxSizeMb;
+
+    @Value("${neo.admission.min-free-disk-mb:512}")
+    private long minFreeDiskMb;
+
+    @Value("${neo.admission.max-uploads-per-client:4}")
+    private int maxUploadsPerClient;
+
+    // Jobs are refused while the estimated wait before they start is longer (0 = no limit)
+    @Value("${neo.admission.max-queue-wait-minutes:60}")
+    private long maxQueueWaitMinutes;
+
+    @Value("${neo.admission.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    @Value("${neo.admission.storage-retry-after-seconds:300}")
+    private long storageRetryAfterSeconds;
+
+    public AdmissionFilter(ObjectMapper objectMapper, ApiKeyService apiKeys, ReadinessService readiness) {
+        this.objectMapper = objectMapper;
+        this.apiKeys = apiKeys;
+        this.readiness = readiness;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!request.getRequestURI().startsWith(request.getContextPath() + "/api/")) {
+            return true;
+        }
+        String method = request.getMethod();
+        boolean post = "POST".equals(method)
+                && (isMultipart(request) || isResumableCreation(request) || isObfuscate(request));
+        return !post && !("PATCH".equals(method) && isResumableChunk(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (readiness.isDraining()) {
+            reject(response, 503, retryAfterSeconds, "Server is shutting down, try again later");
+            return;
+        }
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // Creating a resumable upload sends no body but announces the file size
+        boolean creation = isResumableCreation(request);
+        long declared = creation ? parseLength(request.getHeader(UPLOAD_LENGTH)) : request.getContentLengthLong();
+
+        long maxMb = creation || isResumableChunk(request) ? resumableMaxSizeMb : maxRequestSize.toMegabytes();
+        if (declared > maxMb * 1024 * 1024) {
+            reject(response, 413, 0, "Upload exceeds the maximum size of " + maxMb + "MB");
+            return;
+        }
+
+        if (isObfuscate(request) && readiness.queueSaturated()) {
+            reject(response, 429, retryAfterSeconds, "Obfuscation queue is full, try again later");
+            return;
+        }
+        if (isObfuscate(request) && maxQueueWaitMinutes > 0) {
+            long excessMs = readiness.estimatedQueueWaitMs() - TimeUnit.MINUTES.toMillis(maxQueueWaitMinutes);
+            if (excessMs > 0) {
+                reject(response, 429, Math.max(retryAfterSeconds, excessMs / 1000),
+                        "Estimated queue wait exceeds " + maxQueueWaitMinutes + " min, try again later");
+                return;
+            }
+        }
+
+        // Unknown lengths (chunked bodies) may use up to the request limit; submissions by upload id send no file
+        boolean fileBody = isMultipart(request) || isResumableChunk(request);
+        long reserve = declared >= 0 ? declared : fileBody ? maxRequestSize.toBytes() : 0;
+        if (!hasSpaceFor(reserve)) {
+            reject(response, 507, storageRetryAfterSeconds, "Not enough free disk space for this upload");
+            return;
+        }
+
+        ApiKey key = (ApiKey) request.getAttribute(ApiKeyFilter.API_KEY_ATTRIBUTE);
+        // Chunks of a resumable upload were paid for when it was created
+        if (!isResumableChunk(request)) {
+            long waitMs = apiKeys.acquire(key, request.getRemoteAddr());
+            if (waitMs > 0) {
+                reject(response, 429, Math.max(1, (waitMs + 999) / 1000), "Rate limit exceeded");
+                return;
+            }
+        }
+        if (creation) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String client = key != null ? "tenant:" + key.getTenant() : request.getRemoteAddr();
+        AtomicInteger uploads = clientUploads.computeIfAbsent(client, c -> new AtomicInteger());
+        if (uploads.incrementAndGet() > maxUploadsPerClient) {
+            release(client, uploads);
+            reject(response, 429, retryAfterSeconds, "Too many concurrent uploads from this client");
+            return;
+        }
+
+        reservedBytes.addAndGet(reserve);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            reservedBytes.addAndGet(-reserve);
+            release(client, uploads);
+        }
+    }
+
+    private void release(String client, AtomicInteger uploads) {
+        if (uploads.decrementAndGet() <= 0) {
+            clientUploads.remove(client, uploads);
+        }
+    }
+
+    private boolean hasSpaceFor(long bytes) {
+        try {
+            Path dir = Paths.get(uploadDir).toAbsolutePath();
+            long usable = Files.getFileStore(Files.exists(dir) ? dir : dir.getParent()).getUsableSpace();
+            return usable - reservedBytes.get() - bytes >= minFreeDiskMb * 1024 * 1024;
+        } catch (IOException e) {
+            log.debug("Could not read free space of {}: {}", uploadDir, e.getMessage());
+            return true;
+        }
+    }
+
+    private void reject(HttpServletResponse response, int status, long retryAfter, String error) throws IOException {
+        log.info("Rejected request with {}: {}", status, error);
+        response.setStatus(status);
+        if (retryAfter > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        }
+        // The body will not be read, so the connection cannot be reused
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("error", error);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    private static boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith("multipart/");
+    }
+
+    private static boolean isObfuscate(HttpServletRequest request) {
+        return request.getRequestURI().equals(request.getContextPath() + "/api/obfuscate");
+    }
+
+    private static boolean isResumableCreation(HttpServletRequest request) {
+        return "POST".equals(request.getMethod())
+                && request.getRequestURI().equals(request.getContextPath() + "/api/uploads/resumable");
+    }
+
+    private static boolean isResumableChunk(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/api/uploads/resumable/");
+    }
+
+    private static long parseLength(String value) {
+        try {
+            return value != null ? Long.parseLong(value.trim()) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package dev.neoobfuscator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.neoobfuscator.model.ApiKey;
+import dev.neoobfuscator.service.ApiKeyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Identifies API callers by key, sent as "Authorization: Bearer &lt;key&gt;"
+ * or "X-Api-Key: &lt;key&gt;", and exposes the key and its tenant as request
+ * attributes. Rate limits are applied later, by {@link AdmissionFilter}.
+ *
+ * Key management and engine changes need the admin token. Without one
+ * configured, nobody is an admin and those calls are refused.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+public class ApiKeyFilter extends OncePerRequestFilter {
+
+    public static final String API_KEY_ATTRIBUTE = "neo.apiKey";
+    public static final String TENANT_ATTRIBUTE = "neo.tenant";
+    public static final String ADMIN_ATTRIBUTE = "neo.admin";
+
+    private static final String API_KEY_HEADER = "X-Api-Key";
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private static final String BEARER = "Bearer ";
+
+    private final ApiKeyService apiKeys;
+    private final ObjectMapper objectMapper;
+
+    @Value("${neo.api-keys.required:false}")
+    private boolean required;
+
+    @Value("${neo.api-keys.admin-token:}")
+    private String adminToken;
+
+    public ApiKeyFilter(ApiKeyService apiKeys, ObjectMapper objectMapper) {
+        this.apiKeys = apiKeys;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.startsWith("/api/") || path.equals("/api/health") || path.startsWith("/api/health/")
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String token = token(request);
+        boolean admin = isAdmin(request, token);
+
+        if (token != null) {
+            Optional<ApiKey> key = apiKeys.authenticate(token);
+            if (key.isEmpty()) {
+                reject(response, 401, "Invalid or revoked API key");
+                return;
+            }
+            request.setAttribute(API_KEY_ATTRIBUTE, key.get());
+            request.setAttribute(TENANT_ATTRIBUTE, key.get().getTenant());
+        } else if (required && !admin) {
+            reject(response, 401, "API key required");
+            return;
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        boolean adminOnly = path.startsWith("/api/keys")
+                || path.startsWith("/api/engines") && !"GET".equals(request.getMethod());
+        if (adminOnly && !admin) {
+            reject(response, 403, hasAdminToken() ? "Admin token required"
+                    : "No admin token configured (API_ADMIN_TOKEN)");
+            return;
+        }
+        request.setAttribute(ADMIN_ATTRIBUTE, admin);
+        chain.doFilter(request, response);
+    }
+
+    private boolean hasAdminToken() {
+        return adminToken != null && !adminToken.isEmpty();
+    }
+
+    private boolean isAdmin(HttpServletRequest request, String token) {
+        if (!hasAdminToken()) {
+            return false;
+        }
+        String presented = request.getHeader(ADMIN_TOKEN_HEADER);
+        return presented != null && MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8),
+                adminToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String token(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return header.substring(BEARER.length()).trim();
+        }
+        header = request.getHeader(API_KEY_HEADER);
+        return header != null && !header.isBlank() ? header.trim() : null;
+    }
+
+    private void reject(HttpServletResponse response, int status, String error) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("success", false);
+        body.put("error", error);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
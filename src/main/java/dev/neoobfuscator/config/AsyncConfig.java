@@ -1,15 +1,24 @@
 package dev.neoobfuscator.config;
 
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.time.Instant;
 import java.util.concurrent.Executor;
 
 /**
  * Configuration for async task execution.
+ *
+ * Executors keep accepting tasks after the context closes. The shutdown drain
+ * in ReadinessService runs after that event and decides what still runs;
+ * before, uploads in that window failed with a full queue.
  */
 @Configuration
 @EnableAsync
@@ -24,14 +33,76 @@ public class AsyncConfig {
     @Value("${neo.async.queue-capacity:100}")
     private int queueCapacity;
 
+    @Value("${neo.benchmark.queue-capacity:20}")
+    private int benchmarkQueueCapacity;
+
     @Bean(name = "obfuscationExecutor")
-    public Executor obfuscationExecutor() {
+    public Executor obfuscationExecutor(Tracer tracer) {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(corePoolSize);
         executor.setMaxPoolSize(maxPoolSize);
         executor.setQueueCapacity(queueCapacity);
         executor.setThreadNamePrefix("Obfuscate-");
+        executor.setTaskDecorator(task -> traced(tracer, task));
+        executor.setAcceptTasksAfterContextClose(true);
         executor.initialize();
         return executor;
     }
+
+    /**
+     * Single thread for CDS archive training runs, so they never take a job
+     * slot. Archives are built once per engine, so the queue stays short.
+     */
+    @Bean(name = "childJvmExecutor")
+    public Executor childJvmExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("ChildJvm-");
+        executor.setAcceptTasksAfterContextClose(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Single thread for runtime benchmarks. Each one makes a Skidfuscator run
+     * per transformer plus the harness forks, so they must not compete with
+     * jobs for obfuscationExecutor; beyond the queue they are refused.
+     */
+    @Bean(name = "benchmarkExecutor")
+    public Executor benchmarkExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(benchmarkQueueCapacity);
+        executor.setThreadNamePrefix("Benchmark-");
+        executor.setAcceptTasksAfterContextClose(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Run a task in the trace it was submitted from, recording the time it
+     * waited in the queue as a span. Tasks submitted outside a trace are
+     * left alone.
+     */
+    private static Runnable traced(Tracer tracer, Runnable task) {
+        Context context = Context.current();
+        if (!Span.fromContext(context).getSpanContext().isValid()) {
+            return task;
+        }
+        Instant queuedAt = Instant.now();
+        return () -> {
+            tracer.spanBuilder("obfuscationExecutor queue")
+                    .setParent(context)
+                    .setStartTimestamp(queuedAt)
+                    .setAttribute("thread.name", Thread.currentThread().getName())
+                    .startSpan()
+                    .end();
+            try (Scope ignored = context.makeCurrent()) {
+                task.run();
+            }
+        };
+    }
 }
@@ -0,0 +1,74 @@
+package dev.neoobfuscator.config;
+
+import dev.neoobfuscator.service.SpanScope;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps the most recent finished spans in memory so a job's trace can be
+ * read back through the API without running a collector.
+ */
+public class InMemorySpanCollector implements SpanExporter {
+
+    private static final AttributeKey<String> JOB_ID = AttributeKey.stringKey(SpanScope.JOB_ID);
+
+    private final int maxSpans;
+    private final ArrayDeque<SpanData> spans = new ArrayDeque<>();
+
+    public InMemorySpanCollector(int maxSpans) {
+        this.maxSpans = maxSpans;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> batch) {
+        for (SpanData span : batch) {
+            if (spans.size() >= maxSpans) {
+                spans.removeFirst();
+            }
+            spans.addLast(span);
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * Spans of the trace that contains the job's spans, in start order.
+     */
+    public synchronized Optional<List<Map<String, Object>>> findJobTrace(String jobId) {
+        String traceId = null;
+        for (SpanData span : spans) {
+            if (jobId.equals(span.getAttributes().get(JOB_ID))) {
+                traceId = span.getTraceId();
+                break;
+            }
+        }
+        if (traceId == null) {
+            return Optional.empty();
+        }
+        String id = traceId;
+        return Optional.of(spans.stream()
+                .filter(span -> span.getTraceId().equals(id))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(SpanJson::toMap)
+                .toList());
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        spans.clear();
+        return CompletableResultCode.ofSuccess();
+    }
+}
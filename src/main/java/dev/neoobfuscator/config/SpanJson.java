@@ -0,0 +1,58 @@
+package dev.neoobfuscator.config;
+
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flat JSON form of a finished span, shared by the file exporter and the
+ * in-memory collector's API.
+ */
+final class SpanJson {
+
+    private SpanJson() {
+    }
+
+    static Map<String, Object> toMap(SpanData span) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("traceId", span.getTraceId());
+        map.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            map.put("parentSpanId", span.getParentSpanId());
+        }
+        map.put("name", span.getName());
+        map.put("kind", span.getKind().name());
+        map.put("startEpochNanos", span.getStartEpochNanos());
+        map.put("endEpochNanos", span.getEndEpochNanos());
+        map.put("durationMs", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1_000_000.0);
+        map.put("status", span.getStatus().getStatusCode().name());
+        if (!span.getStatus().getDescription().isEmpty()) {
+            map.put("statusMessage", span.getStatus().getDescription());
+        }
+
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        map.put("attributes", attributes);
+
+        if (!span.getEvents().isEmpty()) {
+            List<Map<String, Object>> events = new ArrayList<>();
+            for (EventData event : span.getEvents()) {
+                Map<String, Object> e = new LinkedHashMap<>();
+                e.put("name", event.getName());
+                e.put("epochNanos", event.getEpochNanos());
+                Map<String, Object> eventAttributes = new LinkedHashMap<>();
+                event.getAttributes().forEach((key, value) -> eventAttributes.put(key.getKey(), value));
+                if (!eventAttributes.isEmpty()) {
+                    e.put("attributes", eventAttributes);
+                }
+                events.add(e);
+            }
+            map.put("events", events);
+        }
+        return map;
+    }
+}
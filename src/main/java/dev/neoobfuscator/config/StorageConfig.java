@@ -0,0 +1,89 @@
+package dev.neoobfuscator.config;
+
+import dev.neoobfuscator.service.ArtifactStore;
+import dev.neoobfuscator.service.CachingArtifactStore;
+import dev.neoobfuscator.service.LocalArtifactStore;
+import dev.neoobfuscator.service.S3ArtifactStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Selects the artifact store backend.
+ *
+ * "local" publishes outputs in place in the output directory. "s3" stores
+ * them in an S3-compatible bucket behind a local read-through cache, so
+ * several nodes can serve the same artifacts.
+ */
+@Configuration
+public class StorageConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageConfig.class);
+
+    @Value("${neo.storage.type:local}")
+    private String type;
+
+    @Value("${neo.output-dir:./output}")
+    private String outputDir;
+
+    @Value("${neo.storage.s3.endpoint:}")
+    private String endpoint;
+
+    @Value("${neo.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${neo.storage.s3.bucket:neoguard}")
+    private String bucket;
+
+    @Value("${neo.storage.s3.prefix:outputs/}")
+    private String prefix;
+
+    @Value("${neo.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${neo.storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${neo.storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${neo.storage.s3.create-bucket:false}")
+    private boolean createBucket;
+
+    @Value("${neo.storage.s3.part-size-mb:16}")
+    private long partSizeMb;
+
+    @Value("${neo.storage.cache.dir:./data/cache}")
+    private String cacheDir;
+
+    @Value("${neo.storage.cache.max-size-mb:2048}")
+    private long cacheMaxSizeMb;
+
+    @Value("${neo.storage.cache.chunk-size-mb:8}")
+    private long cacheChunkSizeMb;
+
+    @Bean
+    public ArtifactStore artifactStore() throws IOException {
+        if (!type.equalsIgnoreCase("s3")) {
+            return new LocalArtifactStore(Paths.get(outputDir));
+        }
+
+        if (endpoint.isBlank()) {
+            throw new IllegalStateException("neo.storage.s3.endpoint is required for S3 storage");
+        }
+        S3ArtifactStore s3 = new S3ArtifactStore(endpoint, region, bucket, prefix, accessKey, secretKey, pathStyle,
+                partSizeMb * 1024 * 1024);
+        if (createBucket) {
+            s3.createBucketIfMissing();
+        }
+        log.info("Storing artifacts in s3 bucket {} at {} (cache: {}, {} MB)", bucket, endpoint, cacheDir,
+                cacheMaxSizeMb);
+        return new CachingArtifactStore(s3, Paths.get(cacheDir), cacheMaxSizeMb * 1024 * 1024,
+                cacheChunkSizeMb * 1024 * 1024);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.neoobfuscator.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * OpenTelemetry tracing. The exporter is "none" (tracing off, no-op spans),
+ * "file" (JSON lines) or "memory" (recent spans kept for
+ * /api/jobs/{id}/trace).
+ */
+@Configuration
+public class TracingConfig {
+
+    @Value("${neo.tracing.exporter:none}")
+    private String exporter;
+
+    @Value("${neo.tracing.file:./data/traces.jsonl}")
+    private String file;
+
+    @Value("${neo.tracing.memory-spans:10000}")
+    private int memorySpans;
+
+    // Share of new traces recorded; spans continuing a caller's trace follow its decision
+    @Value("${neo.tracing.sample-ratio:1.0}")
+    private double sampleRatio;
+
+    @Bean
+    public InMemorySpanCollector spanCollector() {
+        return new InMemorySpanCollector(memorySpans);
+    }
+
+    @Bean
+    public OpenTelemetry openTelemetry(InMemorySpanCollector collector, ObjectMapper objectMapper)
+            throws IOException {
+        SpanProcessor processor = switch (exporter.toLowerCase()) {
+            case "none", "" -> null;
+            // Spans only land in a list, so export them as they end
+            case "memory" -> SimpleSpanProcessor.create(collector);
+            case "file" -> BatchSpanProcessor.builder(new FileSpanExporter(Paths.get(file), objectMapper)).build();
+            default -> throw new IllegalArgumentException("Unknown tracing exporter: " + exporter);
+        };
+        if (processor == null) {
+            return OpenTelemetry.noop();
+        }
+
+        Resource resource = Resource.getDefault()
+                .merge(Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), "neo-guard")));
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(resource)
+                .setSampler(Sampler.parentBased(Sampler.traceIdRatioBased(sampleRatio)))
+                .addSpanProcessor(processor)
+                .build();
+        // Closed with the context, which flushes pending spans
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .build();
+    }
+
+    @Bean
+    public Tracer tracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer("dev.neoobfuscator");
+    }
+}
@@ -1,28 +1,77 @@
 package dev.neoobfuscator.config;
 
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.time.Duration;
+import java.util.regex.Pattern;
 
 /**
- * Web MVC configuration for CORS and static resources.
+ * Web MVC configuration for CORS, static resources and the embedded Tomcat.
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    // Content hash VersionResourceResolver inserts into file names: style-<md5>.css
+    private static final Pattern FINGERPRINTED = Pattern.compile(".*-[0-9a-f]{32}\\.[^/]+$");
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/api/**")
                 .allowedOrigins("*")
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                .allowedHeaders("*");
+                .allowedMethods("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
+                .allowedHeaders("*")
+                // Response headers browser clients of resumable uploads and throttling need to read
+                .exposedHeaders("Location", "Retry-After", "Upload-Offset", "Upload-Length", "Upload-Expires",
+                        "Tus-Resumable", "Tus-Version", "Tus-Max-Size", "Tus-Extension");
     }
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve static resources from /static folder
+        // Serve static resources from /static folder, also under content-hashed names
         registry.addResourceHandler("/**")
-                .addResourceLocations("classpath:/static/");
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(true)
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Hashed names never change content; plain names are revalidated via Last-Modified
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                if (handler instanceof ResourceHttpRequestHandler) {
+                    CacheControl cacheControl = FINGERPRINTED.matcher(request.getRequestURI()).matches()
+                            ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                            : CacheControl.noCache();
+                    response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Answer "Expect: 100-continue" only once the body is read, so uploads
+     * refused by {@link AdmissionFilter} are never transmitted.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> continueOnReadCustomizer() {
+        return factory -> factory.addConnectorCustomizers(
+                connector -> connector.setProperty("continueResponseTiming", "onRead"));
     }
 }
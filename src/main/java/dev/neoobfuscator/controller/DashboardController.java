@@ -0,0 +1,72 @@
+package dev.neoobfuscator.controller;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.resource.ResourceUrlProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Serves the dashboard page with its stylesheet and script links rewritten to
+ * content-hashed URLs, which browsers may cache indefinitely. The page itself
+ * is always revalidated.
+ */
+@RestController
+public class DashboardController {
+
+    private static final Pattern ASSET_LINK = Pattern.compile("(href|src)=\"(/[^\"]+\\.(?:css|js))\"");
+
+    private final ResourceUrlProvider resourceUrlProvider;
+
+    private volatile String page;
+    private volatile String etag;
+
+    public DashboardController(ResourceUrlProvider resourceUrlProvider) {
+        this.resourceUrlProvider = resourceUrlProvider;
+    }
+
+    @GetMapping(value = { "/", "/index.html" }, produces = MediaType.TEXT_HTML_VALUE)
+    public ResponseEntity<String> index(WebRequest request) throws IOException {
+        if (page == null) {
+            render();
+        }
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(304).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(page);
+    }
+
+    private synchronized void render() throws IOException {
+        if (page != null) {
+            return;
+        }
+        String html;
+        try (InputStream in = new ClassPathResource("static/index.html").getInputStream()) {
+            html = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        Matcher matcher = ASSET_LINK.matcher(html);
+        StringBuilder sb = new StringBuilder(html.length());
+        while (matcher.find()) {
+            String url = resourceUrlProvider.getForLookupPath(matcher.group(2));
+            String link = matcher.group(1) + "=\"" + (url != null ? url : matcher.group(2)) + "\"";
+            matcher.appendReplacement(sb, Matcher.quoteReplacement(link));
+        }
+        matcher.appendTail(sb);
+
+        String rendered = sb.toString();
+        // Weak, so Tomcat still compresses the page (it skips strong ETags)
+        etag = "W/\"" + DigestUtils.md5DigestAsHex(rendered.getBytes(StandardCharsets.UTF_8)) + "\"";
+        page = rendered;
+    }
+}
@@ -1,26 +1,73 @@
 package dev.neoobfuscator.controller;
 
+import dev.neoobfuscator.config.ApiKeyFilter;
+import dev.neoobfuscator.config.InMemorySpanCollector;
+import dev.neoobfuscator.model.ApiKey;
+import dev.neoobfuscator.model.ArchivedJob;
+import dev.neoobfuscator.model.BenchmarkReport;
+import dev.neoobfuscator.model.JarAnalysis;
+import dev.neoobfuscator.model.JobEvent;
+import dev.neoobfuscator.model.JobMetrics;
+import dev.neoobfuscator.model.JobStatus;
 import dev.neoobfuscator.model.ObfuscationConfig;
 import dev.neoobfuscator.model.ObfuscationJob;
+import dev.neoobfuscator.model.ResumableUpload;
+import dev.neoobfuscator.model.SkidfuscatorEngine;
+import dev.neoobfuscator.model.StoredUpload;
+import dev.neoobfuscator.model.TenantUsage;
+import dev.neoobfuscator.model.UploadSession;
+import dev.neoobfuscator.model.WebhookSubscription;
+import dev.neoobfuscator.service.ApiKeyService;
+import dev.neoobfuscator.service.DeltaService;
+import dev.neoobfuscator.service.EngineRegistry;
 import dev.neoobfuscator.service.FileStorageService;
+import dev.neoobfuscator.service.HistoryArchiveService;
+import dev.neoobfuscator.service.HistoryExportService;
+import dev.neoobfuscator.service.HotMethodService;
+import dev.neoobfuscator.service.JarAnalysisService;
+import dev.neoobfuscator.service.MappingStore;
 import dev.neoobfuscator.service.ObfuscatorService;
+import dev.neoobfuscator.service.ReadinessService;
+import dev.neoobfuscator.service.SpanScope;
+import dev.neoobfuscator.service.UploadSessionService;
+import dev.neoobfuscator.service.UsageService;
+import dev.neoobfuscator.service.WebhookService;
 import com.google.gson.Gson;
+import io.opentelemetry.api.trace.Tracer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.jar.JarEntry;
-import java.util.jar.JarInputStream;
+import java.util.function.Consumer;
 
 /**
  * REST API controller for obfuscation operations.
@@ -31,38 +78,348 @@ public class ObfuscatorController {
 
     private static final Logger log = LoggerFactory.getLogger(ObfuscatorController.class);
 
+    // tus protocol headers for resumable uploads
+    private static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_EXPIRES = "Upload-Expires";
+    private static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    // Delta downloads (?since=), applied with tools/delta/DeltaPatch.java
+    private static final MediaType DELTA_MEDIA_TYPE = MediaType.parseMediaType("application/vnd.neoguard.delta");
+    private static final String DELTA_BASE_HEADER = "X-Delta-Base";
+
     private final ObfuscatorService obfuscatorService;
     private final FileStorageService fileStorage;
+    private final HistoryExportService historyExport;
+    private final HotMethodService hotMethodService;
+    private final JarAnalysisService jarAnalysis;
+    private final UploadSessionService uploadSessions;
+    private final WebhookService webhooks;
+    private final MappingStore mappingStore;
+    private final EngineRegistry engines;
+    private final HistoryArchiveService historyArchive;
+    private final ApiKeyService apiKeys;
+    private final UsageService usage;
+    private final DeltaService deltas;
+    private final ReadinessService readiness;
+    private final Tracer tracer;
+    private final InMemorySpanCollector spanCollector;
     private final Gson gson = new Gson();
 
-    public ObfuscatorController(ObfuscatorService obfuscatorService, FileStorageService fileStorage) {
+    // Same as the admission filter's answer to a full queue
+    @Value("${neo.admission.retry-after-seconds:30}")
+    private long retryAfterSeconds;
+
+    public ObfuscatorController(ObfuscatorService obfuscatorService, FileStorageService fileStorage,
+            HistoryExportService historyExport, HotMethodService hotMethodService, JarAnalysisService jarAnalysis,
+            UploadSessionService uploadSessions, WebhookService webhooks, MappingStore mappingStore,
+            EngineRegistry engines, HistoryArchiveService historyArchive, ApiKeyService apiKeys, UsageService usage,
+            DeltaService deltas, ReadinessService readiness, Tracer tracer, InMemorySpanCollector spanCollector) {
         this.obfuscatorService = obfuscatorService;
         this.fileStorage = fileStorage;
+        this.historyExport = historyExport;
+        this.hotMethodService = hotMethodService;
+        this.jarAnalysis = jarAnalysis;
+        this.uploadSessions = uploadSessions;
+        this.webhooks = webhooks;
+        this.mappingStore = mappingStore;
+        this.engines = engines;
+        this.historyArchive = historyArchive;
+        this.apiKeys = apiKeys;
+        this.usage = usage;
+        this.deltas = deltas;
+        this.readiness = readiness;
+        this.tracer = tracer;
+        this.spanCollector = spanCollector;
     }
 
     /**
-     * Upload and start obfuscation job.
+     * Upload a JAR once. The returned upload ID can be passed to /obfuscate
+     * any number of times until the session expires.
      */
-    @PostMapping("/obfuscate")
-    public ResponseEntity<Map<String, Object>> obfuscate(
-            @RequestParam("file") MultipartFile file,
-            @RequestParam(value = "config", required = false) String configJson) {
+    @PostMapping("/uploads")
+    public ResponseEntity<Map<String, Object>> createUpload(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> response = new HashMap<>();
+
+        String error = validateJar(file);
+        if (error != null) {
+            response.put("success", false);
+            response.put("error", error);
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            UploadSession session = uploadSessions.create(file);
+            putUpload(response, session);
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            log.error("Error storing upload", e);
+            response.put("success", false);
+            response.put("error", "Failed to store upload: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
 
+    /**
+     * Get an upload session.
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getUpload(@PathVariable String uploadId) {
         Map<String, Object> response = new HashMap<>();
 
+        Optional<UploadSession> session = uploadSessions.find(uploadId);
+        if (session.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "Upload not found or expired");
+            return ResponseEntity.status(404).body(response);
+        }
+
+        putUpload(response, session.get());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Delete an upload session before it expires.
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<Map<String, Object>> deleteUpload(@PathVariable String uploadId) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!uploadSessions.delete(uploadId)) {
+            response.put("success", false);
+            response.put("error", "Upload not found or expired");
+            return ResponseEntity.status(404).body(response);
+        }
+
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    private void putUpload(Map<String, Object> response, UploadSession session) {
+        JarAnalysis analysis = session.getAnalysis();
+        response.put("success", true);
+        response.put("uploadId", session.getId());
+        response.put("filename", session.getUpload().getOriginalFilename());
+        response.put("size", session.getUpload().getSize());
+        response.put("expiresAt", session.getExpiresAt().toString());
+        response.put("mainPackage", analysis.getMainPackage());
+        response.put("mainClass", analysis.getMainClass());
+        response.put("totalClasses", analysis.getTotalClasses());
+    }
+
+    /**
+     * Advertise resumable upload support (tus OPTIONS).
+     */
+    @RequestMapping(value = "/uploads/resumable", method = RequestMethod.OPTIONS)
+    public ResponseEntity<Void> resumableOptions() {
+        return ResponseEntity.noContent()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header("Tus-Version", TUS_VERSION)
+                .header("Tus-Extension", "creation,termination,expiration")
+                .header("Tus-Max-Size", Long.toString(uploadSessions.getResumableMaxBytes()))
+                .build();
+    }
+
+    /**
+     * Start a resumable upload. The length comes from the Upload-Length
+     * header; the file name from the "filename" parameter or tus
+     * Upload-Metadata.
+     */
+    @PostMapping("/uploads/resumable")
+    public ResponseEntity<Map<String, Object>> createResumableUpload(
+            @RequestHeader(UPLOAD_LENGTH) long length,
+            @RequestHeader(value = "Upload-Metadata", required = false) String metadata,
+            @RequestParam(value = "filename", required = false) String filename) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (filename == null) {
+            filename = tusMetadata(metadata, "filename");
+        }
+        if (filename == null || !filename.toLowerCase().endsWith(".jar")) {
+            response.put("success", false);
+            response.put("error", "Only .jar files are supported");
+            return ResponseEntity.badRequest().body(response);
+        }
+
         try {
-            // Validate file
-            if (file.isEmpty()) {
-                response.put("success", false);
-                response.put("error", "No file uploaded");
-                return ResponseEntity.badRequest().body(response);
+            ResumableUpload upload = uploadSessions.createResumable(filename, length);
+            response.put("success", true);
+            response.put("uploadId", upload.getId());
+            response.put("offset", upload.getOffset());
+            response.put("length", upload.getLength());
+            response.put("expiresAt", upload.getExpiresAt().toString());
+            return ResponseEntity.status(201)
+                    .header(HttpHeaders.LOCATION, "/api/uploads/resumable/" + upload.getId())
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(UPLOAD_OFFSET, "0")
+                    .header(UPLOAD_EXPIRES, httpDate(upload.getExpiresAt()))
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(413).body(response);
+        } catch (IOException e) {
+            log.error("Error creating resumable upload", e);
+            response.put("success", false);
+            response.put("error", "Failed to create upload: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * Current offset of a resumable upload, to resume after a dropped
+     * connection.
+     */
+    @RequestMapping(value = "/uploads/resumable/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> resumableUploadOffset(@PathVariable String uploadId) {
+        Optional<ResumableUpload> upload = uploadSessions.findResumable(uploadId);
+        if (upload.isEmpty()) {
+            return ResponseEntity.notFound().header(TUS_RESUMABLE, TUS_VERSION).build();
+        }
+        return ResponseEntity.ok()
+                .header(TUS_RESUMABLE, TUS_VERSION)
+                .header(UPLOAD_OFFSET, Long.toString(upload.get().getOffset()))
+                .header(UPLOAD_LENGTH, Long.toString(upload.get().getLength()))
+                .header(UPLOAD_EXPIRES, httpDate(upload.get().getExpiresAt()))
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .build();
+    }
+
+    /**
+     * Write the request body at Upload-Offset. Answers 204 while bytes are
+     * missing; the final chunk answers 200 with the resulting upload session
+     * (same ID, usable with /obfuscate).
+     */
+    @PatchMapping(value = "/uploads/resumable/{uploadId}", consumes = OFFSET_OCTET_STREAM)
+    public ResponseEntity<Map<String, Object>> appendResumableUpload(@PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset, HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (uploadSessions.findResumable(uploadId).isEmpty()) {
+            response.put("success", false);
+            response.put("error", "Upload not found or expired");
+            return ResponseEntity.status(404).header(TUS_RESUMABLE, TUS_VERSION).body(response);
+        }
+
+        try {
+            ResumableUpload upload = uploadSessions.appendChunk(uploadId, offset, request.getInputStream());
+            ResponseEntity.BodyBuilder ok = ResponseEntity.status(upload.getSession() != null ? 200 : 204)
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(UPLOAD_OFFSET, Long.toString(upload.getOffset()))
+                    .header(UPLOAD_EXPIRES, httpDate(upload.getExpiresAt()));
+            if (upload.getSession() == null) {
+                return ok.build();
             }
+            putUpload(response, upload.getSession());
+            return ok.body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(409).header(TUS_RESUMABLE, TUS_VERSION).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().header(TUS_RESUMABLE, TUS_VERSION).body(response);
+        } catch (IOException e) {
+            // Usually the client went away; the bytes received so far are kept
+            log.debug("Resumable upload {} interrupted: {}", uploadId, e.getMessage());
+            response.put("success", false);
+            response.put("error", "Upload interrupted: " + e.getMessage());
+            return ResponseEntity.internalServerError().header(TUS_RESUMABLE, TUS_VERSION).body(response);
+        }
+    }
 
-            String filename = file.getOriginalFilename();
-            if (filename == null || !filename.toLowerCase().endsWith(".jar")) {
-                response.put("success", false);
-                response.put("error", "Only .jar files are supported");
-                return ResponseEntity.badRequest().body(response);
+    /**
+     * Cancel a resumable upload.
+     */
+    @DeleteMapping("/uploads/resumable/{uploadId}")
+    public ResponseEntity<Void> deleteResumableUpload(@PathVariable String uploadId) {
+        if (!uploadSessions.deleteResumable(uploadId)) {
+            return ResponseEntity.notFound().header(TUS_RESUMABLE, TUS_VERSION).build();
+        }
+        return ResponseEntity.noContent().header(TUS_RESUMABLE, TUS_VERSION).build();
+    }
+
+    /**
+     * Value of a key in tus Upload-Metadata ("key base64value,key2 ...").
+     */
+    private static String tusMetadata(String metadata, String key) {
+        if (metadata == null) {
+            return null;
+        }
+        for (String pair : metadata.split(",")) {
+            String[] parts = pair.trim().split(" ", 2);
+            if (parts[0].equals(key) && parts.length == 2) {
+                try {
+                    return new String(Base64.getDecoder().decode(parts[1]), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String httpDate(LocalDateTime time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.of(time, ZoneId.systemDefault()));
+    }
+
+    /**
+     * @return an error message, or null if the file looks like a JAR
+     */
+    private String validateJar(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            return "No file uploaded";
+        }
+        String filename = file.getOriginalFilename();
+        if (filename == null || !filename.toLowerCase().endsWith(".jar")) {
+            return "Only .jar files are supported";
+        }
+        return null;
+    }
+
+    /**
+     * Start an obfuscation job for an upload session, or for a JAR uploaded
+     * with the request. A webhook URL, if given, is notified when the job
+     * completes or fails.
+     */
+    @PostMapping("/obfuscate")
+    public ResponseEntity<Map<String, Object>> obfuscate(
+            @RequestParam(value = "uploadId", required = false) String uploadId,
+            @RequestParam(value = "file", required = false) MultipartFile file,
+            @RequestParam(value = "config", required = false) String configJson,
+            @RequestParam(value = "profile", required = false) MultipartFile profile,
+            @RequestParam(value = "webhookUrl", required = false) String webhookUrl,
+            @RequestParam(value = "webhookSecret", required = false) String webhookSecret,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        SpanScope span = SpanScope.start(tracer, "ObfuscatorController.obfuscate");
+        StoredUpload staged = null;
+        try {
+            StoredUpload upload;
+            JarAnalysis analysis = null;
+            if (uploadId != null && !uploadId.isEmpty()) {
+                Optional<UploadSession> session = uploadSessions.find(uploadId);
+                if (session.isEmpty()) {
+                    response.put("success", false);
+                    response.put("error", "Upload not found or expired");
+                    return ResponseEntity.status(404).body(response);
+                }
+                upload = session.get().getUpload();
+                analysis = session.get().getAnalysis();
+            } else {
+                String error = validateJar(file);
+                if (error != null) {
+                    response.put("success", false);
+                    response.put("error", error);
+                    return ResponseEntity.badRequest().body(response);
+                }
+                staged = uploadSessions.stage(file);
+                upload = staged;
             }
 
             // Parse config or use defaults
@@ -73,27 +430,108 @@ public class ObfuscatorController {
                 config = ObfuscationConfig.builder().build();
             }
 
+            // Default to the package detected when the JAR was uploaded
+            if ((config.getMainPackage() == null || config.getMainPackage().isEmpty()) && analysis != null) {
+                config.setMainPackage(analysis.getMainPackage());
+            }
+
+            // Exempt hot methods from flow transformers
+            if (profile != null && !profile.isEmpty()) {
+                config.setHotMethods(hotMethodService.parse(profile, config.getMainPackage()));
+            }
+            config.validate();
+
+            if (webhookUrl != null && !webhookUrl.isEmpty()) {
+                webhooks.validateUrl(webhookUrl);
+            }
+
             // Create job
-            ObfuscationJob job = obfuscatorService.createJob(file, config);
+            ObfuscationJob job = obfuscatorService.createJob(upload, config, tenant);
+            span.attribute(SpanScope.JOB_ID, job.getId());
+
+            // Register the webhook before the job can finish
+            if (webhookUrl != null && !webhookUrl.isEmpty()) {
+                WebhookSubscription webhook = webhooks.register(webhookUrl, webhookSecret, job.getId(), tenant, null);
+                response.put("webhookId", webhook.getId());
+                if (webhookSecret == null || webhookSecret.isEmpty()) {
+                    response.put("webhookSecret", webhook.getSecret());
+                }
+            }
 
-            // Start async processing
-            obfuscatorService.executeObfuscation(job.getId());
+            // Queue async processing
+            long waitMs = readiness.estimatedQueueWaitMs();
+            obfuscatorService.submit(job);
 
             response.put("success", true);
             response.put("jobId", job.getId());
             response.put("status", job.getStatus().name());
             response.put("message", "Obfuscation job started");
+            if (config.getHotMethods() != null) {
+                response.put("hotMethods", config.getHotMethods());
+            }
+            JobMetrics metrics = gson.fromJson(job.getMetricsJson(), JobMetrics.class);
+            if (metrics != null && metrics.getEstimatedMs() != null) {
+                response.put("estimatedSeconds", Math.round(metrics.getEstimatedMs() / 1000.0));
+            }
+            if (job.getLeaderId() == null) {
+                response.put("estimatedWaitSeconds", Math.round(waitMs / 1000.0));
+            }
+            if (span.span().getSpanContext().isSampled()) {
+                response.put("traceId", span.span().getSpanContext().getTraceId());
+            }
 
             return ResponseEntity.ok(response);
 
+        } catch (TaskRejectedException e) {
+            // The queue filled up after the admission filter let the request in
+            response.put("success", false);
+            response.put("error", "Obfuscation queue is full, try again later");
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            // Pre-flight rejected the JAR, or the config is malformed
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
         } catch (Exception e) {
             log.error("Error starting obfuscation", e);
+            span.error(e);
             response.put("success", false);
             response.put("error", e.getMessage());
             return ResponseEntity.internalServerError().body(response);
+        } finally {
+            // The job has its own copy of a one-off upload
+            if (staged != null) {
+                try {
+                    Files.deleteIfExists(Paths.get(staged.getPath()));
+                } catch (IOException e) {
+                    log.warn("Could not delete staged upload: {}", e.getMessage());
+                }
+            }
+            span.close();
         }
     }
 
+    /**
+     * Spans of a job's trace, from submission through its Skidfuscator run.
+     * Only available with the in-memory trace exporter, for recent jobs.
+     */
+    @GetMapping("/jobs/{jobId}/trace")
+    public ResponseEntity<Map<String, Object>> getTrace(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<List<Map<String, Object>>> spans = spanCollector.findJobTrace(jobId);
+        if (spans.isEmpty()) {
+            response.put("success", false);
+            response.put("error", "No trace recorded for this job (requires TRACING_EXPORTER=memory)");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("traceId", spans.get().get(0).get("traceId"));
+        response.put("spans", spans.get());
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * Get job status.
      */
@@ -102,11 +540,19 @@ public class ObfuscatorController {
         Map<String, Object> response = new HashMap<>();
 
         Optional<ObfuscationJob> optJob = obfuscatorService.getJob(jobId);
-
-        if (optJob.isEmpty()) {
-            response.put("success", false);
-            response.put("error", "Job not found");
-            return ResponseEntity.notFound().build();
+        Map<String, Long> timing;
+        boolean archived = false;
+        if (optJob.isPresent()) {
+            timing = obfuscatorService.getJobTiming(jobId);
+        } else {
+            // Old jobs are moved to the history archive
+            Optional<ArchivedJob> archivedJob = historyArchive.find(jobId);
+            if (archivedJob.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            optJob = Optional.of(archivedJob.get().getJob());
+            timing = archivedJob.get().getTiming();
+            archived = true;
         }
 
         ObfuscationJob job = optJob.get();
@@ -118,249 +564,786 @@ public class ObfuscatorController {
         response.put("completedAt", job.getCompletedAt() != null ? job.getCompletedAt().toString() : null);
         response.put("errorMessage", job.getErrorMessage());
         response.put("logs", job.getLogs());
+        if (job.getMetricsJson() != null) {
+            response.put("metrics", gson.fromJson(job.getMetricsJson(), JobMetrics.class));
+        }
+        response.put("timing", timing);
+        if (job.getLeaderId() != null) {
+            response.put("coalescedWith", job.getLeaderId());
+        }
+        if (archived) {
+            response.put("archived", true);
+        }
+        obfuscatorService.getProgress(job).ifPresent(progress -> {
+            response.put("progress", progress);
+            response.put("etaSeconds", progress.getEtaSeconds());
+        });
 
-        if (job.getStatus().name().equals("COMPLETED")) {
+        if (job.getStatus().name().equals("COMPLETED") && !archived) {
             response.put("downloadUrl", "/api/download/" + jobId);
         }
+        if (mappingStore.exists(mappingsId(job))) {
+            response.put("retraceUrl", "/api/jobs/" + jobId + "/retrace");
+        }
+        if (job.getBenchmarkJson() != null) {
+            response.put("benchmark", gson.fromJson(job.getBenchmarkJson(), BenchmarkReport.class));
+        }
 
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Download obfuscated file.
+     * Get the lifecycle event log of a job with its timing breakdown.
      */
-    @GetMapping("/download/{jobId}")
-    public ResponseEntity<Resource> download(@PathVariable String jobId) {
-        Optional<ObfuscationJob> optJob = obfuscatorService.getJob(jobId);
+    @GetMapping("/jobs/{jobId}/events")
+    public ResponseEntity<Map<String, Object>> getEvents(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
 
-        if (optJob.isEmpty()) {
+        if (obfuscatorService.getJob(jobId).isEmpty()) {
             return ResponseEntity.notFound().build();
         }
 
-        ObfuscationJob job = optJob.get();
-        File outputFile = fileStorage.getFile(job.getOutputPath());
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (JobEvent event : obfuscatorService.getJobEvents(jobId)) {
+            Map<String, Object> map = new HashMap<>();
+            map.put("seq", event.getSeq());
+            map.put("type", event.getType().name());
+            map.put("timestamp", event.getTimestamp());
+            map.put("payloadSize", event.getPayloadSize());
+            events.add(map);
+        }
+
+        response.put("success", true);
+        response.put("jobId", jobId);
+        response.put("events", events);
+        response.put("timing", obfuscatorService.getJobTiming(jobId));
+        return ResponseEntity.ok(response);
+    }
 
-        if (!outputFile.exists()) {
+    /**
+     * Stream live progress of a job as server-sent events: "progress" events
+     * while it runs and a final "status" event.
+     */
+    @GetMapping(value = "/jobs/{jobId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamProgress(@PathVariable String jobId) {
+        Optional<ObfuscationJob> optJob = obfuscatorService.getJobSummary(jobId);
+        if (optJob.isEmpty()) {
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok(obfuscatorService.subscribeProgress(optJob.get()));
+    }
 
-        String downloadName = job.getOriginalFilename().replace(".jar", "-obfuscated.jar");
+    /**
+     * Retrace an obfuscated stack trace (or a whole log) with the job's
+     * mappings. The request body is read and the result written line by line,
+     * so large traces stream through without being buffered. Only the job's
+     * tenant (or an admin) may use its mappings.
+     */
+    @PostMapping("/jobs/{jobId}/retrace")
+    public ResponseEntity<StreamingResponseBody> retrace(@PathVariable String jobId, HttpServletRequest request,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Optional<ObfuscationJob> optJob = findLiveOrArchived(jobId);
+        if (optJob.isEmpty() || !canAccess(optJob.get(), tenant, admin)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String mappingsId = mappingsId(optJob.get());
+        if (!mappingStore.exists(mappingsId)) {
+            return ResponseEntity.status(404)
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(out -> out.write("No mappings stored for this job\n".getBytes(StandardCharsets.UTF_8)));
+        }
 
+        StreamingResponseBody body = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            try (Reader reader = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+                mappingStore.retrace(mappingsId, reader, writer);
+            }
+        };
         return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + "\"")
-                .body(new FileSystemResource(outputFile));
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(body);
     }
 
     /**
-     * Get obfuscation history.
+     * Attach ProGuard-format mappings to a job, e.g. for jobs obfuscated
+     * before mappings were kept. Only the job's tenant (or an admin) may
+     * replace its mappings.
      */
-    @GetMapping("/history")
-    public ResponseEntity<Map<String, Object>> getHistory(
-            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+    @PostMapping("/jobs/{jobId}/mappings")
+    public ResponseEntity<Map<String, Object>> importMappings(@PathVariable String jobId,
+            @RequestParam("file") MultipartFile file,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Map<String, Object> response = new HashMap<>();
+        Optional<ObfuscationJob> optJob = findLiveOrArchived(jobId);
+        if (optJob.isEmpty() || !canAccess(optJob.get(), tenant, admin)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            int classes = mappingStore.importMappings(mappingsId(optJob.get()), in);
+            response.put("success", true);
+            response.put("classes", classes);
+            response.put("retraceUrl", "/api/jobs/" + jobId + "/retrace");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Mapping import failed", e);
+            response.put("success", false);
+            response.put("error", "Mapping import failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    // Crash reports often concern releases whose jobs were archived long ago
+    private Optional<ObfuscationJob> findLiveOrArchived(String jobId) {
+        Optional<ObfuscationJob> job = obfuscatorService.getJobSummary(jobId);
+        return job.isPresent() ? job : historyArchive.find(jobId).map(ArchivedJob::getJob);
+    }
+
+    // Coalesced jobs have their leader's mappings, which are kept while any of them is live
+    private static String mappingsId(ObfuscationJob job) {
+        return job.getLeaderId() != null ? job.getLeaderId() : job.getId();
+    }
+
+    /**
+     * Register a webhook notified when one job completes or fails. Only the
+     * job's tenant (or an admin) may do so.
+     */
+    @PostMapping("/jobs/{jobId}/webhooks")
+    public ResponseEntity<Map<String, Object>> registerJobWebhook(@PathVariable String jobId,
+            @RequestParam("url") String url,
+            @RequestParam(value = "secret", required = false) String secret,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Optional<ObfuscationJob> job = obfuscatorService.getJobSummary(jobId);
+        if (job.isEmpty() || !canAccess(job.get(), tenant, admin)) {
+            return ResponseEntity.notFound().build();
+        }
+        return registerWebhook(url, secret, jobId, job.get().getTenant(), null);
+    }
+
+    /**
+     * Register a webhook notified when any job completes or fails. Its
+     * payloads cover every tenant, so it needs the admin token.
+     */
+    @PostMapping("/webhooks")
+    public ResponseEntity<Map<String, Object>> registerWebhook(@RequestParam("url") String url,
+            @RequestParam(value = "secret", required = false) String secret,
+            @RequestParam(value = "events", required = false) Set<String> events,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        if (!Boolean.TRUE.equals(admin)) {
+            return adminRequired();
+        }
+        return registerWebhook(url, secret, null, null, events);
+    }
 
+    private ResponseEntity<Map<String, Object>> registerWebhook(String url, String secret, String jobId,
+            String tenant, Set<String> events) {
         Map<String, Object> response = new HashMap<>();
-        List<ObfuscationJob> jobs = obfuscatorService.getRecentJobs(limit);
+        try {
+            WebhookSubscription webhook = webhooks.register(url, secret, jobId, tenant, events);
+            response.put("success", true);
+            response.put("webhook", webhookToMap(webhook));
+            // Only shown once; generated secrets cannot be read back later
+            response.put("secret", webhook.getSecret());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
+    /**
+     * List registered webhooks with the outcome of their last delivery.
+     * Admins see all of them, other callers the job webhooks of their tenant.
+     */
+    @GetMapping("/webhooks")
+    public ResponseEntity<Map<String, Object>> listWebhooks(
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Map<String, Object> response = new HashMap<>();
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (WebhookSubscription webhook : Boolean.TRUE.equals(admin)
+                ? webhooks.findAll() : webhooks.findByTenant(tenant)) {
+            list.add(webhookToMap(webhook));
+        }
         response.put("success", true);
-        response.put("jobs", jobs.stream().map(this::jobToMap).toList());
+        response.put("webhooks", list);
+        return ResponseEntity.ok(response);
+    }
 
+    @DeleteMapping("/webhooks/{webhookId}")
+    public ResponseEntity<Map<String, Object>> deleteWebhook(@PathVariable String webhookId,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Map<String, Object> response = new HashMap<>();
+        if (!canManage(webhookId, tenant, admin) || !webhooks.delete(webhookId)) {
+            return ResponseEntity.notFound().build();
+        }
+        response.put("success", true);
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Get available transformers.
+     * Send a signed "ping" event to a webhook.
      */
-    @GetMapping("/transformers")
-    public ResponseEntity<Map<String, Object>> getTransformers() {
+    @PostMapping("/webhooks/{webhookId}/test")
+    public ResponseEntity<Map<String, Object>> testWebhook(@PathVariable String webhookId,
+            @RequestAttribute(value = ApiKeyFilter.TENANT_ATTRIBUTE, required = false) String tenant,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
         Map<String, Object> response = new HashMap<>();
+        if (!canManage(webhookId, tenant, admin) || !webhooks.ping(webhookId)) {
+            return ResponseEntity.notFound().build();
+        }
         response.put("success", true);
-        response.put("transformers", obfuscatorService.getTransformers());
+        response.put("message", "Ping queued");
         return ResponseEntity.ok(response);
     }
 
+    // Admins manage all webhooks, tenants the job webhooks they registered
+    private boolean canManage(String webhookId, String tenant, Boolean admin) {
+        if (Boolean.TRUE.equals(admin)) {
+            return true;
+        }
+        return webhooks.findById(webhookId)
+                .filter(webhook -> webhook.getJobId() != null && Objects.equals(webhook.getTenant(), tenant))
+                .isPresent();
+    }
+
     /**
-     * Analyze JAR file to detect main package.
-     * Tries plugin.yml, paper-plugin.yml, bungee.yml, MANIFEST.MF first.
-     * Falls back to scanning all class files to find the most common package
-     * prefix.
+     * Whether a caller may act on a job: admins on any, others on jobs of
+     * their own tenant (jobs submitted without a key have none).
      */
-    @PostMapping("/analyze")
-    public ResponseEntity<Map<String, Object>> analyzeJar(@RequestParam("file") MultipartFile file) {
+    private static boolean canAccess(ObfuscationJob job, String tenant, Boolean admin) {
+        return Boolean.TRUE.equals(admin) || Objects.equals(job.getTenant(), tenant);
+    }
+
+    private static ResponseEntity<Map<String, Object>> adminRequired() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("error", "Admin token required");
+        return ResponseEntity.status(403).body(response);
+    }
+
+    private Map<String, Object> webhookToMap(WebhookSubscription webhook) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", webhook.getId());
+        map.put("url", webhook.getUrl());
+        map.put("jobId", webhook.getJobId());
+        map.put("events", webhook.getEvents());
+        map.put("createdAt", webhook.getCreatedAt() != null ? webhook.getCreatedAt().toString() : null);
+        map.put("lastStatus", webhook.getLastStatus());
+        map.put("lastError", webhook.getLastError());
+        map.put("lastDeliveryAt", webhook.getLastDeliveryAt() != null ? webhook.getLastDeliveryAt().toString() : null);
+        return map;
+    }
+
+    /**
+     * List registered Skidfuscator engines with their trial results.
+     */
+    @GetMapping("/engines")
+    public ResponseEntity<Map<String, Object>> listEngines() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("engines", engines.findAll().stream().map(this::engineToMap).toList());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Register a Skidfuscator JAR as an engine. It runs nothing until it is
+     * made the default, a candidate, or pinned by a job's "engine" setting.
+     */
+    @PostMapping("/engines")
+    public ResponseEntity<Map<String, Object>> registerEngine(@RequestParam("file") MultipartFile file) {
         Map<String, Object> response = new HashMap<>();
+        try (InputStream in = file.getInputStream()) {
+            SkidfuscatorEngine engine = engines.register(in, file.getOriginalFilename(), false);
+            response.put("success", true);
+            response.put("engine", engineToMap(engine));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Engine registration failed", e);
+            response.put("success", false);
+            response.put("error", "Engine registration failed: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
 
+    /**
+     * Make an engine the default for jobs that do not pin one.
+     */
+    @PostMapping("/engines/{engineId}/default")
+    public ResponseEntity<Map<String, Object>> setDefaultEngine(@PathVariable String engineId) {
+        return updateEngine(engineId, engine -> engines.setDefault(engine.getId()));
+    }
+
+    /**
+     * Re-run a share (0-1) of completed jobs on an engine and record both
+     * runs. A share of 0 stops the trial.
+     */
+    @PostMapping("/engines/{engineId}/candidate")
+    public ResponseEntity<Map<String, Object>> setCandidateEngine(@PathVariable String engineId,
+            @RequestParam("share") double share) {
+        return updateEngine(engineId, engine -> engines.setCandidate(engine.getId(), share));
+    }
+
+    private ResponseEntity<Map<String, Object>> updateEngine(String engineId,
+            Consumer<SkidfuscatorEngine> update) {
+        Map<String, Object> response = new HashMap<>();
         try {
-            if (file.isEmpty() || !file.getOriginalFilename().toLowerCase().endsWith(".jar")) {
-                response.put("success", false);
-                response.put("error", "Invalid JAR file");
-                return ResponseEntity.badRequest().body(response);
+            SkidfuscatorEngine engine = engines.resolve(engineId);
+            update.accept(engine);
+            try {
+                obfuscatorService.prepareEngine(engine.getId());
+            } catch (TaskRejectedException e) {
+                log.warn("Could not queue CDS archive build for engine {}: queue is full", engineId);
             }
+            response.put("success", true);
+            response.put("engine", engineToMap(engines.findById(engine.getId()).orElse(engine)));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
-            String mainPackage = "";
-            String mainClass = "";
-            List<String> allPackages = new ArrayList<>();
+    /**
+     * Trials recorded for a candidate engine, newest first.
+     */
+    @GetMapping("/engines/{engineId}/trials")
+    public ResponseEntity<Map<String, Object>> getEngineTrials(@PathVariable String engineId,
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            SkidfuscatorEngine engine = engines.resolve(engineId);
+            response.put("success", true);
+            response.put("engine", engineToMap(engine));
+            response.put("trials", engines.findTrials(engine.getId(), Math.max(1, Math.min(limit, 1000))));
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
-            try (InputStream is = file.getInputStream();
-                    JarInputStream jis = new JarInputStream(is)) {
+    /**
+     * Remove an engine that is not the default.
+     */
+    @DeleteMapping("/engines/{engineId}")
+    public ResponseEntity<Map<String, Object>> deleteEngine(@PathVariable String engineId) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            engines.delete(engines.resolve(engineId).getId());
+            response.put("success", true);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IOException e) {
+            response.put("success", false);
+            response.put("error", "Could not remove engine: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
 
-                // First check MANIFEST.MF for Main-Class
-                java.util.jar.Manifest manifest = jis.getManifest();
-                if (manifest != null) {
-                    String manifestMain = manifest.getMainAttributes().getValue("Main-Class");
-                    if (manifestMain != null && !manifestMain.isEmpty()) {
-                        mainClass = manifestMain;
-                    }
-                }
+    /**
+     * List API keys. Secrets are never returned after creation.
+     */
+    @GetMapping("/keys")
+    public ResponseEntity<Map<String, Object>> listApiKeys() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("keys", apiKeys.findAll().stream().map(this::apiKeyToMap).toList());
+        return ResponseEntity.ok(response);
+    }
 
-                // Scan all entries
-                JarEntry entry;
-                while ((entry = jis.getNextJarEntry()) != null) {
-                    String name = entry.getName();
-
-                    // Check for plugin.yml (Bukkit plugins)
-                    if (name.equals("plugin.yml") || name.equals("paper-plugin.yml") || name.equals("bungee.yml")) {
-                        StringBuilder content = new StringBuilder();
-                        byte[] buffer = new byte[1024];
-                        int len;
-                        while ((len = jis.read(buffer)) > 0) {
-                            content.append(new String(buffer, 0, len));
-                        }
-
-                        // Parse main class from yml
-                        String yml = content.toString();
-                        for (String line : yml.split("\n")) {
-                            line = line.trim();
-                            if (line.startsWith("main:")) {
-                                mainClass = line.substring(5).trim();
-                                mainClass = mainClass.replace("\"", "").replace("'", "");
-                                break;
-                            }
-                        }
-                    }
+    /**
+     * Issue an API key for a tenant. The returned key is shown only once.
+     */
+    @PostMapping("/keys")
+    public ResponseEntity<Map<String, Object>> createApiKey(
+            @RequestParam("tenant") String tenant,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "ratePerMinute", required = false) Integer ratePerMinute,
+            @RequestParam(value = "burst", required = false) Integer burst) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ApiKeyService.IssuedKey issued = apiKeys.create(tenant, name, ratePerMinute, burst);
+            response.put("success", true);
+            response.put("key", apiKeyToMap(issued.key()));
+            response.put("token", issued.token());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
 
-                    // Collect all class file packages (skip common library packages)
-                    if (name.endsWith(".class") && !entry.isDirectory()) {
-                        // Convert path to package name
-                        String className = name.replace("/", ".").replace(".class", "");
-
-                        // Skip common library/framework packages (generic for all Java apps)
-                        if (className.startsWith("META-INF.") ||
-                                className.startsWith("org.apache.") ||
-                                className.startsWith("org.slf4j.") ||
-                                className.startsWith("org.log4j.") ||
-                                className.startsWith("com.google.") ||
-                                className.startsWith("org.jetbrains.") ||
-                                className.startsWith("kotlin.") ||
-                                className.startsWith("org.intellij.") ||
-                                className.startsWith("io.netty.") ||
-                                className.startsWith("com.fasterxml.") ||
-                                className.startsWith("org.objectweb.") ||
-                                className.startsWith("javax.") ||
-                                className.startsWith("java.") ||
-                                className.startsWith("sun.") ||
-                                className.startsWith("jdk.")) {
-                            continue;
-                        }
-
-                        int lastDot = className.lastIndexOf('.');
-                        if (lastDot > 0) {
-                            String pkg = className.substring(0, lastDot);
-                            allPackages.add(pkg);
-                        }
-                    }
+    @DeleteMapping("/keys/{keyId}")
+    public ResponseEntity<Map<String, Object>> revokeApiKey(@PathVariable String keyId) {
+        Map<String, Object> response = new HashMap<>();
+        if (!apiKeys.revoke(keyId)) {
+            response.put("success", false);
+            response.put("error", "API key not found");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Daily Skidfuscator CPU time and bytes processed per tenant, by default
+     * for the last 30 days. Callers with an API key only see their own tenant.
+     */
+    @GetMapping("/usage")
+    public ResponseEntity<Map<String, Object>> getUsage(
+            @RequestParam(value = "tenant", required = false) String tenant,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to,
+            @RequestAttribute(value = ApiKeyFilter.API_KEY_ATTRIBUTE, required = false) ApiKey key,
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        Map<String, Object> response = new HashMap<>();
+        if (key != null && !Boolean.TRUE.equals(admin)) {
+            tenant = key.getTenant();
+        } else if (!Boolean.TRUE.equals(admin)) {
+            response.put("success", false);
+            response.put("error", "API key or admin token required");
+            return ResponseEntity.status(401).body(response);
+        }
+
+        LocalDate toDay;
+        LocalDate fromDay;
+        try {
+            toDay = to != null && !to.isEmpty() ? LocalDate.parse(to) : LocalDate.now();
+            fromDay = from != null && !from.isEmpty() ? LocalDate.parse(from) : toDay.minusDays(29);
+        } catch (DateTimeParseException e) {
+            response.put("success", false);
+            response.put("error", "Dates must be formatted as yyyy-MM-dd");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        List<TenantUsage> days = usage.find(tenant != null && !tenant.isEmpty() ? tenant : null, fromDay, toDay);
+        // Per-tenant sums over the range; their day is left unset
+        Map<String, TenantUsage> totals = new TreeMap<>();
+        for (TenantUsage day : days) {
+            TenantUsage total = totals.computeIfAbsent(day.getTenant(),
+                    t -> TenantUsage.builder().tenant(t).build());
+            total.setJobs(total.getJobs() + day.getJobs());
+            total.setFailedJobs(total.getFailedJobs() + day.getFailedJobs());
+            total.setCpuSeconds(total.getCpuSeconds() + day.getCpuSeconds());
+            total.setInputBytes(total.getInputBytes() + day.getInputBytes());
+            total.setOutputBytes(total.getOutputBytes() + day.getOutputBytes());
+        }
+
+        response.put("success", true);
+        response.put("from", fromDay.toString());
+        response.put("to", toDay.toString());
+        response.put("totals", totals.values());
+        response.put("days", days);
+        return ResponseEntity.ok(response);
+    }
+
+    private Map<String, Object> apiKeyToMap(ApiKey key) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", key.getId());
+        map.put("tenant", key.getTenant());
+        map.put("name", key.getName());
+        map.put("ratePerMinute", key.getRatePerMinute());
+        map.put("burst", key.getBurst());
+        map.put("createdAt", key.getCreatedAt() != null ? key.getCreatedAt().toString() : null);
+        map.put("revokedAt", key.getRevokedAt() != null ? key.getRevokedAt().toString() : null);
+        return map;
+    }
+
+    private Map<String, Object> engineToMap(SkidfuscatorEngine engine) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("id", engine.getId());
+        map.put("filename", engine.getFilename());
+        map.put("sizeBytes", engine.getSizeBytes());
+        map.put("registeredAt", engine.getRegisteredAt() != null ? engine.getRegisteredAt().toString() : null);
+        map.put("configured", engine.isConfigured());
+        map.put("default", engine.isDefaultEngine());
+        map.put("candidateShare", engine.getCandidateShare());
+        map.put("trials", engines.summarize(engine.getId()));
+        return map;
+    }
+
+    /**
+     * Download obfuscated file. With "since", a client that holds the output of
+     * an earlier job gets a delta from it instead, when one is worthwhile.
+     */
+    @GetMapping("/download/{jobId}")
+    public ResponseEntity<StreamingResponseBody> download(@PathVariable String jobId,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) throws IOException {
+        Optional<ObfuscationJob> optJob = obfuscatorService.getJobSummary(jobId);
+
+        if (optJob.isEmpty() || optJob.get().getStatus() != JobStatus.COMPLETED) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ObfuscationJob job = optJob.get();
+        Optional<Long> size = fileStorage.outputSize(job.getOutputPath());
+
+        if (size.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        String downloadName = job.getOriginalFilename().replace(".jar", "-obfuscated.jar");
+        long total = size.get();
+
+        // Anything that rules out a delta falls back to the full output; only earlier builds of the same
+        // file for the same tenant are diffed against
+        if (since != null && !since.equals(jobId) && range == null) {
+            Optional<ObfuscationJob> base = obfuscatorService.getJobSummary(since);
+            if (base.isPresent() && base.get().getStatus() == JobStatus.COMPLETED
+                    && DeltaService.sameLineage(base.get(), job)
+                    && fileStorage.outputSize(base.get().getOutputPath()).isPresent()) {
+                Optional<Path> delta = deltas.delta(base.get(), job);
+                if (delta.isPresent()) {
+                    return deltaResponse(delta.get(), since, downloadName);
                 }
             }
+        }
 
-            // Extract package from main class if found
-            if (!mainClass.isEmpty()) {
-                int lastDot = mainClass.lastIndexOf('.');
-                if (lastDot > 0) {
-                    mainPackage = mainClass.substring(0, lastDot);
+        // Single byte range, so interrupted downloads can resume
+        long start = 0;
+        long end = total - 1;
+        boolean partial = false;
+        if (range != null && range.startsWith("bytes=") && !range.contains(",")) {
+            String spec = range.substring(6).trim();
+            int dash = spec.indexOf('-');
+            try {
+                if (dash == 0) {
+                    start = Math.max(0, total - Long.parseLong(spec.substring(1)));
+                } else if (dash > 0) {
+                    start = Long.parseLong(spec.substring(0, dash));
+                    if (dash < spec.length() - 1) {
+                        end = Math.min(end, Long.parseLong(spec.substring(dash + 1)));
+                    }
                 }
+                partial = dash >= 0;
+            } catch (NumberFormatException e) {
+                partial = false;
+            }
+            if (partial && (start > end || start >= total)) {
+                return ResponseEntity.status(416)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + total)
+                        .build();
             }
+        }
 
-            // If no main package found from yml/manifest, analyze class packages
-            if (mainPackage.isEmpty() && !allPackages.isEmpty()) {
-                mainPackage = findMostCommonPackagePrefix(allPackages);
-                log.info("Detected package from class analysis: {}", mainPackage);
+        long offset = start;
+        long length = end - start + 1;
+        StreamingResponseBody body = out -> {
+            try (InputStream in = fileStorage.openOutput(job.getOutputPath(), offset, length)) {
+                in.transferTo(out);
             }
+        };
 
-            response.put("success", true);
-            response.put("mainPackage", mainPackage);
-            response.put("mainClass", mainClass);
-            response.put("totalClasses", allPackages.size());
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? 206 : 200)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(length)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + "\"");
+        if (partial) {
+            response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + total);
+        }
+        return response.body(body);
+    }
 
-            return ResponseEntity.ok(response);
+    private ResponseEntity<StreamingResponseBody> deltaResponse(Path delta, String baseJobId, String downloadName)
+            throws IOException {
+        StreamingResponseBody body = out -> {
+            try (InputStream in = Files.newInputStream(delta)) {
+                in.transferTo(out);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(DELTA_MEDIA_TYPE)
+                .contentLength(Files.size(delta))
+                .header(DELTA_BASE_HEADER, baseJobId)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + downloadName + ".delta\"")
+                .body(body);
+    }
 
-        } catch (
+    /**
+     * Get obfuscation history.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<Map<String, Object>> getHistory(
+            @RequestParam(value = "limit", defaultValue = "20") int limit, WebRequest request) {
 
-        IOException e) {
-            log.error("Error analyzing JAR", e);
+        // Unchanged history is answered with 304 before querying the database
+        String etag = historyEtag("history-" + limit);
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        List<ObfuscationJob> jobs = obfuscatorService.getRecentJobs(limit);
+
+        response.put("success", true);
+        response.put("jobs", jobs.stream().map(this::jobToMap).toList());
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    /**
+     * Size of the history database and archive, and the last maintenance run.
+     */
+    @GetMapping("/history/stats")
+    public ResponseEntity<Map<String, Object>> getHistoryStats() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("stats", historyArchive.stats());
+            response.put("maintenanceRunning", historyArchive.isMaintenanceRequested());
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
             response.put("success", false);
-            response.put("error", "Failed to analyze JAR: " + e.getMessage());
+            response.put("error", e.getMessage());
             return ResponseEntity.internalServerError().body(response);
         }
     }
 
     /**
-     * Find the most common package prefix from a list of package names.
-     * This identifies the "root" package of the project.
+     * Start history archival and database compaction now instead of waiting
+     * for the maintenance window. Runs in the background; the outcome shows
+     * up in /api/history/stats.
+     */
+    @PostMapping("/history/maintenance")
+    public ResponseEntity<Map<String, Object>> runHistoryMaintenance(
+            @RequestAttribute(value = ApiKeyFilter.ADMIN_ATTRIBUTE, required = false) Boolean admin) {
+        if (!Boolean.TRUE.equals(admin)) {
+            return adminRequired();
+        }
+        Map<String, Object> response = new HashMap<>();
+        if (!historyArchive.startMaintenance()) {
+            response.put("success", false);
+            response.put("error", "History maintenance is already running");
+            return ResponseEntity.status(409).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "History maintenance started");
+        response.put("statsUrl", "/api/history/stats");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Stream the full job history as NDJSON or CSV.
+     * Supports filtering by status and creation date range (yyyy-MM-dd or ISO
+     * date-time; a date-only "to" includes that whole day).
      */
-    private String findMostCommonPackagePrefix(List<String> packages) {
-        if (packages.isEmpty())
-            return "";
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "status", required = false) String status,
+            @RequestParam(value = "from", required = false) String from,
+            @RequestParam(value = "to", required = false) String to) {
+
+        HistoryExportService.ExportFormat exportFormat;
+        JobStatus statusFilter;
+        LocalDateTime fromBound;
+        LocalDateTime toBound;
+        try {
+            exportFormat = HistoryExportService.ExportFormat.valueOf(format.toUpperCase());
+            statusFilter = status != null && !status.isBlank() ? JobStatus.valueOf(status.toUpperCase()) : null;
+            fromBound = HistoryExportService.parseBound(from, false);
+            toBound = HistoryExportService.parseBound(to, true);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("error", "Invalid export filter: " + e.getMessage());
+            String json = gson.toJson(response);
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(out -> out.write(json.getBytes(StandardCharsets.UTF_8)));
+        }
 
-        // Count frequency of each package and its parent packages
-        Map<String, Integer> prefixCounts = new HashMap<>();
+        boolean csv = exportFormat == HistoryExportService.ExportFormat.CSV;
+        StreamingResponseBody body = out -> historyExport.export(exportFormat, statusFilter, fromBound, toBound, out);
 
-        for (String pkg : packages) {
-            String[] parts = pkg.split("\\.");
-            StringBuilder prefix = new StringBuilder();
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"neoguard-history." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
 
-            for (int i = 0; i < parts.length; i++) {
-                if (i > 0)
-                    prefix.append(".");
-                prefix.append(parts[i]);
+    /**
+     * Get available transformers.
+     */
+    @GetMapping("/transformers")
+    public ResponseEntity<Map<String, Object>> getTransformers(WebRequest request) {
+        String etag = historyEtag("transformers");
+        if (request.checkNotModified(etag)) {
+            return notModified(etag);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("transformers", obfuscatorService.getTransformers());
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(response);
+    }
+
+    // Weak, so Tomcat still compresses the response (it skips strong ETags)
+    private String historyEtag(String resource) {
+        return "W/\"" + resource + "-" + obfuscatorService.getHistoryVersion() + "\"";
+    }
+
+    private <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(304).eTag(etag).cacheControl(CacheControl.noCache()).build();
+    }
+
+    /**
+     * Analyze JAR file to detect main package.
+     */
+    @PostMapping("/analyze")
+    public ResponseEntity<Map<String, Object>> analyzeJar(@RequestParam("file") MultipartFile file) {
+        Map<String, Object> response = new HashMap<>();
 
-                String currentPrefix = prefix.toString();
-                prefixCounts.merge(currentPrefix, 1, Integer::sum);
+        try {
+            if (file.isEmpty() || !file.getOriginalFilename().toLowerCase().endsWith(".jar")) {
+                response.put("success", false);
+                response.put("error", "Invalid JAR file");
+                return ResponseEntity.badRequest().body(response);
             }
-        }
 
-        // Find the best package prefix
-        // We want the shortest prefix that contains most of the classes
-        int totalClasses = packages.size();
-        String bestPrefix = "";
-        int bestScore = 0;
-
-        for (Map.Entry<String, Integer> entry : prefixCounts.entrySet()) {
-            String prefix = entry.getKey();
-            int count = entry.getValue();
-            int depth = prefix.split("\\.").length;
-
-            // Score: favor prefixes that cover most classes but aren't too short
-            // Minimum depth of 2 (e.g., "com.example" not just "com")
-            if (depth >= 2 && count >= totalClasses * 0.7) {
-                // Prefer deeper packages that still cover most classes
-                int score = count * depth;
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestPrefix = prefix;
-                }
+            JarAnalysis analysis;
+            try (InputStream is = file.getInputStream()) {
+                analysis = jarAnalysis.analyze(is);
             }
-        }
 
-        // If no good prefix found, use the most common full package
-        if (bestPrefix.isEmpty()) {
-            bestPrefix = packages.stream()
-                    .collect(java.util.stream.Collectors.groupingBy(p -> p, java.util.stream.Collectors.counting()))
-                    .entrySet().stream()
-                    .max(Map.Entry.comparingByValue())
-                    .map(Map.Entry::getKey)
-                    .orElse("");
-        }
+            response.put("success", true);
+            response.put("mainPackage", analysis.getMainPackage());
+            response.put("mainClass", analysis.getMainClass());
+            response.put("totalClasses", analysis.getTotalClasses());
 
-        return bestPrefix;
+            return ResponseEntity.ok(response);
+
+        } catch (IOException e) {
+            log.error("Error analyzing JAR", e);
+            response.put("success", false);
+            response.put("error", "Failed to analyze JAR: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
     }
 
     /**
@@ -375,6 +1358,30 @@ public class ObfuscatorController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Liveness: the process is up and not broken. Restart it when this fails.
+     */
+    @GetMapping("/health/live")
+    public ResponseEntity<Map<String, Object>> live() {
+        Map<String, Object> response = new HashMap<>();
+        boolean live = readiness.isLive();
+        response.put("status", live ? "UP" : "DOWN");
+        return ResponseEntity.status(live ? 200 : 503).body(response);
+    }
+
+    /**
+     * Readiness: this node takes new jobs. Route uploads elsewhere while it
+     * fails, as it does from the start of a shutdown.
+     */
+    @GetMapping("/health/ready")
+    public ResponseEntity<Map<String, Object>> ready() {
+        ReadinessService.Readiness state = readiness.readiness();
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", state.ready() ? "UP" : "DOWN");
+        response.put("checks", state.checks());
+        return ResponseEntity.status(state.ready() ? 200 : 503).body(response);
+    }
+
     private Map<String, Object> jobToMap(ObfuscationJob job) {
         Map<String, Object> map = new HashMap<>();
         map.put("id", job.getId());
@@ -384,8 +1391,8 @@ public class ObfuscatorController {
         map.put("completedAt", job.getCompletedAt() != null ? job.getCompletedAt().toString() : null);
         map.put("errorMessage", job.getErrorMessage());
 
-        // Add file size if output exists
-        if (job.getOutputPath() != null) {
+        // Add file size if output exists; a running job's output is still being written
+        if (job.getOutputPath() != null && job.getStatus() == JobStatus.COMPLETED) {
             File f = new File(job.getOutputPath());
             if (f.exists()) {
                 map.put("outputSize", formatFileSize(f.length()));
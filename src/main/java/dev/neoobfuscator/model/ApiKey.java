@@ -0,0 +1,30 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An API key identifying a tenant. Only a hash of the secret is kept.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ApiKey {
+    // Public part of the key, e.g. "ngk_3f9a1c2b7d40"
+    private String id;
+    private String tenant;
+    private String name;
+    private String secretHash;
+
+    // Uploads and job submissions allowed per minute, with bursts of up to this many at once
+    private int ratePerMinute;
+    private int burst;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime revokedAt;
+}
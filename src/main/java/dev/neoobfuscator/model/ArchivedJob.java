@@ -0,0 +1,23 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * A finished job moved out of the database into a history archive file,
+ * with its logs and the phase timing derived from its event log.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedJob {
+    private ObfuscationJob job;
+    private Map<String, Long> timing;
+    private LocalDateTime archivedAt;
+}
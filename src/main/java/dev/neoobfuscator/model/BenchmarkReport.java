@@ -0,0 +1,68 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Runtime overhead of an obfuscated JAR compared to its input.
+ * Each transformer is measured on its own, plus the delivered JAR with the
+ * full configuration ("all").
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BenchmarkReport {
+
+    // PENDING, PROCESSING, COMPLETED or FAILED
+    private JobStatus status;
+
+    private String error;
+
+    // Methods of the main package that were benchmarked
+    private Integer methodCount;
+
+    // Wall time of the whole benchmark stage
+    private Long durationMs;
+
+    // CPU time of the variant runs and harness JVMs, charged to the tenant
+    private Long cpuMs;
+
+    private List<TransformerResult> transformers;
+
+    /**
+     * Throughput and allocation change for one transformer.
+     * Negative throughput change means the obfuscated code is slower.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TransformerResult {
+
+        private String transformer;
+
+        // Methods measured on both the original and this variant
+        private Integer methods;
+
+        // Geometric mean of per-method throughput ratios, as a percentage change
+        private Double throughputChangePct;
+
+        // Change in total bytes allocated per call across all methods
+        private Double allocationChangePct;
+
+        // Method with the largest throughput regression
+        private String slowestMethod;
+        private Double slowestMethodChangePct;
+
+        // Methods that failed on this variant but not on the original
+        private Integer errors;
+
+        // Set when the variant could not be built or measured
+        private String error;
+    }
+}
@@ -0,0 +1,46 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Size of the history database and archive, and the outcome of the last
+ * maintenance run.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DatabaseStats {
+
+    // === SQLite ===
+
+    private long databaseBytes;
+    private long walBytes;
+    private long pageSize;
+    private long pageCount;
+
+    // Pages on the freelist, returned to the file system by vacuuming
+    private long freePages;
+
+    // NONE, FULL or INCREMENTAL
+    private String autoVacuum;
+
+    // === Jobs ===
+
+    private long liveJobs;
+    private long archivedJobs;
+    private long archiveBytes;
+    private int archivePartitions;
+
+    // === Last maintenance run ===
+
+    private LocalDateTime lastMaintenanceAt;
+    private Long lastMaintenanceMs;
+    private Integer lastArchivedJobs;
+    private Long lastReclaimedBytes;
+}
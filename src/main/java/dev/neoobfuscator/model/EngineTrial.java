@@ -0,0 +1,38 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A completed job re-run on a candidate engine, with the measurements of
+ * both runs side by side.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngineTrial {
+    private String jobId;
+    private String baselineEngineId;
+    private String candidateEngineId;
+    private LocalDateTime createdAt;
+
+    // Skidfuscator wall time
+    private Long baselineMs;
+    private Long candidateMs;
+
+    // Peak resident set size of the Skidfuscator process
+    private Long baselinePeakRssBytes;
+    private Long candidatePeakRssBytes;
+
+    // Size of the JAR Skidfuscator wrote, before any repacking
+    private Long baselineOutputBytes;
+    private Long candidateOutputBytes;
+
+    // Why the candidate run failed, null if it succeeded
+    private String error;
+}
@@ -0,0 +1,22 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Candidate-to-baseline comparison over an engine's trials. Ratios are
+ * medians of candidate / baseline per job, so 0.9 means 10% less.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EngineTrialSummary {
+    private int trials;
+    private int failures;
+    private Double runtimeRatio;
+    private Double peakRssRatio;
+    private Double outputSizeRatio;
+}
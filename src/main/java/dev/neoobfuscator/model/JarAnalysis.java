@@ -0,0 +1,21 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Main package detected in an uploaded JAR.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JarAnalysis {
+    private String mainPackage;
+    private String mainClass;
+
+    // Application classes outside common library packages
+    private int totalClasses;
+}
@@ -0,0 +1,23 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A single entry of a job's event log.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobEvent {
+    private String jobId;
+    private int seq;
+    private JobEventType type;
+    private long timestamp;
+
+    // Decoded payload size in bytes (log text or error message)
+    private int payloadSize;
+}
@@ -0,0 +1,33 @@
+package dev.neoobfuscator.model;
+
+/**
+ * Lifecycle event types stored in the job event log.
+ * Codes are persisted, so existing values must never change.
+ */
+public enum JobEventType {
+    CREATED(1),
+    QUEUED(2),
+    STARTED(3),
+    LOG_CHUNK(4),
+    COMPLETED(5),
+    FAILED(6);
+
+    private final int code;
+
+    JobEventType(int code) {
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public static JobEventType fromCode(int code) {
+        for (JobEventType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown job event type: " + code);
+    }
+}
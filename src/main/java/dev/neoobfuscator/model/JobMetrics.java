@@ -0,0 +1,70 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Performance metrics recorded for an obfuscation job.
+ * Unset fields are left null so they are omitted from the stored JSON.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobMetrics {
+
+    // Size of the uploaded JAR in bytes
+    private Long inputBytes;
+
+    // Size of the obfuscated JAR in bytes
+    private Long outputBytes;
+
+    // === Pre-flight ===
+
+    // Number of classes in the uploaded JAR
+    private Long classCount;
+
+    // Uncompressed bytecode size of those classes
+    private Long classBytes;
+
+    // Runtime estimate made at submission time
+    private Long estimatedMs;
+
+    // === Engine ===
+
+    // Skidfuscator engine the job ran on
+    private String engineId;
+
+    // Size of the JAR Skidfuscator wrote, before any repacking
+    private Long engineOutputBytes;
+
+    // === Child JVM ===
+
+    // Flag profile used for the Skidfuscator JVM (small, large)
+    private String jvmProfile;
+
+    // Whether the child JVM was started with the shared CDS archive
+    private Boolean cdsArchiveUsed;
+
+    // Time from process start until Skidfuscator printed its first line
+    private Long childStartupMs;
+
+    // Total wall time of the Skidfuscator process
+    private Long skidfuscatorMs;
+
+    // Peak resident set size of the Skidfuscator process
+    private Long peakRssBytes;
+
+    // User and system CPU time of the Skidfuscator process
+    private Long skidfuscatorCpuMs;
+
+    // === Repack ===
+
+    // Wall time of the repack stage
+    private Long repackMs;
+
+    // Bytes removed from the Skidfuscator output by repacking
+    private Long repackSavedBytes;
+}
@@ -0,0 +1,33 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live progress of a running job, parsed from Skidfuscator's output.
+ * Fields are null until the output reports them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobProgress {
+    private String jobId;
+
+    // Current phase, e.g. "Importing classes" or "Transforming"
+    private String phase;
+    private Integer phaseIndex;
+    private Integer phaseCount;
+
+    private String transformer;
+    private Long classesProcessed;
+    private Long classesTotal;
+
+    // Overall completion, 0-100
+    private Double percent;
+
+    private long elapsedMs;
+    private Long etaSeconds;
+}
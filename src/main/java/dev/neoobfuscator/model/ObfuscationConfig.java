@@ -5,17 +5,25 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Configuration for an obfuscation job.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ObfuscationConfig {
 
+    private static final String IDENTIFIER = "\\p{javaJavaIdentifierStart}\\p{javaJavaIdentifierPart}*";
+
+    // Hot method entry: binary class name, '#', method name
+    private static final Pattern HOT_METHOD = Pattern.compile(
+            IDENTIFIER + "(\\." + IDENTIFIER + ")*#(<init>|<clinit>|" + IDENTIFIER + ")");
+
     // Main package to obfuscate (others are exempted)
     private String mainPackage;
 
@@ -60,6 +68,66 @@ public class ObfuscationConfig {
     // Exempt patterns (classes/packages to skip)
     private List<String> exemptPatterns;
 
+    // Hot methods ("com.example.Foo#bar") exempted from flow transformers
+    private List<String> hotMethods;
+
+    // Repack the output: parallel deflate, debug info stripped, stable order
+    @Builder.Default
+    private boolean repack = false;
+
+    // Benchmark the runtime overhead of the output after the job completes
+    @Builder.Default
+    private boolean benchmark = false;
+
+    // Skidfuscator engine ID to run on; null runs the default engine
+    private String engine;
+
+    /**
+     * Whether the transformer with the given ID is enabled.
+     */
+    public boolean isTransformerEnabled(String transformer) {
+        return switch (transformer) {
+            case "stringEncryption" -> stringEncryption;
+            case "numberEncryption" -> numberEncryption;
+            case "flowCondition" -> flowCondition;
+            case "flowException" -> flowException;
+            case "flowRange" -> flowRange;
+            case "flowSwitch" -> flowSwitch;
+            case "ahegao" -> ahegao;
+            default -> false;
+        };
+    }
+
+    /**
+     * Names of the enabled transformers that change runtime behaviour.
+     */
+    public List<String> enabledTransformers() {
+        List<String> enabled = new ArrayList<>();
+        for (String transformer : List.of("stringEncryption", "numberEncryption", "flowCondition",
+                "flowException", "flowRange", "flowSwitch")) {
+            if (isTransformerEnabled(transformer)) {
+                enabled.add(transformer);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * Copy of this config with only the named transformer enabled.
+     */
+    public ObfuscationConfig onlyTransformer(String transformer) {
+        return toBuilder()
+                .stringEncryption(transformer.equals("stringEncryption"))
+                .numberEncryption(transformer.equals("numberEncryption"))
+                .flowCondition(transformer.equals("flowCondition"))
+                .flowException(transformer.equals("flowException"))
+                .flowRange(transformer.equals("flowRange"))
+                .flowSwitch(transformer.equals("flowSwitch"))
+                .ahegao(false)
+                .benchmark(false)
+                .build();
+    }
+
     /**
      * Generate HOCON config content for Skidfuscator.
      */
@@ -99,14 +167,14 @@ public class ObfuscationConfig {
         // Flow Condition
         sb.append("flowCondition {\n");
         sb.append("    enabled: ").append(flowCondition).append("\n");
-        sb.append("    exempt: []\n");
+        appendHotMethodExempt(sb);
         sb.append("}\n\n");
 
         // Flow Exception
         sb.append("flowException {\n");
         sb.append("    enabled: ").append(flowException).append("\n");
         sb.append("    strength: ").append(flowExceptionStrength).append("\n");
-        sb.append("    exempt: []\n");
+        appendHotMethodExempt(sb);
         sb.append("}\n\n");
 
         // Flow Range
@@ -118,7 +186,7 @@ public class ObfuscationConfig {
         // Flow Switch
         sb.append("flowSwitch {\n");
         sb.append("    enabled: ").append(flowSwitch).append("\n");
-        sb.append("    exempt: []\n");
+        appendHotMethodExempt(sb);
         sb.append("}\n\n");
 
         // Ahegao
@@ -134,4 +202,78 @@ public class ObfuscationConfig {
 
         return sb.toString();
     }
+
+    /**
+     * Check the settings that go into the HOCON file verbatim.
+     *
+     * @throws IllegalArgumentException naming the first malformed hot method
+     */
+    public void validate() {
+        if (hotMethods == null) {
+            return;
+        }
+        for (String method : hotMethods) {
+            if (method == null || !HOT_METHOD.matcher(method).matches()) {
+                throw new IllegalArgumentException("Invalid hot method: " + method + " (expected com.example.Foo#bar)");
+            }
+        }
+    }
+
+    /**
+     * Write the exempt list of a flow transformer, skipping hot methods.
+     */
+    private void appendHotMethodExempt(StringBuilder sb) {
+        if (hotMethods == null || hotMethods.isEmpty()) {
+            sb.append("    exempt: []\n");
+            return;
+        }
+
+        sb.append("    exempt: [\n");
+        for (String method : hotMethods) {
+            int sep = method != null ? method.indexOf('#') : -1;
+            if (sep <= 0) {
+                continue;
+            }
+            String owner = regexLiteral(method.substring(0, sep).replace('.', '/'));
+            String name = regexLiteral(method.substring(sep + 1));
+            sb.append("        ").append(hoconString("class{^" + owner + "$} method{^" + name + "$}")).append("\n");
+        }
+        sb.append("    ]\n");
+    }
+
+    /**
+     * Escape regex metacharacters (such as '$' in nested class names) with
+     * character classes, or a backslash where a class cannot hold them.
+     */
+    private static String regexLiteral(String value) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : value.toCharArray()) {
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '/' || c == '<' || c == '>') {
+                sb.append(c);
+            } else if (c == '\\' || c == '[' || c == ']' || c == '^') {
+                sb.append('\\').append(c);
+            } else {
+                sb.append('[').append(c).append(']');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Quote a value as a HOCON string, escaping backslashes, quotes and
+     * control characters so it cannot end the string early.
+     */
+    private static String hoconString(String value) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '\\' || c == '"') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
 }
@@ -25,4 +25,12 @@ public class ObfuscationJob {
     private String outputPath;
     private String errorMessage;
     private String logs;
+    private String metricsJson;
+    private String benchmarkJson;
+
+    // Job whose Skidfuscator run this job shares, when coalesced
+    private String leaderId;
+
+    // Tenant of the API key the job was submitted with, null if none
+    private String tenant;
 }
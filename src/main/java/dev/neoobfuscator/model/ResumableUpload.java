@@ -0,0 +1,27 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chunked upload in progress. Once all bytes have arrived it becomes an
+ * {@link UploadSession} with the same ID.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumableUpload {
+    private String id;
+    private String originalFilename;
+    private long length;
+    private long offset;
+    private LocalDateTime expiresAt;
+
+    // Set once the last byte has been written
+    private UploadSession session;
+}
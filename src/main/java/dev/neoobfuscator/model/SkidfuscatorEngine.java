@@ -0,0 +1,32 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A registered Skidfuscator version, identified by the SHA-256 of its JAR.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SkidfuscatorEngine {
+    private String id;
+    private String filename;
+    private String path;
+    private long sizeBytes;
+    private LocalDateTime registeredAt;
+
+    // Registered from the configured skidfuscator-jar rather than uploaded
+    private boolean configured;
+
+    // Runs jobs that do not pin an engine
+    private boolean defaultEngine;
+
+    // Share of unpinned jobs also run on this engine for comparison, 0 if none
+    private double candidateShare;
+}
@@ -0,0 +1,23 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An uploaded JAR stored on disk, with the content hash computed while it
+ * was written.
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredUpload {
+    private String path;
+    private String originalFilename;
+    private long size;
+
+    // Hex-encoded SHA-256 of the file content
+    private String sha256;
+}
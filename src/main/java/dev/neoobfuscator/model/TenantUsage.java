@@ -0,0 +1,30 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resources a tenant's jobs consumed on one day.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantUsage {
+    private String tenant;
+
+    // yyyy-MM-dd, server time
+    private String day;
+
+    // Jobs that ran Skidfuscator, and how many of them failed
+    private long jobs;
+    private long failedJobs;
+
+    // CPU time of the Skidfuscator processes
+    private double cpuSeconds;
+
+    private long inputBytes;
+    private long outputBytes;
+}
@@ -0,0 +1,23 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A JAR uploaded once and referenced by ID from later obfuscation requests.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    private String id;
+    private StoredUpload upload;
+    private JarAnalysis analysis;
+    private LocalDateTime createdAt;
+    private LocalDateTime expiresAt;
+}
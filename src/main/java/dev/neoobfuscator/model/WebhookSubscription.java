@@ -0,0 +1,34 @@
+package dev.neoobfuscator.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * A URL notified when jobs complete or fail. Registrations with a job ID
+ * cover that job only and are removed once it has finished; the others
+ * cover all jobs and are managed with the admin token.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebhookSubscription {
+    private String id;
+    private String url;
+    private String secret;
+    private String jobId;
+    // Tenant that registered it, null without an API key
+    private String tenant;
+    private Set<String> events;
+    private LocalDateTime createdAt;
+
+    // Outcome of the most recent delivery
+    private Integer lastStatus;
+    private String lastError;
+    private LocalDateTime lastDeliveryAt;
+}
@@ -0,0 +1,225 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.ApiKey;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and checks tenant API keys, and rate-limits callers.
+ *
+ * A key is "ngk_&lt;id&gt;_&lt;secret&gt;"; the ID is stored as is, the secret
+ * only as a SHA-256 hash. Keys are few and checked on every request, so all
+ * of them are held in memory. Each key has a token bucket refilled at its
+ * per-minute rate; callers without a key share the anonymous limit, one
+ * bucket per client address.
+ */
+@Service
+public class ApiKeyService {
+
+    private static final Logger log = LoggerFactory.getLogger(ApiKeyService.class);
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String PREFIX = "ngk_";
+    private static final int ID_BYTES = 6;
+    private static final int SECRET_BYTES = 24;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final TokenBucketStore buckets = new TokenBucketStore();
+    private final Map<String, ApiKey> keys = new ConcurrentHashMap<>();
+
+    @Value("${neo.api-keys.default-rate-per-minute:30}")
+    private int defaultRatePerMinute;
+
+    @Value("${neo.api-keys.default-burst:10}")
+    private int defaultBurst;
+
+    // 0 leaves callers without a key unlimited
+    @Value("${neo.api-keys.anonymous-rate-per-minute:10}")
+    private int anonymousRatePerMinute;
+
+    @Value("${neo.api-keys.anonymous-burst:10}")
+    private int anonymousBurst;
+
+    public ApiKeyService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS api_keys (
+                        id TEXT PRIMARY KEY,
+                        tenant TEXT NOT NULL,
+                        name TEXT,
+                        secret_hash TEXT NOT NULL,
+                        rate_per_minute INTEGER NOT NULL,
+                        burst INTEGER NOT NULL,
+                        created_at TEXT,
+                        revoked_at TEXT
+                    )
+                """);
+        for (ApiKey key : jdbcTemplate.query("SELECT * FROM api_keys", new ApiKeyRowMapper())) {
+            keys.put(key.getId(), key);
+        }
+    }
+
+    /**
+     * A newly issued key; the token is only available at this point.
+     */
+    public record IssuedKey(ApiKey key, String token) {
+    }
+
+    /**
+     * Issue a key for a tenant. Unset limits use the configured defaults.
+     */
+    public IssuedKey create(String tenant, String name, Integer ratePerMinute, Integer burst) {
+        if (tenant == null || tenant.isBlank()) {
+            throw new IllegalArgumentException("Tenant is required");
+        }
+        if ((ratePerMinute != null && ratePerMinute <= 0) || (burst != null && burst <= 0)) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+
+        String id = PREFIX + HexFormat.of().formatHex(randomBytes(ID_BYTES));
+        String secret = Base64.getUrlEncoder().withoutPadding().encodeToString(randomBytes(SECRET_BYTES));
+        ApiKey key = ApiKey.builder()
+                .id(id)
+                .tenant(tenant.trim())
+                .name(name)
+                .secretHash(hash(secret))
+                .ratePerMinute(ratePerMinute != null ? ratePerMinute : defaultRatePerMinute)
+                .burst(burst != null ? burst : defaultBurst)
+                .createdAt(LocalDateTime.now().withNano(0))
+                .build();
+
+        jdbcTemplate.update("INSERT INTO api_keys (id, tenant, name, secret_hash, rate_per_minute, burst, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", key.getId(), key.getTenant(), key.getName(), key.getSecretHash(),
+                key.getRatePerMinute(), key.getBurst(), key.getCreatedAt().format(FORMATTER));
+        keys.put(id, key);
+        log.info("Issued API key {} for tenant {}", id, key.getTenant());
+        return new IssuedKey(key, id + "_" + secret);
+    }
+
+    /**
+     * The active key a token belongs to, if its secret matches.
+     */
+    public Optional<ApiKey> authenticate(String token) {
+        if (token == null || !token.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        int split = token.indexOf('_', PREFIX.length());
+        if (split < 0) {
+            return Optional.empty();
+        }
+        ApiKey key = keys.get(token.substring(0, split));
+        if (key == null || key.getRevokedAt() != null) {
+            return Optional.empty();
+        }
+        byte[] expected = key.getSecretHash().getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = hash(token.substring(split + 1)).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? Optional.of(key) : Optional.empty();
+    }
+
+    public List<ApiKey> findAll() {
+        return keys.values().stream().sorted(Comparator.comparing(ApiKey::getCreatedAt)).toList();
+    }
+
+    /**
+     * Revoke a key. Its tenant's usage history is kept.
+     *
+     * @return false if there is no such key
+     */
+    public boolean revoke(String id) {
+        ApiKey key = keys.get(id);
+        if (key == null) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        jdbcTemplate.update("UPDATE api_keys SET revoked_at = ? WHERE id = ? AND revoked_at IS NULL",
+                now.format(FORMATTER), id);
+        if (key.getRevokedAt() == null) {
+            key.setRevokedAt(now);
+        }
+        buckets.remove(id);
+        log.info("Revoked API key {} of tenant {}", id, key.getTenant());
+        return true;
+    }
+
+    /**
+     * Take one request from the caller's allowance.
+     *
+     * @param key the caller's key, or null for anonymous callers
+     * @return 0 if admitted, otherwise milliseconds until the next request would be
+     */
+    public long acquire(ApiKey key, String clientAddress) {
+        if (key != null) {
+            return buckets.tryAcquire(key.getId(), key.getRatePerMinute() / 60.0, key.getBurst());
+        }
+        if (anonymousRatePerMinute <= 0) {
+            return 0;
+        }
+        return buckets.tryAcquire("anonymous:" + clientAddress, anonymousRatePerMinute / 60.0, anonymousBurst);
+    }
+
+    @Scheduled(fixedDelay = 300_000)
+    public void evictFullBuckets() {
+        int kept = buckets.evictFull();
+        log.debug("Rate limit buckets in use: {}", kept);
+    }
+
+    private byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String hash(String secret) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(secret.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class ApiKeyRowMapper implements RowMapper<ApiKey> {
+        @Override
+        public ApiKey mapRow(ResultSet rs, int rowNum) throws SQLException {
+            String revokedAt = rs.getString("revoked_at");
+            return ApiKey.builder()
+                    .id(rs.getString("id"))
+                    .tenant(rs.getString("tenant"))
+                    .name(rs.getString("name"))
+                    .secretHash(rs.getString("secret_hash"))
+                    .ratePerMinute(rs.getInt("rate_per_minute"))
+                    .burst(rs.getInt("burst"))
+                    .createdAt(LocalDateTime.parse(rs.getString("created_at"), FORMATTER))
+                    .revokedAt(revokedAt != null ? LocalDateTime.parse(revokedAt, FORMATTER) : null)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package dev.neoobfuscator.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Durable storage for job artifacts, addressed by key.
+ *
+ * Skidfuscator reads and writes local files, so jobs run against the local
+ * working directories; finished artifacts are published here and downloads
+ * are served from here. Implementations stream: artifacts are never held in
+ * memory as a whole.
+ */
+public interface ArtifactStore {
+
+    /**
+     * Store a local file under the key, replacing any existing artifact.
+     */
+    void put(String key, Path source) throws IOException;
+
+    /**
+     * Open a byte range of an artifact.
+     *
+     * @param offset first byte to read
+     * @param length bytes to read, or -1 to read to the end
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * Size of an artifact, if it exists.
+     */
+    Optional<Long> size(String key) throws IOException;
+
+    void delete(String key) throws IOException;
+}
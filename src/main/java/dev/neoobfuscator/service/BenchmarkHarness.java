@@ -0,0 +1,340 @@
+package dev.neoobfuscator.service;
+
+import java.io.File;
+import java.io.FilePermission;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ReflectPermission;
+import java.net.SocketPermission;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.AllPermission;
+import java.security.CodeSource;
+import java.security.Permission;
+import java.security.Policy;
+import java.security.ProtectionDomain;
+import java.security.SecurityPermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Microbenchmark harness run in a child JVM by {@link BenchmarkService}.
+ *
+ * Selects the safe-to-call public static methods of the main package in the
+ * baseline JAR, then loads the measured JAR into its own class loader and
+ * measures their throughput and allocation JMH-style: timed warmup iterations
+ * followed by timed measurement iterations, with results consumed by a sink so
+ * calls cannot be eliminated. Like a JMH fork, each JVM measures a single JAR
+ * so JIT profiles from one variant cannot skew the next.
+ *
+ * This class is copied out of the application and started on its own, so it
+ * must only depend on the JDK. Before any uploaded class is loaded it installs
+ * {@link Sandbox}, so the measured code cannot open sockets, write or delete
+ * files, start processes, load native libraries or exit the JVM.
+ *
+ * Usage: BenchmarkHarness mainPackage warmupIterations measureIterations
+ * iterationMs maxMethods baselineJar label=jar
+ * Results are printed as tab-separated METHOD, RESULT and ERROR lines.
+ */
+public final class BenchmarkHarness {
+
+    // Calls between clock checks
+    private static final int BATCH = 64;
+
+    // Methods slower than this per call during the probe are not benchmarked
+    private static final long PROBE_TIMEOUT_MS = 2000;
+
+    private static final List<Class<?>> SUPPORTED_PARAMETERS = List.of(
+            int.class, long.class, short.class, byte.class, char.class, boolean.class,
+            double.class, float.class, String.class);
+
+    private static volatile int sink;
+
+    private BenchmarkHarness() {
+    }
+
+    @SuppressWarnings("removal")
+    public static void main(String[] args) throws Exception {
+        String mainPackage = args[0].replace('.', '/');
+        int warmupIterations = Integer.parseInt(args[1]);
+        int measureIterations = Integer.parseInt(args[2]);
+        long iterationNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(args[3]));
+        int maxMethods = Integer.parseInt(args[4]);
+
+        File baselineJar = new File(args[5]);
+        int eq = args[6].indexOf('=');
+        String label = args[6].substring(0, eq);
+        File measuredJar = new File(args[6].substring(eq + 1));
+
+        Policy.setPolicy(new Sandbox(baselineJar, measuredJar));
+        System.setSecurityManager(new SecurityManager());
+
+        // Select methods on the baseline JAR
+        List<Method> selected = new ArrayList<>();
+        try (URLClassLoader loader = loaderFor(baselineJar)) {
+            for (Method method : candidates(baselineJar, loader, mainPackage)) {
+                if (selected.size() >= maxMethods) {
+                    break;
+                }
+                if (probe(method)) {
+                    selected.add(method);
+                    System.out.println("METHOD\t" + key(method));
+                }
+            }
+
+            boolean sameJar = baselineJar.equals(measuredJar);
+            URLClassLoader measuredLoader = sameJar ? loader : loaderFor(measuredJar);
+            try {
+                for (Method baseline : selected) {
+                    measure(label, baseline, measuredLoader, warmupIterations, measureIterations, iterationNanos);
+                }
+            } finally {
+                if (!sameJar) {
+                    measuredLoader.close();
+                }
+            }
+        }
+
+        System.out.flush();
+        // Probes that never returned keep running on daemon threads
+        System.exit(0);
+    }
+
+    /**
+     * Denies code loaded from the measured JARs anything with effects outside
+     * the JVM. The JDK and the harness keep all permissions, so JDK code that
+     * uploaded code calls still works inside its own privileged blocks.
+     */
+    @SuppressWarnings("removal")
+    static final class Sandbox extends Policy {
+
+        private final Set<URL> untrusted;
+
+        Sandbox(File... jars) throws IOException {
+            untrusted = new HashSet<>();
+            for (File jar : jars) {
+                untrusted.add(jar.toURI().toURL());
+            }
+        }
+
+        @Override
+        public boolean implies(ProtectionDomain domain, Permission permission) {
+            CodeSource source = domain.getCodeSource();
+            if (source == null || !untrusted.contains(source.getLocation())) {
+                return true;
+            }
+            return !denied(permission);
+        }
+
+        private static boolean denied(Permission permission) {
+            String name = permission.getName();
+            if (permission instanceof AllPermission || permission instanceof SocketPermission) {
+                return true;
+            }
+            if (permission instanceof FilePermission) {
+                return !readOnly(permission.getActions());
+            }
+            if (permission instanceof ReflectPermission) {
+                return name.equals("suppressAccessChecks");
+            }
+            if (permission instanceof SecurityPermission) {
+                return !name.startsWith("getProperty.");
+            }
+            if (permission instanceof RuntimePermission) {
+                return name.equals("setSecurityManager") || name.equals("createSecurityManager")
+                        || name.equals("createClassLoader") || name.equals("setIO")
+                        || name.startsWith("exitVM") || name.startsWith("loadLibrary.")
+                        || name.startsWith("accessClassInPackage.");
+            }
+            return false;
+        }
+
+        private static boolean readOnly(String actions) {
+            for (String action : actions.split(",")) {
+                if (!action.equals("read") && !action.equals("readlink")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static URLClassLoader loaderFor(File jar) throws IOException {
+        return new URLClassLoader(new URL[] { jar.toURI().toURL() }, ClassLoader.getPlatformClassLoader());
+    }
+
+    /**
+     * Public static methods of public main-package classes whose parameters can
+     * be filled with constants. Classes are not initialized here.
+     */
+    private static List<Method> candidates(File jar, ClassLoader loader, String mainPackage) throws IOException {
+        List<Method> methods = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (!name.endsWith(".class") || !name.startsWith(mainPackage + "/") || name.contains("$")
+                        || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                String className = name.substring(0, name.length() - 6).replace('/', '.');
+                try {
+                    Class<?> type = Class.forName(className, false, loader);
+                    if (!Modifier.isPublic(type.getModifiers()) || type.isInterface()) {
+                        continue;
+                    }
+                    for (Method method : type.getDeclaredMethods()) {
+                        if (isSafe(method)) {
+                            methods.add(method);
+                        }
+                    }
+                } catch (LinkageError | ClassNotFoundException ignored) {
+                    // Missing dependencies: skip the class
+                }
+            }
+        }
+        methods.sort(Comparator.comparing(BenchmarkHarness::key));
+        return methods;
+    }
+
+    private static boolean isSafe(Method method) {
+        int modifiers = method.getModifiers();
+        if (!Modifier.isPublic(modifiers) || !Modifier.isStatic(modifiers) || Modifier.isNative(modifiers)
+                || method.isSynthetic() || method.isBridge() || method.getName().equals("main")) {
+            return false;
+        }
+        for (Class<?> parameter : method.getParameterTypes()) {
+            if (!SUPPORTED_PARAMETERS.contains(parameter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Call the method once on a separate thread. Methods (or static
+     * initializers) that throw, block or run too long are excluded.
+     */
+    private static boolean probe(Method method) {
+        FutureTask<Boolean> result = new FutureTask<>(() -> {
+            Class.forName(method.getDeclaringClass().getName(), true, method.getDeclaringClass().getClassLoader());
+            method.invoke(null, arguments(method));
+            return true;
+        });
+        Thread thread = new Thread(result, "benchmark-probe");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            return result.get(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            result.cancel(true);
+            return false;
+        }
+    }
+
+    private static void measure(String label, Method baseline, ClassLoader loader, int warmupIterations,
+            int measureIterations, long iterationNanos) {
+        String key = key(baseline);
+        Method method;
+        try {
+            Class<?> type = Class.forName(baseline.getDeclaringClass().getName(), true, loader);
+            method = type.getMethod(baseline.getName(), baseline.getParameterTypes());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("ERROR\t" + label + "\t" + key + "\t" + describe(e));
+            return;
+        }
+
+        Object[] args = arguments(method);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                run(method, args, iterationNanos);
+            }
+
+            long ops = 0;
+            long nanos = 0;
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < measureIterations; i++) {
+                long start = System.nanoTime();
+                ops += run(method, args, iterationNanos);
+                nanos += System.nanoTime() - start;
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+            double opsPerSecond = ops * 1e9 / nanos;
+            double bytesPerOp = ops > 0 ? (double) allocated / ops : 0;
+            System.out.println("RESULT\t" + label + "\t" + key + "\t" + opsPerSecond + "\t" + bytesPerOp);
+        } catch (InvocationTargetException e) {
+            System.out.println("ERROR\t" + label + "\t" + key + "\t" + describe(e.getCause()));
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            System.out.println("ERROR\t" + label + "\t" + key + "\t" + describe(e));
+        }
+    }
+
+    private static long run(Method method, Object[] args, long iterationNanos) throws ReflectiveOperationException {
+        long ops = 0;
+        long deadline = System.nanoTime() + iterationNanos;
+        int acc = 0;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                Object result = method.invoke(null, args);
+                acc += result != null ? result.hashCode() : 1;
+            }
+            ops += BATCH;
+        } while (System.nanoTime() < deadline);
+        sink = acc;
+        return ops;
+    }
+
+    private static Object[] arguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (type == int.class) {
+                args[i] = 42;
+            } else if (type == long.class) {
+                args[i] = 42L;
+            } else if (type == short.class) {
+                args[i] = (short) 42;
+            } else if (type == byte.class) {
+                args[i] = (byte) 42;
+            } else if (type == char.class) {
+                args[i] = 'n';
+            } else if (type == boolean.class) {
+                args[i] = true;
+            } else if (type == double.class) {
+                args[i] = 4.2d;
+            } else if (type == float.class) {
+                args[i] = 4.2f;
+            } else {
+                args[i] = "neoguard";
+            }
+        }
+        return args;
+    }
+
+    private static String key(Method method) {
+        return method.getDeclaringClass().getName() + "." + method.getName()
+                + Arrays.toString(Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName).toArray());
+    }
+
+    private static String describe(Throwable e) {
+        String message = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        return message.replace('\t', ' ').replace('\n', ' ');
+    }
+}
@@ -0,0 +1,337 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.BenchmarkReport;
+import dev.neoobfuscator.model.JobStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the runtime overhead of obfuscated JARs.
+ *
+ * Runs {@link BenchmarkHarness} in a separate, memory-limited JVM so uploaded
+ * code never executes inside the application, then turns the raw per-method
+ * results into a per-transformer throughput and allocation report.
+ *
+ * Benchmarks run uploaded code, so they are off unless enabled. The child
+ * works in a read-only directory holding copies of the JARs, its security
+ * manager denies network, file writes and processes, and it can run as a
+ * separate, unprivileged user (neo.benchmark.run-as).
+ */
+@Service
+public class BenchmarkService {
+
+    private static final Logger log = LoggerFactory.getLogger(BenchmarkService.class);
+
+    // Label of the unmodified input in the harness arguments
+    static final String BASELINE = "original";
+
+    private final ChildProcessRegistry children;
+
+    @Value("${neo.benchmark.warmup-iterations:3}")
+    private int warmupIterations;
+
+    @Value("${neo.benchmark.measure-iterations:5}")
+    private int measureIterations;
+
+    @Value("${neo.benchmark.iteration-ms:200}")
+    private long iterationMs;
+
+    @Value("${neo.benchmark.max-methods:20}")
+    private int maxMethods;
+
+    @Value("${neo.benchmark.timeout-minutes:10}")
+    private long timeoutMinutes;
+
+    @Value("${neo.benchmark.jvm-args:-Xmx512m -XX:+UseSerialGC}")
+    private String jvmArgs;
+
+    // User the harness runs as, through "sudo -n -u"; empty runs it as the server user
+    @Value("${neo.benchmark.run-as:}")
+    private String runAs;
+
+    // Full Java installation for the harness; empty uses java from PATH. Not NeoGuard's own
+    // runtime, which may be a jlink image without the modules uploaded code needs
+    @Value("${neo.benchmark.java-home:}")
+    private String javaHome;
+
+    private String javaExecutable;
+
+    public BenchmarkService(ChildProcessRegistry children) {
+        this.children = children;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (javaHome == null || javaHome.isBlank()) {
+            javaExecutable = "java";
+            return;
+        }
+        Path bin = Paths.get(javaHome.trim()).resolve("bin");
+        javaExecutable = bin.resolve(System.getProperty("os.name").startsWith("Windows") ? "java.exe" : "java")
+                .toAbsolutePath().toString();
+        if (!Files.isExecutable(Paths.get(javaExecutable))) {
+            log.warn("No java launcher at {} (neo.benchmark.java-home), benchmarks will fail", javaExecutable);
+        }
+    }
+
+    /**
+     * Benchmark the original JAR against each variant.
+     * Each JAR is measured in its own JVM, like a JMH fork.
+     *
+     * @param variants obfuscated JARs by transformer name, in report order
+     * @param cpuMs    CPU time of the harness JVMs is added here as each exits
+     */
+    public BenchmarkReport measure(Path original, Map<String, Path> variants, String mainPackage, AtomicLong cpuMs)
+            throws IOException, InterruptedException {
+        Path harnessDir = Files.createTempDirectory("neoguard-harness-");
+        try {
+            extractHarness(harnessDir);
+
+            // The child only sees copies, so it cannot reach the stored files
+            Path baseline = stage(original, harnessDir, BASELINE);
+            Map<String, Path> forks = new LinkedHashMap<>();
+            forks.put(BASELINE, baseline);
+            for (Map.Entry<String, Path> variant : variants.entrySet()) {
+                forks.put(variant.getKey(), stage(variant.getValue(), harnessDir, variant.getKey()));
+            }
+            setReadOnly(harnessDir, true);
+
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(timeoutMinutes);
+            List<String> methods = new ArrayList<>();
+            Map<String, Map<String, double[]>> results = new HashMap<>();
+            Map<String, Map<String, String>> errors = new HashMap<>();
+
+            for (Map.Entry<String, Path> fork : forks.entrySet()) {
+                List<String> selected = new ArrayList<>();
+                runFork(harnessDir, mainPackage, baseline, fork.getKey(), fork.getValue(), deadline,
+                        selected, results, errors, cpuMs);
+                if (fork.getKey().equals(BASELINE)) {
+                    methods.addAll(selected);
+                }
+            }
+
+            return report(methods, variants.keySet(), results, errors);
+        } finally {
+            setReadOnly(harnessDir, false);
+            deleteRecursively(harnessDir);
+        }
+    }
+
+    private void runFork(Path harnessDir, String mainPackage, Path original, String label, Path jar, long deadline,
+            List<String> methods, Map<String, Map<String, double[]>> results,
+            Map<String, Map<String, String>> errors, AtomicLong cpuMs) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        if (runAs != null && !runAs.isBlank()) {
+            cmd.addAll(List.of("sudo", "-n", "-u", runAs.trim(), "--"));
+        }
+        if (!javaExecutable.equals("java") && !Files.isExecutable(Paths.get(javaExecutable))) {
+            throw new IOException("No java launcher for benchmarks at " + javaExecutable);
+        }
+        cmd.add(javaExecutable);
+        for (String arg : jvmArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                cmd.add(arg);
+            }
+        }
+        cmd.add("-Djava.awt.headless=true");
+        cmd.add("-Djava.security.manager=allow");
+        cmd.add("-Djava.io.tmpdir=" + harnessDir);
+        cmd.add("-cp");
+        cmd.add(harnessDir.toString());
+        cmd.add(BenchmarkHarness.class.getName());
+        cmd.add(mainPackage);
+        cmd.add(String.valueOf(warmupIterations));
+        cmd.add(String.valueOf(measureIterations));
+        cmd.add(String.valueOf(iterationMs));
+        cmd.add(String.valueOf(maxMethods));
+        cmd.add(original.toAbsolutePath().toString());
+        cmd.add(label + "=" + jar.toAbsolutePath());
+
+        ProcessBuilder pb = new ProcessBuilder(cmd);
+        pb.redirectErrorStream(true);
+        pb.directory(harnessDir.toFile());
+        Process process = children.start(pb, "benchmark harness");
+        PeakRssSampler sampler = PeakRssSampler.start(process);
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                if (parts[0].equals("METHOD") && parts.length == 2) {
+                    methods.add(parts[1]);
+                } else if (parts[0].equals("RESULT") && parts.length == 5) {
+                    results.computeIfAbsent(parts[1], k -> new HashMap<>())
+                            .put(parts[2], new double[] { Double.parseDouble(parts[3]),
+                                    Double.parseDouble(parts[4]) });
+                } else if (parts[0].equals("ERROR") && parts.length == 4) {
+                    errors.computeIfAbsent(parts[1], k -> new HashMap<>()).put(parts[2], parts[3]);
+                } else {
+                    log.debug("[Benchmark] {}", line);
+                }
+            }
+        }
+
+        boolean exited = ChildProcessRegistry.waitFor(process, Math.max(0, deadline - System.nanoTime()),
+                TimeUnit.NANOSECONDS);
+        sampler.close();
+        if (sampler.cpuMillis() != null) {
+            cpuMs.addAndGet(sampler.cpuMillis());
+        }
+        if (!exited) {
+            process.destroyForcibly();
+            throw new IOException("Benchmark timed out after " + timeoutMinutes + " minutes");
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("Benchmark harness exited with code: " + process.exitValue() + " (" + label + ")");
+        }
+    }
+
+    private BenchmarkReport report(List<String> methods, Iterable<String> variantNames,
+            Map<String, Map<String, double[]>> results, Map<String, Map<String, String>> errors) {
+        Map<String, double[]> baseline = results.getOrDefault(BASELINE, Map.of());
+        List<BenchmarkReport.TransformerResult> transformers = new ArrayList<>();
+
+        for (String name : variantNames) {
+            Map<String, double[]> variant = results.getOrDefault(name, Map.of());
+            Map<String, String> variantErrors = errors.getOrDefault(name, Map.of());
+
+            double logRatioSum = 0;
+            double baselineBytes = 0;
+            double variantBytes = 0;
+            int measured = 0;
+            int failed = 0;
+            String slowest = null;
+            double slowestRatio = Double.MAX_VALUE;
+
+            for (String method : methods) {
+                double[] base = baseline.get(method);
+                if (base == null) {
+                    continue;
+                }
+                double[] obf = variant.get(method);
+                if (obf == null) {
+                    if (variantErrors.containsKey(method)) {
+                        failed++;
+                    }
+                    continue;
+                }
+                double ratio = obf[0] / base[0];
+                logRatioSum += Math.log(ratio);
+                baselineBytes += base[1];
+                variantBytes += obf[1];
+                measured++;
+                if (ratio < slowestRatio) {
+                    slowestRatio = ratio;
+                    slowest = method;
+                }
+            }
+
+            BenchmarkReport.TransformerResult.TransformerResultBuilder result = BenchmarkReport.TransformerResult
+                    .builder()
+                    .transformer(name)
+                    .methods(measured)
+                    .errors(failed);
+            if (measured > 0) {
+                result.throughputChangePct(percent(Math.exp(logRatioSum / measured)))
+                        .slowestMethod(slowest)
+                        .slowestMethodChangePct(percent(slowestRatio));
+                if (baselineBytes > 0) {
+                    result.allocationChangePct(percent(variantBytes / baselineBytes));
+                }
+            }
+            transformers.add(result.build());
+        }
+
+        return BenchmarkReport.builder()
+                .status(JobStatus.COMPLETED)
+                .methodCount((int) methods.stream().filter(baseline::containsKey).count())
+                .transformers(transformers)
+                .build();
+    }
+
+    private Double percent(double ratio) {
+        return Math.round((ratio - 1) * 1000) / 10.0;
+    }
+
+    /**
+     * Copy the harness classes out of the application (which may be a nested
+     * Spring Boot JAR) so the child JVM can load them from a plain directory.
+     */
+    private void extractHarness(Path dir) throws IOException {
+        for (Class<?> type : List.of(BenchmarkHarness.class, BenchmarkHarness.Sandbox.class)) {
+            String resource = type.getName().replace('.', '/') + ".class";
+            Path target = dir.resolve(resource);
+            Files.createDirectories(target.getParent());
+            try (InputStream in = type.getClassLoader().getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("Benchmark harness class not found");
+                }
+                Files.copy(in, target);
+            }
+        }
+    }
+
+    /**
+     * Copy a JAR into the harness directory, readable by the harness user.
+     */
+    private static Path stage(Path jar, Path dir, String label) throws IOException {
+        Path target = dir.resolve(label.replaceAll("[^A-Za-z0-9_-]", "_") + ".jar");
+        Files.copy(jar, target);
+        return target;
+    }
+
+    /**
+     * Make the harness directory tree read-only for everyone, or writable
+     * by its owner again so it can be deleted. Files are readable by all, so
+     * a separate harness user can load them.
+     */
+    private static void setReadOnly(Path dir, boolean readOnly) {
+        try (var paths = Files.walk(dir)) {
+            paths.forEach(path -> {
+                File file = path.toFile();
+                file.setReadable(true, false);
+                if (file.isDirectory()) {
+                    file.setExecutable(true, false);
+                }
+                file.setWritable(!readOnly, !readOnly);
+            });
+        } catch (IOException e) {
+            log.warn("Could not change permissions of {}", dir, e);
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException ignored) {
+                }
+            });
+        } catch (IOException ignored) {
+        }
+    }
+
+}
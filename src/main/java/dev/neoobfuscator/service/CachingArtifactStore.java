@@ -0,0 +1,179 @@
+package dev.neoobfuscator.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Read-through disk cache in front of a remote artifact store.
+ *
+ * Published artifacts are kept in the cache (hard-linked from the job's
+ * output where possible) and missing ones are fetched in ranged chunks on
+ * first read. The least recently read artifacts are evicted once the cache
+ * exceeds its size limit; artifacts larger than the whole cache are streamed
+ * straight from the remote store.
+ */
+public class CachingArtifactStore implements ArtifactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingArtifactStore.class);
+
+    private final ArtifactStore remote;
+    private final LocalArtifactStore cache;
+    private final Path cacheDir;
+    private final long maxBytes;
+    private final long chunkBytes;
+
+    // Fills in progress, so concurrent readers of a cold artifact fetch it once
+    private final Map<String, Object> fillLocks = new ConcurrentHashMap<>();
+
+    public CachingArtifactStore(ArtifactStore remote, Path cacheDir, long maxBytes, long chunkBytes)
+            throws IOException {
+        this.remote = remote;
+        this.cache = new LocalArtifactStore(cacheDir);
+        this.cacheDir = cacheDir.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.chunkBytes = chunkBytes;
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        remote.put(key, source);
+        if (Files.size(source) > maxBytes) {
+            return;
+        }
+
+        Path cached = cache.resolve(key);
+        Files.createDirectories(cached.getParent());
+        Files.deleteIfExists(cached);
+        try {
+            Files.createLink(cached, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            cache.put(key, source);
+        }
+        touch(cached);
+        evict();
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        Path cached = cache.resolve(key);
+        if (!Files.exists(cached)) {
+            long size = remote.size(key).orElseThrow(() -> new NoSuchFileException(key));
+            if (size > maxBytes) {
+                return remote.open(key, offset, length);
+            }
+            fill(key, size);
+        }
+        touch(cached);
+        return cache.open(key, offset, length);
+    }
+
+    /**
+     * Fetch an artifact into the cache in ranged chunks.
+     */
+    private void fill(String key, long size) throws IOException {
+        synchronized (fillLocks.computeIfAbsent(key, k -> new Object())) {
+            try {
+                Path cached = cache.resolve(key);
+                if (Files.exists(cached)) {
+                    return;
+                }
+                Files.createDirectories(cached.getParent());
+                Path temp = Files.createTempFile(cached.getParent(), ".fill-", ".tmp");
+                try {
+                    try (OutputStream out = Files.newOutputStream(temp)) {
+                        for (long offset = 0; offset < size; offset += chunkBytes) {
+                            try (InputStream in = remote.open(key, offset, Math.min(chunkBytes, size - offset))) {
+                                in.transferTo(out);
+                            }
+                        }
+                    }
+                    if (Files.size(temp) != size) {
+                        throw new IOException("Short read filling cache for " + key);
+                    }
+                    Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                log.debug("Cached {} ({} bytes)", key, size);
+            } finally {
+                fillLocks.remove(key);
+            }
+        }
+        evict();
+    }
+
+    @Override
+    public Optional<Long> size(String key) throws IOException {
+        Optional<Long> cached = cache.size(key);
+        return cached.isPresent() ? cached : remote.size(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        remote.delete(key);
+        cache.delete(key);
+    }
+
+    /**
+     * Drop least recently read artifacts until the cache fits its limit.
+     */
+    private synchronized void evict() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> stream = Files.walk(cacheDir)) {
+            stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .forEach(files::add);
+        }
+
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        files.sort(Comparator.comparing(CachingArtifactStore::lastModified));
+        for (Path file : files) {
+            if (total <= maxBytes) {
+                break;
+            }
+            long size = Files.size(file);
+            Files.deleteIfExists(file);
+            total -= size;
+            log.debug("Evicted {} from artifact cache", cacheDir.relativize(file));
+        }
+    }
+
+    // Reads bump the modification time, which orders eviction
+    private static void touch(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JobStatus;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Builds the JVM options used to launch Skidfuscator child processes.
+ * Picks a GC/JIT flag profile from the job size and maintains a dynamic CDS
+ * archive per Skidfuscator JAR so repeated launches skip class loading and
+ * verification.
+ *
+ * Children run on NeoGuard's own runtime unless another is configured, so a
+ * trimmed jlink image serves both.
+ */
+@Service
+public class ChildJvmService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChildJvmService.class);
+
+    private final ChildProcessRegistry children;
+
+    // Java installation for Skidfuscator; empty for the one running NeoGuard
+    @Value("${neo.jvm.java-home:}")
+    private String javaHome;
+
+    @Value("${neo.jvm.cds-enabled:true}")
+    private boolean cdsEnabled;
+
+    @Value("${neo.jvm.cds-dir:./data/cds}")
+    private String cdsDir;
+
+    @Value("${neo.jvm.large-job-threshold-mb:8}")
+    private long largeJobThresholdMb;
+
+    @Value("${neo.jvm.small-profile:-Xmx1G -XX:+UseSerialGC -XX:TieredStopAtLevel=1 -XX:-UsePerfData}")
+    private String smallProfile;
+
+    @Value("${neo.jvm.large-profile:-Xmx2G -XX:+UseParallelGC -XX:-UsePerfData}")
+    private String largeProfile;
+
+    private Path cdsPath;
+    private String javaExecutable;
+
+    // Archive state per Skidfuscator JAR (keyed by archive file name)
+    private final Map<String, ArchiveState> archives = new ConcurrentHashMap<>();
+
+    public ChildJvmService(ChildProcessRegistry children) {
+        this.children = children;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        cdsPath = Paths.get(cdsDir).toAbsolutePath().normalize();
+        if (cdsEnabled) {
+            Files.createDirectories(cdsPath);
+        }
+
+        Path bin = Paths.get(javaHome.isBlank() ? System.getProperty("java.home") : javaHome).resolve("bin");
+        Path java = bin.resolve(System.getProperty("os.name").startsWith("Windows") ? "java.exe" : "java");
+        if (Files.isExecutable(java)) {
+            javaExecutable = java.toAbsolutePath().toString();
+        } else {
+            log.warn("No java launcher at {}, using java from PATH for Skidfuscator", java);
+            javaExecutable = "java";
+        }
+        log.info("Skidfuscator runs on {}", javaExecutable);
+    }
+
+    /**
+     * The java launcher for Skidfuscator child processes.
+     */
+    public String javaExecutable() {
+        return javaExecutable;
+    }
+
+    /**
+     * Resolve the JVM options for a Skidfuscator run.
+     *
+     * @param engineJar  absolute path of the Skidfuscator JAR
+     * @param inputBytes size of the JAR being obfuscated
+     */
+    public ChildJvmProfile profileFor(String engineJar, long inputBytes) {
+        boolean large = inputBytes >= largeJobThresholdMb * 1024 * 1024;
+        String name = large ? "large" : "small";
+
+        List<String> args = new ArrayList<>(splitFlags(large ? largeProfile : smallProfile));
+
+        boolean cdsUsed = false;
+        if (cdsEnabled) {
+            Path archive = archiveFor(engineJar);
+            if (archive != null && archives.get(archive.getFileName().toString()) == ArchiveState.READY) {
+                args.add("-XX:SharedArchiveFile=" + archive);
+                args.add("-Xshare:auto");
+                cdsUsed = true;
+            }
+        }
+
+        return new ChildJvmProfile(name, args, cdsUsed);
+    }
+
+    /**
+     * Build the CDS archive for a Skidfuscator JAR if it does not exist yet.
+     * Runs a short training obfuscation with -XX:ArchiveClassesAtExit so the
+     * archive captures the classes loaded by a real pipeline run.
+     */
+    public void prepareArchive(String engineJar) {
+        if (!cdsEnabled || !new File(engineJar).exists()) {
+            return;
+        }
+
+        Path archive = archiveFor(engineJar);
+        if (archive == null) {
+            return;
+        }
+
+        String key = archive.getFileName().toString();
+        if (Files.exists(archive)) {
+            archives.put(key, ArchiveState.READY);
+            return;
+        }
+        if (archives.putIfAbsent(key, ArchiveState.BUILDING) != null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory(cdsPath, "train-");
+            Path trainJar = workDir.resolve("train.jar");
+            Path trainCfg = workDir.resolve("train.hocon");
+            writeTrainingJar(trainJar);
+            Files.writeString(trainCfg, "exempt: []\nlibs: []\n");
+
+            List<String> cmd = new ArrayList<>();
+            cmd.add(javaExecutable);
+            cmd.addAll(splitFlags(smallProfile));
+            cmd.add("-XX:ArchiveClassesAtExit=" + archive);
+            cmd.add("-Dterminal.jline=false");
+            cmd.add("-jar");
+            cmd.add(engineJar);
+            cmd.add("obfuscate");
+            cmd.add(trainJar.toString());
+            cmd.add("-o=" + workDir.resolve("train-out.jar"));
+            cmd.add("-cfg=" + trainCfg);
+
+            ProcessBuilder pb = new ProcessBuilder(cmd);
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            pb.directory(workDir.toFile());
+
+            Process process = children.start(pb, "CDS training run");
+            if (!ChildProcessRegistry.waitFor(process, 5, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+            }
+
+            if (Files.exists(archive)) {
+                archives.put(key, ArchiveState.READY);
+                log.info("Created CDS archive for Skidfuscator in {} ms: {}",
+                        System.currentTimeMillis() - start, archive.getFileName());
+            } else {
+                archives.put(key, ArchiveState.FAILED);
+                log.warn("CDS archive was not created for {}", engineJar);
+            }
+        } catch (Exception e) {
+            archives.put(key, ArchiveState.FAILED);
+            log.warn("Could not create CDS archive: {}", e.getMessage());
+        } finally {
+            deleteQuietly(workDir);
+        }
+    }
+
+    /**
+     * Archive file for a Skidfuscator JAR. The name includes the JAR size and
+     * modification time and the child runtime, so a replaced JAR or runtime
+     * gets a fresh archive instead of a mismatching one.
+     */
+    private Path archiveFor(String engineJar) {
+        File jar = new File(engineJar);
+        if (!jar.exists()) {
+            return null;
+        }
+        String baseName = jar.getName().replace(".jar", "");
+        String runtime = javaHome.isBlank() ? System.getProperty("java.version")
+                : Integer.toHexString(javaExecutable.hashCode())
+                        + Long.toHexString(new File(javaExecutable).lastModified());
+        String fingerprint = Long.toHexString(jar.length()) + "-" + Long.toHexString(jar.lastModified())
+                + "-" + runtime;
+        return cdsPath.resolve(baseName + "-" + fingerprint + ".jsa");
+    }
+
+    /**
+     * Write a minimal JAR holding one of our own classes as training input.
+     */
+    private void writeTrainingJar(Path target) throws IOException {
+        String resource = JobStatus.class.getName().replace('.', '/') + ".class";
+        try (InputStream in = JobStatus.class.getClassLoader().getResourceAsStream(resource);
+                JarOutputStream out = new JarOutputStream(Files.newOutputStream(target))) {
+            if (in == null) {
+                throw new IOException("Training class not found: " + resource);
+            }
+            out.putNextEntry(new JarEntry(resource));
+            in.transferTo(out);
+            out.closeEntry();
+        }
+    }
+
+    private List<String> splitFlags(String flags) {
+        if (flags == null || flags.isBlank()) {
+            return List.of();
+        }
+        return Arrays.asList(flags.trim().split("\\s+"));
+    }
+
+    private void deleteQuietly(Path dir) {
+        if (dir == null) {
+            return;
+        }
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private enum ArchiveState {
+        BUILDING,
+        READY,
+        FAILED
+    }
+
+    public record ChildJvmProfile(String name, List<String> jvmArgs, boolean cdsArchiveUsed) {
+    }
+}
@@ -0,0 +1,89 @@
+package dev.neoobfuscator.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Child JVMs started by this node: Skidfuscator runs for jobs, benchmark
+ * variants and engine trials, benchmark harnesses and CDS training runs.
+ *
+ * A drain waits for them and stops those still running at its deadline.
+ * Once draining, no new child is started, so background work started before
+ * the drain cannot keep the node busy past it.
+ */
+@Service
+public class ChildProcessRegistry {
+
+    // Running children and what they are for
+    private final Map<Process, String> running = new ConcurrentHashMap<>();
+
+    private volatile boolean draining;
+
+    /**
+     * Start a child process, tracked until it exits.
+     *
+     * @param purpose what the process is for, for logs and errors
+     * @throws IOException if the node is draining, or the process cannot start
+     */
+    public Process start(ProcessBuilder builder, String purpose) throws IOException {
+        if (draining) {
+            throw new IOException("Shutting down, not starting " + purpose);
+        }
+        Process process = builder.start();
+        running.put(process, purpose);
+        process.onExit().thenRun(() -> running.remove(process));
+        return process;
+    }
+
+    /**
+     * Wait for a child. When the waiting thread is interrupted (an executor
+     * shut down under it), the child is stopped rather than left behind.
+     *
+     * @return whether the process exited within the timeout
+     */
+    public static boolean waitFor(Process process, long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            return process.waitFor(timeout, unit);
+        } catch (InterruptedException e) {
+            destroy(process, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Refuse new children from now on.
+     */
+    public void beginDrain() {
+        draining = true;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public int runningCount() {
+        return running.size();
+    }
+
+    /**
+     * Stop all running children and their own child processes.
+     *
+     * @param forcibly kill rather than ask them to exit
+     */
+    public void stopAll(boolean forcibly) {
+        running.keySet().forEach(process -> destroy(process, forcibly));
+    }
+
+    private static void destroy(Process process, boolean forcibly) {
+        process.descendants().forEach(forcibly ? ProcessHandle::destroyForcibly : ProcessHandle::destroy);
+        if (forcibly) {
+            process.destroyForcibly();
+        } else {
+            process.destroy();
+        }
+    }
+}
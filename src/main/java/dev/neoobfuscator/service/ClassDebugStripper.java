@@ -0,0 +1,222 @@
+package dev.neoobfuscator.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Removes debug-only attributes from class files.
+ *
+ * Drops SourceDebugExtension from the class, and LocalVariableTable and
+ * LocalVariableTypeTable from method Code attributes. SourceFile and
+ * LineNumberTable are dropped only when asked: stack traces need both to show
+ * line numbers, and retracing needs those. Everything else, including the
+ * constant pool, is copied byte for byte, so the class verifies and behaves
+ * exactly as before.
+ */
+final class ClassDebugStripper {
+
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private static final Set<String> CLASS_DEBUG_ATTRIBUTES = Set.of("SourceDebugExtension");
+
+    private static final Set<String> CODE_DEBUG_ATTRIBUTES = Set.of("LocalVariableTable", "LocalVariableTypeTable");
+
+    // Also dropped with line numbers
+    private static final Set<String> CLASS_LINE_ATTRIBUTES = Set.of("SourceFile", "SourceDebugExtension");
+
+    private static final Set<String> CODE_LINE_ATTRIBUTES = Set.of("LineNumberTable", "LocalVariableTable",
+            "LocalVariableTypeTable");
+
+    private ClassDebugStripper() {
+    }
+
+    /**
+     * Strip debug attributes from a class file.
+     *
+     * @param lineNumbers also drop line numbers and source file names
+     * @return the stripped class, or the input unchanged if it is not a class
+     *         file this parser understands
+     */
+    static byte[] strip(byte[] classFile, boolean lineNumbers) {
+        try {
+            return new Pass(classFile, lineNumbers ? CLASS_LINE_ATTRIBUTES : CLASS_DEBUG_ATTRIBUTES,
+                    lineNumbers ? CODE_LINE_ATTRIBUTES : CODE_DEBUG_ATTRIBUTES).run();
+        } catch (IOException | RuntimeException e) {
+            return classFile;
+        }
+    }
+
+    private static final class Pass {
+
+        private final byte[] input;
+        private final DataInputStream in;
+        private final ByteArrayOutputStream buffer;
+        private final DataOutputStream out;
+        private final Set<String> classDrop;
+        private final Set<String> codeDrop;
+        private String[] utf8;
+
+        Pass(byte[] input, Set<String> classDrop, Set<String> codeDrop) {
+            this.input = input;
+            this.classDrop = classDrop;
+            this.codeDrop = codeDrop;
+            this.in = new DataInputStream(new ByteArrayInputStream(input));
+            this.buffer = new ByteArrayOutputStream(input.length);
+            this.out = new DataOutputStream(buffer);
+        }
+
+        byte[] run() throws IOException {
+            if (in.readInt() != MAGIC) {
+                return input;
+            }
+            out.writeInt(MAGIC);
+            copy(4); // minor, major version
+
+            readConstantPool();
+
+            copy(6); // access flags, this class, super class
+            int interfaces = copyU2();
+            copy(interfaces * 2);
+
+            copyMembers(); // fields
+            copyMembers(); // methods
+            copyAttributes(classDrop, false);
+
+            if (in.available() != 0) {
+                return input;
+            }
+            out.flush();
+            return buffer.size() < input.length ? buffer.toByteArray() : input;
+        }
+
+        private void readConstantPool() throws IOException {
+            int count = copyU2();
+            utf8 = new String[count];
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                out.writeByte(tag);
+                switch (tag) {
+                    case 1 -> {
+                        // Copied raw: re-encoding could alter non-canonical strings
+                        int length = copyU2();
+                        byte[] bytes = in.readNBytes(length);
+                        out.write(bytes);
+                        utf8[i] = new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    case 3, 4, 9, 10, 11, 12, 17, 18 -> copy(4);
+                    case 5, 6 -> {
+                        copy(8);
+                        i++; // takes two slots
+                    }
+                    case 7, 8, 16, 19, 20 -> copy(2);
+                    case 15 -> copy(3);
+                    default -> throw new IOException("Unknown constant pool tag " + tag);
+                }
+            }
+        }
+
+        private void copyMembers() throws IOException {
+            int count = copyU2();
+            for (int i = 0; i < count; i++) {
+                copy(6); // access flags, name, descriptor
+                copyAttributes(Set.of(), true);
+            }
+        }
+
+        /**
+         * Copy an attribute table, dropping the named attributes. Code
+         * attributes are rewritten without their debug sub-attributes.
+         */
+        private void copyAttributes(Set<String> drop, boolean rewriteCode) throws IOException {
+            int count = in.readUnsignedShort();
+            ByteArrayOutputStream kept = new ByteArrayOutputStream();
+            DataOutputStream keptOut = new DataOutputStream(kept);
+            int keptCount = 0;
+
+            for (int i = 0; i < count; i++) {
+                int nameIndex = in.readUnsignedShort();
+                int length = in.readInt();
+                byte[] body = in.readNBytes(length);
+                if (body.length != length) {
+                    throw new IOException("Truncated attribute");
+                }
+                String name = utf8[nameIndex];
+
+                if (drop.contains(name)) {
+                    continue;
+                }
+                if (rewriteCode && "Code".equals(name)) {
+                    body = stripCode(body);
+                }
+                keptOut.writeShort(nameIndex);
+                keptOut.writeInt(body.length);
+                keptOut.write(body);
+                keptCount++;
+            }
+
+            out.writeShort(keptCount);
+            keptOut.flush();
+            kept.writeTo(out);
+        }
+
+        private byte[] stripCode(byte[] code) throws IOException {
+            DataInputStream codeIn = new DataInputStream(new ByteArrayInputStream(code));
+            ByteArrayOutputStream stripped = new ByteArrayOutputStream(code.length);
+            DataOutputStream codeOut = new DataOutputStream(stripped);
+
+            codeOut.writeShort(codeIn.readUnsignedShort()); // max stack
+            codeOut.writeShort(codeIn.readUnsignedShort()); // max locals
+            int codeLength = codeIn.readInt();
+            codeOut.writeInt(codeLength);
+            codeOut.write(codeIn.readNBytes(codeLength));
+            int exceptions = codeIn.readUnsignedShort();
+            codeOut.writeShort(exceptions);
+            codeOut.write(codeIn.readNBytes(exceptions * 8));
+
+            int count = codeIn.readUnsignedShort();
+            ByteArrayOutputStream kept = new ByteArrayOutputStream();
+            DataOutputStream keptOut = new DataOutputStream(kept);
+            int keptCount = 0;
+            for (int i = 0; i < count; i++) {
+                int nameIndex = codeIn.readUnsignedShort();
+                int length = codeIn.readInt();
+                byte[] body = codeIn.readNBytes(length);
+                if (codeDrop.contains(utf8[nameIndex])) {
+                    continue;
+                }
+                keptOut.writeShort(nameIndex);
+                keptOut.writeInt(length);
+                keptOut.write(body);
+                keptCount++;
+            }
+            if (codeIn.available() != 0) {
+                throw new IOException("Malformed Code attribute");
+            }
+
+            codeOut.writeShort(keptCount);
+            keptOut.flush();
+            kept.writeTo(codeOut);
+            codeOut.flush();
+            return stripped.toByteArray();
+        }
+
+        private int copyU2() throws IOException {
+            int value = in.readUnsignedShort();
+            out.writeShort(value);
+            return value;
+        }
+
+        private void copy(int length) throws IOException {
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new IOException("Truncated class file");
+            }
+            out.write(bytes);
+        }
+    }
+}
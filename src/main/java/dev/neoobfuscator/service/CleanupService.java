@@ -38,9 +38,6 @@ public class CleanupService {
             // Also clean up old config files
             cleanupOldConfigs();
 
-            // Clean up old mappings
-            cleanupOldMappings();
-
         } catch (Exception e) {
             log.warn("Error during cleanup: {}", e.getMessage());
         }
@@ -72,13 +69,6 @@ public class CleanupService {
         }
     }
 
-    private void cleanupOldMappings() {
-        Path mappingsDir = Paths.get(System.getProperty("user.dir"), "mappings");
-        if (Files.exists(mappingsDir)) {
-            cleanupOldFiles(mappingsDir, CLEANUP_AGE_MINUTES);
-        }
-    }
-
     private void cleanupOldFiles(Path directory, long ageMinutes) {
         if (!Files.exists(directory))
             return;
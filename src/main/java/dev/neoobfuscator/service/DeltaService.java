@@ -0,0 +1,219 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.ObfuscationJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Deltas between the outputs of two jobs, so clients holding one build can
+ * fetch the next without downloading it whole.
+ *
+ * Outputs never change once published, so a delta is computed once and
+ * kept on disk. Computing one takes a while on large JARs, so it happens on
+ * a background thread: when a job completes, against the tenant's previous
+ * build of the same file, and otherwise on first request, which is answered
+ * with the full output meanwhile. Deltas not served for a while are deleted.
+ */
+@Service
+public class DeltaService {
+
+    private static final Logger log = LoggerFactory.getLogger(DeltaService.class);
+
+    private final FileStorageService fileStorage;
+    private final HistoryService historyService;
+
+    // Deltas queued or being computed, by file name
+    private final Set<String> computing = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService computeRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Delta-compute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${neo.delta.dir:./data/deltas}")
+    private String deltaDir;
+
+    // Deltas at least this share of the full output are not worth sending
+    @Value("${neo.delta.max-ratio:0.8}")
+    private double maxRatio;
+
+    @Value("${neo.delta.retention-days:7}")
+    private int retentionDays;
+
+    private Path deltaPath;
+
+    public DeltaService(FileStorageService fileStorage, HistoryService historyService) {
+        this.fileStorage = fileStorage;
+        this.historyService = historyService;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        deltaPath = Paths.get(deltaDir).toAbsolutePath();
+        Files.createDirectories(deltaPath);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        computeRunner.shutdownNow();
+    }
+
+    /**
+     * Whether a delta may be computed between two jobs: builds of the same
+     * file for the same tenant. Deltas between unrelated outputs are not
+     * worth computing, and across tenants would leak one's output to another.
+     */
+    public static boolean sameLineage(ObfuscationJob base, ObfuscationJob target) {
+        return Objects.equals(base.getTenant(), target.getTenant())
+                && Objects.equals(base.getOriginalFilename(), target.getOriginalFilename());
+    }
+
+    /**
+     * The delta from the base job's output to the target job's.
+     *
+     * @return empty if the jobs are not of the same lineage, the delta is not
+     *         sufficiently smaller than the target, or is not computed yet (it is queued)
+     */
+    public Optional<Path> delta(ObfuscationJob base, ObfuscationJob target) throws IOException {
+        if (!sameLineage(base, target)) {
+            return Optional.empty();
+        }
+        Path delta = deltaPath.resolve(name(base, target));
+        if (!Files.isRegularFile(delta)) {
+            queue(base, target);
+            return Optional.empty();
+        }
+
+        // Served deltas are kept, see prune()
+        Files.setLastModifiedTime(delta, FileTime.from(Instant.now()));
+        long targetSize = fileStorage.outputSize(target.getOutputPath()).orElse(0L);
+        if (Files.size(delta) >= targetSize * maxRatio) {
+            return Optional.empty();
+        }
+        return Optional.of(delta);
+    }
+
+    /**
+     * Queue the delta from the tenant's previous build of the same file to
+     * a newly completed job, which is what its clients will ask for.
+     */
+    public void precompute(ObfuscationJob target) {
+        try {
+            historyService.findPreviousBuild(target).ifPresent(base -> queue(base, target));
+        } catch (Exception e) {
+            log.warn("Could not queue delta for job {}: {}", target.getId(), e.getMessage());
+        }
+    }
+
+    private void queue(ObfuscationJob base, ObfuscationJob target) {
+        String name = name(base, target);
+        if (!computing.add(name)) {
+            return;
+        }
+        try {
+            computeRunner.execute(() -> {
+                try {
+                    Path delta = deltaPath.resolve(name);
+                    if (!Files.isRegularFile(delta)) {
+                        compute(base, target, delta);
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not compute delta {} -> {}: {}", base.getId(), target.getId(), e.getMessage());
+                } finally {
+                    computing.remove(name);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            computing.remove(name);
+        }
+    }
+
+    private static String name(ObfuscationJob base, ObfuscationJob target) {
+        return target.getId() + "_since_" + base.getId() + ".delta";
+    }
+
+    private void compute(ObfuscationJob base, ObfuscationJob target, Path delta) throws IOException {
+        long started = System.currentTimeMillis();
+        List<Path> temporary = new ArrayList<>();
+        Path temp = Files.createTempFile(deltaPath, ".delta-", ".tmp");
+        try {
+            Path basePath = localOutput(base.getOutputPath(), temporary);
+            Path targetPath = localOutput(target.getOutputPath(), temporary);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                JarDelta.write(basePath, targetPath, out);
+            }
+            Files.move(temp, delta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Computed delta {} -> {}: {} bytes in {} ms", base.getId(), target.getId(),
+                    Files.size(delta), System.currentTimeMillis() - started);
+        } finally {
+            Files.deleteIfExists(temp);
+            for (Path path : temporary) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * The output file, or a temporary copy when it is only in the artifact store.
+     */
+    private Path localOutput(String outputPath, List<Path> temporary) throws IOException {
+        Path path = Paths.get(outputPath);
+        if (Files.isRegularFile(path)) {
+            return path;
+        }
+        Path copy = Files.createTempFile(deltaPath, ".output-", ".jar");
+        temporary.add(copy);
+        try (InputStream in = fileStorage.openOutput(outputPath, 0, -1)) {
+            Files.copy(in, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return copy;
+    }
+
+    /**
+     * Delete deltas not served within the retention period.
+     */
+    @Scheduled(fixedDelay = 3_600_000)
+    public void prune() {
+        Instant cutoff = Instant.now().minus(retentionDays, ChronoUnit.DAYS);
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(deltaPath, "*.delta")) {
+            for (Path file : stream) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not prune deltas: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Pruned {} unused deltas", deleted);
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.EngineTrial;
+import dev.neoobfuscator.model.EngineTrialSummary;
+import dev.neoobfuscator.model.SkidfuscatorEngine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Keeps the Skidfuscator versions jobs can run on.
+ *
+ * Each engine is a copy of its JAR under the engines directory, named by its
+ * SHA-256, so a registered version never changes underneath running jobs.
+ * The configured skidfuscator-jar is registered on startup. One engine is the
+ * default; another can be a candidate that a share of completed jobs is
+ * re-run on, recording both runs side by side (see {@link EngineTrial}).
+ */
+@Service
+public class EngineRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineRegistry.class);
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Shortest ID prefix accepted when pinning an engine
+    private static final int MIN_PREFIX = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${neo.skidfuscator-jar:./libs/skidfuscator.jar}")
+    private String skidfuscatorJar;
+
+    @Value("${neo.engines.dir:./data/engines}")
+    private String enginesDir;
+
+    private Path enginesPath;
+
+    // Used when no engine could be registered, so runs fail with a clear path
+    private String fallbackPath;
+
+    public EngineRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS engines (
+                        id TEXT PRIMARY KEY,
+                        filename TEXT NOT NULL,
+                        path TEXT NOT NULL,
+                        size_bytes INTEGER NOT NULL,
+                        registered_at TEXT,
+                        configured INTEGER NOT NULL DEFAULT 0,
+                        is_default INTEGER NOT NULL DEFAULT 0,
+                        candidate_share REAL NOT NULL DEFAULT 0
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS engine_trials (
+                        job_id TEXT NOT NULL,
+                        baseline_engine_id TEXT,
+                        candidate_engine_id TEXT NOT NULL,
+                        created_at TEXT,
+                        baseline_ms INTEGER,
+                        candidate_ms INTEGER,
+                        baseline_peak_rss_bytes INTEGER,
+                        candidate_peak_rss_bytes INTEGER,
+                        baseline_output_bytes INTEGER,
+                        candidate_output_bytes INTEGER,
+                        error TEXT
+                    )
+                """);
+        jdbcTemplate.execute(
+                "CREATE INDEX IF NOT EXISTS idx_engine_trials_candidate ON engine_trials (candidate_engine_id)");
+
+        enginesPath = Paths.get(enginesDir).toAbsolutePath().normalize();
+        Files.createDirectories(enginesPath);
+        registerConfigured();
+    }
+
+    /**
+     * Register the configured Skidfuscator JAR. It becomes the default when
+     * there is none yet, or when the default was itself the configured JAR
+     * (i.e. the file was replaced by an upgrade).
+     */
+    private void registerConfigured() {
+        File jar = resolveConfiguredJar();
+        fallbackPath = jar.getAbsolutePath();
+        if (!jar.exists()) {
+            log.warn("Skidfuscator not found, using fallback path: {}", fallbackPath);
+            return;
+        }
+
+        try (InputStream in = Files.newInputStream(jar.toPath())) {
+            SkidfuscatorEngine engine = register(in, jar.getName(), true);
+            Optional<SkidfuscatorEngine> current = defaultEngine();
+            if (current.isEmpty() || (current.get().isConfigured() && !current.get().getId().equals(engine.getId()))) {
+                setDefault(engine.getId());
+            }
+            log.info("Using Skidfuscator at configured path: {} (engine {})", fallbackPath, shortId(engine.getId()));
+        } catch (Exception e) {
+            log.warn("Could not register Skidfuscator at {}: {}", fallbackPath, e.getMessage());
+        }
+    }
+
+    /**
+     * Find the configured JAR: as given, then in user.dir, then next to the
+     * application's JAR or classes directory.
+     */
+    private File resolveConfiguredJar() {
+        File jarFile = new File(skidfuscatorJar);
+        if (jarFile.exists()) {
+            return jarFile;
+        }
+
+        File userDirCandidate = new File(System.getProperty("user.dir"), "libs/skidfuscator.jar");
+        if (userDirCandidate.exists()) {
+            return userDirCandidate;
+        }
+
+        try {
+            String appPath = EngineRegistry.class
+                    .getProtectionDomain()
+                    .getCodeSource()
+                    .getLocation()
+                    .toURI()
+                    .getPath();
+
+            // On Windows, remove leading slash from path like "/C:/..."
+            if (appPath.matches("^/[A-Za-z]:.*")) {
+                appPath = appPath.substring(1);
+            }
+
+            File appFile = new File(appPath);
+            File baseDir = appFile.isDirectory() ? appFile : appFile.getParentFile();
+
+            // Walk up from target/classes to the project root
+            for (int i = 0; i < 6 && baseDir != null; i++) {
+                File candidate = new File(baseDir, "libs/skidfuscator.jar");
+                if (candidate.exists()) {
+                    return candidate;
+                }
+                baseDir = baseDir.getParentFile();
+            }
+        } catch (Exception e) {
+            log.warn("Error resolving application path: {}", e.getMessage());
+        }
+
+        return new File("libs/skidfuscator.jar");
+    }
+
+    /**
+     * Register a Skidfuscator JAR. Registering the same JAR twice returns the
+     * existing engine.
+     *
+     * @throws IllegalArgumentException if the file is not a runnable JAR
+     */
+    public SkidfuscatorEngine register(InputStream in, String filename, boolean configured) throws IOException {
+        Path temp = Files.createTempFile(enginesPath, ".engine-", ".tmp");
+        try {
+            MessageDigest digest = FileStorageService.sha256();
+            try (InputStream digestIn = new DigestInputStream(in, digest)) {
+                Files.copy(digestIn, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String id = HexFormat.of().formatHex(digest.digest());
+
+            Optional<SkidfuscatorEngine> existing = findById(id);
+            if (existing.isPresent()) {
+                return existing.get();
+            }
+
+            try (JarFile jar = new JarFile(temp.toFile())) {
+                Manifest manifest = jar.getManifest();
+                if (manifest == null || manifest.getMainAttributes().getValue("Main-Class") == null) {
+                    throw new IllegalArgumentException("Not a runnable JAR: no Main-Class in the manifest");
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Not a valid JAR: " + e.getMessage());
+            }
+
+            Path path = enginesPath.resolve(id + ".jar");
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            SkidfuscatorEngine engine = SkidfuscatorEngine.builder()
+                    .id(id)
+                    .filename(filename != null ? filename : "skidfuscator.jar")
+                    .path(path.toString())
+                    .sizeBytes(Files.size(path))
+                    .registeredAt(LocalDateTime.now().withNano(0))
+                    .configured(configured)
+                    .build();
+            jdbcTemplate.update("""
+                        INSERT OR IGNORE INTO engines (id, filename, path, size_bytes, registered_at, configured)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                    """, engine.getId(), engine.getFilename(), engine.getPath(), engine.getSizeBytes(),
+                    engine.getRegisteredAt().format(FORMATTER), configured ? 1 : 0);
+            log.info("Registered Skidfuscator engine {} ({})", shortId(id), engine.getFilename());
+            return engine;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public List<SkidfuscatorEngine> findAll() {
+        return jdbcTemplate.query("SELECT * FROM engines ORDER BY registered_at DESC", engineRowMapper);
+    }
+
+    public Optional<SkidfuscatorEngine> findById(String id) {
+        return jdbcTemplate.query("SELECT * FROM engines WHERE id = ?", engineRowMapper, id).stream().findFirst();
+    }
+
+    /**
+     * Find an engine by ID or unique ID prefix.
+     *
+     * @throws IllegalArgumentException if no single engine matches
+     */
+    public SkidfuscatorEngine resolve(String idOrPrefix) {
+        String prefix = idOrPrefix.trim().toLowerCase();
+        if (prefix.length() < MIN_PREFIX || !prefix.matches("[0-9a-f]+")) {
+            throw new IllegalArgumentException("Engine IDs are hex, at least " + MIN_PREFIX + " characters");
+        }
+        List<SkidfuscatorEngine> matches = jdbcTemplate.query("SELECT * FROM engines WHERE id LIKE ?",
+                engineRowMapper, prefix + "%");
+        if (matches.isEmpty()) {
+            throw new IllegalArgumentException("Unknown engine: " + idOrPrefix);
+        }
+        if (matches.size() > 1) {
+            throw new IllegalArgumentException("Ambiguous engine ID: " + idOrPrefix);
+        }
+        return matches.get(0);
+    }
+
+    public Optional<SkidfuscatorEngine> defaultEngine() {
+        return jdbcTemplate.query("SELECT * FROM engines WHERE is_default = 1", engineRowMapper).stream()
+                .findFirst();
+    }
+
+    public Optional<SkidfuscatorEngine> candidate() {
+        return jdbcTemplate.query("SELECT * FROM engines WHERE candidate_share > 0", engineRowMapper).stream()
+                .findFirst();
+    }
+
+    /**
+     * JAR path of an engine, or of the default engine when the ID is null.
+     *
+     * @throws IllegalStateException if a pinned engine is no longer registered
+     */
+    public String pathFor(String engineId) {
+        if (engineId == null) {
+            return defaultEngine().map(SkidfuscatorEngine::getPath).orElse(fallbackPath);
+        }
+        return findById(engineId).map(SkidfuscatorEngine::getPath)
+                .orElseThrow(() -> new IllegalStateException("Engine " + shortId(engineId) + " is not registered"));
+    }
+
+    /**
+     * ID of the engine a job pinned to the given engine runs on, null when
+     * nothing is registered.
+     */
+    public String idFor(String engineId) {
+        return engineId != null ? engineId : defaultEngine().map(SkidfuscatorEngine::getId).orElse(null);
+    }
+
+    /**
+     * Make an engine the default. A default engine is never a candidate.
+     */
+    public void setDefault(String id) {
+        jdbcTemplate.update("UPDATE engines SET is_default = (id = ?), candidate_share = "
+                + "CASE WHEN id = ? THEN 0 ELSE candidate_share END", id, id);
+    }
+
+    /**
+     * Re-run the given share of unpinned jobs on an engine. Replaces any
+     * other candidate; a share of 0 stops trials.
+     */
+    public void setCandidate(String id, double share) {
+        if (share < 0 || share > 1) {
+            throw new IllegalArgumentException("Share must be between 0 and 1");
+        }
+        if (share > 0 && findById(id).map(SkidfuscatorEngine::isDefaultEngine).orElse(false)) {
+            throw new IllegalArgumentException("The default engine cannot be a candidate");
+        }
+        jdbcTemplate.update("UPDATE engines SET candidate_share = CASE WHEN id = ? THEN ? ELSE 0 END", id, share);
+    }
+
+    /**
+     * Candidate to re-run a job on, if the job is sampled. Jobs already run
+     * on the candidate are not.
+     */
+    public Optional<SkidfuscatorEngine> sampleCandidate(String jobEngineId) {
+        return candidate()
+                .filter(engine -> !engine.getId().equals(jobEngineId))
+                .filter(engine -> ThreadLocalRandom.current().nextDouble() < engine.getCandidateShare());
+    }
+
+    /**
+     * Remove an engine that is not the default. Jobs pinned to it fail when
+     * they run.
+     */
+    public boolean delete(String id) throws IOException {
+        Optional<SkidfuscatorEngine> engine = findById(id);
+        if (engine.isEmpty()) {
+            return false;
+        }
+        if (engine.get().isDefaultEngine()) {
+            throw new IllegalArgumentException("The default engine cannot be removed");
+        }
+        jdbcTemplate.update("DELETE FROM engines WHERE id = ?", id);
+        Files.deleteIfExists(Paths.get(engine.get().getPath()));
+        return true;
+    }
+
+    public void recordTrial(EngineTrial trial) {
+        jdbcTemplate.update("""
+                    INSERT INTO engine_trials (job_id, baseline_engine_id, candidate_engine_id, created_at,
+                        baseline_ms, candidate_ms, baseline_peak_rss_bytes, candidate_peak_rss_bytes,
+                        baseline_output_bytes, candidate_output_bytes, error)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, trial.getJobId(), trial.getBaselineEngineId(), trial.getCandidateEngineId(),
+                trial.getCreatedAt().format(FORMATTER), trial.getBaselineMs(), trial.getCandidateMs(),
+                trial.getBaselinePeakRssBytes(), trial.getCandidatePeakRssBytes(), trial.getBaselineOutputBytes(),
+                trial.getCandidateOutputBytes(), trial.getError());
+    }
+
+    public List<EngineTrial> findTrials(String candidateId, int limit) {
+        return jdbcTemplate.query("""
+                    SELECT * FROM engine_trials WHERE candidate_engine_id = ?
+                    ORDER BY created_at DESC LIMIT ?
+                """, trialRowMapper, candidateId, limit);
+    }
+
+    /**
+     * Compare an engine with the baselines it was trialled against.
+     */
+    public EngineTrialSummary summarize(String candidateId) {
+        List<EngineTrial> trials = jdbcTemplate.query("SELECT * FROM engine_trials WHERE candidate_engine_id = ?",
+                trialRowMapper, candidateId);
+        List<Double> runtime = new ArrayList<>();
+        List<Double> rss = new ArrayList<>();
+        List<Double> size = new ArrayList<>();
+        int failures = 0;
+        for (EngineTrial trial : trials) {
+            if (trial.getError() != null) {
+                failures++;
+                continue;
+            }
+            addRatio(runtime, trial.getCandidateMs(), trial.getBaselineMs());
+            addRatio(rss, trial.getCandidatePeakRssBytes(), trial.getBaselinePeakRssBytes());
+            addRatio(size, trial.getCandidateOutputBytes(), trial.getBaselineOutputBytes());
+        }
+        return EngineTrialSummary.builder()
+                .trials(trials.size())
+                .failures(failures)
+                .runtimeRatio(median(runtime))
+                .peakRssRatio(median(rss))
+                .outputSizeRatio(median(size))
+                .build();
+    }
+
+    private static void addRatio(List<Double> ratios, Long candidate, Long baseline) {
+        if (candidate != null && baseline != null && baseline > 0) {
+            ratios.add(candidate / (double) baseline);
+        }
+    }
+
+    private static Double median(List<Double> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        Collections.sort(values);
+        int mid = values.size() / 2;
+        double median = values.size() % 2 == 1 ? values.get(mid) : (values.get(mid - 1) + values.get(mid)) / 2;
+        return Math.round(median * 1000) / 1000.0;
+    }
+
+    public static String shortId(String id) {
+        return id != null && id.length() > 12 ? id.substring(0, 12) : id;
+    }
+
+    private final RowMapper<SkidfuscatorEngine> engineRowMapper = (rs, rowNum) -> SkidfuscatorEngine.builder()
+            .id(rs.getString("id"))
+            .filename(rs.getString("filename"))
+            .path(rs.getString("path"))
+            .sizeBytes(rs.getLong("size_bytes"))
+            .registeredAt(parseTime(rs.getString("registered_at")))
+            .configured(rs.getInt("configured") == 1)
+            .defaultEngine(rs.getInt("is_default") == 1)
+            .candidateShare(rs.getDouble("candidate_share"))
+            .build();
+
+    private final RowMapper<EngineTrial> trialRowMapper = (rs, rowNum) -> EngineTrial.builder()
+            .jobId(rs.getString("job_id"))
+            .baselineEngineId(rs.getString("baseline_engine_id"))
+            .candidateEngineId(rs.getString("candidate_engine_id"))
+            .createdAt(parseTime(rs.getString("created_at")))
+            .baselineMs(nullableLong(rs, "baseline_ms"))
+            .candidateMs(nullableLong(rs, "candidate_ms"))
+            .baselinePeakRssBytes(nullableLong(rs, "baseline_peak_rss_bytes"))
+            .candidatePeakRssBytes(nullableLong(rs, "candidate_peak_rss_bytes"))
+            .baselineOutputBytes(nullableLong(rs, "baseline_output_bytes"))
+            .candidateOutputBytes(nullableLong(rs, "candidate_output_bytes"))
+            .error(rs.getString("error"))
+            .build();
+
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value != null ? LocalDateTime.parse(value, FORMATTER) : null;
+    }
+}
@@ -1,16 +1,26 @@
 package dev.neoobfuscator.service;
 
+import dev.neoobfuscator.model.StoredUpload;
+import io.opentelemetry.api.trace.Tracer;
 import jakarta.annotation.PostConstruct;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 
 /**
  * Service for file storage operations.
@@ -18,6 +28,14 @@ import java.util.UUID;
 @Service
 public class FileStorageService {
 
+    private final ArtifactStore artifactStore;
+    private final Tracer tracer;
+
+    public FileStorageService(ArtifactStore artifactStore, Tracer tracer) {
+        this.artifactStore = artifactStore;
+        this.tracer = tracer;
+    }
+
     @Value("${neo.upload-dir:./uploads}")
     private String uploadDir;
 
@@ -27,12 +45,16 @@ public class FileStorageService {
     @Value("${neo.config-dir:./configs}")
     private String configDir;
 
+    @Value("${neo.work-dir:./data/work}")
+    private String workDir;
+
     @PostConstruct
     public void init() throws IOException {
         // Create absolute paths
         uploadPath = Paths.get(uploadDir).toAbsolutePath();
         outputPath = Paths.get(outputDir).toAbsolutePath();
         configPath = Paths.get(configDir).toAbsolutePath();
+        workPath = Paths.get(workDir).toAbsolutePath();
 
         // Create directories if they don't exist
         Files.createDirectories(uploadPath);
@@ -40,20 +62,98 @@ public class FileStorageService {
         Files.createDirectories(configPath);
         Files.createDirectories(Paths.get("./data").toAbsolutePath());
         Files.createDirectories(Paths.get("./libs").toAbsolutePath());
+
+        // Working directories left behind by jobs interrupted by a restart
+        if (Files.exists(workPath)) {
+            BenchmarkService.deleteRecursively(workPath);
+        }
+        Files.createDirectories(workPath);
     }
 
     private Path uploadPath;
     private Path outputPath;
     private Path configPath;
+    private Path workPath;
 
     /**
-     * Store uploaded file and return the path.
+     * Store uploaded file, hashing its content while it is written.
      */
-    public String storeUpload(MultipartFile file, String jobId) throws IOException {
+    public StoredUpload storeUpload(MultipartFile file, String jobId) throws IOException {
         String filename = jobId + "_" + sanitizeFilename(file.getOriginalFilename());
         Path path = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), path);
-        return path.toAbsolutePath().toString();
+
+        MessageDigest digest = sha256();
+        try (SpanScope span = SpanScope.start(tracer, "FileStorageService.storeUpload");
+                InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            span.attribute("file.size", file.getSize());
+            Files.copy(in, path);
+        }
+
+        return StoredUpload.builder()
+                .path(path.toAbsolutePath().toString())
+                .originalFilename(file.getOriginalFilename())
+                .size(Files.size(path))
+                .sha256(HexFormat.of().formatHex(digest.digest()))
+                .build();
+    }
+
+    /**
+     * Path for an upload written by the caller, e.g. in chunks.
+     */
+    public Path newUploadPath(String id, String originalFilename) {
+        return uploadPath.resolve(id + "_" + sanitizeFilename(originalFilename)).toAbsolutePath();
+    }
+
+    /**
+     * Create a job's working directory, where Skidfuscator runs and leaves
+     * files such as its mappings.
+     */
+    public Path createWorkDir(String jobId) throws IOException {
+        return Files.createDirectories(workPath.resolve(jobId));
+    }
+
+    /**
+     * Give a job its own input file for a stored upload. Hard-linked when the
+     * file system allows it, so large JARs are not copied.
+     */
+    public StoredUpload linkUpload(StoredUpload upload, String jobId) throws IOException {
+        Path source = Paths.get(upload.getPath());
+        Path path = uploadPath.resolve(jobId + "_" + sanitizeFilename(upload.getOriginalFilename()));
+        try {
+            Files.createLink(path, source);
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.copy(source, path);
+        }
+
+        return upload.toBuilder()
+                .path(path.toAbsolutePath().toString())
+                .build();
+    }
+
+    /**
+     * Delete uploads whose file name starts with the prefix.
+     */
+    public void deleteUploads(String prefix) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(uploadPath, prefix + "*")) {
+            for (Path file : stream) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Hex-encoded SHA-256 of a string, used to fingerprint configs.
+     */
+    public static String sha256Hex(String content) {
+        return HexFormat.of().formatHex(sha256().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     /**
@@ -66,18 +166,66 @@ public class FileStorageService {
     }
 
     /**
-     * Get config file path for a job.
+     * Publish a finished output to the artifact store.
+     */
+    public void publishOutput(String outputPath) throws IOException {
+        artifactStore.put(artifactKey(outputPath), Paths.get(outputPath));
+    }
+
+    /**
+     * Publish a copy of one job's output as another job's. Hard-linked when
+     * the output is still local and the file system allows it.
+     */
+    public void copyOutput(String sourceOutputPath, String targetOutputPath) throws IOException {
+        Path source = Paths.get(sourceOutputPath);
+        Path target = Paths.get(targetOutputPath);
+        Files.deleteIfExists(target);
+        if (Files.isRegularFile(source)) {
+            try {
+                Files.createLink(target, source);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(source, target);
+            }
+        } else {
+            try (InputStream in = openOutput(sourceOutputPath, 0, -1)) {
+                Files.copy(in, target);
+            }
+        }
+        publishOutput(targetOutputPath);
+    }
+
+    /**
+     * Size of a published output. Outputs from before the artifact store was
+     * configured are still found in the output directory.
+     */
+    public Optional<Long> outputSize(String outputPath) throws IOException {
+        Optional<Long> size = artifactStore.size(artifactKey(outputPath));
+        if (size.isEmpty() && Files.isRegularFile(Paths.get(outputPath))) {
+            return Optional.of(Files.size(Paths.get(outputPath)));
+        }
+        return size;
+    }
+
+    /**
+     * Open a byte range of a published output.
+     *
+     * @param length bytes to read, or -1 to read to the end
      */
-    public String getConfigPath(String jobId) {
-        return configPath.resolve(jobId + ".hocon").toString();
+    public InputStream openOutput(String outputPath, long offset, long length) throws IOException {
+        String key = artifactKey(outputPath);
+        if (artifactStore.size(key).isPresent()) {
+            return artifactStore.open(key, offset, length);
+        }
+        InputStream in = Files.newInputStream(Paths.get(outputPath));
+        in.skipNBytes(offset);
+        return length < 0 ? in : new BoundedInputStream(in, length);
     }
 
     /**
-     * Save config content to file.
+     * Artifact store key of an output: its file name, which is unique per job.
      */
-    public void saveConfig(String jobId, String content) throws IOException {
-        Path path = Paths.get(getConfigPath(jobId));
-        Files.writeString(path, content);
+    private static String artifactKey(String outputPath) {
+        return Paths.get(outputPath).getFileName().toString();
     }
 
     /**
@@ -103,9 +251,11 @@ public class FileStorageService {
 
         // Delete output
         String baseName = originalFilename.replace(".jar", "");
-        Files.deleteIfExists(outputPath.resolve(jobId + "_" + baseName + "-obfuscated.jar"));
+        Path output = outputPath.resolve(jobId + "_" + baseName + "-obfuscated.jar");
+        artifactStore.delete(artifactKey(output.toString()));
+        Files.deleteIfExists(output);
 
-        // Delete config
+        // Delete the config saved by versions that wrote it at job creation
         Files.deleteIfExists(configPath.resolve(jobId + ".hocon"));
     }
 
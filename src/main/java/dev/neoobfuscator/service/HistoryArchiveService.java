@@ -0,0 +1,443 @@
+package dev.neoobfuscator.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.neoobfuscator.model.ArchivedJob;
+import dev.neoobfuscator.model.DatabaseStats;
+import dev.neoobfuscator.model.ObfuscationJob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves old finished jobs out of SQLite and keeps the database file compact.
+ *
+ * Archived jobs are written to one file per creation month
+ * ("jobs-2024-05.ndjson.gz"), one gzip member per job, so a partition can be
+ * read with zcat and a single job is found by seeking to the offset kept in
+ * the small archived_jobs table. Maintenance runs in an off-peak window:
+ * archive, drop expired mappings, reclaim free pages, then let SQLite
+ * refresh its query statistics.
+ *
+ * Archived jobs can still be retraced until their mappings expire
+ * (neo.mappings.retention-days after archival; 0 drops them on archival).
+ */
+@Service
+public class HistoryArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryArchiveService.class);
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter PARTITION = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    // SQLite auto_vacuum modes
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+    private static final String[] AUTO_VACUUM_MODES = { "NONE", "FULL", "INCREMENTAL" };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HistoryService historyService;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final MappingStore mappingStore;
+
+    @Value("${neo.history.archive-after-days:30}")
+    private int archiveAfterDays;
+
+    @Value("${neo.history.archive-dir:./data/archive}")
+    private String archiveDir;
+
+    @Value("${neo.history.archive-batch-size:200}")
+    private int batchSize;
+
+    @Value("${neo.mappings.retention-days:365}")
+    private int mappingRetentionDays;
+
+    // Free pages released per maintenance run, 0 for all
+    @Value("${neo.history.vacuum-pages:0}")
+    private int vacuumPages;
+
+    private Path archivePath;
+
+    private volatile DatabaseStats lastRun;
+
+    // Runs requested through the API, one at a time off the request thread
+    private final ExecutorService maintenanceRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "History-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean maintenanceRequested = new AtomicBoolean();
+
+    public HistoryArchiveService(JdbcTemplate jdbcTemplate, HistoryService historyService,
+            ObjectMapper objectMapper, TransactionTemplate transactionTemplate, MappingStore mappingStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyService = historyService;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.mappingStore = mappingStore;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS archived_jobs (
+                        id TEXT PRIMARY KEY,
+                        partition TEXT NOT NULL,
+                        offset INTEGER NOT NULL,
+                        length INTEGER NOT NULL,
+                        archived_at TEXT
+                    )
+                """);
+        archivePath = Paths.get(archiveDir).toAbsolutePath().normalize();
+        Files.createDirectories(archivePath);
+    }
+
+    @Scheduled(cron = "${neo.history.maintenance-cron:0 30 3 * * *}")
+    public void scheduledMaintenance() {
+        try {
+            runMaintenance();
+        } catch (Exception e) {
+            log.warn("History maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenanceRunner.shutdown();
+    }
+
+    /**
+     * Run maintenance in the background. A full VACUUM can take minutes on a
+     * large database, so callers get an answer at once and follow the result
+     * in {@link #stats()}.
+     *
+     * @return false if a requested run is already queued or running
+     */
+    public boolean startMaintenance() {
+        if (!maintenanceRequested.compareAndSet(false, true)) {
+            return false;
+        }
+        maintenanceRunner.execute(() -> {
+            try {
+                runMaintenance();
+            } catch (Exception e) {
+                log.warn("History maintenance failed: {}", e.getMessage());
+            } finally {
+                maintenanceRequested.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isMaintenanceRequested() {
+        return maintenanceRequested.get();
+    }
+
+    /**
+     * Archive old jobs, then compact the database.
+     *
+     * @return database statistics after the run
+     */
+    public synchronized DatabaseStats runMaintenance() throws IOException {
+        long start = System.nanoTime();
+        long bytesBefore = databaseBytes();
+
+        int archived = archiveOldJobs();
+        int expiredMappings = deleteExpiredMappings();
+        compact();
+
+        DatabaseStats stats = stats();
+        stats.setLastMaintenanceAt(LocalDateTime.now().withNano(0));
+        stats.setLastMaintenanceMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        stats.setLastArchivedJobs(archived);
+        stats.setLastReclaimedBytes(Math.max(0, bytesBefore - stats.getDatabaseBytes() - stats.getWalBytes()));
+        lastRun = stats;
+        log.info("History maintenance: archived {} jobs, deleted {} mappings, reclaimed {} bytes in {} ms",
+                archived, expiredMappings, stats.getLastReclaimedBytes(), stats.getLastMaintenanceMs());
+        return stats;
+    }
+
+    private int archiveOldJobs() throws IOException {
+        if (archiveAfterDays <= 0) {
+            return 0;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+        int total = 0;
+        while (true) {
+            List<String> ids = historyService.findFinishedBefore(cutoff, Math.max(1, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            int archived = archiveBatch(ids);
+            if (archived == 0) {
+                break;
+            }
+            total += archived;
+        }
+        return total;
+    }
+
+    /**
+     * Delete the mappings of jobs that left the database: archived jobs once
+     * both archival and the last import are older than the retention, and
+     * jobs that are neither live nor archived. Mappings shared with a live
+     * coalesced job are kept.
+     */
+    private int deleteExpiredMappings() throws IOException {
+        Instant cutoff = Instant.now().minus(Duration.ofDays(Math.max(0, mappingRetentionDays)));
+        int deleted = 0;
+        for (String id : mappingStore.jobIds()) {
+            if (historyService.isReferenced(id)) {
+                continue;
+            }
+            List<String> archivedAt = jdbcTemplate.queryForList(
+                    "SELECT archived_at FROM archived_jobs WHERE id = ?", String.class, id);
+            if (!archivedAt.isEmpty() && (isAfter(archivedAt.get(0), cutoff)
+                    || mappingStore.modifiedAt(id).isAfter(cutoff))) {
+                continue;
+            }
+            mappingStore.delete(id);
+            deleted++;
+        }
+        return deleted;
+    }
+
+    private static boolean isAfter(String timestamp, Instant cutoff) {
+        return timestamp != null && LocalDateTime.parse(timestamp, FORMATTER)
+                .atZone(ZoneId.systemDefault()).toInstant().isAfter(cutoff);
+    }
+
+    /**
+     * Append a batch of jobs to their partitions, then index and delete them
+     * in one transaction. Jobs are read and written one at a time, since logs
+     * can be large. The files are synced first: a crash in between leaves an
+     * unreferenced copy in the archive, never a lost job.
+     */
+    private int archiveBatch(List<String> ids) throws IOException {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Object[]> index = new ArrayList<>();
+        Map<String, FileChannel> channels = new HashMap<>();
+        try {
+            for (String id : ids) {
+                Optional<ObfuscationJob> job = historyService.findById(id);
+                if (job.isEmpty()) {
+                    continue;
+                }
+                LocalDateTime created = job.get().getCreatedAt() != null ? job.get().getCreatedAt() : now;
+                String partition = created.format(PARTITION);
+                FileChannel channel = channels.get(partition);
+                if (channel == null) {
+                    channel = FileChannel.open(archivePath.resolve(partitionFile(partition)),
+                            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    channels.put(partition, channel);
+                }
+
+                long offset = channel.size();
+                ByteBuffer member = ByteBuffer.wrap(gzip(ArchivedJob.builder()
+                        .job(job.get())
+                        .timing(historyService.getTiming(id))
+                        .archivedAt(now)
+                        .build()));
+                int length = member.remaining();
+                while (member.hasRemaining()) {
+                    channel.write(member);
+                }
+                index.add(new Object[] { id, partition, offset, length, now.format(FORMATTER) });
+            }
+            for (FileChannel channel : channels.values()) {
+                channel.force(true);
+            }
+        } finally {
+            for (FileChannel channel : channels.values()) {
+                channel.close();
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("""
+                        INSERT OR REPLACE INTO archived_jobs (id, partition, offset, length, archived_at)
+                        VALUES (?, ?, ?, ?, ?)
+                    """, index);
+            for (Object[] row : index) {
+                historyService.delete((String) row[0]);
+            }
+        });
+        return index.size();
+    }
+
+    private byte[] gzip(ArchivedJob archived) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(objectMapper.writeValueAsBytes(archived));
+            gzip.write('\n');
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Return free pages to the file system and refresh query statistics.
+     *
+     * Incremental vacuum needs auto_vacuum=INCREMENTAL, which an existing
+     * database only takes through one full VACUUM. That rewrite runs once,
+     * and only while no jobs are queued or running.
+     */
+    private void compact() {
+        Integer mode = jdbcTemplate.queryForObject("PRAGMA auto_vacuum", Integer.class);
+        if (mode == null || mode != AUTO_VACUUM_INCREMENTAL) {
+            if (historyService.countActiveJobs() > 0) {
+                log.info("Skipping the one-time VACUUM to enable incremental vacuum: jobs are running");
+            } else {
+                // Both statements must run on the same connection
+                jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                        statement.execute("VACUUM");
+                    }
+                    return null;
+                });
+                log.info("Enabled incremental vacuum on the history database");
+            }
+        } else {
+            jdbcTemplate.execute(vacuumPages > 0
+                    ? "PRAGMA incremental_vacuum(" + vacuumPages + ")"
+                    : "PRAGMA incremental_vacuum");
+        }
+
+        jdbcTemplate.execute("PRAGMA optimize");
+        // Fold the WAL back into the database file and truncate it
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Read an archived job.
+     */
+    public Optional<ArchivedJob> find(String id) {
+        List<Object[]> rows = jdbcTemplate.query("SELECT partition, offset, length FROM archived_jobs WHERE id = ?",
+                (rs, rowNum) -> new Object[] { rs.getString("partition"), rs.getLong("offset"), rs.getInt("length") },
+                id);
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object[] row = rows.get(0);
+        Path file = archivePath.resolve(partitionFile((String) row[0]));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((Integer) row[2]);
+            long position = (Long) row[1];
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException("Archive " + file.getFileName() + " is truncated");
+                }
+            }
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(buffer.array()))) {
+                return Optional.of(objectMapper.readValue(in, ArchivedJob.class));
+            }
+        } catch (IOException e) {
+            log.warn("Could not read archived job {}: {}", id, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public DatabaseStats stats() throws IOException {
+        Path database = databaseFile();
+        Long archived = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM archived_jobs", Long.class);
+        Integer mode = jdbcTemplate.queryForObject("PRAGMA auto_vacuum", Integer.class);
+
+        long archiveBytes = 0;
+        int partitions = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(archivePath, "jobs-*.ndjson.gz")) {
+            for (Path file : stream) {
+                archiveBytes += Files.size(file);
+                partitions++;
+            }
+        }
+
+        DatabaseStats previous = lastRun;
+        return DatabaseStats.builder()
+                .databaseBytes(database != null && Files.exists(database) ? Files.size(database) : 0)
+                .walBytes(walBytes(database))
+                .pageSize(pragma("page_size"))
+                .pageCount(pragma("page_count"))
+                .freePages(pragma("freelist_count"))
+                .autoVacuum(mode != null && mode >= 0 && mode < AUTO_VACUUM_MODES.length
+                        ? AUTO_VACUUM_MODES[mode] : String.valueOf(mode))
+                .liveJobs(historyService.countJobs())
+                .archivedJobs(archived != null ? archived : 0)
+                .archiveBytes(archiveBytes)
+                .archivePartitions(partitions)
+                .lastMaintenanceAt(previous != null ? previous.getLastMaintenanceAt() : null)
+                .lastMaintenanceMs(previous != null ? previous.getLastMaintenanceMs() : null)
+                .lastArchivedJobs(previous != null ? previous.getLastArchivedJobs() : null)
+                .lastReclaimedBytes(previous != null ? previous.getLastReclaimedBytes() : null)
+                .build();
+    }
+
+    private long pragma(String name) {
+        Long value = jdbcTemplate.queryForObject("PRAGMA " + name, Long.class);
+        return value != null ? value : 0;
+    }
+
+    private long databaseBytes() throws IOException {
+        Path database = databaseFile();
+        return database != null && Files.exists(database) ? Files.size(database) + walBytes(database) : 0;
+    }
+
+    private static long walBytes(Path database) throws IOException {
+        if (database == null) {
+            return 0;
+        }
+        Path wal = database.resolveSibling(database.getFileName() + "-wal");
+        return Files.exists(wal) ? Files.size(wal) : 0;
+    }
+
+    private Path databaseFile() {
+        List<String> files = jdbcTemplate.query("PRAGMA database_list",
+                (rs, rowNum) -> "main".equals(rs.getString("name")) ? rs.getString("file") : null);
+        return files.stream().filter(f -> f != null && !f.isEmpty()).findFirst().map(Paths::get).orElse(null);
+    }
+
+    private static String partitionFile(String partition) {
+        return "jobs-" + partition + ".ndjson.gz";
+    }
+}
@@ -0,0 +1,146 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JobStatus;
+import dev.neoobfuscator.model.ObfuscationJob;
+import com.google.gson.stream.JsonWriter;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Streams the full job history as NDJSON or CSV.
+ * Rows are written to the output as the database cursor advances, so memory
+ * use stays constant regardless of how many jobs are exported.
+ */
+@Service
+public class HistoryExportService {
+
+    private static final String[] CSV_COLUMNS = {
+            "id", "originalFilename", "status", "createdAt", "completedAt", "errorMessage", "config", "metrics"
+    };
+
+    private final HistoryService historyService;
+
+    public HistoryExportService(HistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    /**
+     * Write all jobs matching the filter to the output stream.
+     *
+     * @param format ndjson or csv
+     * @param status status filter, or null for all
+     * @param from   inclusive lower bound on creation time, or null
+     * @param to     exclusive upper bound on creation time, or null
+     */
+    public void export(ExportFormat format, JobStatus status, LocalDateTime from, LocalDateTime to,
+            OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        try {
+            if (format == ExportFormat.CSV) {
+                writer.write(String.join(",", CSV_COLUMNS));
+                writer.write("\r\n");
+                historyService.streamJobs(status, from, to, job -> writeCsv(job, writer));
+            } else {
+                historyService.streamJobs(status, from, to, job -> writeJson(job, writer));
+            }
+        } catch (UncheckedIOException e) {
+            // Client disconnected mid-export
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private void writeJson(ObfuscationJob job, Writer writer) {
+        try {
+            JsonWriter json = new JsonWriter(writer);
+            json.setSerializeNulls(false);
+            json.beginObject();
+            json.name("id").value(job.getId());
+            json.name("originalFilename").value(job.getOriginalFilename());
+            json.name("status").value(job.getStatus().name());
+            json.name("createdAt").value(job.getCreatedAt() != null ? job.getCreatedAt().toString() : null);
+            json.name("completedAt").value(job.getCompletedAt() != null ? job.getCompletedAt().toString() : null);
+            json.name("errorMessage").value(job.getErrorMessage());
+            if (job.getConfigJson() != null) {
+                json.name("config").jsonValue(job.getConfigJson());
+            }
+            if (job.getMetricsJson() != null) {
+                json.name("metrics").jsonValue(job.getMetricsJson());
+            }
+            json.endObject();
+            // JsonWriter writes straight through; flushing it would flush the 64 KB buffer per row
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeCsv(ObfuscationJob job, Writer writer) {
+        try {
+            writer.write(csv(job.getId()));
+            writer.write(',');
+            writer.write(csv(job.getOriginalFilename()));
+            writer.write(',');
+            writer.write(job.getStatus().name());
+            writer.write(',');
+            writer.write(job.getCreatedAt() != null ? job.getCreatedAt().toString() : "");
+            writer.write(',');
+            writer.write(job.getCompletedAt() != null ? job.getCompletedAt().toString() : "");
+            writer.write(',');
+            writer.write(csv(job.getErrorMessage()));
+            writer.write(',');
+            writer.write(csv(job.getConfigJson()));
+            writer.write(',');
+            writer.write(csv(job.getMetricsJson()));
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Quote a CSV field (RFC 4180) when it contains separators, quotes or newlines.
+     */
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Parse a date filter: either an ISO date (yyyy-MM-dd) or date-time.
+     * Date-only upper bounds include the whole day.
+     */
+    public static LocalDateTime parseBound(String value, boolean upper) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() == 10) {
+            LocalDate date = LocalDate.parse(trimmed);
+            return upper ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+        }
+        return LocalDateTime.parse(trimmed);
+    }
+
+    public enum ExportFormat {
+        NDJSON,
+        CSV
+    }
+}
@@ -1,38 +1,88 @@
 package dev.neoobfuscator.service;
 
+import dev.neoobfuscator.model.BenchmarkReport;
+import dev.neoobfuscator.model.JobEvent;
+import dev.neoobfuscator.model.JobEventType;
+import dev.neoobfuscator.model.JobMetrics;
 import dev.neoobfuscator.model.JobStatus;
 import dev.neoobfuscator.model.ObfuscationJob;
 import com.google.gson.Gson;
+import io.opentelemetry.api.trace.Tracer;
 import jakarta.annotation.PostConstruct;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 /**
  * Service for managing obfuscation job history in SQLite.
+ *
+ * Job lifecycle changes are appended to the compact job_events log. The
+ * obfuscation_jobs table is the materialized current state: SQLite triggers
+ * on job_events update only the status columns, and log output lives solely
+ * in the event log, so no write ever rewrites a whole job row.
  */
 @Service
 public class HistoryService {
 
     private final JdbcTemplate jdbcTemplate;
+    private final Tracer tracer;
     private final Gson gson = new Gson();
 
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public HistoryService(JdbcTemplate jdbcTemplate) {
+    // Columns for list queries (logs are never needed there)
+    private static final String LIST_COLUMNS = "id, original_filename, status, config_json, created_at, "
+            + "completed_at, input_path, output_path, error_message, metrics_json, leader_id, "
+            + "benchmark_json, tenant";
+
+    // Set on event type codes whose payload is deflate-compressed
+    private static final int COMPRESSED_FLAG = 0x40;
+    private static final int TYPE_MASK = 0x3F;
+
+    // Log chunks at least this large are stored compressed
+    private static final int COMPRESS_THRESHOLD = 256;
+
+    // Rows fetched per cursor step when streaming exports
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    // Next event sequence number per active job
+    private final Map<String, AtomicInteger> sequences = new ConcurrentHashMap<>();
+
+    // Bumped after every change to a job's row or status; log output does not count
+    private final AtomicLong version = new AtomicLong();
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+    public HistoryService(JdbcTemplate jdbcTemplate, Tracer tracer) {
         this.jdbcTemplate = jdbcTemplate;
+        this.tracer = tracer;
     }
 
     @PostConstruct
     public void init() {
+        // WAL lets long-running readers (exports) proceed without blocking job writes
+        jdbcTemplate.execute("PRAGMA journal_mode=WAL");
+
         // Create table if not exists
         jdbcTemplate.execute("""
                     CREATE TABLE IF NOT EXISTS obfuscation_jobs (
@@ -45,66 +95,503 @@ public class HistoryService {
                         input_path TEXT,
                         output_path TEXT,
                         error_message TEXT,
-                        logs TEXT
+                        logs TEXT,
+                        metrics_json TEXT
                     )
                 """);
+
+        // Columns added after the initial schema
+        addColumnIfMissing("obfuscation_jobs", "metrics_json", "TEXT");
+        addColumnIfMissing("obfuscation_jobs", "leader_id", "TEXT");
+        addColumnIfMissing("obfuscation_jobs", "benchmark_json", "TEXT");
+        addColumnIfMissing("obfuscation_jobs", "tenant", "TEXT");
+
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_jobs_created_at ON obfuscation_jobs (created_at)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_jobs_leader_id ON obfuscation_jobs (leader_id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_jobs_filename ON obfuscation_jobs (original_filename)");
+
+        // Append-only event log, clustered by job so one job's events are contiguous
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS job_events (
+                        job_id TEXT NOT NULL,
+                        seq INTEGER NOT NULL,
+                        type INTEGER NOT NULL,
+                        ts INTEGER NOT NULL,
+                        payload BLOB,
+                        PRIMARY KEY (job_id, seq)
+                    ) WITHOUT ROWID
+                """);
+        // Uncompressed payload length, so listing events never inflates payloads
+        addColumnIfMissing("job_events", "payload_size", "INTEGER");
+
+        // Materialize status changes into obfuscation_jobs
+        createStatusTrigger("job_events_queued", JobEventType.QUEUED,
+                "status = 'PENDING'");
+        createStatusTrigger("job_events_started", JobEventType.STARTED,
+                "status = 'PROCESSING', error_message = NULL, completed_at = NULL");
+        createStatusTrigger("job_events_completed", JobEventType.COMPLETED,
+                "status = 'COMPLETED', error_message = NULL, completed_at = " + completedAtExpr());
+        createStatusTrigger("job_events_failed", JobEventType.FAILED,
+                "status = 'FAILED', error_message = CAST(NEW.payload AS TEXT), completed_at = " + completedAtExpr());
     }
 
-    public void save(ObfuscationJob job) {
-        String sql = """
-                    INSERT OR REPLACE INTO obfuscation_jobs
-                    (id, original_filename, status, config_json, created_at, completed_at, input_path, output_path, error_message, logs)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
+    private void addColumnIfMissing(String table, String column, String type) {
+        List<String> columns = jdbcTemplate.query("PRAGMA table_info(" + table + ")",
+                (rs, rowNum) -> rs.getString("name"));
+        if (!columns.contains(column)) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + type);
+        }
+    }
+
+    private void createStatusTrigger(String name, JobEventType type, String assignments) {
+        jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS " + name
+                + " AFTER INSERT ON job_events WHEN NEW.type = " + type.getCode()
+                + " BEGIN UPDATE obfuscation_jobs SET " + assignments
+                + " WHERE id = NEW.job_id; END");
+    }
+
+    private String completedAtExpr() {
+        return "strftime('%Y-%m-%d %H:%M:%S', NEW.ts / 1000, 'unixepoch', 'localtime')";
+    }
+
+    /**
+     * Insert a new job row and record its CREATED event.
+     */
+    public void create(ObfuscationJob job) {
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.create")) {
+            String sql = """
+                        INSERT INTO obfuscation_jobs
+                        (id, original_filename, status, config_json, created_at, input_path, output_path, metrics_json,
+                         leader_id, tenant)
+                        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                    """;
 
-        jdbcTemplate.update(sql,
-                job.getId(),
-                job.getOriginalFilename(),
-                job.getStatus().name(),
-                job.getConfigJson(),
-                job.getCreatedAt() != null ? job.getCreatedAt().format(FORMATTER) : null,
-                job.getCompletedAt() != null ? job.getCompletedAt().format(FORMATTER) : null,
-                job.getInputPath(),
-                job.getOutputPath(),
-                job.getErrorMessage(),
-                job.getLogs());
+            jdbcTemplate.update(sql,
+                    job.getId(),
+                    job.getOriginalFilename(),
+                    job.getStatus().name(),
+                    job.getConfigJson(),
+                    job.getCreatedAt() != null ? job.getCreatedAt().format(FORMATTER) : null,
+                    job.getInputPath(),
+                    job.getOutputPath(),
+                    job.getMetricsJson(),
+                    job.getLeaderId(),
+                    job.getTenant());
+
+            sequences.put(job.getId(), new AtomicInteger());
+            append(job.getId(), JobEventType.CREATED, null);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Current version of the job history, for validating cached listings.
+     * Changes whenever a job is created, changes status, gets metrics, has
+     * its output written or replaced, or is deleted, and on every restart.
+     * Read it before the data it validates.
+     */
+    public String version() {
+        return instance + "-" + version.get();
     }
 
     public Optional<ObfuscationJob> findById(String id) {
-        String sql = "SELECT * FROM obfuscation_jobs WHERE id = ?";
-        List<ObfuscationJob> jobs = jdbcTemplate.query(sql, new JobRowMapper(), id);
-        return jobs.isEmpty() ? Optional.empty() : Optional.of(jobs.get(0));
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.findById")) {
+            String sql = "SELECT * FROM obfuscation_jobs WHERE id = ?";
+            List<ObfuscationJob> jobs = jdbcTemplate.query(sql, new JobRowMapper(true), id);
+            if (jobs.isEmpty()) {
+                return Optional.empty();
+            }
+
+            ObfuscationJob job = jobs.get(0);
+            String eventLogs = readLogs(id);
+            if (eventLogs != null) {
+                job.setLogs(eventLogs);
+            }
+            return Optional.of(job);
+        }
+    }
+
+    /**
+     * Read a job's logs from its event log, or from the logs column for jobs
+     * recorded before the event log existed.
+     */
+    public String findLogs(String id) {
+        String eventLogs = readLogs(id);
+        if (eventLogs != null) {
+            return eventLogs;
+        }
+        List<String> logs = jdbcTemplate.queryForList("SELECT logs FROM obfuscation_jobs WHERE id = ?",
+                String.class, id);
+        return logs.isEmpty() ? null : logs.get(0);
+    }
+
+    /**
+     * Find a job without reading its logs.
+     */
+    public Optional<ObfuscationJob> findSummaryById(String id) {
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.findSummaryById")) {
+            String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs WHERE id = ?";
+            return jdbcTemplate.query(sql, new JobRowMapper(false), id).stream().findFirst();
+        }
     }
 
     public List<ObfuscationJob> findAll() {
-        String sql = "SELECT * FROM obfuscation_jobs ORDER BY created_at DESC";
-        return jdbcTemplate.query(sql, new JobRowMapper());
+        String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs ORDER BY created_at DESC";
+        return jdbcTemplate.query(sql, new JobRowMapper(false));
     }
 
     public List<ObfuscationJob> findRecent(int limit) {
-        String sql = "SELECT * FROM obfuscation_jobs ORDER BY created_at DESC LIMIT ?";
-        return jdbcTemplate.query(sql, new JobRowMapper(), limit);
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.findRecent")) {
+            String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs ORDER BY created_at DESC LIMIT ?";
+            return jdbcTemplate.query(sql, new JobRowMapper(false), limit);
+        }
+    }
+
+    /**
+     * Walk all jobs matching the filter in creation order, handing each row to
+     * the consumer as the cursor advances instead of collecting a list.
+     *
+     * @param status status filter, or null for all
+     * @param from   inclusive lower bound on creation time, or null
+     * @param to     exclusive upper bound on creation time, or null
+     */
+    public void streamJobs(JobStatus status, LocalDateTime from, LocalDateTime to,
+            Consumer<ObfuscationJob> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null) {
+            sql.append(" AND status = ?");
+            args.add(status.name());
+        }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(from.format(FORMATTER));
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            args.add(to.format(FORMATTER));
+        }
+        sql.append(" ORDER BY created_at");
+
+        JobRowMapper mapper = new JobRowMapper(false);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString(),
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(mapper.mapRow(rs, 0)));
+    }
+
+    /**
+     * Metrics of the most recent completed jobs, newest first.
+     */
+    public List<JobMetrics> findCompletedMetrics(int limit) {
+        String sql = """
+                    SELECT metrics_json FROM obfuscation_jobs
+                    WHERE status = 'COMPLETED' AND metrics_json IS NOT NULL
+                    ORDER BY created_at DESC LIMIT ?
+                """;
+        return jdbcTemplate.query(sql,
+                (rs, rowNum) -> gson.fromJson(rs.getString("metrics_json"), JobMetrics.class), limit);
+    }
+
+    /**
+     * Most recent completed jobs that ran Skidfuscator themselves (not
+     * coalesced followers), without logs.
+     */
+    public List<ObfuscationJob> findCompletedRuns(int limit) {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs "
+                + "WHERE status = 'COMPLETED' AND metrics_json IS NOT NULL AND leader_id IS NULL "
+                + "ORDER BY created_at DESC LIMIT ?";
+        return jdbcTemplate.query(sql, new JobRowMapper(false), limit);
+    }
+
+    /**
+     * The tenant's latest completed job for the same file name before this
+     * one, i.e. the build a client most likely holds.
+     */
+    public Optional<ObfuscationJob> findPreviousBuild(ObfuscationJob job) {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs "
+                + "WHERE status = 'COMPLETED' AND original_filename = ? AND tenant IS ? AND id <> ? "
+                + "AND created_at <= ? ORDER BY created_at DESC LIMIT 1";
+        return jdbcTemplate.query(sql, new JobRowMapper(false), job.getOriginalFilename(), job.getTenant(),
+                job.getId(), Optional.ofNullable(job.getCreatedAt()).orElseGet(LocalDateTime::now).format(FORMATTER))
+                .stream().findFirst();
+    }
+
+    /**
+     * IDs of jobs whose benchmark is still queued or running, oldest first.
+     */
+    public List<String> findUnfinishedBenchmarks() {
+        String sql = "SELECT id FROM obfuscation_jobs WHERE benchmark_json IS NOT NULL "
+                + "AND json_extract(benchmark_json, '$.status') IN ('PENDING', 'PROCESSING') ORDER BY created_at";
+        return jdbcTemplate.queryForList(sql, String.class);
+    }
+
+    /**
+     * IDs of finished jobs created before the cutoff, oldest first.
+     */
+    public List<String> findFinishedBefore(LocalDateTime cutoff, int limit) {
+        String sql = "SELECT id FROM obfuscation_jobs WHERE status IN ('COMPLETED', 'FAILED') "
+                + "AND created_at < ? ORDER BY created_at LIMIT ?";
+        return jdbcTemplate.queryForList(sql, String.class, cutoff.format(FORMATTER), limit);
+    }
+
+    public long countJobs() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM obfuscation_jobs", Long.class);
+        return count != null ? count : 0;
     }
 
+    /**
+     * Jobs still queued or running, oldest first.
+     */
+    public List<ObfuscationJob> findActive() {
+        String sql = "SELECT " + LIST_COLUMNS + " FROM obfuscation_jobs "
+                + "WHERE status IN ('PENDING', 'PROCESSING') ORDER BY created_at";
+        return jdbcTemplate.query(sql, new JobRowMapper(false));
+    }
+
+    /**
+     * Number of jobs still queued or running.
+     */
+    public long countActiveJobs() {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM obfuscation_jobs WHERE status IN ('PENDING', 'PROCESSING')", Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Whether a job, or a job coalesced with it, is still in the database.
+     */
+    public boolean isReferenced(String id) {
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM obfuscation_jobs WHERE id = ? OR leader_id = ?", Long.class, id, id);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Record a status change as a lifecycle event.
+     */
     public void updateStatus(String id, JobStatus status, String errorMessage) {
-        String sql = "UPDATE obfuscation_jobs SET status = ?, error_message = ?, completed_at = ? WHERE id = ?";
-        jdbcTemplate.update(sql, status.name(), errorMessage,
-                status == JobStatus.COMPLETED || status == JobStatus.FAILED ? LocalDateTime.now().format(FORMATTER)
-                        : null,
-                id);
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.updateStatus")) {
+            switch (status) {
+                case PENDING -> append(id, JobEventType.QUEUED, null);
+                case PROCESSING -> append(id, JobEventType.STARTED, null);
+                case COMPLETED -> append(id, JobEventType.COMPLETED, null);
+                case FAILED -> append(id, JobEventType.FAILED,
+                        errorMessage != null ? errorMessage.getBytes(StandardCharsets.UTF_8) : null);
+            }
+
+            if (status == JobStatus.COMPLETED || status == JobStatus.FAILED) {
+                sequences.remove(id);
+            }
+            version.incrementAndGet();
+        }
     }
 
-    public void updateLogs(String id, String logs) {
-        String sql = "UPDATE obfuscation_jobs SET logs = ? WHERE id = ?";
-        jdbcTemplate.update(sql, logs, id);
+    /**
+     * Append a chunk of new log output.
+     */
+    public void appendLogs(String id, String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.appendLogs")) {
+            append(id, JobEventType.LOG_CHUNK, chunk.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public void updateMetrics(String id, JobMetrics metrics) {
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.updateMetrics")) {
+            String sql = "UPDATE obfuscation_jobs SET metrics_json = ? WHERE id = ?";
+            jdbcTemplate.update(sql, gson.toJson(metrics), id);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record that a job's output file was written or replaced, so listings
+     * showing its size are not served from cache.
+     */
+    public void outputChanged(String id) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Store the runtime benchmark report of a job.
+     */
+    public void updateBenchmark(String id, BenchmarkReport report) {
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.updateBenchmark")) {
+            String sql = "UPDATE obfuscation_jobs SET benchmark_json = ? WHERE id = ?";
+            jdbcTemplate.update(sql, gson.toJson(report), id);
+            version.incrementAndGet();
+        }
+    }
+
+    /**
+     * Events of a job in order, with the size of their payloads but not
+     * the payloads themselves.
+     */
+    public List<JobEvent> findEvents(String id) {
+        // Events written before payload_size existed are measured from their payload
+        String sql = "SELECT seq, type, ts, payload_size, CASE WHEN payload_size IS NULL THEN payload END AS payload"
+                + " FROM job_events WHERE job_id = ? ORDER BY seq";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            int type = rs.getInt("type");
+            int payloadSize = rs.getInt("payload_size");
+            if (rs.wasNull()) {
+                byte[] payload = decode(type, rs.getBytes("payload"));
+                payloadSize = payload != null ? payload.length : 0;
+            }
+            return JobEvent.builder()
+                    .jobId(id)
+                    .seq(rs.getInt("seq"))
+                    .type(JobEventType.fromCode(type & TYPE_MASK))
+                    .timestamp(rs.getLong("ts"))
+                    .payloadSize(payloadSize)
+                    .build();
+        }, id);
+    }
+
+    /**
+     * Time spent in each lifecycle phase, derived from the event log.
+     * Phases that have not happened yet are omitted.
+     */
+    public Map<String, Long> getTiming(String id) {
+        // Only log chunks carry the compression flag, so lifecycle codes compare directly
+        String sql = "SELECT type, MIN(ts) AS ts FROM job_events WHERE job_id = ? AND type != ? GROUP BY type";
+        Map<JobEventType, Long> first = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            int type = rs.getInt("type");
+            if ((type & COMPRESSED_FLAG) == 0) {
+                first.put(JobEventType.fromCode(type), rs.getLong("ts"));
+            }
+        }, id, JobEventType.LOG_CHUNK.getCode());
+
+        Long created = first.get(JobEventType.CREATED);
+        Long queued = first.get(JobEventType.QUEUED);
+        Long started = first.get(JobEventType.STARTED);
+        Long finished = first.containsKey(JobEventType.COMPLETED)
+                ? first.get(JobEventType.COMPLETED)
+                : first.get(JobEventType.FAILED);
+
+        Map<String, Long> timing = new LinkedHashMap<>();
+        if (created != null && queued != null) {
+            timing.put("createdToQueuedMs", queued - created);
+        }
+        if (queued != null && started != null) {
+            timing.put("queueWaitMs", started - queued);
+        }
+        if (started != null && finished != null) {
+            timing.put("runMs", finished - started);
+        }
+        if (created != null && finished != null) {
+            timing.put("totalMs", finished - created);
+        }
+        return timing;
     }
 
     public void delete(String id) {
-        String sql = "DELETE FROM obfuscation_jobs WHERE id = ?";
-        jdbcTemplate.update(sql, id);
+        try (SpanScope ignored = SpanScope.start(tracer, "HistoryService.delete")) {
+            jdbcTemplate.update("DELETE FROM job_events WHERE job_id = ?", id);
+            jdbcTemplate.update("DELETE FROM obfuscation_jobs WHERE id = ?", id);
+            sequences.remove(id);
+            version.incrementAndGet();
+        }
+    }
+
+    private void append(String jobId, JobEventType type, byte[] payload) {
+        int code = type.getCode();
+        int size = payload != null ? payload.length : 0;
+        if (type == JobEventType.LOG_CHUNK && payload != null && payload.length >= COMPRESS_THRESHOLD) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                code |= COMPRESSED_FLAG;
+            }
+        }
+
+        jdbcTemplate.update("INSERT INTO job_events (job_id, seq, type, ts, payload, payload_size)"
+                + " VALUES (?, ?, ?, ?, ?, ?)", jobId, nextSeq(jobId), code, System.currentTimeMillis(), payload, size);
+    }
+
+    private int nextSeq(String jobId) {
+        // Jobs still active after a restart continue from their last stored sequence
+        return sequences.computeIfAbsent(jobId, id -> {
+            Integer max = jdbcTemplate.queryForObject(
+                    "SELECT MAX(seq) FROM job_events WHERE job_id = ?", Integer.class, id);
+            return new AtomicInteger(max != null ? max + 1 : 0);
+        }).getAndIncrement();
+    }
+
+    /**
+     * Concatenate a job's log chunks, or null if it has none in the event log
+     * (jobs recorded before the event log keep their logs column).
+     */
+    private String readLogs(String id) {
+        String sql = "SELECT type, payload FROM job_events WHERE job_id = ? AND (type & ?) = ? ORDER BY seq";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        jdbcTemplate.query(sql, rs -> {
+            out.writeBytes(decode(rs.getInt("type"), rs.getBytes("payload")));
+        }, id, TYPE_MASK, JobEventType.LOG_CHUNK.getCode());
+        return out.size() > 0 ? out.toString(StandardCharsets.UTF_8) : null;
+    }
+
+    private byte[] decode(int type, byte[] payload) {
+        if (payload == null || (type & COMPRESSED_FLAG) == 0) {
+            return payload;
+        }
+        return inflate(payload);
+    }
+
+    private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] data) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 3);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt job event payload", e);
+        } finally {
+            inflater.end();
+        }
     }
 
     private static class JobRowMapper implements RowMapper<ObfuscationJob> {
+
+        private final boolean withLogs;
+
+        JobRowMapper(boolean withLogs) {
+            this.withLogs = withLogs;
+        }
+
         @Override
         public ObfuscationJob mapRow(ResultSet rs, int rowNum) throws SQLException {
             return ObfuscationJob.builder()
@@ -117,7 +604,11 @@ public class HistoryService {
                     .inputPath(rs.getString("input_path"))
                     .outputPath(rs.getString("output_path"))
                     .errorMessage(rs.getString("error_message"))
-                    .logs(rs.getString("logs"))
+                    .logs(withLogs ? rs.getString("logs") : null)
+                    .metricsJson(rs.getString("metrics_json"))
+                    .leaderId(rs.getString("leader_id"))
+                    .benchmarkJson(rs.getString("benchmark_json"))
+                    .tenant(rs.getString("tenant"))
                     .build();
         }
 
@@ -0,0 +1,175 @@
+package dev.neoobfuscator.service;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts hot methods from an uploaded profile so flow transformers can skip
+ * them.
+ *
+ * Accepts either a JFR recording (execution samples are attributed to the
+ * innermost frame in the main package) or a plain text list with one method
+ * per line, e.g. "com.example.Foo#bar" or "com.example.Foo.bar".
+ * Methods are returned as "com.example.Foo#bar".
+ */
+@Service
+public class HotMethodService {
+
+    private static final Logger log = LoggerFactory.getLogger(HotMethodService.class);
+
+    // JFR chunk magic "FLR\0"
+    private static final byte[] JFR_MAGIC = { 'F', 'L', 'R', 0 };
+
+    @Value("${neo.hot-methods.max-methods:50}")
+    private int maxMethods;
+
+    // Share of main-package samples the selected methods should cover
+    @Value("${neo.hot-methods.sample-coverage:0.8}")
+    private double sampleCoverage;
+
+    /**
+     * Parse an uploaded profile into a list of hot methods.
+     *
+     * @throws IllegalArgumentException if the profile cannot be read
+     */
+    public List<String> parse(MultipartFile profile, String mainPackage) throws IOException {
+        String prefix = mainPackage != null && !mainPackage.isEmpty() ? mainPackage + "." : "";
+
+        byte[] head = new byte[JFR_MAGIC.length];
+        int read;
+        try (InputStream in = profile.getInputStream()) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+
+        List<String> methods = read == head.length && Arrays.equals(head, JFR_MAGIC)
+                ? fromRecording(profile, prefix)
+                : fromList(profile, prefix);
+
+        log.info("Hot method profile {}: {} methods exempted from flow transformers",
+                profile.getOriginalFilename(), methods.size());
+        return methods;
+    }
+
+    /**
+     * Rank methods by execution samples and keep the hottest ones until the
+     * configured share of samples is covered.
+     */
+    private List<String> fromRecording(MultipartFile profile, String prefix) throws IOException {
+        Path file = Files.createTempFile("neoguard-profile-", ".jfr");
+        try {
+            profile.transferTo(file);
+
+            Map<String, Long> samples = new HashMap<>();
+            long total = 0;
+            try (RecordingFile recording = new RecordingFile(file)) {
+                while (recording.hasMoreEvents()) {
+                    RecordedEvent event = recording.readEvent();
+                    if (!event.getEventType().getName().equals("jdk.ExecutionSample")) {
+                        continue;
+                    }
+                    String method = innermostMainPackageFrame(event.getStackTrace(), prefix);
+                    if (method != null) {
+                        samples.merge(method, 1L, Long::sum);
+                        total++;
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid JFR recording: " + e.getMessage());
+            }
+
+            List<Map.Entry<String, Long>> ranked = new ArrayList<>(samples.entrySet());
+            ranked.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+            List<String> methods = new ArrayList<>();
+            long covered = 0;
+            for (Map.Entry<String, Long> entry : ranked) {
+                if (methods.size() >= maxMethods || covered >= total * sampleCoverage) {
+                    break;
+                }
+                methods.add(entry.getKey());
+                covered += entry.getValue();
+            }
+            return methods;
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private String innermostMainPackageFrame(RecordedStackTrace stackTrace, String prefix) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame() || frame.getMethod() == null) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(prefix)) {
+                return type + "#" + frame.getMethod().getName();
+            }
+        }
+        return null;
+    }
+
+    private List<String> fromList(MultipartFile profile, String prefix) throws IOException {
+        Set<String> methods = new LinkedHashSet<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(profile.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("//")) {
+                    continue;
+                }
+
+                // Drop descriptors and anything after the method reference
+                int end = line.indexOf('(');
+                if (end < 0) {
+                    end = line.indexOf(' ');
+                }
+                String ref = (end >= 0 ? line.substring(0, end) : line).replace('/', '.');
+
+                int sep = ref.indexOf('#');
+                if (sep < 0) {
+                    sep = ref.lastIndexOf('.');
+                }
+                if (sep <= 0 || sep == ref.length() - 1) {
+                    throw new IllegalArgumentException("Invalid hot method on line " + lineNumber + ": " + line);
+                }
+
+                String type = ref.substring(0, sep);
+                if (type.startsWith(prefix)) {
+                    methods.add(type + "#" + ref.substring(sep + 1));
+                }
+                if (methods.size() >= maxMethods) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(methods);
+    }
+}
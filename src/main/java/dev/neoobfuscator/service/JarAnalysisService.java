@@ -0,0 +1,187 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JarAnalysis;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+/**
+ * Detects the main package of a JAR.
+ * Tries plugin.yml, paper-plugin.yml, bungee.yml, MANIFEST.MF first.
+ * Falls back to scanning all class files to find the most common package
+ * prefix.
+ */
+@Service
+public class JarAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(JarAnalysisService.class);
+
+    /**
+     * Analyze a JAR read from the given stream.
+     */
+    public JarAnalysis analyze(InputStream in) throws IOException {
+        String mainPackage = "";
+        String mainClass = "";
+        List<String> allPackages = new ArrayList<>();
+
+        try (JarInputStream jis = new JarInputStream(in)) {
+
+            // First check MANIFEST.MF for Main-Class
+            java.util.jar.Manifest manifest = jis.getManifest();
+            if (manifest != null) {
+                String manifestMain = manifest.getMainAttributes().getValue("Main-Class");
+                if (manifestMain != null && !manifestMain.isEmpty()) {
+                    mainClass = manifestMain;
+                }
+            }
+
+            // Scan all entries
+            JarEntry entry;
+            while ((entry = jis.getNextJarEntry()) != null) {
+                String name = entry.getName();
+
+                // Check for plugin.yml (Bukkit plugins)
+                if (name.equals("plugin.yml") || name.equals("paper-plugin.yml") || name.equals("bungee.yml")) {
+                    StringBuilder content = new StringBuilder();
+                    byte[] buffer = new byte[1024];
+                    int len;
+                    while ((len = jis.read(buffer)) > 0) {
+                        content.append(new String(buffer, 0, len));
+                    }
+
+                    // Parse main class from yml
+                    String yml = content.toString();
+                    for (String line : yml.split("\n")) {
+                        line = line.trim();
+                        if (line.startsWith("main:")) {
+                            mainClass = line.substring(5).trim();
+                            mainClass = mainClass.replace("\"", "").replace("'", "");
+                            break;
+                        }
+                    }
+                }
+
+                // Collect all class file packages (skip common library packages)
+                if (name.endsWith(".class") && !entry.isDirectory()) {
+                    // Convert path to package name
+                    String className = name.replace("/", ".").replace(".class", "");
+
+                    // Skip common library/framework packages (generic for all Java apps)
+                    if (className.startsWith("META-INF.") ||
+                            className.startsWith("org.apache.") ||
+                            className.startsWith("org.slf4j.") ||
+                            className.startsWith("org.log4j.") ||
+                            className.startsWith("com.google.") ||
+                            className.startsWith("org.jetbrains.") ||
+                            className.startsWith("kotlin.") ||
+                            className.startsWith("org.intellij.") ||
+                            className.startsWith("io.netty.") ||
+                            className.startsWith("com.fasterxml.") ||
+                            className.startsWith("org.objectweb.") ||
+                            className.startsWith("javax.") ||
+                            className.startsWith("java.") ||
+                            className.startsWith("sun.") ||
+                            className.startsWith("jdk.")) {
+                        continue;
+                    }
+
+                    int lastDot = className.lastIndexOf('.');
+                    if (lastDot > 0) {
+                        String pkg = className.substring(0, lastDot);
+                        allPackages.add(pkg);
+                    }
+                }
+            }
+        }
+
+        // Extract package from main class if found
+        if (!mainClass.isEmpty()) {
+            int lastDot = mainClass.lastIndexOf('.');
+            if (lastDot > 0) {
+                mainPackage = mainClass.substring(0, lastDot);
+            }
+        }
+
+        // If no main package found from yml/manifest, analyze class packages
+        if (mainPackage.isEmpty() && !allPackages.isEmpty()) {
+            mainPackage = findMostCommonPackagePrefix(allPackages);
+            log.info("Detected package from class analysis: {}", mainPackage);
+        }
+
+        return JarAnalysis.builder()
+                .mainPackage(mainPackage)
+                .mainClass(mainClass)
+                .totalClasses(allPackages.size())
+                .build();
+    }
+
+    /**
+     * Find the most common package prefix from a list of package names.
+     * This identifies the "root" package of the project.
+     */
+    private String findMostCommonPackagePrefix(List<String> packages) {
+        if (packages.isEmpty())
+            return "";
+
+        // Count frequency of each package and its parent packages
+        Map<String, Integer> prefixCounts = new HashMap<>();
+
+        for (String pkg : packages) {
+            String[] parts = pkg.split("\\.");
+            StringBuilder prefix = new StringBuilder();
+
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0)
+                    prefix.append(".");
+                prefix.append(parts[i]);
+
+                String currentPrefix = prefix.toString();
+                prefixCounts.merge(currentPrefix, 1, Integer::sum);
+            }
+        }
+
+        // Find the best package prefix
+        // We want the shortest prefix that contains most of the classes
+        int totalClasses = packages.size();
+        String bestPrefix = "";
+        int bestScore = 0;
+
+        for (Map.Entry<String, Integer> entry : prefixCounts.entrySet()) {
+            String prefix = entry.getKey();
+            int count = entry.getValue();
+            int depth = prefix.split("\\.").length;
+
+            // Score: favor prefixes that cover most classes but aren't too short
+            // Minimum depth of 2 (e.g., "com.example" not just "com")
+            if (depth >= 2 && count >= totalClasses * 0.7) {
+                // Prefer deeper packages that still cover most classes
+                int score = count * depth;
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestPrefix = prefix;
+                }
+            }
+        }
+
+        // If no good prefix found, use the most common full package
+        if (bestPrefix.isEmpty()) {
+            bestPrefix = packages.stream()
+                    .collect(java.util.stream.Collectors.groupingBy(p -> p, java.util.stream.Collectors.counting()))
+                    .entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse("");
+        }
+
+        return bestPrefix;
+    }
+}
@@ -0,0 +1,474 @@
+package dev.neoobfuscator.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Binary delta between two JARs.
+ *
+ * Entries whose compressed data also appears in the base are copied from it
+ * by byte range. Skidfuscator randomizes every run, so most changed entries
+ * still share much of their content with the base entry of the same name:
+ * those are sent as a diff of their inflated content against that entry,
+ * provided deflating the result reproduces the target's compressed bytes.
+ * Everything else, including local headers (which carry timestamps) and the
+ * central directory, is sent literally. Applying the delta to the base
+ * rebuilds the target byte for byte.
+ *
+ * Format, gzip-compressed, big-endian:
+ *
+ * <pre>
+ * "NEODELTA" int version
+ * long baseLength, byte[32] baseSha256
+ * long targetLength, byte[32] targetSha256
+ * ops: 'C' long offset long length   copy from the base
+ *      'A' int length byte[length]   literal bytes
+ *      'D' long offset long length int level int size
+ *          content ops, then 'e'      deflate (raw, at level) content of the given
+ *                                     size, built from the base range inflated:
+ *          'c' int offset int length  copy from the inflated base entry
+ *          'a' int length byte[length] literal content
+ *      'E'                           end
+ * </pre>
+ *
+ * tools/delta/DeltaPatch.java applies it.
+ */
+final class JarDelta {
+
+    static final byte[] MAGIC = "NEODELTA".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+    private static final int MAX_LITERAL = 1 << 20;
+    private static final int DEFLATED = 8;
+
+    // Entries inflated for a content diff, at most
+    private static final int MAX_CONTENT = 16 << 20;
+
+    // Levels tried, in order, to reproduce an entry's compressed bytes
+    private static final int[] LEVELS = { Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION,
+            Deflater.BEST_SPEED };
+
+    // Shortest content match worth a copy
+    private static final int BLOCK = 16;
+
+    private JarDelta() {
+    }
+
+    /**
+     * Write the delta that turns base into target.
+     */
+    static void write(Path base, Path target, OutputStream out) throws IOException {
+        try (FileChannel baseChannel = FileChannel.open(base, StandardOpenOption.READ);
+                FileChannel targetChannel = FileChannel.open(target, StandardOpenOption.READ);
+                DataOutputStream data = new DataOutputStream(new GZIPOutputStream(out, 64 * 1024))) {
+
+            // Compressed entry data of the base, by content hash and by name
+            Map<String, Entry> baseData = new HashMap<>();
+            Map<String, Entry> baseNames = new HashMap<>();
+            for (Entry entry : entries(baseChannel)) {
+                baseData.putIfAbsent(sha256Hex(baseChannel, entry.segment()), entry);
+                baseNames.putIfAbsent(entry.name(), entry);
+            }
+
+            data.write(MAGIC);
+            data.writeInt(VERSION);
+            data.writeLong(baseChannel.size());
+            data.write(sha256(baseChannel));
+            data.writeLong(targetChannel.size());
+            data.write(sha256(targetChannel));
+
+            OpWriter ops = new OpWriter(data, targetChannel);
+            long position = 0;
+            for (Entry entry : entries(targetChannel)) {
+                Entry match = baseData.get(sha256Hex(targetChannel, entry.segment()));
+                if (match != null) {
+                    ops.literal(position, entry.offset() - position);
+                    ops.copy(match.offset(), match.length());
+                    position = entry.offset() + entry.length();
+                    continue;
+                }
+                byte[] patch = contentPatch(baseChannel, baseNames.get(entry.name()), targetChannel, entry);
+                if (patch != null) {
+                    ops.literal(position, entry.offset() - position);
+                    ops.raw(patch);
+                    position = entry.offset() + entry.length();
+                }
+            }
+            ops.literal(position, targetChannel.size() - position);
+            ops.end();
+        }
+    }
+
+    /**
+     * A 'D' op rebuilding the target entry from the base entry, or null when
+     * the entry cannot be reproduced that way or the op would not be smaller.
+     */
+    private static byte[] contentPatch(FileChannel baseChannel, Entry baseEntry, FileChannel targetChannel,
+            Entry entry) throws IOException {
+        if (baseEntry == null || !entry.deflated() || !baseEntry.deflated()
+                || entry.size() > MAX_CONTENT || baseEntry.size() > MAX_CONTENT) {
+            return null;
+        }
+        byte[] compressed = readBytes(targetChannel, entry.segment());
+        byte[] content = inflate(compressed, entry.size());
+        if (content == null) {
+            return null;
+        }
+        Integer level = null;
+        for (int candidate : LEVELS) {
+            if (Arrays.equals(deflate(content, candidate), compressed)) {
+                level = candidate;
+                break;
+            }
+        }
+        if (level == null) {
+            return null;
+        }
+        byte[] baseContent = inflate(readBytes(baseChannel, baseEntry.segment()), baseEntry.size());
+        if (baseContent == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream op = new DataOutputStream(bytes);
+        op.writeByte('D');
+        op.writeLong(baseEntry.offset());
+        op.writeLong(baseEntry.length());
+        op.writeInt(level);
+        op.writeInt(content.length);
+        diff(baseContent, content, op);
+        op.writeByte('e');
+        return bytes.size() < compressed.length ? bytes.toByteArray() : null;
+    }
+
+    /**
+     * Content ops turning base into target: blocks of the base are indexed by
+     * a rolling hash, and target matches are extended both ways.
+     */
+    static void diff(byte[] base, byte[] target, DataOutputStream out) throws IOException {
+        int[] table = new int[Integer.highestOneBit(Math.max(1, base.length / BLOCK) * 2) * 2];
+        int shift = 32 - Integer.numberOfTrailingZeros(table.length);
+        for (int offset = 0; offset + BLOCK <= base.length; offset += BLOCK) {
+            int slot = (hash(base, offset) * 0x9E3779B9) >>> shift;
+            if (table[slot] == 0) {
+                table[slot] = offset + 1;
+            }
+        }
+
+        int power = 1;
+        for (int i = 1; i < BLOCK; i++) {
+            power *= 31;
+        }
+        int literalStart = 0;
+        int i = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (i + BLOCK <= target.length) {
+            int candidate = table[(h * 0x9E3779B9) >>> shift] - 1;
+            if (candidate >= 0 && Arrays.equals(base, candidate, candidate + BLOCK, target, i, i + BLOCK)) {
+                int from = i;
+                int baseFrom = candidate;
+                while (from > literalStart && baseFrom > 0 && base[baseFrom - 1] == target[from - 1]) {
+                    from--;
+                    baseFrom--;
+                }
+                int length = i - from + BLOCK;
+                while (from + length < target.length && baseFrom + length < base.length
+                        && base[baseFrom + length] == target[from + length]) {
+                    length++;
+                }
+                contentLiteral(target, literalStart, from, out);
+                out.writeByte('c');
+                out.writeInt(baseFrom);
+                out.writeInt(length);
+                i = from + length;
+                literalStart = i;
+                if (i + BLOCK <= target.length) {
+                    h = hash(target, i);
+                }
+                continue;
+            }
+            if (i + BLOCK < target.length) {
+                h = (h - target[i] * power) * 31 + target[i + BLOCK];
+            }
+            i++;
+        }
+        contentLiteral(target, literalStart, target.length, out);
+    }
+
+    private static int hash(byte[] bytes, int offset) {
+        int h = 0;
+        for (int i = offset; i < offset + BLOCK; i++) {
+            h = h * 31 + bytes[i];
+        }
+        return h;
+    }
+
+    private static void contentLiteral(byte[] target, int from, int to, DataOutputStream out) throws IOException {
+        if (to > from) {
+            out.writeByte('a');
+            out.writeInt(to - from);
+            out.write(target, from, to - from);
+        }
+    }
+
+    /**
+     * Raw deflate data inflated, or null if it does not inflate to the expected size.
+     */
+    private static byte[] inflate(byte[] compressed, long size) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            byte[] content = new byte[(int) size];
+            int length = 0;
+            while (length < content.length) {
+                int n = inflater.inflate(content, length, content.length - length);
+                if (n == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            return length == content.length ? content : null;
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] content, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * An entry's compressed data, with what the central directory says of it.
+     */
+    record Entry(String name, int method, long offset, long length, long size) {
+
+        Segment segment() {
+            return new Segment(offset, length);
+        }
+
+        boolean deflated() {
+            return method == DEFLATED;
+        }
+    }
+
+    /**
+     * A byte range of a file.
+     */
+    record Segment(long offset, long length) {
+    }
+
+    /**
+     * Compressed data of each entry, in file order. Empty when the file is
+     * not a ZIP this can read (e.g. ZIP64), so it is sent whole.
+     */
+    static List<Entry> entries(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long eocd = findEndOfCentralDirectory(channel);
+        if (eocd < 0) {
+            return List.of();
+        }
+        ByteBuffer end = read(channel, eocd, 22);
+        int entries = Short.toUnsignedInt(end.getShort(10));
+        long directorySize = Integer.toUnsignedLong(end.getInt(12));
+        long directoryOffset = Integer.toUnsignedLong(end.getInt(16));
+        if (entries == 0xFFFF || directoryOffset == 0xFFFFFFFFL || directoryOffset + directorySize > size) {
+            return List.of();
+        }
+
+        ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+        List<Entry> result = new ArrayList<>(entries);
+        int pos = 0;
+        for (int i = 0; i < entries; i++) {
+            if (pos + 46 > directory.limit() || directory.getInt(pos) != CENTRAL_DIRECTORY_ENTRY) {
+                return List.of();
+            }
+            int method = Short.toUnsignedInt(directory.getShort(pos + 10));
+            long compressedSize = Integer.toUnsignedLong(directory.getInt(pos + 20));
+            long uncompressedSize = Integer.toUnsignedLong(directory.getInt(pos + 24));
+            int nameLength = Short.toUnsignedInt(directory.getShort(pos + 28));
+            int extraLength = Short.toUnsignedInt(directory.getShort(pos + 30));
+            int commentLength = Short.toUnsignedInt(directory.getShort(pos + 32));
+            long headerOffset = Integer.toUnsignedLong(directory.getInt(pos + 42));
+            if (pos + 46 + nameLength > directory.limit()) {
+                return List.of();
+            }
+            String name = new String(directory.array(), pos + 46, nameLength, StandardCharsets.UTF_8);
+            pos += 46 + nameLength + extraLength + commentLength;
+
+            // The local header's name and extra field may differ from the central directory's
+            ByteBuffer local = read(channel, headerOffset, 30);
+            long dataOffset = headerOffset + 30 + Short.toUnsignedInt(local.getShort(26))
+                    + Short.toUnsignedInt(local.getShort(28));
+            if (dataOffset + compressedSize > directoryOffset) {
+                return List.of();
+            }
+            if (compressedSize > 0) {
+                result.add(new Entry(name, method, dataOffset, compressedSize, uncompressedSize));
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.offset(), b.offset()));
+        for (int i = 1; i < result.size(); i++) {
+            Entry previous = result.get(i - 1);
+            if (previous.offset() + previous.length() > result.get(i).offset()) {
+                return List.of();
+            }
+        }
+        return result;
+    }
+
+    private static long findEndOfCentralDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < 22) {
+            return -1;
+        }
+        // The record is followed by a comment of at most 64 KiB
+        int window = (int) Math.min(size, 22 + 0xFFFF);
+        ByteBuffer tail = read(channel, size - window, window);
+        for (int i = window - 22; i >= 0; i--) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                return size - window + i;
+            }
+        }
+        return -1;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static byte[] readBytes(FileChannel channel, Segment segment) throws IOException {
+        return read(channel, segment.offset(), Math.toIntExact(segment.length())).array();
+    }
+
+    private static byte[] sha256(FileChannel channel) throws IOException {
+        return digest(channel, new Segment(0, channel.size()));
+    }
+
+    private static String sha256Hex(FileChannel channel, Segment segment) throws IOException {
+        return HexFormat.of().formatHex(digest(channel, segment));
+    }
+
+    private static byte[] digest(FileChannel channel, Segment segment) throws IOException {
+        MessageDigest digest = FileStorageService.sha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = segment.offset();
+        long end = segment.offset() + segment.length();
+        while (position < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            digest.update(buffer.flip());
+            position += read;
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Writes ops, merging copies of adjacent base ranges.
+     */
+    private static final class OpWriter {
+        private final DataOutputStream out;
+        private final FileChannel target;
+        private final byte[] buffer = new byte[MAX_LITERAL];
+        private long copyOffset = -1;
+        private long copyLength;
+
+        OpWriter(DataOutputStream out, FileChannel target) {
+            this.out = out;
+            this.target = target;
+        }
+
+        void copy(long offset, long length) throws IOException {
+            if (copyOffset >= 0 && copyOffset + copyLength == offset) {
+                copyLength += length;
+                return;
+            }
+            flushCopy();
+            copyOffset = offset;
+            copyLength = length;
+        }
+
+        void literal(long offset, long length) throws IOException {
+            if (length <= 0) {
+                return;
+            }
+            flushCopy();
+            long end = offset + length;
+            while (offset < end) {
+                int chunk = (int) Math.min(MAX_LITERAL, end - offset);
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, chunk);
+                while (bytes.hasRemaining()) {
+                    if (target.read(bytes, offset + bytes.position()) < 0) {
+                        throw new IOException("Unexpected end of file");
+                    }
+                }
+                out.writeByte('A');
+                out.writeInt(chunk);
+                out.write(buffer, 0, chunk);
+                offset += chunk;
+            }
+        }
+
+        void raw(byte[] op) throws IOException {
+            flushCopy();
+            out.write(op);
+        }
+
+        void end() throws IOException {
+            flushCopy();
+            out.writeByte('E');
+        }
+
+        private void flushCopy() throws IOException {
+            if (copyOffset >= 0) {
+                out.writeByte('C');
+                out.writeLong(copyOffset);
+                out.writeLong(copyLength);
+                copyOffset = -1;
+            }
+        }
+    }
+}
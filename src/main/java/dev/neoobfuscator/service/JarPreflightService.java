@@ -0,0 +1,208 @@
+package dev.neoobfuscator.service;
+
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Fast pre-flight validation of uploaded JARs.
+ * Reads only the ZIP end record and central directory, so a corrupt, encrypted
+ * or class-less archive is rejected before a Skidfuscator JVM is started.
+ */
+@Service
+public class JarPreflightService {
+
+    private static final int EOCD_SIG = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIG = 0x07064b50;
+    private static final int ZIP64_EOCD_SIG = 0x06064b50;
+    private static final int CEN_SIG = 0x02014b50;
+
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_HEADER_SIZE = 46;
+    private static final int MAX_COMMENT = 0xFFFF;
+
+    // Central directories above this size are treated as hostile
+    private static final long MAX_CEN_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Inspect a JAR's central directory.
+     *
+     * @param jar         path of the stored upload
+     * @param mainPackage configured main package, or null to skip the check
+     */
+    public PreflightResult inspect(Path jar, String mainPackage) {
+        try (FileChannel channel = FileChannel.open(jar, StandardOpenOption.READ)) {
+            return inspect(channel, mainPackage);
+        } catch (IOException e) {
+            return PreflightResult.invalid("Could not read JAR: " + e.getMessage());
+        }
+    }
+
+    private PreflightResult inspect(FileChannel channel, String mainPackage) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < EOCD_SIZE) {
+            return PreflightResult.invalid("File is not a valid JAR archive");
+        }
+
+        // Locate the end of central directory record (followed by an optional comment)
+        int tailSize = (int) Math.min(fileSize, EOCD_SIZE + MAX_COMMENT);
+        ByteBuffer tail = read(channel, fileSize - tailSize, tailSize);
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIG) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            return PreflightResult.invalid("File is not a valid JAR archive");
+        }
+
+        long eocdPos = fileSize - tailSize + eocd;
+        long totalEntries = Short.toUnsignedInt(tail.getShort(eocd + 10));
+        long cenSize = Integer.toUnsignedLong(tail.getInt(eocd + 12));
+        long cenEnd = eocdPos;
+
+        // ZIP64 archives store the real values in a separate record
+        if (totalEntries == 0xFFFF || cenSize == 0xFFFFFFFFL
+                || Integer.toUnsignedLong(tail.getInt(eocd + 16)) == 0xFFFFFFFFL) {
+            if (eocdPos < 20) {
+                return PreflightResult.invalid("Corrupt ZIP64 end record");
+            }
+            ByteBuffer locator = read(channel, eocdPos - 20, 20);
+            if (locator.getInt(0) != ZIP64_LOCATOR_SIG) {
+                return PreflightResult.invalid("Corrupt ZIP64 end record");
+            }
+            long zip64Pos = locator.getLong(8);
+            if (zip64Pos < 0 || zip64Pos + 56 > fileSize) {
+                return PreflightResult.invalid("Corrupt ZIP64 end record");
+            }
+            ByteBuffer zip64 = read(channel, zip64Pos, 56);
+            if (zip64.getInt(0) != ZIP64_EOCD_SIG) {
+                return PreflightResult.invalid("Corrupt ZIP64 end record");
+            }
+            totalEntries = zip64.getLong(32);
+            cenSize = zip64.getLong(40);
+            cenEnd = zip64Pos;
+        }
+
+        // The directory sits right before the end record; computing its position
+        // from there (like java.util.zip) also accepts JARs with prepended data
+        long cenPos = cenEnd - cenSize;
+        if (cenSize < 0 || cenPos < 0) {
+            return PreflightResult.invalid("Corrupt central directory");
+        }
+        if (cenSize > MAX_CEN_SIZE) {
+            return PreflightResult.invalid("Central directory is too large");
+        }
+
+        String mainPrefix = mainPackage != null && !mainPackage.isBlank()
+                ? mainPackage.trim().replace('.', '/') + "/"
+                : null;
+
+        ByteBuffer cen = read(channel, cenPos, (int) cenSize);
+        int pos = 0;
+        long entries = 0;
+        long classCount = 0;
+        long classBytes = 0;
+        long mainClassCount = 0;
+
+        while (pos + CEN_HEADER_SIZE <= cenSize) {
+            if (cen.getInt(pos) != CEN_SIG) {
+                return PreflightResult.invalid("Corrupt central directory");
+            }
+
+            int flags = Short.toUnsignedInt(cen.getShort(pos + 8));
+            int method = Short.toUnsignedInt(cen.getShort(pos + 10));
+            long size = Integer.toUnsignedLong(cen.getInt(pos + 24));
+            int nameLen = Short.toUnsignedInt(cen.getShort(pos + 28));
+            int extraLen = Short.toUnsignedInt(cen.getShort(pos + 30));
+            int commentLen = Short.toUnsignedInt(cen.getShort(pos + 32));
+
+            int next = pos + CEN_HEADER_SIZE + nameLen + extraLen + commentLen;
+            if (next > cenSize) {
+                return PreflightResult.invalid("Corrupt central directory");
+            }
+
+            if ((flags & 1) != 0) {
+                return PreflightResult.invalid("JAR contains encrypted entries");
+            }
+            if (method != 0 && method != 8) {
+                return PreflightResult.invalid("JAR uses an unsupported compression method (" + method + ")");
+            }
+
+            byte[] nameBytes = new byte[nameLen];
+            cen.get(pos + CEN_HEADER_SIZE, nameBytes);
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            if (size == 0xFFFFFFFFL) {
+                size = zip64Size(cen, pos + CEN_HEADER_SIZE + nameLen, extraLen);
+            }
+
+            if (name.endsWith(".class") && !name.startsWith("META-INF/")) {
+                classCount++;
+                classBytes += size;
+                if (mainPrefix != null && name.startsWith(mainPrefix)) {
+                    mainClassCount++;
+                }
+            }
+
+            entries++;
+            pos = next;
+        }
+
+        if (entries != totalEntries) {
+            return PreflightResult.invalid("Corrupt central directory");
+        }
+        if (classCount == 0) {
+            return PreflightResult.invalid("JAR contains no classes");
+        }
+        if (mainPrefix != null && mainClassCount == 0) {
+            return PreflightResult.invalid("No classes found in main package '" + mainPackage.trim() + "'");
+        }
+
+        return new PreflightResult(true, null, entries, classCount, classBytes,
+                mainPrefix != null ? mainClassCount : classCount);
+    }
+
+    /**
+     * Read the uncompressed size from a ZIP64 extended information extra field.
+     */
+    private long zip64Size(ByteBuffer cen, int extraStart, int extraLen) {
+        int pos = extraStart;
+        int end = extraStart + extraLen;
+        while (pos + 4 <= end) {
+            int id = Short.toUnsignedInt(cen.getShort(pos));
+            int len = Short.toUnsignedInt(cen.getShort(pos + 2));
+            if (id == 0x0001 && len >= 8) {
+                return cen.getLong(pos + 4);
+            }
+            pos += 4 + len;
+        }
+        return 0;
+    }
+
+    private ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    public record PreflightResult(boolean valid, String error, long entryCount, long classCount,
+            long classBytes, long mainPackageClassCount) {
+
+        static PreflightResult invalid(String error) {
+            return new PreflightResult(false, error, 0, 0, 0, 0);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package dev.neoobfuscator.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Repacks obfuscated JARs to shrink downloads.
+ *
+ * Entries are read through the central directory, keeping the last of
+ * duplicate names as class loaders do, class files are stripped of debug
+ * attributes, and every distinct entry body is deflated once, in parallel
+ * across a shared pool. The JAR is then written with the manifest first,
+ * entries sorted by name and fixed timestamps, so identical input always
+ * produces an identical file.
+ */
+@Service
+public class JarRepackService {
+
+    private static final Logger log = LoggerFactory.getLogger(JarRepackService.class);
+
+    // 1980-01-01 00:00 in MS-DOS format, the earliest representable time
+    private static final int DOS_TIME = 0;
+    private static final int DOS_DATE = (1 << 5) | 1;
+
+    private static final int MAX_ENTRIES = 0xFFFF;
+    private static final long MAX_OFFSET = 0xFFFFFFFFL;
+
+    // General purpose flag: names are UTF-8
+    private static final int FLAG_UTF8 = 0x0800;
+
+    /**
+     * META-INF/ and the manifest first (required by JarInputStream), then all
+     * other entries by name.
+     */
+    private static final Comparator<String> ENTRY_ORDER = Comparator
+            .comparingInt((String name) -> switch (name) {
+                case "META-INF/" -> 0;
+                case "META-INF/MANIFEST.MF" -> 1;
+                default -> 2;
+            })
+            .thenComparing(Comparator.naturalOrder());
+
+    @Value("${neo.repack.level:9}")
+    private int level;
+
+    @Value("${neo.repack.strip-debug:true}")
+    private boolean stripDebug;
+
+    // Off by default: retracing stack traces of repacked outputs needs line numbers
+    @Value("${neo.repack.strip-line-numbers:false}")
+    private boolean stripLineNumbers;
+
+    private final ForkJoinPool pool;
+
+    public JarRepackService(@Value("${neo.repack.threads:0}") int threads) {
+        this.pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Repack a JAR in place. The original is left untouched if repacking fails
+     * or would not make the file smaller.
+     */
+    public RepackResult repack(Path jar) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long originalBytes = Files.size(jar);
+
+        // Read entries; a repeated name keeps the body ZipFile.getEntry and class
+        // loaders resolve, which is the last one in the central directory
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        int duplicates = 0;
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> it = zip.entries();
+            while (it.hasMoreElements()) {
+                ZipEntry entry = it.nextElement();
+                if (entries.containsKey(entry.getName())) {
+                    duplicates++;
+                }
+                try (InputStream in = zip.getInputStream(entry)) {
+                    entries.put(entry.getName(), entry.isDirectory() ? new byte[0] : in.readAllBytes());
+                }
+            }
+        }
+        if (entries.size() > MAX_ENTRIES) {
+            throw new IOException("Too many entries to repack: " + entries.size());
+        }
+
+        List<String> names = new ArrayList<>(entries.keySet());
+        names.sort(ENTRY_ORDER);
+
+        // Strip debug attributes, then deflate each distinct body once
+        List<byte[]> bodies;
+        try {
+            bodies = pool.submit(() -> names.parallelStream()
+                    .map(name -> stripDebug && name.endsWith(".class")
+                            ? ClassDebugStripper.strip(entries.get(name), stripLineNumbers)
+                            : entries.get(name))
+                    .toList()).get();
+        } catch (ExecutionException e) {
+            throw new IOException("Repack failed", e.getCause());
+        }
+        long strippedBytes = 0;
+        for (int i = 0; i < names.size(); i++) {
+            strippedBytes += entries.get(names.get(i)).length - bodies.get(i).length;
+        }
+
+        Map<ByteBuffer, Compressed> unique = new HashMap<>();
+        for (byte[] body : bodies) {
+            unique.putIfAbsent(ByteBuffer.wrap(body), null);
+        }
+        int sharedBodies = bodies.size() - unique.size();
+        try {
+            List<ByteBuffer> keys = new ArrayList<>(unique.keySet());
+            List<Compressed> compressed = pool.submit(() -> keys.parallelStream()
+                    .map(key -> compress(key.array()))
+                    .toList()).get();
+            for (int i = 0; i < keys.size(); i++) {
+                unique.put(keys.get(i), compressed.get(i));
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Repack failed", e.getCause());
+        }
+
+        Path temp = Files.createTempFile(jar.getParent(), "repack-", ".jar");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 256 * 1024)) {
+                write(out, names, bodies, unique);
+            }
+
+            long repackedBytes = Files.size(temp);
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (repackedBytes >= originalBytes) {
+                log.info("Repack of {} saved nothing ({} -> {} bytes), keeping original", jar.getFileName(),
+                        originalBytes, repackedBytes);
+                return new RepackResult(originalBytes, originalBytes, duplicates, sharedBodies, strippedBytes,
+                        elapsedMs);
+            }
+
+            // Temp files are created owner-only; keep the output's permissions
+            try {
+                Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(jar));
+            } catch (UnsupportedOperationException ignored) {
+            }
+            Files.move(temp, jar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new RepackResult(originalBytes, repackedBytes, duplicates, sharedBodies, strippedBytes,
+                    elapsedMs);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Compressed compress(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 2));
+            byte[] chunk = new byte[16 * 1024];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            byte[] deflated = out.toByteArray();
+
+            // Store entries that do not compress
+            return deflated.length < body.length
+                    ? new Compressed(ZipEntry.DEFLATED, deflated, crc.getValue())
+                    : new Compressed(ZipEntry.STORED, body, crc.getValue());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void write(OutputStream out, List<String> names, List<byte[]> bodies,
+            Map<ByteBuffer, Compressed> compressed) throws IOException {
+        ByteArrayOutputStream central = new ByteArrayOutputStream();
+        long offset = 0;
+
+        for (int i = 0; i < names.size(); i++) {
+            byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+            byte[] body = bodies.get(i);
+            Compressed data = compressed.get(ByteBuffer.wrap(body));
+            int version = data.method == ZipEntry.DEFLATED ? 20 : 10;
+
+            if (offset > MAX_OFFSET) {
+                throw new IOException("Repacked JAR exceeds 4 GB");
+            }
+
+            ByteBuffer local = header(30 + name.length);
+            local.putInt(0x04034b50);
+            local.putShort((short) version);
+            local.putShort((short) FLAG_UTF8);
+            local.putShort((short) data.method);
+            local.putShort((short) DOS_TIME);
+            local.putShort((short) DOS_DATE);
+            local.putInt((int) data.crc);
+            local.putInt(data.bytes.length);
+            local.putInt(body.length);
+            local.putShort((short) name.length);
+            local.putShort((short) 0);
+            local.put(name);
+            out.write(local.array());
+            out.write(data.bytes);
+
+            ByteBuffer entry = header(46 + name.length);
+            entry.putInt(0x02014b50);
+            entry.putShort((short) 20);
+            entry.putShort((short) version);
+            entry.putShort((short) FLAG_UTF8);
+            entry.putShort((short) data.method);
+            entry.putShort((short) DOS_TIME);
+            entry.putShort((short) DOS_DATE);
+            entry.putInt((int) data.crc);
+            entry.putInt(data.bytes.length);
+            entry.putInt(body.length);
+            entry.putShort((short) name.length);
+            entry.putShort((short) 0); // extra
+            entry.putShort((short) 0); // comment
+            entry.putShort((short) 0); // disk
+            entry.putShort((short) 0); // internal attributes
+            entry.putInt(names.get(i).endsWith("/") ? 0x10 : 0); // external attributes
+            entry.putInt((int) offset);
+            entry.put(name);
+            central.write(entry.array());
+
+            offset += local.capacity() + data.bytes.length;
+        }
+
+        if (offset > MAX_OFFSET) {
+            throw new IOException("Repacked JAR exceeds 4 GB");
+        }
+
+        ByteBuffer end = header(22);
+        end.putInt(0x06054b50);
+        end.putShort((short) 0);
+        end.putShort((short) 0);
+        end.putShort((short) names.size());
+        end.putShort((short) names.size());
+        end.putInt(central.size());
+        end.putInt((int) offset);
+        end.putShort((short) 0);
+
+        central.writeTo(out);
+        out.write(end.array());
+    }
+
+    private static ByteBuffer header(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private record Compressed(int method, byte[] bytes, long crc) {
+    }
+
+    /**
+     * Outcome of a repack.
+     *
+     * @param duplicateEntries entries dropped because their name repeated
+     * @param sharedBodies     entries whose body was identical to another's
+     *                         and reused its compressed form
+     * @param strippedBytes    uncompressed class bytes removed with debug info
+     */
+    public record RepackResult(long originalBytes, long repackedBytes, int duplicateEntries, int sharedBodies,
+            long strippedBytes, long elapsedMs) {
+
+        public long savedBytes() {
+            return originalBytes - repackedBytes;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.ObfuscationJob;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Single-flight coalescing of identical submissions.
+ *
+ * The first job for an (input hash, config hash) key leads a flight and runs
+ * Skidfuscator. Identical jobs submitted while the leader is queued or running
+ * join as followers: they keep their own job IDs and files but mirror the
+ * leader's status instead of starting another child process. On completion
+ * each follower gets its own link or copy of the leader's output.
+ */
+@Service
+public class JobCoalescer {
+
+    // Open flights by coalescing key
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    // Coalescing key by leader job ID
+    private final Map<String, String> leaderKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Coalescing key for an input/config pair.
+     */
+    public static String key(String inputSha256, String configSha256) {
+        return inputSha256 + ":" + configSha256;
+    }
+
+    /**
+     * Lead a new flight for the key, or join the open one.
+     *
+     * When joining, onJoin runs under the flight lock with the leader job and
+     * whether it has already started, so the follower record is created before
+     * any further leader transition is mirrored to it.
+     *
+     * @return the leader's job ID if the job joined as a follower, or null if it
+     *         leads the flight
+     */
+    public String leadOrJoin(String key, ObfuscationJob job, FollowerCallback onJoin) throws Exception {
+        while (true) {
+            Flight flight = flights.computeIfAbsent(key, k -> new Flight(job));
+            if (flight.leaderId.equals(job.getId())) {
+                leaderKeys.put(job.getId(), key);
+                return null;
+            }
+
+            synchronized (flight) {
+                if (!flight.closed) {
+                    onJoin.join(flight.leader, flight.started);
+                    flight.followers.add(job.getId());
+                    return flight.leaderId;
+                }
+            }
+
+            // The flight finished between lookup and join; start over
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * Reopen a leader's flight after a restart, with the followers it had.
+     * The coalescing key is not stored, so new submissions do not join it.
+     */
+    public void resume(ObfuscationJob leader, List<String> followerIds) {
+        String key = "resumed:" + leader.getId();
+        Flight flight = new Flight(leader);
+        flight.followers.addAll(followerIds);
+        flights.put(key, flight);
+        leaderKeys.put(leader.getId(), key);
+    }
+
+    /**
+     * Mark the leader as started and apply the transition to its followers.
+     */
+    public void started(String leaderId, Consumer<String> mirror) {
+        Flight flight = flightOf(leaderId);
+        if (flight == null) {
+            return;
+        }
+        synchronized (flight) {
+            flight.started = true;
+            flight.followers.forEach(mirror);
+        }
+    }
+
+    /**
+     * Close the leader's flight and apply its final transition to all followers.
+     * Later identical submissions start a new flight.
+     */
+    public void finished(String leaderId, Consumer<String> mirror) {
+        String key = leaderKeys.remove(leaderId);
+        Flight flight = key != null ? flights.get(key) : null;
+        if (flight == null || !flight.leaderId.equals(leaderId)) {
+            return;
+        }
+        synchronized (flight) {
+            flight.closed = true;
+            flight.followers.forEach(mirror);
+        }
+        flights.remove(key, flight);
+    }
+
+    private Flight flightOf(String leaderId) {
+        String key = leaderKeys.get(leaderId);
+        Flight flight = key != null ? flights.get(key) : null;
+        return flight != null && flight.leaderId.equals(leaderId) ? flight : null;
+    }
+
+    @FunctionalInterface
+    public interface FollowerCallback {
+        void join(ObfuscationJob leader, boolean leaderStarted) throws Exception;
+    }
+
+    private static class Flight {
+        final ObfuscationJob leader;
+        final String leaderId;
+        final List<String> followers = new ArrayList<>();
+        boolean started;
+        boolean closed;
+
+        Flight(ObfuscationJob leader) {
+            this.leader = leader;
+            this.leaderId = leader.getId();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JobProgress;
+import dev.neoobfuscator.model.JobStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live progress of running jobs.
+ *
+ * Skidfuscator output is fed through a {@link ProgressParser} per job, the
+ * most recent lines are kept in a bounded ring buffer for the live log view
+ * (the full log goes to the job's event log), and an ETA is derived from the
+ * parsed completion, falling back to the runtime estimate until enough output
+ * has been seen. Subscribers receive progress as server-sent events.
+ */
+@Service
+public class JobProgressService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobProgressService.class);
+
+    // Below this completion the parsed progress is too noisy for an ETA
+    private static final double MIN_FRACTION_FOR_ETA = 0.05;
+
+    @Value("${neo.progress.tail-lines:200}")
+    private int tailLines;
+
+    @Value("${neo.progress.stream-timeout-minutes:30}")
+    private long streamTimeoutMinutes;
+
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Start tracking a job that is about to run.
+     *
+     * @param estimatedMs runtime estimate used before the output reports
+     *                    progress, or null
+     */
+    public void start(String jobId, Long estimatedMs) {
+        trackers.put(jobId, new Tracker(jobId, estimatedMs, tailLines));
+    }
+
+    /**
+     * Feed one line of Skidfuscator output.
+     */
+    public void accept(String jobId, String line) {
+        Tracker tracker = trackers.get(jobId);
+        if (tracker != null) {
+            tracker.accept(line);
+        }
+    }
+
+    /**
+     * Current progress of a running job.
+     */
+    public Optional<JobProgress> snapshot(String jobId) {
+        Tracker tracker = trackers.get(jobId);
+        return tracker != null ? Optional.of(tracker.snapshot()) : Optional.empty();
+    }
+
+    /**
+     * Most recent output lines of a running job.
+     */
+    public Optional<String> tail(String jobId) {
+        Tracker tracker = trackers.get(jobId);
+        return tracker != null ? Optional.of(tracker.tail()) : Optional.empty();
+    }
+
+    /**
+     * Stop tracking a job and send its final status to subscribers.
+     */
+    public void finish(String jobId, JobStatus status) {
+        trackers.remove(jobId);
+        List<SseEmitter> emitters = subscribers.remove(jobId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(Map.of("jobId", jobId, "status", status)));
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * Subscribe to a job's progress. Sends the current progress immediately,
+     * then on every change, and a final "status" event when the job ends.
+     *
+     * @param jobId     job to follow (the leader for coalesced jobs)
+     * @param status    the job's current status
+     */
+    public SseEmitter subscribe(String jobId, JobStatus status) {
+        SseEmitter emitter = new SseEmitter(TimeUnit.MINUTES.toMillis(streamTimeoutMinutes));
+        if (status == JobStatus.COMPLETED || status == JobStatus.FAILED) {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(Map.of("jobId", jobId, "status", status)));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+            return emitter;
+        }
+
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable remove = () -> emitters.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        snapshot(jobId).ifPresent(progress -> send(emitter, progress));
+        return emitter;
+    }
+
+    /**
+     * Push changed progress to subscribers. Runs off the obfuscation threads
+     * so slow clients cannot hold up output parsing.
+     */
+    @Scheduled(fixedRate = 500)
+    public void publish() {
+        subscribers.forEach((jobId, emitters) -> {
+            Tracker tracker = trackers.get(jobId);
+            if (tracker == null || emitters.isEmpty() || !tracker.takeChanged()) {
+                return;
+            }
+            JobProgress progress = tracker.snapshot();
+            for (SseEmitter emitter : emitters) {
+                send(emitter, progress);
+            }
+        });
+    }
+
+    private void send(SseEmitter emitter, JobProgress progress) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(progress));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Progress subscriber for job {} went away: {}", progress.getJobId(), e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static final class Tracker {
+
+        private final String jobId;
+        private final Long estimatedMs;
+        private final int capacity;
+        private final long startNanos = System.nanoTime();
+        private final ProgressParser parser = new ProgressParser();
+        private final ArrayDeque<String> lines;
+        private boolean changed = true;
+
+        Tracker(String jobId, Long estimatedMs, int capacity) {
+            this.jobId = jobId;
+            this.estimatedMs = estimatedMs;
+            this.capacity = Math.max(1, capacity);
+            this.lines = new ArrayDeque<>(this.capacity);
+        }
+
+        synchronized void accept(String line) {
+            if (lines.size() == capacity) {
+                lines.removeFirst();
+            }
+            lines.addLast(line);
+            changed |= parser.accept(line);
+        }
+
+        synchronized boolean takeChanged() {
+            boolean result = changed;
+            changed = false;
+            return result;
+        }
+
+        synchronized String tail() {
+            StringBuilder sb = new StringBuilder();
+            for (String line : lines) {
+                sb.append(line).append("\n");
+            }
+            return sb.toString();
+        }
+
+        synchronized JobProgress snapshot() {
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            Double fraction = parser.fraction();
+
+            Long etaMs = null;
+            if (fraction != null && fraction >= MIN_FRACTION_FOR_ETA) {
+                etaMs = Math.round(elapsedMs * (1 - fraction) / fraction);
+            } else if (estimatedMs != null) {
+                etaMs = Math.max(0, estimatedMs - elapsedMs);
+            }
+
+            return JobProgress.builder()
+                    .jobId(jobId)
+                    .phase(parser.phase())
+                    .phaseIndex(parser.phaseIndex())
+                    .phaseCount(parser.phaseCount())
+                    .transformer(parser.transformer())
+                    .classesProcessed(parser.classesProcessed())
+                    .classesTotal(parser.classesTotal())
+                    .percent(fraction != null ? Math.round(fraction * 1000) / 10.0 : null)
+                    .elapsedMs(elapsedMs)
+                    .etaSeconds(etaMs != null ? Math.round(etaMs / 1000.0) : null)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package dev.neoobfuscator.service;
+
+import java.util.List;
+
+/**
+ * Small dense least-squares helpers shared by the runtime and cost models.
+ */
+final class LeastSquares {
+
+    private LeastSquares() {
+    }
+
+    /**
+     * Ridge regression: minimize |y - X b|^2 + sum(penalty[i] * b[i]^2).
+     *
+     * @return coefficients, or null if the system is singular
+     */
+    static double[] ridge(List<double[]> x, List<Double> y, double[] penalty) {
+        int k = penalty.length;
+        double[][] xtx = new double[k][k];
+        double[] xty = new double[k];
+
+        for (int row = 0; row < x.size(); row++) {
+            double[] features = x.get(row);
+            for (int i = 0; i < k; i++) {
+                for (int j = 0; j < k; j++) {
+                    xtx[i][j] += features[i] * features[j];
+                }
+                xty[i] += features[i] * y.get(row);
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            xtx[i][i] += penalty[i];
+        }
+        return solve(xtx, xty);
+    }
+
+    /**
+     * Solve a small linear system with Gaussian elimination and partial pivoting.
+     *
+     * @return the solution, or null if the matrix is singular
+     */
+    static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        double[][] m = new double[n][n + 1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a[i], 0, m[i], 0, n);
+            m[i][n] = b[i];
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(m[row][col]) > Math.abs(m[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (Math.abs(m[pivot][col]) < 1e-12) {
+                return null;
+            }
+            double[] tmp = m[col];
+            m[col] = m[pivot];
+            m[pivot] = tmp;
+
+            for (int row = col + 1; row < n; row++) {
+                double factor = m[row][col] / m[col][col];
+                for (int k = col; k <= n; k++) {
+                    m[row][k] -= factor * m[col][k];
+                }
+            }
+        }
+
+        double[] x = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = m[row][n];
+            for (int k = row + 1; k < n; k++) {
+                sum -= m[row][k] * x[k];
+            }
+            x[row] = sum / m[row][row];
+        }
+        return x;
+    }
+}
@@ -0,0 +1,335 @@
+package dev.neoobfuscator.service;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compact binary index of a job's name mappings, read through a memory map.
+ *
+ * Layout (big-endian): magic, version, string/class/member counts, string
+ * offsets, UTF-8 string data, then fixed-size class and member records.
+ * Classes are sorted by obfuscated name and each class's methods by
+ * obfuscated name (mapping order kept for equal names, which is the inlining
+ * order), so lookups are binary searches over the mapped file without
+ * loading it onto the heap. Fields are not indexed since stack traces never
+ * mention them.
+ */
+final class MappingIndex {
+
+    private static final int MAGIC = 0x4E474D50; // "NGMP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int CLASS_RECORD_BYTES = 16;
+    private static final int MEMBER_RECORD_BYTES = 24;
+
+    // ProGuard/R8 mapping lines: "orig.Class -> obf.Class:" and
+    // "    [start:end:]type name(args)[:origStart[:origEnd]] -> obf"
+    private static final Pattern CLASS_LINE = Pattern.compile("^(\\S+)\\s+->\\s+(\\S+):$");
+    private static final Pattern METHOD_LINE = Pattern.compile(
+            "^\\s+(?:(\\d+):(\\d+):)?(\\S+)\\s+([^\\s(]+)\\(([^)]*)\\)(?::(\\d+)(?::(\\d+))?)?\\s+->\\s+(\\S+)$");
+
+    private final ByteBuffer buffer;
+    private final int classCount;
+    private final int stringOffsets;
+    private final int stringData;
+    private final int classRecords;
+    private final int memberRecords;
+
+    private MappingIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a mapping index");
+        }
+        int stringCount = buffer.getInt(8);
+        this.classCount = buffer.getInt(12);
+        this.stringOffsets = HEADER_BYTES;
+        this.stringData = stringOffsets + (stringCount + 1) * 4;
+        this.classRecords = stringData + buffer.getInt(stringOffsets + stringCount * 4);
+        this.memberRecords = classRecords + classCount * CLASS_RECORD_BYTES;
+    }
+
+    static MappingIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MappingIndex(map);
+        }
+    }
+
+    int classCount() {
+        return classCount;
+    }
+
+    /**
+     * Original name of an obfuscated class, or null if it is not mapped.
+     */
+    String originalClass(String obfuscated) {
+        int index = findClass(obfuscated);
+        return index < 0 ? null : string(buffer.getInt(classRecords + index * CLASS_RECORD_BYTES + 4));
+    }
+
+    /**
+     * Methods of an obfuscated class with the given obfuscated name, in
+     * mapping order.
+     */
+    List<Method> methods(String obfuscatedClass, String obfuscatedName) {
+        int index = findClass(obfuscatedClass);
+        if (index < 0) {
+            return List.of();
+        }
+        int record = classRecords + index * CLASS_RECORD_BYTES;
+        int first = buffer.getInt(record + 8);
+        int count = buffer.getInt(record + 12);
+        byte[] name = obfuscatedName.getBytes(StandardCharsets.UTF_8);
+
+        // Lower bound of the name among the class's members
+        int low = first;
+        int high = first + count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(buffer.getInt(memberRecords + mid * MEMBER_RECORD_BYTES), name) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        List<Method> methods = new ArrayList<>();
+        for (int i = low; i < first + count; i++) {
+            int member = memberRecords + i * MEMBER_RECORD_BYTES;
+            if (compare(buffer.getInt(member), name) != 0) {
+                break;
+            }
+            methods.add(new Method(string(buffer.getInt(member + 4)), buffer.getInt(member + 8),
+                    buffer.getInt(member + 12), buffer.getInt(member + 16), buffer.getInt(member + 20)));
+        }
+        return methods;
+    }
+
+    private int findClass(String obfuscated) {
+        byte[] name = obfuscated.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = classCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(buffer.getInt(classRecords + mid * CLASS_RECORD_BYTES), name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Compare a pooled string with UTF-8 bytes, as unsigned bytes
+    private int compare(int stringIndex, byte[] other) {
+        int start = stringData + buffer.getInt(stringOffsets + stringIndex * 4);
+        int length = buffer.getInt(stringOffsets + (stringIndex + 1) * 4) - (start - stringData);
+        int common = Math.min(length, other.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(start + i) & 0xFF, other[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, other.length);
+    }
+
+    private String string(int index) {
+        int start = buffer.getInt(stringOffsets + index * 4);
+        int end = buffer.getInt(stringOffsets + (index + 1) * 4);
+        byte[] bytes = new byte[end - start];
+        buffer.get(stringData + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A mapped method.
+     *
+     * @param name      original name, qualified when the method was inlined
+     *                  from another class
+     * @param obfStart  first obfuscated line of the range, 0 if none
+     * @param origStart first original line, 0 if none
+     * @param origEnd   last original line, 0 if only the start was given
+     */
+    record Method(String name, int obfStart, int obfEnd, int origStart, int origEnd) {
+
+        boolean hasRange() {
+            return obfStart > 0 || obfEnd > 0;
+        }
+
+        boolean covers(int line) {
+            return line >= obfStart && line <= obfEnd;
+        }
+
+        /**
+         * Original line for an obfuscated line in this method's range.
+         */
+        int originalLine(int line) {
+            if (origStart == 0) {
+                return line;
+            }
+            if (origEnd == 0) {
+                return origStart;
+            }
+            return Math.min(origEnd, origStart + (line - obfStart));
+        }
+    }
+
+    /**
+     * Parses ProGuard-format mappings ("original -> obfuscated") and writes
+     * them as an index.
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final List<byte[]> pool = new ArrayList<>();
+        private final List<int[]> classes = new ArrayList<>();
+        private final List<List<int[]>> members = new ArrayList<>();
+        private int memberCount;
+
+        /**
+         * Add the mappings in a reader. Lines that are not class or method
+         * mappings (comments, fields) are skipped.
+         */
+        Builder parse(BufferedReader reader) throws IOException {
+            List<int[]> current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                Matcher matcher;
+                if (!Character.isWhitespace(line.charAt(0))) {
+                    matcher = CLASS_LINE.matcher(line);
+                    if (matcher.matches()) {
+                        classes.add(new int[] { intern(matcher.group(2)), intern(matcher.group(1)) });
+                        current = new ArrayList<>();
+                        members.add(current);
+                    } else {
+                        current = null;
+                    }
+                } else if (current != null && (matcher = METHOD_LINE.matcher(line)).matches()) {
+                    current.add(new int[] {
+                            intern(matcher.group(8)),
+                            intern(matcher.group(4)),
+                            parseInt(matcher.group(1)),
+                            parseInt(matcher.group(2)),
+                            parseInt(matcher.group(6)),
+                            parseInt(matcher.group(7)) });
+                    memberCount++;
+                }
+            }
+            return this;
+        }
+
+        int classCount() {
+            return classes.size();
+        }
+
+        int methodCount() {
+            return memberCount;
+        }
+
+        void write(OutputStream target) throws IOException {
+            // Sort classes by obfuscated name
+            Integer[] classOrder = new Integer[classes.size()];
+            for (int i = 0; i < classOrder.length; i++) {
+                classOrder[i] = i;
+            }
+            Comparator<Integer> byClassName = (a, b) -> Arrays.compareUnsigned(
+                    pool.get(classes.get(a)[0]), pool.get(classes.get(b)[0]));
+            Arrays.sort(classOrder, byClassName);
+
+            // Of duplicate obfuscated names (several mapping files) the first wins
+            List<int[]> classRecords = new ArrayList<>();
+            List<int[]> memberRecords = new ArrayList<>();
+            byte[] previous = null;
+            for (int index : classOrder) {
+                byte[] name = pool.get(classes.get(index)[0]);
+                if (previous != null && Arrays.equals(previous, name)) {
+                    continue;
+                }
+                previous = name;
+                // Stable sort keeps mapping order for equal method names
+                List<int[]> classMembers = new ArrayList<>(members.get(index));
+                classMembers.sort((a, b) -> Arrays.compareUnsigned(pool.get(a[0]), pool.get(b[0])));
+                classRecords.add(new int[] { classes.get(index)[0], classes.get(index)[1], memberRecords.size(),
+                        classMembers.size() });
+                memberRecords.addAll(classMembers);
+            }
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(pool.size());
+            out.writeInt(classRecords.size());
+            out.writeInt(memberRecords.size());
+
+            int offset = 0;
+            for (byte[] string : pool) {
+                out.writeInt(offset);
+                offset += string.length;
+            }
+            out.writeInt(offset);
+            for (byte[] string : pool) {
+                out.write(string);
+            }
+            for (int[] record : classRecords) {
+                for (int value : record) {
+                    out.writeInt(value);
+                }
+            }
+            for (int[] record : memberRecords) {
+                for (int value : record) {
+                    out.writeInt(value);
+                }
+            }
+            out.flush();
+        }
+
+        void write(Path file) throws IOException {
+            Path temp = Files.createTempFile(file.getParent(), ".mapping-", ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(temp)) {
+                    write(out);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private int intern(String value) {
+            return strings.computeIfAbsent(value, v -> {
+                pool.add(v.getBytes(StandardCharsets.UTF_8));
+                return pool.size() - 1;
+            });
+        }
+
+        private static int parseInt(String value) {
+            return value == null ? 0 : Integer.parseInt(value);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package dev.neoobfuscator.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Keeps each job's name mappings as an indexed binary file and retraces
+ * stack traces against them.
+ *
+ * Mapping files Skidfuscator writes to a job's working directory are compiled
+ * when the job finishes; mappings can also be attached later. Recently used
+ * indexes stay memory-mapped.
+ */
+@Service
+public class MappingStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MappingStore.class);
+
+    private static final String EXTENSION = ".map";
+
+    @Value("${neo.mappings.dir:./mappings}")
+    private String mappingsDir;
+
+    private final Map<String, MappingIndex> openIndexes;
+
+    private Path root;
+
+    public MappingStore(@Value("${neo.mappings.open-indexes:16}") int maxOpenIndexes) {
+        this.openIndexes = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MappingIndex> eldest) {
+                return size() > maxOpenIndexes;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(mappingsDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Compile the mapping files in a directory (searched recursively) into
+     * the job's index.
+     *
+     * @return number of mapped classes, 0 if the directory has no mappings
+     */
+    public int compile(String jobId, Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        MappingIndex.Builder builder = new MappingIndex.Builder();
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                builder.parse(reader);
+            } catch (IOException e) {
+                // Not text; Skidfuscator may leave other files next to the mappings
+                log.debug("Skipping mapping file {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return save(jobId, builder);
+    }
+
+    /**
+     * Attach ProGuard-format mappings to a job, replacing any it had.
+     *
+     * @return number of mapped classes
+     */
+    public int importMappings(String jobId, InputStream in) throws IOException {
+        MappingIndex.Builder builder = new MappingIndex.Builder();
+        builder.parse(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        if (builder.classCount() == 0) {
+            throw new IllegalArgumentException("No class mappings found; expected ProGuard mapping format");
+        }
+        return save(jobId, builder);
+    }
+
+    private int save(String jobId, MappingIndex.Builder builder) throws IOException {
+        if (builder.classCount() == 0) {
+            return 0;
+        }
+        builder.write(file(jobId));
+        synchronized (openIndexes) {
+            openIndexes.remove(jobId);
+        }
+        log.info("Stored mappings for job {}: {} classes, {} methods", jobId, builder.classCount(),
+                builder.methodCount());
+        return builder.classCount();
+    }
+
+    public boolean exists(String jobId) {
+        return Files.exists(file(jobId));
+    }
+
+    /**
+     * Retrace a stack trace, streaming line by line.
+     *
+     * @return number of lines processed
+     * @throws NoSuchFileException if the job has no mappings
+     */
+    public long retrace(String jobId, Reader in, Writer out) throws IOException {
+        StackTraceRetracer retracer = new StackTraceRetracer(index(jobId));
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in);
+        return retracer.retrace(reader, out);
+    }
+
+    private MappingIndex index(String jobId) throws IOException {
+        synchronized (openIndexes) {
+            MappingIndex index = openIndexes.get(jobId);
+            if (index == null) {
+                index = MappingIndex.open(file(jobId));
+                openIndexes.put(jobId, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Jobs with stored mappings.
+     */
+    public List<String> jobIds() throws IOException {
+        try (Stream<Path> files = Files.list(root)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(EXTENSION))
+                    .map(name -> name.substring(0, name.length() - EXTENSION.length()))
+                    .toList();
+        }
+    }
+
+    /**
+     * When a job's mappings were last written.
+     */
+    public Instant modifiedAt(String jobId) throws IOException {
+        return Files.getLastModifiedTime(file(jobId)).toInstant();
+    }
+
+    public void delete(String jobId) throws IOException {
+        synchronized (openIndexes) {
+            openIndexes.remove(jobId);
+        }
+        Files.deleteIfExists(file(jobId));
+    }
+
+    /**
+     * Mapped class count of a job, if it has mappings.
+     */
+    public Optional<Integer> classCount(String jobId) {
+        if (!exists(jobId)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(index(jobId).classCount());
+        } catch (IOException e) {
+            log.warn("Unreadable mappings for job {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private Path file(String jobId) {
+        Path file = root.resolve(jobId + EXTENSION).normalize();
+        if (!file.getParent().equals(root)) {
+            throw new IllegalArgumentException("Invalid job ID");
+        }
+        return file;
+    }
+}
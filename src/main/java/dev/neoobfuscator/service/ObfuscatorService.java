@@ -1,25 +1,46 @@
 package dev.neoobfuscator.service;
 
+import dev.neoobfuscator.model.BenchmarkReport;
+import dev.neoobfuscator.model.EngineTrial;
+import dev.neoobfuscator.model.JobEvent;
+import dev.neoobfuscator.model.JobMetrics;
+import dev.neoobfuscator.model.JobProgress;
 import dev.neoobfuscator.model.JobStatus;
 import dev.neoobfuscator.model.ObfuscationConfig;
 import dev.neoobfuscator.model.ObfuscationJob;
+import dev.neoobfuscator.model.StoredUpload;
 import com.google.gson.Gson;
+import io.opentelemetry.api.trace.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Core obfuscation service that integrates with Skidfuscator.
@@ -31,242 +52,960 @@ public class ObfuscatorService {
 
     private final FileStorageService fileStorage;
     private final HistoryService historyService;
+    private final ChildJvmService childJvm;
+    private final JarPreflightService preflight;
+    private final RuntimeEstimator runtimeEstimator;
+    private final TransformerCostModel costModel;
+    private final JobCoalescer coalescer;
+    private final BenchmarkService benchmarkService;
+    private final JarRepackService repackService;
+    private final JobProgressService progressService;
+    private final WebhookService webhooks;
+    private final MappingStore mappingStore;
+    private final EngineRegistry engines;
+    private final UsageService usage;
+    private final DeltaService deltas;
+    private final ChildProcessRegistry children;
+    private final Tracer tracer;
+    private final ObfuscatorService self;
     private final Gson gson = new Gson();
 
-    @Value("${neo.skidfuscator-jar:./libs/skidfuscator.jar}")
-    private String skidfuscatorJar;
+    // Jobs between start and final status, and their Skidfuscator processes
+    private final Set<String> runningJobs = ConcurrentHashMap.newKeySet();
+    private final Map<String, Process> processes = new ConcurrentHashMap<>();
 
-    private String resolvedSkidfuscatorPath;
+    // Runtime estimates of jobs submitted but not yet started
+    private final Map<String, Long> queuedEstimates = new ConcurrentHashMap<>();
 
-    public ObfuscatorService(FileStorageService fileStorage, HistoryService historyService) {
+    // Running jobs stopped by a drain, to be queued again rather than failed
+    private final Set<String> handedOff = ConcurrentHashMap.newKeySet();
+
+    // Log output is appended to the event log in chunks of this size or age
+    private static final int LOG_FLUSH_CHARS = 4096;
+    private static final long LOG_FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    @Value("${neo.repack.enabled:true}")
+    private boolean repackEnabled;
+
+    @Value("${neo.benchmark.enabled:false}")
+    private boolean benchmarkEnabled;
+
+    public ObfuscatorService(FileStorageService fileStorage, HistoryService historyService,
+            ChildJvmService childJvm, JarPreflightService preflight, RuntimeEstimator runtimeEstimator,
+            TransformerCostModel costModel, JobCoalescer coalescer, BenchmarkService benchmarkService,
+            JarRepackService repackService, JobProgressService progressService, WebhookService webhooks,
+            MappingStore mappingStore, EngineRegistry engines, UsageService usage, DeltaService deltas,
+            ChildProcessRegistry children, Tracer tracer, @Lazy ObfuscatorService self) {
         this.fileStorage = fileStorage;
         this.historyService = historyService;
+        this.childJvm = childJvm;
+        this.preflight = preflight;
+        this.runtimeEstimator = runtimeEstimator;
+        this.costModel = costModel;
+        this.coalescer = coalescer;
+        this.benchmarkService = benchmarkService;
+        this.repackService = repackService;
+        this.progressService = progressService;
+        this.webhooks = webhooks;
+        this.mappingStore = mappingStore;
+        this.engines = engines;
+        this.usage = usage;
+        this.deltas = deltas;
+        this.children = children;
+        this.tracer = tracer;
+        this.self = self;
+    }
+
+    /**
+     * Build the shared CDS archive for Skidfuscator once the application is up,
+     * so the first real jobs already start from the archive. Runs beside the
+     * job threads rather than in one of their slots.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Async("childJvmExecutor")
+    public void prepareChildJvm() {
+        childJvm.prepareArchive(engines.pathFor(null));
     }
 
     /**
-     * Resolve the Skidfuscator JAR path - handles both development and production
-     * scenarios.
+     * Queue the jobs a shutdown or crash left queued or running. Their
+     * followers mirror them again; followers whose leader has finished take
+     * its result.
      */
-    private String getSkidfuscatorPath() {
-        if (resolvedSkidfuscatorPath != null) {
-            return resolvedSkidfuscatorPath;
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<ObfuscationJob> leaders = new ArrayList<>();
+        Map<String, List<String>> followers = new HashMap<>();
+        for (ObfuscationJob job : historyService.findActive()) {
+            if (job.getLeaderId() == null) {
+                leaders.add(job);
+            } else {
+                followers.computeIfAbsent(job.getLeaderId(), k -> new ArrayList<>()).add(job.getId());
+            }
+        }
+
+        int resumed = 0;
+        for (ObfuscationJob leader : leaders) {
+            List<String> ids = followers.getOrDefault(leader.getId(), List.of());
+            followers.remove(leader.getId());
+            if (!new File(leader.getInputPath()).exists()) {
+                for (String id : ids) {
+                    historyService.updateStatus(id, JobStatus.FAILED, "Input was lost in a restart");
+                }
+                historyService.updateStatus(leader.getId(), JobStatus.FAILED, "Input was lost in a restart");
+                continue;
+            }
+            for (String id : ids) {
+                historyService.updateStatus(id, JobStatus.PENDING, null);
+            }
+            coalescer.resume(leader, ids);
+            try {
+                submit(leader);
+                resumed++;
+            } catch (TaskRejectedException e) {
+                log.warn("Could not queue interrupted job {}: queue is full", leader.getId());
+            }
         }
 
-        // First, check if the configured path exists (relative or absolute)
-        File jarFile = new File(skidfuscatorJar);
-        if (jarFile.exists()) {
-            resolvedSkidfuscatorPath = jarFile.getAbsolutePath();
-            log.info("Using Skidfuscator at configured path: {}", resolvedSkidfuscatorPath);
-            return resolvedSkidfuscatorPath;
+        // Followers whose leader is no longer queued or running
+        for (Map.Entry<String, List<String>> entry : followers.entrySet()) {
+            Optional<ObfuscationJob> leader = historyService.findSummaryById(entry.getKey());
+            JobStatus status = leader.map(ObfuscationJob::getStatus).orElse(JobStatus.FAILED);
+            String error = leader.isPresent() ? leader.get().getErrorMessage() : "Leader job no longer exists";
+            String outputPath = leader.map(ObfuscationJob::getOutputPath).orElse(null);
+            for (String id : entry.getValue()) {
+                finishFollower(id, outputPath, status, error);
+            }
         }
 
-        // Check user.dir (where the JAR was launched from) first - most reliable for
-        // relative paths
-        String userDir = System.getProperty("user.dir");
-        log.info("user.dir is: {}", userDir);
-        File userDirCandidate = new File(userDir, "libs/skidfuscator.jar");
-        if (userDirCandidate.exists()) {
-            resolvedSkidfuscatorPath = userDirCandidate.getAbsolutePath();
-            log.info("Found Skidfuscator in user.dir: {}", resolvedSkidfuscatorPath);
-            return resolvedSkidfuscatorPath;
+        if (resumed > 0) {
+            log.info("Queued {} jobs interrupted by the last shutdown", resumed);
         }
+    }
 
-        // Try to resolve relative to the application's JAR/classes location
-        try {
-            // Get the path of the running JAR or classes directory
-            String appPath = ObfuscatorService.class
-                    .getProtectionDomain()
-                    .getCodeSource()
-                    .getLocation()
-                    .toURI()
-                    .getPath();
-
-            // On Windows, remove leading slash from path like "/C:/..."
-            if (appPath.matches("^/[A-Za-z]:.*")) {
-                appPath = appPath.substring(1);
+    /**
+     * Queue the benchmarks a shutdown or crash left queued or running.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedBenchmarks() {
+        int resumed = 0;
+        for (String jobId : historyService.findUnfinishedBenchmarks()) {
+            if (!benchmarkEnabled) {
+                historyService.updateBenchmark(jobId, BenchmarkReport.builder()
+                        .status(JobStatus.FAILED)
+                        .error("Benchmarks are disabled")
+                        .build());
+                continue;
             }
+            historyService.updateBenchmark(jobId, BenchmarkReport.builder().status(JobStatus.PENDING).build());
+            try {
+                self.executeBenchmark(jobId);
+                resumed++;
+            } catch (TaskRejectedException e) {
+                historyService.updateBenchmark(jobId, BenchmarkReport.builder()
+                        .status(JobStatus.FAILED)
+                        .error("Benchmark queue is full")
+                        .build());
+            }
+        }
+        if (resumed > 0) {
+            log.info("Queued {} benchmarks interrupted by the last shutdown", resumed);
+        }
+    }
 
-            File appFile = new File(appPath);
-            File baseDir = appFile.isDirectory() ? appFile : appFile.getParentFile();
-
-            // Try a few levels up to find libs/skidfuscator.jar (look for pom.xml as
-            // project root indicator)
-            for (int i = 0; i < 6; i++) {
-                if (baseDir == null)
-                    break;
-
-                // Check if this directory has libs/skidfuscator.jar
-                File candidate = new File(baseDir, "libs/skidfuscator.jar");
-                if (candidate.exists()) {
-                    resolvedSkidfuscatorPath = candidate.getAbsolutePath();
-                    log.info("Found Skidfuscator at: {}", resolvedSkidfuscatorPath);
-                    return resolvedSkidfuscatorPath;
-                }
+    /**
+     * Stop starting queued jobs, benchmarks, trials and any other child JVM,
+     * ahead of a shutdown. Queued jobs and benchmarks stay queued in the
+     * database and run after the next start.
+     */
+    public void beginDrain() {
+        children.beginDrain();
+    }
 
-                // Also check if we're in target/classes and go up to project root
-                File pomFile = new File(baseDir, "pom.xml");
-                if (pomFile.exists()) {
-                    candidate = new File(baseDir, "libs/skidfuscator.jar");
-                    if (candidate.exists()) {
-                        resolvedSkidfuscatorPath = candidate.getAbsolutePath();
-                        log.info("Found Skidfuscator at project root: {}", resolvedSkidfuscatorPath);
-                        return resolvedSkidfuscatorPath;
-                    }
-                }
+    public boolean isDraining() {
+        return children.isDraining();
+    }
+
+    public int runningJobs() {
+        return runningJobs.size();
+    }
 
-                baseDir = baseDir.getParentFile();
+    public int queuedJobs() {
+        return queuedEstimates.size();
+    }
+
+    /**
+     * Estimated Skidfuscator time of the work ahead of a new job: queued jobs
+     * in full, running jobs by their remaining ETA.
+     */
+    public long backlogMs() {
+        long total = 0;
+        for (long estimate : queuedEstimates.values()) {
+            total += estimate;
+        }
+        for (String jobId : runningJobs) {
+            Long etaSeconds = progressService.snapshot(jobId).map(JobProgress::getEtaSeconds).orElse(null);
+            if (etaSeconds != null) {
+                total += TimeUnit.SECONDS.toMillis(etaSeconds);
             }
-        } catch (Exception e) {
-            log.warn("Error resolving application path: {}", e.getMessage());
         }
+        return total;
+    }
+
+    /**
+     * Stop the Skidfuscator processes of running jobs. The jobs go back to
+     * the queue instead of failing, and run after the next start.
+     */
+    public void handOffRunning() {
+        processes.forEach((jobId, process) -> {
+            handedOff.add(jobId);
+            process.descendants().forEach(ProcessHandle::destroy);
+            process.destroy();
+        });
+    }
 
-        // Final fallback
-        resolvedSkidfuscatorPath = new File("libs/skidfuscator.jar").getAbsolutePath();
-        log.warn("Skidfuscator not found, using fallback path: {}", resolvedSkidfuscatorPath);
-        return resolvedSkidfuscatorPath;
+    /**
+     * Build the CDS archive for an engine about to run jobs or trials, so it
+     * is measured under the same conditions as the default engine.
+     */
+    @Async("childJvmExecutor")
+    public void prepareEngine(String engineId) {
+        childJvm.prepareArchive(engines.pathFor(engineId));
     }
 
     /**
      * Create and queue a new obfuscation job.
+     * An identical job (same input and config) that is still queued or running
+     * is not run again: the new job follows it and mirrors its status and output.
+     *
+     * @param tenant tenant of the caller's API key, null if none
      */
-    public ObfuscationJob createJob(MultipartFile file, ObfuscationConfig config) throws Exception {
+    public ObfuscationJob createJob(StoredUpload stored, ObfuscationConfig config, String tenant) throws Exception {
         String jobId = UUID.randomUUID().toString();
 
-        // Store uploaded file
-        String inputPath = fileStorage.storeUpload(file, jobId);
-        String outputPath = fileStorage.getOutputPath(jobId, file.getOriginalFilename());
+        // Pin the full ID so the job runs on exactly this engine
+        if (config.getEngine() != null && !config.getEngine().isBlank()) {
+            config.setEngine(engines.resolve(config.getEngine()).getId());
+        } else {
+            config.setEngine(null);
+        }
+
+        // Give the job its own input so the upload can expire independently
+        StoredUpload upload = fileStorage.linkUpload(stored, jobId);
+        String inputPath = upload.getPath();
+        String outputPath = fileStorage.getOutputPath(jobId, upload.getOriginalFilename());
+
+        // Reject corrupt, encrypted or class-less JARs before queueing a child JVM
+        JarPreflightService.PreflightResult check = preflight.inspect(Paths.get(inputPath), config.getMainPackage());
+        if (!check.valid()) {
+            Files.deleteIfExists(Paths.get(inputPath));
+            throw new IllegalArgumentException(check.error());
+        }
+
+        JobMetrics metrics = JobMetrics.builder()
+                .inputBytes(upload.getSize())
+                .classCount(check.classCount())
+                .classBytes(check.classBytes())
+                .estimatedMs(runtimeEstimator.estimateMs(check.classCount(), check.classBytes()))
+                .build();
 
-        // Save config to file
         String configContent = config.toHocon();
-        fileStorage.saveConfig(jobId, configContent);
 
         // Create job record
         ObfuscationJob job = ObfuscationJob.builder()
                 .id(jobId)
-                .originalFilename(file.getOriginalFilename())
+                .originalFilename(upload.getOriginalFilename())
                 .status(JobStatus.PENDING)
                 .configJson(gson.toJson(config))
                 .createdAt(LocalDateTime.now())
                 .inputPath(inputPath)
                 .outputPath(outputPath)
+                .metricsJson(gson.toJson(metrics))
+                .tenant(tenant)
                 .build();
 
-        historyService.save(job);
+        String key = JobCoalescer.key(upload.getSha256(), FileStorageService.sha256Hex(configContent
+                + "\nbenchmark: " + config.isBenchmark() + "\nrepack: " + config.isRepack()
+                + "\nengine: " + config.getEngine()));
+        String leaderId = coalescer.leadOrJoin(key, job, (leader, leaderStarted) -> {
+            // Follow the leader: share its run, but keep own files so either job can be deleted alone
+            job.setLeaderId(leader.getId());
+            historyService.create(job);
+            historyService.updateStatus(jobId, JobStatus.PENDING, null);
+            if (leaderStarted) {
+                historyService.updateStatus(jobId, JobStatus.PROCESSING, null);
+            }
+        });
+
+        if (leaderId != null) {
+            log.info("Created obfuscation job: {} for file: {} (following {})", jobId,
+                    upload.getOriginalFilename(), leaderId);
+            return job;
+        }
+
+        try {
+            historyService.create(job);
+        } catch (Exception e) {
+            coalescer.finished(jobId, followerId -> historyService.updateStatus(followerId, JobStatus.FAILED,
+                    "Leader job could not be created"));
+            throw e;
+        }
 
-        log.info("Created obfuscation job: {} for file: {}", jobId, file.getOriginalFilename());
+        log.info("Created obfuscation job: {} for file: {}", jobId, upload.getOriginalFilename());
 
         return job;
     }
 
+    /**
+     * Queue a created job on the obfuscation executor.
+     * Followers of an identical job are already queued through their leader.
+     */
+    public void submit(ObfuscationJob job) {
+        if (job.getLeaderId() != null) {
+            return;
+        }
+
+        String jobId = job.getId();
+        historyService.updateStatus(jobId, JobStatus.PENDING, null);
+        JobMetrics metrics = job.getMetricsJson() != null
+                ? gson.fromJson(job.getMetricsJson(), JobMetrics.class)
+                : null;
+        queuedEstimates.put(jobId, metrics != null && metrics.getEstimatedMs() != null ? metrics.getEstimatedMs() : 0L);
+        try {
+            self.executeObfuscation(jobId);
+        } catch (TaskRejectedException e) {
+            queuedEstimates.remove(jobId);
+            updateStatusWithFollowers(jobId, JobStatus.FAILED, "Obfuscation queue is full");
+            throw e;
+        }
+    }
+
+    /**
+     * Apply a status change to a leader job and mirror it to its followers.
+     */
+    private void updateStatusWithFollowers(String jobId, JobStatus status, String errorMessage) {
+        historyService.updateStatus(jobId, status, errorMessage);
+        if (status == JobStatus.PROCESSING) {
+            coalescer.started(jobId, followerId -> historyService.updateStatus(followerId, status, errorMessage));
+        } else if (status == JobStatus.COMPLETED || status == JobStatus.FAILED) {
+            String outputPath = historyService.findSummaryById(jobId).map(ObfuscationJob::getOutputPath).orElse(null);
+            coalescer.finished(jobId, followerId -> finishFollower(followerId, outputPath, status, errorMessage));
+            progressService.finish(jobId, status);
+            webhooks.jobFinished(jobId);
+        }
+    }
+
+    /**
+     * Apply a leader's final status to a follower. A completed follower gets
+     * its own link or copy of the leader's output.
+     */
+    private void finishFollower(String followerId, String leaderOutputPath, JobStatus status, String errorMessage) {
+        JobStatus followerStatus = status;
+        String followerError = errorMessage;
+        if (status == JobStatus.COMPLETED && leaderOutputPath != null) {
+            Optional<ObfuscationJob> follower = historyService.findSummaryById(followerId);
+            // Followers created before jobs kept their own output share the leader's path
+            if (follower.isPresent() && !leaderOutputPath.equals(follower.get().getOutputPath())) {
+                try {
+                    fileStorage.copyOutput(leaderOutputPath, follower.get().getOutputPath());
+                    historyService.outputChanged(followerId);
+                } catch (Exception e) {
+                    log.warn("Could not copy output {} for follower {}", leaderOutputPath, followerId, e);
+                    followerStatus = JobStatus.FAILED;
+                    followerError = "Could not copy the output of the identical job: " + e.getMessage();
+                }
+            }
+        }
+        historyService.updateStatus(followerId, followerStatus, followerError);
+        webhooks.jobFinished(followerId);
+    }
+
     /**
      * Execute obfuscation asynchronously.
      */
     @Async("obfuscationExecutor")
     public void executeObfuscation(String jobId) {
         log.info("Starting obfuscation for job: {}", jobId);
+        queuedEstimates.remove(jobId);
 
-        Optional<ObfuscationJob> optJob = historyService.findById(jobId);
+        Optional<ObfuscationJob> optJob = historyService.findSummaryById(jobId);
         if (optJob.isEmpty()) {
             log.error("Job not found: {}", jobId);
             return;
         }
 
+        // Left queued while draining; runs after the next start
+        if (isDraining()) {
+            log.info("Not starting job {} while draining", jobId);
+            return;
+        }
+
         ObfuscationJob job = optJob.get();
-        historyService.updateStatus(jobId, JobStatus.PROCESSING, null);
+        updateStatusWithFollowers(jobId, JobStatus.PROCESSING, null);
 
-        StringBuilder logs = new StringBuilder();
+        // Output not yet written to the event log
+        StringBuilder pendingLogs = new StringBuilder();
+        long lastFlush = System.nanoTime();
+        JobMetrics metrics = job.getMetricsJson() != null
+                ? gson.fromJson(job.getMetricsJson(), JobMetrics.class)
+                : new JobMetrics();
+        metrics.setInputBytes(new File(job.getInputPath()).length());
 
+        SpanScope span = SpanScope.start(tracer, "ObfuscatorService.executeObfuscation")
+                .attribute(SpanScope.JOB_ID, jobId);
+        Path workDir = null;
+        runningJobs.add(jobId);
         try {
-            // Build command
-            List<String> command = buildCommand(job);
+            // Own working directory, so the mappings Skidfuscator writes belong to this job
+            workDir = fileStorage.createWorkDir(jobId);
+
+            // Build command on the pinned or current default engine
+            ChildJvmService.ChildJvmProfile profile;
+            List<String> command;
+            try (SpanScope ignored = SpanScope.start(tracer, "ObfuscatorService.buildCommand")) {
+                ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+                String engineId = engines.idFor(config != null ? config.getEngine() : null);
+                String enginePath = engines.pathFor(engineId);
+                metrics.setEngineId(engineId);
+
+                profile = childJvm.profileFor(enginePath, metrics.getInputBytes());
+                metrics.setJvmProfile(profile.name());
+                metrics.setCdsArchiveUsed(profile.cdsArchiveUsed());
+
+                command = buildCommand(enginePath, job.getInputPath(), job.getOutputPath(),
+                        writeConfig(config, workDir).toString(), profile);
+            }
             log.info("Executing: {}", String.join(" ", command));
 
             ProcessBuilder pb = new ProcessBuilder(command);
             pb.redirectErrorStream(true);
-            pb.directory(new File("."));
+            pb.directory(workDir.toFile());
 
-            Process process = pb.start();
+            progressService.start(jobId, metrics.getEstimatedMs());
+            int exitCode;
+            try (SpanScope processSpan = SpanScope.start(tracer, "skidfuscator process")) {
+                long processStart = System.nanoTime();
+                Process process;
+                try {
+                    process = children.start(pb, "Skidfuscator for job " + jobId);
+                } catch (IOException e) {
+                    // The drain began while the job was being prepared
+                    if (isDraining()) {
+                        handedOff.add(jobId);
+                    }
+                    throw e;
+                }
+                processes.put(jobId, process);
+                PeakRssSampler rss = PeakRssSampler.start(process);
 
-            // Capture output
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    logs.append(line).append("\n");
-                    log.debug("[Skidfuscator] {}", line);
+                // Capture output
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (metrics.getChildStartupMs() == null) {
+                            // First output line marks the end of JVM startup
+                            metrics.setChildStartupMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - processStart));
+                            processSpan.span().addEvent("first output");
+                        }
+                        pendingLogs.append(line).append("\n");
+                        progressService.accept(jobId, line);
+                        log.debug("[Skidfuscator] {}", line);
 
-                    // Update logs periodically
-                    if (logs.length() % 1000 == 0) {
-                        historyService.updateLogs(jobId, logs.toString());
+                        // Append new output to the event log periodically
+                        if (pendingLogs.length() >= LOG_FLUSH_CHARS
+                                || System.nanoTime() - lastFlush >= LOG_FLUSH_INTERVAL_NANOS) {
+                            flushLogs(jobId, pendingLogs);
+                            lastFlush = System.nanoTime();
+                        }
                     }
                 }
+
+                // Wait for completion with timeout
+                boolean completed = ChildProcessRegistry.waitFor(process, 10, TimeUnit.MINUTES);
+
+                if (!completed) {
+                    process.destroyForcibly();
+                    throw new RuntimeException("Obfuscation timed out after 10 minutes");
+                }
+
+                processes.remove(jobId);
+                exitCode = process.exitValue();
+                metrics.setSkidfuscatorMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - processStart));
+                rss.close();
+                metrics.setPeakRssBytes(rss.peakBytes());
+                metrics.setSkidfuscatorCpuMs(rss.cpuMillis());
+                processSpan.attribute("process.exit_code", exitCode)
+                        .attribute("neo.jvm.profile", profile.name());
+                if (metrics.getSkidfuscatorCpuMs() != null) {
+                    processSpan.attribute("process.cpu_ms", metrics.getSkidfuscatorCpuMs());
+                }
+                if (metrics.getPeakRssBytes() != null) {
+                    processSpan.attribute("process.peak_rss_bytes", metrics.getPeakRssBytes());
+                }
+                if (exitCode != 0) {
+                    processSpan.error("Skidfuscator exited with code: " + exitCode);
+                }
+                flushLogs(jobId, pendingLogs);
             }
 
-            // Wait for completion with timeout
-            boolean completed = process.waitFor(10, TimeUnit.MINUTES);
+            if (requeueIfHandedOff(jobId)) {
+                return;
+            }
 
-            if (!completed) {
-                process.destroyForcibly();
-                throw new RuntimeException("Obfuscation timed out after 10 minutes");
+            File outputFile = new File(job.getOutputPath());
+            if (exitCode == 0 && outputFile.exists()) {
+                metrics.setEngineOutputBytes(outputFile.length());
+                repackOutput(job, metrics);
+                storeMappings(jobId, workDir);
             }
+            if (outputFile.exists()) {
+                metrics.setOutputBytes(outputFile.length());
+            }
+            historyService.updateMetrics(jobId, metrics);
 
-            int exitCode = process.exitValue();
-            historyService.updateLogs(jobId, logs.toString());
+            // Coalesced followers share this run and are not charged
+            boolean succeeded = exitCode == 0 && outputFile.exists();
+            usage.record(job.getTenant(), !succeeded,
+                    metrics.getSkidfuscatorCpuMs() != null ? metrics.getSkidfuscatorCpuMs() : 0,
+                    metrics.getInputBytes(), metrics.getOutputBytes() != null ? metrics.getOutputBytes() : 0);
 
-            if (exitCode == 0 && new File(job.getOutputPath()).exists()) {
-                historyService.updateStatus(jobId, JobStatus.COMPLETED, null);
+            if (succeeded) {
+                fileStorage.publishOutput(job.getOutputPath());
+                updateStatusWithFollowers(jobId, JobStatus.COMPLETED, null);
+                runtimeEstimator.invalidate();
+                costModel.invalidate();
                 log.info("Obfuscation completed successfully for job: {}", jobId);
+                deltas.precompute(job);
+                queueBenchmark(job);
+                queueEngineTrial(job, metrics);
             } else {
                 String error = "Skidfuscator exited with code: " + exitCode;
-                historyService.updateStatus(jobId, JobStatus.FAILED, error);
+                updateStatusWithFollowers(jobId, JobStatus.FAILED, error);
                 log.error("Obfuscation failed for job: {} - {}", jobId, error);
             }
 
         } catch (Exception e) {
-            log.error("Obfuscation error for job: {}", jobId, e);
-            historyService.updateLogs(jobId, logs.toString());
-            historyService.updateStatus(jobId, JobStatus.FAILED, e.getMessage());
+            flushLogs(jobId, pendingLogs);
+            if (!requeueIfHandedOff(jobId)) {
+                log.error("Obfuscation error for job: {}", jobId, e);
+                span.error(e);
+                historyService.updateMetrics(jobId, metrics);
+                updateStatusWithFollowers(jobId, JobStatus.FAILED, e.getMessage());
+            }
+        } finally {
+            processes.remove(jobId);
+            if (workDir != null) {
+                BenchmarkService.deleteRecursively(workDir);
+            }
+            runningJobs.remove(jobId);
+            span.close();
+        }
+    }
+
+    /**
+     * Put a job stopped by a drain back in the queue.
+     *
+     * @return false if the job was not handed off
+     */
+    private boolean requeueIfHandedOff(String jobId) {
+        if (!handedOff.remove(jobId)) {
+            return false;
+        }
+        historyService.appendLogs(jobId, "Stopped by a shutdown, the job will run again after restart\n");
+        historyService.updateStatus(jobId, JobStatus.PENDING, null);
+        log.info("Handed off job {}, it runs again after the next start", jobId);
+        return true;
+    }
+
+    /**
+     * Index the mappings Skidfuscator wrote for a job. A job without usable
+     * mappings still completes; it just cannot be retraced.
+     */
+    private void storeMappings(String jobId, Path workDir) {
+        try {
+            int classes = mappingStore.compile(jobId, workDir.resolve("mappings"));
+            if (classes > 0) {
+                historyService.appendLogs(jobId, "Stored mappings for " + classes + " classes\n");
+            }
+        } catch (Exception e) {
+            log.warn("Could not store mappings for job: {}", jobId, e);
+            historyService.appendLogs(jobId, "Could not store mappings: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Run the optional repack stage on a job's output. Failures are logged to
+     * the job and leave Skidfuscator's output as it was.
+     */
+    private void repackOutput(ObfuscationJob job, JobMetrics metrics) {
+        ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+        if (!repackEnabled || config == null || !config.isRepack()) {
+            return;
+        }
+
+        try {
+            JarRepackService.RepackResult result = repackService.repack(Paths.get(job.getOutputPath()));
+            if (result.savedBytes() > 0) {
+                historyService.outputChanged(job.getId());
+            }
+            metrics.setRepackMs(result.elapsedMs());
+            metrics.setRepackSavedBytes(result.savedBytes());
+            historyService.appendLogs(job.getId(), String.format(
+                    "Repacked output: %d -> %d bytes in %d ms (%d duplicate entries, %d shared bodies, "
+                            + "%d debug bytes stripped)%n",
+                    result.originalBytes(), result.repackedBytes(), result.elapsedMs(), result.duplicateEntries(),
+                    result.sharedBodies(), result.strippedBytes()));
+            log.info("Repacked output for job: {} ({} bytes saved)", job.getId(), result.savedBytes());
+        } catch (Exception e) {
+            log.warn("Repack failed for job: {}", job.getId(), e);
+            historyService.appendLogs(job.getId(), "Repack failed, keeping original output: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Queue the optional runtime benchmark of a completed job. The download is
+     * available immediately; the report is added to the job when it finishes.
+     */
+    private void queueBenchmark(ObfuscationJob job) {
+        ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+        if (!benchmarkEnabled || config == null || !config.isBenchmark()) {
+            return;
+        }
+
+        historyService.updateBenchmark(job.getId(), BenchmarkReport.builder().status(JobStatus.PENDING).build());
+        try {
+            self.executeBenchmark(job.getId());
+        } catch (TaskRejectedException e) {
+            historyService.updateBenchmark(job.getId(), BenchmarkReport.builder()
+                    .status(JobStatus.FAILED)
+                    .error("Benchmark queue is full")
+                    .build());
+        }
+    }
+
+    /**
+     * Re-run a sampled share of completed jobs on the candidate engine, if
+     * one is set. Jobs pinned to an engine are not sampled.
+     */
+    private void queueEngineTrial(ObfuscationJob job, JobMetrics metrics) {
+        ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+        if (config == null || config.getEngine() != null) {
+            return;
+        }
+
+        engines.sampleCandidate(metrics.getEngineId()).ifPresent(candidate -> {
+            try {
+                self.executeEngineTrial(job.getId(), candidate.getId());
+            } catch (TaskRejectedException e) {
+                log.debug("Skipping engine trial for job {}: queue is full", job.getId());
+            }
+        });
+    }
+
+    /**
+     * Run a completed job again on a candidate engine and record both runs.
+     * The candidate's output is only measured, never delivered.
+     */
+    @Async("obfuscationExecutor")
+    public void executeEngineTrial(String jobId, String candidateId) {
+        Optional<ObfuscationJob> optJob = historyService.findSummaryById(jobId);
+        if (optJob.isEmpty() || optJob.get().getMetricsJson() == null || isDraining()) {
+            return;
+        }
+
+        ObfuscationJob job = optJob.get();
+        JobMetrics metrics = gson.fromJson(job.getMetricsJson(), JobMetrics.class);
+        EngineTrial trial = EngineTrial.builder()
+                .jobId(jobId)
+                .baselineEngineId(metrics.getEngineId())
+                .candidateEngineId(candidateId)
+                .createdAt(LocalDateTime.now())
+                .baselineMs(metrics.getSkidfuscatorMs())
+                .baselinePeakRssBytes(metrics.getPeakRssBytes())
+                .baselineOutputBytes(metrics.getEngineOutputBytes())
+                .build();
+        log.info("Starting engine trial for job: {} on {}", jobId, EngineRegistry.shortId(candidateId));
+
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory("neoguard-trial-");
+            Path output = workDir.resolve("output.jar");
+            String enginePath = engines.pathFor(candidateId);
+            // Same JVM profile as the baseline run, so only the engine differs
+            ChildJvmService.ChildJvmProfile profile = childJvm.profileFor(enginePath, metrics.getInputBytes());
+
+            Path configFile = writeConfig(gson.fromJson(job.getConfigJson(), ObfuscationConfig.class), workDir);
+
+            EngineRun run = runEngine(buildCommand(enginePath, job.getInputPath(), output.toString(),
+                    configFile.toString(), profile), workDir, "engine trial for job " + jobId);
+            usage.recordCpu(job.getTenant(), run.cpuMs());
+            trial.setCandidateMs(run.elapsedMs());
+            trial.setCandidatePeakRssBytes(run.peakRssBytes());
+            if (run.error() == null && Files.exists(output)) {
+                trial.setCandidateOutputBytes(Files.size(output));
+            } else {
+                trial.setError(run.error() != null ? run.error() : "No output produced");
+            }
+        } catch (Exception e) {
+            log.warn("Engine trial failed for job: {}", jobId, e);
+            trial.setError(e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        } finally {
+            if (workDir != null) {
+                BenchmarkService.deleteRecursively(workDir);
+            }
+        }
+
+        // A trial cut short by a shutdown says nothing about the engine
+        if (trial.getError() != null && isDraining()) {
+            log.info("Engine trial for job: {} was stopped by the shutdown and is not recorded", jobId);
+            return;
+        }
+        engines.recordTrial(trial);
+        log.info("Engine trial for job: {} took {} ms (baseline {} ms){}", jobId, trial.getCandidateMs(),
+                trial.getBaselineMs(), trial.getError() != null ? " and failed: " + trial.getError() : "");
+    }
+
+    /**
+     * Benchmark a completed job's output against its input, per transformer.
+     *
+     * Each enabled transformer is applied on its own in an extra Skidfuscator
+     * run so its cost can be isolated; the delivered JAR is measured as "all".
+     * Runs on its own executor so the extra runs never hold a job slot.
+     */
+    @Async("benchmarkExecutor")
+    public void executeBenchmark(String jobId) {
+        Optional<ObfuscationJob> optJob = historyService.findSummaryById(jobId);
+        if (optJob.isEmpty()) {
+            return;
+        }
+
+        // Left pending while draining; queued again after the next start
+        if (isDraining()) {
+            return;
+        }
+
+        ObfuscationJob job = optJob.get();
+        ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+        historyService.updateBenchmark(jobId, BenchmarkReport.builder().status(JobStatus.PROCESSING).build());
+        log.info("Starting runtime benchmark for job: {}", jobId);
+
+        long start = System.nanoTime();
+        AtomicLong cpuMs = new AtomicLong();
+        Path workDir = null;
+        try {
+            workDir = Files.createTempDirectory("neoguard-bench-");
+            // Variants run on the engine that produced the delivered JAR
+            JobMetrics metrics = job.getMetricsJson() != null
+                    ? gson.fromJson(job.getMetricsJson(), JobMetrics.class)
+                    : new JobMetrics();
+            String enginePath = engines.pathFor(metrics.getEngineId());
+            ChildJvmService.ChildJvmProfile profile = childJvm.profileFor(enginePath,
+                    new File(job.getInputPath()).length());
+
+            // Build one variant per transformer
+            Map<String, Path> variants = new LinkedHashMap<>();
+            Map<String, String> buildErrors = new LinkedHashMap<>();
+            List<String> transformers = config.enabledTransformers();
+            if (transformers.size() > 1) {
+                for (String transformer : transformers) {
+                    Path variantConfig = workDir.resolve(transformer + ".hocon");
+                    Path variantJar = workDir.resolve(transformer + ".jar");
+                    Files.writeString(variantConfig, config.onlyTransformer(transformer).toHocon());
+
+                    EngineRun run = runEngine(buildCommand(enginePath, job.getInputPath(), variantJar.toString(),
+                            variantConfig.toString(), profile), workDir, "benchmark variant for job " + jobId);
+                    cpuMs.addAndGet(run.cpuMs());
+                    String error = run.error();
+                    if (error == null && Files.exists(variantJar)) {
+                        variants.put(transformer, variantJar);
+                    } else {
+                        buildErrors.put(transformer, error != null ? error : "No output produced");
+                    }
+                }
+            }
+            variants.put("all", Paths.get(job.getOutputPath()));
+
+            String mainPackage = config.getMainPackage() != null ? config.getMainPackage() : "";
+            BenchmarkReport report = benchmarkService.measure(Paths.get(job.getInputPath()), variants, mainPackage,
+                    cpuMs);
+            List<BenchmarkReport.TransformerResult> failedVariants = new ArrayList<>();
+            buildErrors.forEach((transformer, error) -> failedVariants.add(
+                    BenchmarkReport.TransformerResult.builder().transformer(transformer).error(error).build()));
+            report.getTransformers().addAll(0, failedVariants);
+            report.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            report.setCpuMs(cpuMs.get());
+
+            historyService.updateBenchmark(jobId, report);
+            log.info("Runtime benchmark completed for job: {} ({} methods)", jobId, report.getMethodCount());
+
+        } catch (Exception e) {
+            if (isDraining()) {
+                log.info("Runtime benchmark for job: {} was stopped by the shutdown, it runs again after restart",
+                        jobId);
+                historyService.updateBenchmark(jobId, BenchmarkReport.builder().status(JobStatus.PENDING).build());
+                return;
+            }
+            log.error("Runtime benchmark failed for job: {}", jobId, e);
+            historyService.updateBenchmark(jobId, BenchmarkReport.builder()
+                    .status(JobStatus.FAILED)
+                    .error(e.getMessage())
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+                    .cpuMs(cpuMs.get())
+                    .build());
+        } finally {
+            usage.recordCpu(job.getTenant(), cpuMs.get());
+            if (workDir != null) {
+                BenchmarkService.deleteRecursively(workDir);
+            }
+        }
+    }
+
+    /**
+     * Result of a Skidfuscator run outside a job: null error on success.
+     */
+    private record EngineRun(String error, long elapsedMs, Long peakRssBytes, long cpuMs) {
+    }
+
+    /**
+     * Write a job's Skidfuscator config into its working directory. Generated
+     * from the stored config on every run, so queued, resumed and trial runs
+     * do not depend on files saved when the job was created.
+     */
+    private static Path writeConfig(ObfuscationConfig config, Path workDir) throws IOException {
+        Path configFile = workDir.resolve("config.hocon");
+        Files.writeString(configFile, config.toHocon());
+        return configFile;
+    }
+
+    /**
+     * Run Skidfuscator for a benchmark variant or engine trial.
+     */
+    private EngineRun runEngine(List<String> command, Path workDir, String purpose) throws Exception {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        pb.directory(workDir.toFile());
+        long start = System.nanoTime();
+        Process process = children.start(pb, purpose);
+        PeakRssSampler rss = PeakRssSampler.start(process);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                log.debug("[Skidfuscator] {}", line);
+            }
+        }
+
+        String error = null;
+        if (!ChildProcessRegistry.waitFor(process, 10, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            error = "Timed out after 10 minutes";
+        } else if (process.exitValue() != 0) {
+            error = "Skidfuscator exited with code: " + process.exitValue();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        rss.close();
+        return new EngineRun(error, elapsedMs, rss.peakBytes(), rss.cpuMillis() != null ? rss.cpuMillis() : 0);
+    }
+
+    private void flushLogs(String jobId, StringBuilder pendingLogs) {
+        if (pendingLogs.length() > 0) {
+            historyService.appendLogs(jobId, pendingLogs.toString());
+            pendingLogs.setLength(0);
         }
     }
 
     /**
      * Build the Skidfuscator command.
      */
-    private List<String> buildCommand(ObfuscationJob job) {
+    private List<String> buildCommand(String enginePath, String inputPath, String outputPath, String configPath,
+            ChildJvmService.ChildJvmProfile profile) {
         List<String> cmd = new ArrayList<>();
 
         // Java executable
-        cmd.add("java");
+        cmd.add(childJvm.javaExecutable());
 
-        // JVM args
-        cmd.add("-Xmx2G");
+        // JVM args (heap, GC, JIT and CDS from the size profile)
+        cmd.addAll(profile.jvmArgs());
         cmd.add("-Dterminal.jline=false");
         cmd.add("-Dterminal.ansi=true");
 
         // Skidfuscator JAR
         cmd.add("-jar");
-        cmd.add(getSkidfuscatorPath());
+        cmd.add(enginePath);
 
         // Command
         cmd.add("obfuscate");
 
         // Input file
-        cmd.add(job.getInputPath());
+        cmd.add(inputPath);
 
         // Output file
-        cmd.add("-o=" + job.getOutputPath());
+        cmd.add("-o=" + outputPath);
 
         // Config file
-        String configPath = fileStorage.getConfigPath(job.getId());
         cmd.add("-cfg=" + configPath);
 
         return cmd;
     }
 
     /**
-     * Get job status.
+     * Get job status. Followers of a coalesced job report their leader's logs
+     * and benchmark.
      */
     public Optional<ObfuscationJob> getJob(String jobId) {
-        return historyService.findById(jobId);
+        Optional<ObfuscationJob> job = historyService.findSummaryById(jobId);
+        job.ifPresent(j -> {
+            String sourceId = j.getLeaderId() != null ? j.getLeaderId() : jobId;
+            if (j.getLeaderId() != null) {
+                historyService.findSummaryById(sourceId)
+                        .ifPresent(leader -> j.setBenchmarkJson(leader.getBenchmarkJson()));
+            }
+            // Running jobs report their recent output; the full log is read once they finish
+            j.setLogs(progressService.tail(sourceId).orElseGet(() -> historyService.findLogs(sourceId)));
+        });
+        return job;
+    }
+
+    /**
+     * Get a job without its logs.
+     */
+    public Optional<ObfuscationJob> getJobSummary(String jobId) {
+        return historyService.findSummaryById(jobId);
+    }
+
+    /**
+     * Live progress of a job, or of the job it follows.
+     */
+    public Optional<JobProgress> getProgress(ObfuscationJob job) {
+        return progressService.snapshot(job.getLeaderId() != null ? job.getLeaderId() : job.getId());
+    }
+
+    /**
+     * Subscribe to live progress of a job, or of the job it follows.
+     */
+    public SseEmitter subscribeProgress(ObfuscationJob job) {
+        String sourceId = job.getLeaderId() != null ? job.getLeaderId() : job.getId();
+        SseEmitter emitter = progressService.subscribe(sourceId, job.getStatus());
+
+        // The job may have finished while subscribing
+        historyService.findSummaryById(sourceId)
+                .filter(j -> j.getStatus() == JobStatus.COMPLETED || j.getStatus() == JobStatus.FAILED)
+                .ifPresent(j -> progressService.finish(sourceId, j.getStatus()));
+        return emitter;
+    }
+
+    /**
+     * Get the lifecycle events of a job.
+     */
+    public List<JobEvent> getJobEvents(String jobId) {
+        return historyService.findEvents(jobId);
+    }
+
+    /**
+     * Get the per-phase timing breakdown of a job.
+     */
+    public Map<String, Long> getJobTiming(String jobId) {
+        return historyService.getTiming(jobId);
     }
 
     /**
@@ -276,6 +1015,14 @@ public class ObfuscatorService {
         return historyService.findRecent(limit);
     }
 
+    /**
+     * Version of the job history; also covers transformer costs, which are
+     * fitted from completed jobs.
+     */
+    public String getHistoryVersion() {
+        return historyService.version();
+    }
+
     /**
      * Get all jobs.
      */
@@ -284,29 +1031,32 @@ public class ObfuscatorService {
     }
 
     /**
-     * Get available transformers.
+     * Get available transformers with their cost multipliers fitted from
+     * completed jobs.
      */
     public List<TransformerInfo> getTransformers() {
         List<TransformerInfo> transformers = new ArrayList<>();
+        Map<String, TransformerCostModel.TransformerCost> costs = costModel.costs();
 
         transformers.add(new TransformerInfo("stringEncryption", "String Encryption",
-                "Encrypts all string literals to prevent static analysis", true));
+                "Encrypts all string literals to prevent static analysis", true, costs.get("stringEncryption")));
         transformers.add(new TransformerInfo("numberEncryption", "Number Encryption",
-                "Encrypts numeric constants for additional protection", true));
+                "Encrypts numeric constants for additional protection", true, costs.get("numberEncryption")));
         transformers.add(new TransformerInfo("flowCondition", "Flow Condition",
-                "Adds opaque predicates to obfuscate control flow", true));
+                "Adds opaque predicates to obfuscate control flow", true, costs.get("flowCondition")));
         transformers.add(new TransformerInfo("flowException", "Flow Exception",
-                "Uses exception handling to obscure program flow", true));
+                "Uses exception handling to obscure program flow", true, costs.get("flowException")));
         transformers.add(new TransformerInfo("flowRange", "Flow Range",
-                "Range-based flow obfuscation for complex logic", true));
+                "Range-based flow obfuscation for complex logic", true, costs.get("flowRange")));
         transformers.add(new TransformerInfo("flowSwitch", "Flow Switch",
-                "Switch-based flow flattening technique", true));
+                "Switch-based flow flattening technique", true, costs.get("flowSwitch")));
         transformers.add(new TransformerInfo("ahegao", "Ahegao Mode",
-                "Adds trolling elements to deter casual inspection", false));
+                "Adds trolling elements to deter casual inspection", false, costs.get("ahegao")));
 
         return transformers;
     }
 
-    public record TransformerInfo(String id, String name, String description, boolean defaultEnabled) {
+    public record TransformerInfo(String id, String name, String description, boolean defaultEnabled,
+            TransformerCostModel.TransformerCost cost) {
     }
 }
@@ -0,0 +1,95 @@
+package dev.neoobfuscator.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Tracks the peak resident set size and CPU time of a child process.
+ *
+ * Polls the kernel's high-water mark (VmHWM in /proc/[pid]/status) until the
+ * process exits or the sampler is closed. The last value read is the peak,
+ * since /proc entries disappear once the process is reaped. Reports no peak on
+ * platforms without procfs. CPU time is read the same way from the process
+ * handle, so up to one interval before exit goes uncounted. It includes the
+ * process's descendants, for commands started through a wrapper like sudo.
+ */
+final class PeakRssSampler implements AutoCloseable {
+
+    private static final long INTERVAL_MS = 100;
+
+    private final Process process;
+    private final Path status;
+    private final Thread thread;
+    private volatile long peakBytes = -1;
+    private volatile long cpuMillis = -1;
+    private volatile boolean closed;
+
+    private PeakRssSampler(Process process) {
+        this.process = process;
+        this.status = Paths.get("/proc", String.valueOf(process.pid()), "status");
+        this.thread = new Thread(this::run, "rss-sampler-" + process.pid());
+        this.thread.setDaemon(true);
+    }
+
+    static PeakRssSampler start(Process process) {
+        PeakRssSampler sampler = new PeakRssSampler(process);
+        sampler.thread.start();
+        return sampler;
+    }
+
+    /**
+     * Peak RSS in bytes, or null if it could not be read.
+     */
+    Long peakBytes() {
+        return peakBytes >= 0 ? peakBytes : null;
+    }
+
+    /**
+     * User and system CPU time in milliseconds, or null if it could not be read.
+     */
+    Long cpuMillis() {
+        return cpuMillis >= 0 ? cpuMillis : null;
+    }
+
+    private void run() {
+        while (!closed && process.isAlive()) {
+            sample();
+            try {
+                Thread.sleep(INTERVAL_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void sample() {
+        process.info().totalCpuDuration().map(Duration::toMillis).ifPresent(ms -> {
+            long descendants = process.descendants().mapToLong(child -> child.info().totalCpuDuration()
+                    .map(Duration::toMillis).orElse(0L)).sum();
+            cpuMillis = Math.max(cpuMillis, ms + descendants);
+        });
+        if (!Files.isReadable(status)) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    long kb = Long.parseLong(line.substring(6).trim().split("\\s+")[0]);
+                    peakBytes = Math.max(peakBytes, kb * 1024);
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // Process exited between checks
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
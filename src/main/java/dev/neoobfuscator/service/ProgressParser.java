@@ -0,0 +1,173 @@
+package dev.neoobfuscator.service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streaming parser for Skidfuscator's console output.
+ *
+ * Recognizes progress bars ("Transforming 45% ... 120/266"), numbered stage
+ * lines ("[2/5] Building hierarchy... 40%"), known phase names and transformer
+ * names, and turns them into the current phase, class counts, transformer and
+ * an overall completion fraction. Lines it does not understand are ignored.
+ * Not thread-safe; callers feed one job's lines from a single thread.
+ */
+final class ProgressParser {
+
+    private static final Pattern ANSI = Pattern.compile("\u001B\\[[;?\\d]*[A-Za-z]");
+
+    // "[2/5] Building hierarchy... 40%"
+    private static final Pattern STAGE = Pattern.compile("^\\[(\\d+)/(\\d+)]\\s*(.+?)(?:\\.{3}|:)?\\s*(?:(\\d{1,3})%)?$");
+
+    // "Transforming... 45% [====    ] 120/266 (0:00:02 / 0:00:03)"
+    private static final Pattern BAR = Pattern.compile("^(.*?)\\s*(\\d{1,3})%.*?\\b(\\d+)/(\\d+)\\b");
+
+    // "Running transformer: StringEncryption" or "FlowConditionTransformer"
+    private static final Pattern TRANSFORMER = Pattern.compile(
+            "(?i)(?:transformer[:\\s]+([A-Za-z][\\w-]*))|\\b([A-Z][A-Za-z]*)Transformer\\b");
+
+    /**
+     * Phases in the order Skidfuscator runs them, matched by keyword when the
+     * output does not number its stages.
+     */
+    private static final List<List<String>> PHASES = List.of(
+            List.of("import", "loading", "reading"),
+            List.of("resolv", "hierarch", "analy", "librar", "dependenc"),
+            List.of("transform", "obfuscat"),
+            List.of("writ", "dump", "export", "sav"));
+
+    private String phase;
+    private Integer phaseIndex;
+    private Integer phaseCount;
+    private String transformer;
+    private Long classesProcessed;
+    private Long classesTotal;
+    private Double phasePercent;
+
+    /**
+     * Feed one output line.
+     *
+     * @return true if the parsed progress changed
+     */
+    boolean accept(String rawLine) {
+        String line = ANSI.matcher(rawLine).replaceAll("").trim();
+        if (line.isEmpty()) {
+            return false;
+        }
+        boolean changed = false;
+
+        Matcher stage = STAGE.matcher(line);
+        Matcher bar = BAR.matcher(line);
+        if (stage.find()) {
+            changed |= enterPhase(stage.group(3), Integer.parseInt(stage.group(1)) - 1,
+                    Integer.parseInt(stage.group(2)));
+            if (stage.group(4) != null) {
+                phasePercent = Math.min(100, Double.parseDouble(stage.group(4)));
+                changed = true;
+            }
+        } else if (bar.find()) {
+            String label = bar.group(1);
+            if (!label.isEmpty()) {
+                changed |= enterPhase(label, null, null);
+            }
+            classesProcessed = Long.parseLong(bar.group(3));
+            classesTotal = Long.parseLong(bar.group(4));
+            phasePercent = Math.min(100, Double.parseDouble(bar.group(2)));
+            changed = true;
+        } else if (phaseCount == null && line.length() <= 80 && !isDiagnostic(line)) {
+            // Short status lines such as "Importing jar..." announce the next phase
+            Integer known = keywordPhase(line);
+            if (known != null && (phaseIndex == null || known > phaseIndex)) {
+                changed |= enterPhase(line, null, null);
+            }
+        }
+
+        Matcher named = TRANSFORMER.matcher(line);
+        if (named.find()) {
+            String name = named.group(1) != null ? named.group(1) : named.group(2);
+            if (!name.equalsIgnoreCase(transformer)) {
+                transformer = name;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private boolean enterPhase(String label, Integer index, Integer count) {
+        String name = label.replaceAll("[.:\\s]+$", "").replaceAll("^[^A-Za-z]+", "");
+        if (name.isEmpty() || name.equals(phase)) {
+            return false;
+        }
+
+        if (index != null) {
+            phaseIndex = index;
+            phaseCount = count;
+        } else {
+            Integer known = keywordPhase(name);
+            if (known != null && phaseCount == null) {
+                phaseIndex = known;
+            }
+        }
+        phase = name;
+        phasePercent = null;
+        classesProcessed = null;
+        classesTotal = null;
+        return true;
+    }
+
+    private static boolean isDiagnostic(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return lower.contains("error") || lower.contains("exception") || lower.contains("warn");
+    }
+
+    private static Integer keywordPhase(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < PHASES.size(); i++) {
+            for (String keyword : PHASES.get(i)) {
+                if (lower.contains(keyword)) {
+                    return i;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Overall completion in [0, 1], or null if nothing has been parsed yet.
+     * Each phase counts equally; progress within a phase comes from its bar.
+     */
+    Double fraction() {
+        if (phaseIndex == null) {
+            return null;
+        }
+        int count = phaseCount != null ? phaseCount : PHASES.size();
+        double within = phasePercent != null ? phasePercent / 100.0 : 0;
+        return Math.min(1.0, (phaseIndex + within) / count);
+    }
+
+    String phase() {
+        return phase;
+    }
+
+    Integer phaseIndex() {
+        return phaseIndex;
+    }
+
+    Integer phaseCount() {
+        return phaseCount != null ? phaseCount : phaseIndex != null ? PHASES.size() : null;
+    }
+
+    String transformer() {
+        return transformer;
+    }
+
+    Long classesProcessed() {
+        return classesProcessed;
+    }
+
+    Long classesTotal() {
+        return classesTotal;
+    }
+}
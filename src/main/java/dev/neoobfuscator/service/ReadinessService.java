@@ -0,0 +1,227 @@
+package dev.neoobfuscator.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Liveness and readiness of this node, and draining it on shutdown.
+ *
+ * Ready means new jobs are welcome: the node is not draining, the
+ * obfuscation queue is below its high-water mark, the upload directory has
+ * the minimum free space and a Skidfuscator JAR is present.
+ *
+ * On shutdown, before the web server stops, the node turns unready, refuses
+ * uploads and stops starting queued jobs and child JVMs, then waits for
+ * running jobs and child JVMs (benchmarks, engine trials, CDS training) up
+ * to the drain timeout. Children still running after that are stopped.
+ * Stopped jobs and benchmarks run again after the next start, with the queued
+ * ones; stopped engine trials are dropped.
+ */
+@Service
+public class ReadinessService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadinessService.class);
+
+    // Time given to job threads to record that their job was handed off
+    private static final long HAND_OFF_WAIT_SECONDS = 10;
+
+    private final ObfuscatorService obfuscatorService;
+    private final ChildProcessRegistry children;
+    private final EngineRegistry engines;
+    private final ThreadPoolTaskExecutor obfuscationExecutor;
+    private final ApplicationAvailability availability;
+    private final ApplicationEventPublisher events;
+
+    private volatile boolean running;
+
+    @Value("${neo.upload-dir:./uploads}")
+    private String uploadDir;
+
+    @Value("${neo.admission.min-free-disk-mb:512}")
+    private long minFreeDiskMb;
+
+    // Share of the queue capacity at which the node is saturated
+    @Value("${neo.admission.queue-high-water:0.9}")
+    private double queueHighWater;
+
+    @Value("${neo.shutdown.drain-timeout-seconds:120}")
+    private long drainTimeoutSeconds;
+
+    public ReadinessService(ObfuscatorService obfuscatorService, ChildProcessRegistry children,
+            EngineRegistry engines, @Qualifier("obfuscationExecutor") Executor executor,
+            ApplicationAvailability availability, ApplicationEventPublisher events) {
+        this.obfuscatorService = obfuscatorService;
+        this.children = children;
+        this.engines = engines;
+        this.obfuscationExecutor = executor instanceof ThreadPoolTaskExecutor pool ? pool : null;
+        this.availability = availability;
+        this.events = events;
+    }
+
+    /**
+     * Result of the readiness checks.
+     */
+    public record Readiness(boolean ready, Map<String, Object> checks) {
+    }
+
+    public boolean isLive() {
+        return availability.getLivenessState() == LivenessState.CORRECT;
+    }
+
+    public boolean isDraining() {
+        return obfuscatorService.isDraining();
+    }
+
+    public Readiness readiness() {
+        Map<String, Object> checks = new LinkedHashMap<>();
+        boolean started = availability.getReadinessState() == ReadinessState.ACCEPTING_TRAFFIC;
+        boolean draining = isDraining();
+        checks.put("started", started);
+        checks.put("draining", draining);
+
+        boolean saturated = queueSaturated();
+        Map<String, Object> queue = new LinkedHashMap<>();
+        if (obfuscationExecutor != null) {
+            queue.put("running", obfuscationExecutor.getActiveCount());
+            queue.put("queued", obfuscationExecutor.getQueueSize());
+            queue.put("capacity", obfuscationExecutor.getQueueCapacity());
+        }
+        queue.put("saturated", saturated);
+        queue.put("estimatedWaitSeconds", TimeUnit.MILLISECONDS.toSeconds(estimatedQueueWaitMs()));
+        checks.put("queue", queue);
+
+        long freeMb = freeDiskMb();
+        boolean diskOk = freeMb < 0 || freeMb >= minFreeDiskMb;
+        Map<String, Object> disk = new LinkedHashMap<>();
+        disk.put("freeMb", freeMb);
+        disk.put("minFreeMb", minFreeDiskMb);
+        disk.put("ok", diskOk);
+        checks.put("disk", disk);
+
+        boolean skidfuscator = Files.isRegularFile(Paths.get(engines.pathFor(null)));
+        checks.put("skidfuscator", skidfuscator);
+
+        return new Readiness(started && !draining && !saturated && diskOk && skidfuscator, checks);
+    }
+
+    /**
+     * Whether the obfuscation queue has reached its high-water mark.
+     */
+    public boolean queueSaturated() {
+        if (obfuscationExecutor == null) {
+            return false;
+        }
+        // Jobs only queue once the core threads are busy
+        long limit = Math.max(1, (long) Math.floor(obfuscationExecutor.getQueueCapacity() * queueHighWater));
+        return obfuscationExecutor.getQueueSize() >= limit;
+    }
+
+    /**
+     * Estimated time before a job submitted now starts, from the runtime
+     * estimates of the jobs ahead of it spread over the job threads.
+     */
+    public long estimatedQueueWaitMs() {
+        int workers = obfuscationExecutor != null ? Math.max(1, obfuscationExecutor.getCorePoolSize()) : 1;
+        // A job starts at once while a thread is idle
+        if (obfuscatorService.runningJobs() + obfuscatorService.queuedJobs() < workers) {
+            return 0;
+        }
+        return obfuscatorService.backlogMs() / workers;
+    }
+
+    /**
+     * Usable space of the upload directory in MB, or -1 if it cannot be read.
+     */
+    private long freeDiskMb() {
+        try {
+            Path dir = Paths.get(uploadDir).toAbsolutePath();
+            return Files.getFileStore(Files.exists(dir) ? dir : dir.getParent()).getUsableSpace() / (1024 * 1024);
+        } catch (IOException e) {
+            log.debug("Could not read free space of {}: {}", uploadDir, e.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Drain the node. Blocks until running jobs and child JVMs finish or are
+     * stopped.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        obfuscatorService.beginDrain();
+        AvailabilityChangeEvent.publish(events, this, ReadinessState.REFUSING_TRAFFIC);
+
+        int jobs = obfuscatorService.runningJobs();
+        int processes = children.runningCount();
+        if (jobs > 0 || processes > 0) {
+            log.info("Draining: waiting up to {} s for {} running jobs and {} child JVMs", drainTimeoutSeconds,
+                    jobs, processes);
+        }
+        if (awaitRunning(drainTimeoutSeconds) > 0) {
+            log.warn("Drain timeout reached, stopping {} running jobs and {} child JVMs",
+                    obfuscatorService.runningJobs(), children.runningCount());
+            obfuscatorService.handOffRunning();
+            children.stopAll(false);
+            if (awaitRunning(HAND_OFF_WAIT_SECONDS) > 0) {
+                children.stopAll(true);
+            }
+        }
+        log.info("Drained, no jobs running");
+    }
+
+    /**
+     * Wait for running jobs and child JVMs.
+     *
+     * @return how many of either are left
+     */
+    private int awaitRunning(long seconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int remaining;
+        while ((remaining = obfuscatorService.runningJobs() + children.runningCount()) > 0
+                && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return remaining;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Stops before the web server, which keeps serving status and downloads meanwhile
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JobMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates Skidfuscator runtime from class count and bytecode size.
+ * Fits a least-squares regression over the durations of recently completed
+ * jobs and falls back to a fixed heuristic until enough history exists.
+ *
+ * Estimates are shown with each job, drive its ETA until Skidfuscator
+ * reports progress, and add up to the queue wait used by admission.
+ */
+@Service
+public class RuntimeEstimator {
+
+    private static final Logger log = LoggerFactory.getLogger(RuntimeEstimator.class);
+
+    // Number of completed jobs used for the fit
+    private static final int SAMPLE_LIMIT = 500;
+
+    // Minimum samples before the regression replaces the heuristic
+    private static final int MIN_SAMPLES = 8;
+
+    // Small ridge term, relative to each feature's scale, keeps the fit solvable for similar jobs
+    private static final double RIDGE = 1e-6;
+
+    // Heuristic used without history: JVM + pipeline startup plus per-class cost
+    private static final double DEFAULT_BASE_MS = 4000;
+    private static final double DEFAULT_PER_CLASS_MS = 12;
+    private static final double DEFAULT_PER_KB_MS = 2;
+
+    private final HistoryService historyService;
+
+    private volatile Model model;
+
+    public RuntimeEstimator(HistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    /**
+     * Estimate the Skidfuscator runtime in milliseconds.
+     */
+    public long estimateMs(long classCount, long classBytes) {
+        Model current = model;
+        if (current == null) {
+            current = fit();
+            model = current;
+        }
+        double kb = classBytes / 1024.0;
+        double estimate = current.intercept + current.perClass * classCount + current.perKb * kb;
+        return Math.max(1000, Math.round(estimate));
+    }
+
+    /**
+     * Drop the fitted model so the next estimate includes newly completed jobs.
+     */
+    public void invalidate() {
+        model = null;
+    }
+
+    private Model fit() {
+        List<double[]> x = new ArrayList<>();
+        List<Double> y = new ArrayList<>();
+        // Features [1, classCount, classKb]
+        double[] sumSquares = new double[3];
+
+        for (JobMetrics m : historyService.findCompletedMetrics(SAMPLE_LIMIT)) {
+            if (m.getClassCount() == null || m.getClassBytes() == null || m.getSkidfuscatorMs() == null) {
+                continue;
+            }
+            double[] features = { 1.0, m.getClassCount(), m.getClassBytes() / 1024.0 };
+            for (int i = 0; i < 3; i++) {
+                sumSquares[i] += features[i] * features[i];
+            }
+            x.add(features);
+            y.add((double) m.getSkidfuscatorMs());
+        }
+
+        int n = x.size();
+        if (n < MIN_SAMPLES) {
+            return new Model(DEFAULT_BASE_MS, DEFAULT_PER_CLASS_MS, DEFAULT_PER_KB_MS, 0);
+        }
+
+        double[] penalty = new double[3];
+        for (int i = 0; i < 3; i++) {
+            penalty[i] = RIDGE * Math.max(1.0, sumSquares[i]);
+        }
+
+        double[] beta = LeastSquares.ridge(x, y, penalty);
+        if (beta == null || beta[1] < 0 || beta[2] < 0) {
+            // Degenerate fit (e.g. all jobs the same size): use the mean duration
+            return new Model(y.stream().mapToDouble(Double::doubleValue).sum() / n, 0, 0, n);
+        }
+
+        log.debug("Fitted runtime model from {} jobs: base={}ms perClass={}ms perKb={}ms",
+                n, Math.round(beta[0]), beta[1], beta[2]);
+        return new Model(beta[0], beta[1], beta[2], n);
+    }
+
+    private record Model(double intercept, double perClass, double perKb, int samples) {
+    }
+}
@@ -0,0 +1,251 @@
+package dev.neoobfuscator.service;
+
+import org.apache.commons.io.input.BoundedInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Artifact store on an S3-compatible object storage API (AWS S3, MinIO,
+ * Cloudflare R2, ...), spoken directly over HTTP with SigV4 signing.
+ *
+ * Files larger than the part size are uploaded with multipart upload, each
+ * part streamed from its slice of the file. Reads use ranged GETs and return
+ * the response body as a stream.
+ */
+public class S3ArtifactStore implements ArtifactStore {
+
+    private static final Logger log = LoggerFactory.getLogger(S3ArtifactStore.class);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+
+    // S3 rejects parts below 5 MB (except the last)
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final URI endpoint;
+    private final String bucket;
+    private final String prefix;
+    private final boolean pathStyle;
+    private final long partSize;
+    private final S3Signer signer;
+
+    /**
+     * @param endpoint  e.g. https://s3.eu-central-1.amazonaws.com or
+     *                  http://localhost:9000
+     * @param pathStyle address the bucket in the path (MinIO) instead of the
+     *                  host name
+     */
+    public S3ArtifactStore(String endpoint, String region, String bucket, String prefix, String accessKey,
+            String secretKey, boolean pathStyle, long partSize) {
+        this.endpoint = URI.create(endpoint.replaceAll("/+$", ""));
+        this.bucket = bucket;
+        this.prefix = prefix == null ? "" : prefix;
+        this.pathStyle = pathStyle;
+        this.partSize = Math.max(MIN_PART_SIZE, partSize);
+        this.signer = new S3Signer(accessKey, secretKey, region);
+    }
+
+    /**
+     * Create the bucket if it does not exist yet.
+     */
+    public void createBucketIfMissing() throws IOException {
+        HttpResponse<String> head = send("HEAD", bucketUri(""), HttpRequest.BodyPublishers.noBody());
+        if (head.statusCode() == 404) {
+            expect(send("PUT", bucketUri(""), HttpRequest.BodyPublishers.noBody()), "create bucket " + bucket);
+            log.info("Created bucket {}", bucket);
+        } else {
+            expect(head, "check bucket " + bucket);
+        }
+    }
+
+    @Override
+    public void put(String key, Path source) throws IOException {
+        long size = Files.size(source);
+        if (size <= partSize) {
+            expect(send("PUT", objectUri(key, ""), HttpRequest.BodyPublishers.ofFile(source)), "put " + key);
+            return;
+        }
+
+        String uploadId = createMultipartUpload(key);
+        try {
+            List<String> etags = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += partSize) {
+                long length = Math.min(partSize, size - offset);
+                etags.add(uploadPart(key, uploadId, etags.size() + 1, source, offset, length));
+            }
+            completeMultipartUpload(key, uploadId, etags);
+            log.debug("Uploaded {} in {} parts", key, etags.size());
+        } catch (IOException | RuntimeException e) {
+            abortMultipartUpload(key, uploadId);
+            throw e;
+        }
+    }
+
+    private String createMultipartUpload(String key) throws IOException {
+        HttpResponse<String> response = expect(send("POST", objectUri(key, "uploads="),
+                HttpRequest.BodyPublishers.noBody()), "start multipart upload of " + key);
+        Matcher matcher = UPLOAD_ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IOException("No upload ID in response for " + key);
+        }
+        return matcher.group(1);
+    }
+
+    private String uploadPart(String key, String uploadId, int partNumber, Path source, long offset, long length)
+            throws IOException {
+        // Each part streams from its slice of the file
+        HttpRequest.BodyPublisher slice = HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> openSlice(source, offset, length)), length);
+        String query = "partNumber=" + partNumber + "&uploadId=" + S3Signer.encode(uploadId, false);
+        HttpResponse<String> response = expect(send("PUT", objectUri(key, query), slice),
+                "upload part " + partNumber + " of " + key);
+        return response.headers().firstValue("ETag")
+                .orElseThrow(() -> new IOException("No ETag for part " + partNumber + " of " + key));
+    }
+
+    private void completeMultipartUpload(String key, String uploadId, List<String> etags) throws IOException {
+        StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+        for (int i = 0; i < etags.size(); i++) {
+            xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                    .append(etags.get(i).replace("&", "&amp;").replace("\"", "&quot;"))
+                    .append("</ETag></Part>");
+        }
+        xml.append("</CompleteMultipartUpload>");
+
+        HttpResponse<String> response = expect(send("POST",
+                objectUri(key, "uploadId=" + S3Signer.encode(uploadId, false)),
+                HttpRequest.BodyPublishers.ofString(xml.toString())), "complete multipart upload of " + key);
+        // Completion can fail after a 200 status line
+        if (response.body().contains("<Error>")) {
+            throw new IOException("Multipart upload of " + key + " failed: " + response.body());
+        }
+    }
+
+    private void abortMultipartUpload(String key, String uploadId) {
+        try {
+            send("DELETE", objectUri(key, "uploadId=" + S3Signer.encode(uploadId, false)),
+                    HttpRequest.BodyPublishers.noBody());
+        } catch (IOException e) {
+            log.warn("Could not abort multipart upload of {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static InputStream openSlice(Path source, long offset, long length) {
+        try {
+            FileChannel channel = FileChannel.open(source, StandardOpenOption.READ);
+            channel.position(offset);
+            return new BoundedInputStream(Channels.newInputStream(channel), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        URI uri = objectUri(key, "");
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).GET();
+        if (offset > 0 || length >= 0) {
+            builder.header("Range", "bytes=" + offset + "-" + (length >= 0 ? offset + length - 1 : ""));
+        }
+        signer.sign("GET", uri).forEach(builder::header);
+
+        HttpResponse<InputStream> response = execute(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status == 200 || status == 206) {
+            // A server that ignores Range answers 200 with the whole object
+            InputStream body = response.body();
+            if (status == 200 && offset > 0) {
+                body.skipNBytes(offset);
+            }
+            return status == 200 && length >= 0 ? new BoundedInputStream(body, length) : body;
+        }
+
+        try (InputStream body = response.body()) {
+            String error = new String(body.readNBytes(1024), StandardCharsets.UTF_8);
+            if (status == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("S3 get " + key + " failed with HTTP " + status + ": " + error);
+        }
+    }
+
+    @Override
+    public Optional<Long> size(String key) throws IOException {
+        HttpResponse<String> response = send("HEAD", objectUri(key, ""), HttpRequest.BodyPublishers.noBody());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        expect(response, "stat " + key);
+        return response.headers().firstValueAsLong("Content-Length").stream().boxed().findFirst();
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", objectUri(key, ""), HttpRequest.BodyPublishers.noBody());
+        if (response.statusCode() != 404) {
+            expect(response, "delete " + key);
+        }
+    }
+
+    private URI objectUri(String key, String query) {
+        return bucketUri(S3Signer.encode(prefix + key, true) + (query.isEmpty() ? "" : "?" + query));
+    }
+
+    private URI bucketUri(String pathAndQuery) {
+        String base = endpoint.toString();
+        if (pathStyle) {
+            return URI.create(base + "/" + bucket + "/" + pathAndQuery);
+        }
+        String host = endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority();
+        return URI.create(host + "/" + pathAndQuery);
+    }
+
+    private HttpResponse<String> send(String method, URI uri, HttpRequest.BodyPublisher body) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).method(method, body);
+        signer.sign(method, uri).forEach(builder::header);
+        return execute(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private <T> HttpResponse<T> execute(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return http.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during S3 request", e);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static HttpResponse<String> expect(HttpResponse<String> response, String action) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + action + " failed with HTTP " + response.statusCode() + ": "
+                    + response.body());
+        }
+        return response;
+    }
+}
@@ -0,0 +1,70 @@
+package dev.neoobfuscator.service;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+
+/**
+ * A span that is current until closed, for try-with-resources:
+ *
+ * <pre>
+ * try (SpanScope span = SpanScope.start(tracer, "HistoryService.create")) {
+ *     ...
+ * }
+ * </pre>
+ *
+ * Closing ends the span. With tracing disabled the tracer is a no-op and so
+ * is this.
+ */
+public final class SpanScope implements AutoCloseable {
+
+    // Attribute naming the job a span works on; the job's trace is found by it
+    public static final String JOB_ID = "neo.job.id";
+
+    private final Span span;
+    private final Scope scope;
+
+    private SpanScope(Span span) {
+        this.span = span;
+        this.scope = span.makeCurrent();
+    }
+
+    public static SpanScope start(Tracer tracer, String name) {
+        return new SpanScope(tracer.spanBuilder(name).startSpan());
+    }
+
+    public Span span() {
+        return span;
+    }
+
+    public SpanScope attribute(String key, String value) {
+        if (value != null) {
+            span.setAttribute(key, value);
+        }
+        return this;
+    }
+
+    public SpanScope attribute(String key, long value) {
+        span.setAttribute(key, value);
+        return this;
+    }
+
+    /**
+     * Mark the span failed.
+     */
+    public void error(Throwable e) {
+        span.recordException(e);
+        span.setStatus(StatusCode.ERROR, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+
+    public void error(String message) {
+        span.setStatus(StatusCode.ERROR, message);
+    }
+
+    @Override
+    public void close() {
+        scope.close();
+        span.end();
+    }
+}
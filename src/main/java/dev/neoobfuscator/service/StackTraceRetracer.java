@@ -0,0 +1,153 @@
+package dev.neoobfuscator.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites obfuscated stack traces line by line.
+ *
+ * Frames ("at cls.method(File:line)") get their class, method and line
+ * mapped; a frame whose line falls in several inlined ranges expands into one
+ * frame per range. Class names elsewhere (exception headers, "Caused by:")
+ * are mapped where they are known. Anything else passes through unchanged.
+ */
+final class StackTraceRetracer {
+
+    // Optional class loader/module prefix ("app//", "java.base/") before the class
+    private static final Pattern FRAME = Pattern.compile(
+            "^(\\s*at\\s+)((?:[^\\s(]*/)?)([^\\s(/]+)\\.([^\\s(.]+)\\(([^)]*)\\)(.*)$");
+    private static final Pattern CLASS_NAME = Pattern.compile(
+            "[A-Za-z_$][\\w$]*(?:\\.[A-Za-z_$][\\w$]*)+");
+    private static final Pattern SOURCE_LINE = Pattern.compile("^(.*):(\\d+)$");
+
+    private final MappingIndex index;
+
+    StackTraceRetracer(MappingIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * Retrace every line of the input, flushing after each batch the reader
+     * has buffered so output streams as input arrives.
+     *
+     * @return number of lines processed
+     */
+    long retrace(BufferedReader in, Writer out) throws IOException {
+        long lines = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            retraceLine(line, out);
+            lines++;
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.flush();
+        return lines;
+    }
+
+    void retraceLine(String line, Writer out) throws IOException {
+        Matcher frame = FRAME.matcher(line);
+        if (frame.matches()) {
+            retraceFrame(frame, out);
+        } else {
+            out.write(mapClassNames(line));
+            out.write('\n');
+        }
+    }
+
+    private void retraceFrame(Matcher frame, Writer out) throws IOException {
+        String prefix = frame.group(1) + frame.group(2);
+        String obfClass = frame.group(3);
+        String obfMethod = frame.group(4);
+        String source = frame.group(5);
+        String suffix = frame.group(6);
+
+        String originalClass = index.originalClass(obfClass);
+        if (originalClass == null) {
+            out.write(prefix + obfClass + "." + obfMethod + "(" + source + ")" + suffix);
+            out.write('\n');
+            return;
+        }
+
+        Matcher sourceLine = SOURCE_LINE.matcher(source);
+        int line = sourceLine.matches() ? Integer.parseInt(sourceLine.group(2)) : 0;
+        String file = sourceLine.matches() ? sourceLine.group(1) : source;
+        if (file.equals("SourceFile")) {
+            file = sourceFileName(originalClass);
+        }
+
+        List<MappingIndex.Method> candidates = index.methods(obfClass, obfMethod);
+        List<MappingIndex.Method> byLine = new ArrayList<>();
+        if (line > 0) {
+            for (MappingIndex.Method method : candidates) {
+                if (method.hasRange() && method.covers(line)) {
+                    byLine.add(method);
+                }
+            }
+        }
+
+        if (!byLine.isEmpty()) {
+            // Inlined frames, innermost first
+            for (MappingIndex.Method method : byLine) {
+                String owner = originalClass;
+                String name = method.name();
+                int dot = name.lastIndexOf('.');
+                if (dot > 0) {
+                    owner = name.substring(0, dot);
+                    name = name.substring(dot + 1);
+                }
+                String frameFile = owner.equals(originalClass) ? file : sourceFileName(owner);
+                out.write(prefix + owner + "." + name + "(" + frameFile + ":" + method.originalLine(line) + ")"
+                        + suffix);
+                out.write('\n');
+            }
+            return;
+        }
+
+        // No line information to tell overloads apart: list the distinct names
+        Set<String> names = new LinkedHashSet<>();
+        for (MappingIndex.Method method : candidates) {
+            names.add(method.name());
+        }
+        String method = names.isEmpty() ? obfMethod : String.join("|", names);
+        out.write(prefix + originalClass + "." + method + "(" + (line > 0 ? file + ":" + line : file) + ")"
+                + suffix);
+        out.write('\n');
+    }
+
+    private String mapClassNames(String line) {
+        Matcher matcher = CLASS_NAME.matcher(line);
+        StringBuilder sb = null;
+        int last = 0;
+        while (matcher.find()) {
+            String original = index.originalClass(matcher.group());
+            if (original == null) {
+                continue;
+            }
+            if (sb == null) {
+                sb = new StringBuilder(line.length() + 32);
+            }
+            sb.append(line, last, matcher.start()).append(original);
+            last = matcher.end();
+        }
+        if (sb == null) {
+            return line;
+        }
+        return sb.append(line, last, line.length()).toString();
+    }
+
+    // Outermost class name plus .java, the usual source file name
+    private static String sourceFileName(String className) {
+        String simple = className.substring(className.lastIndexOf('.') + 1);
+        int inner = simple.indexOf('$');
+        return (inner > 0 ? simple.substring(0, inner) : simple) + ".java";
+    }
+}
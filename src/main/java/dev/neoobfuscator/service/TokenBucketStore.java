@@ -0,0 +1,107 @@
+package dev.neoobfuscator.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory token buckets, one per key.
+ *
+ * Keys are spread over a fixed number of stripes, each a plain map guarded by
+ * its own lock, so callers with different keys rarely contend. Buckets refill
+ * continuously at their rate up to their burst size.
+ */
+final class TokenBucketStore {
+
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    TokenBucketStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Take one token from the key's bucket.
+     *
+     * @return 0 if a token was taken, otherwise the milliseconds until one is available
+     */
+    long tryAcquire(String key, double tokensPerSecond, int burst) {
+        long now = System.nanoTime();
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        synchronized (stripe) {
+            Bucket bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket(burst, now);
+                stripe.buckets.put(key, bucket);
+            } else {
+                bucket.tokens = Math.min(burst, bucket.tokensAt(now));
+                bucket.updatedNanos = now;
+            }
+            // Limits may have changed since the last call
+            bucket.tokensPerSecond = tokensPerSecond;
+            bucket.burst = burst;
+
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - bucket.tokens) / tokensPerSecond * 1000);
+        }
+    }
+
+    /**
+     * Drop buckets that have refilled completely. A missing bucket starts
+     * full, so this changes nothing for their keys.
+     *
+     * @return number of buckets kept
+     */
+    int evictFull() {
+        long now = System.nanoTime();
+        int kept = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Iterator<Bucket> it = stripe.buckets.values().iterator();
+                while (it.hasNext()) {
+                    Bucket bucket = it.next();
+                    if (bucket.tokensAt(now) >= bucket.burst) {
+                        it.remove();
+                    } else {
+                        kept++;
+                    }
+                }
+            }
+        }
+        return kept;
+    }
+
+    void remove(String key) {
+        Stripe stripe = stripes[Math.floorMod(key.hashCode(), STRIPES)];
+        synchronized (stripe) {
+            stripe.buckets.remove(key);
+        }
+    }
+
+    private static final class Stripe {
+        final Map<String, Bucket> buckets = new HashMap<>();
+    }
+
+    private static final class Bucket {
+        double tokens;
+        long updatedNanos;
+        double tokensPerSecond;
+        int burst;
+
+        Bucket(double tokens, long updatedNanos) {
+            this.tokens = tokens;
+            this.updatedNanos = updatedNanos;
+        }
+
+        double tokensAt(long nanos) {
+            return tokens + (nanos - updatedNanos) / (double) TimeUnit.SECONDS.toNanos(1) * tokensPerSecond;
+        }
+    }
+}
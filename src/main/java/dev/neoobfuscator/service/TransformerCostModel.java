@@ -0,0 +1,177 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JobMetrics;
+import dev.neoobfuscator.model.ObfuscationConfig;
+import dev.neoobfuscator.model.ObfuscationJob;
+import com.google.gson.Gson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-transformer cost model fitted from completed jobs.
+ *
+ * Fits log-linear models of Skidfuscator time, output size growth and peak
+ * child memory against input size and the enabled transformer set:
+ *
+ *   ln(cost) = a + b * ln(classKb + 1) + sum(c_t * enabled_t)
+ *
+ * so exp(c_t) is the multiplier a transformer applies to that cost. The
+ * transformer coefficients are ridge-shrunk towards 0 (multiplier 1), and a
+ * multiplier is only reported once enough jobs ran both with and without the
+ * transformer to tell its effect apart.
+ */
+@Service
+public class TransformerCostModel {
+
+    private static final Logger log = LoggerFactory.getLogger(TransformerCostModel.class);
+
+    public static final List<String> TRANSFORMERS = List.of("stringEncryption", "numberEncryption",
+            "flowCondition", "flowException", "flowRange", "flowSwitch", "ahegao");
+
+    // Number of completed jobs used for the fit
+    private static final int SAMPLE_LIMIT = 1000;
+
+    // Minimum samples for any fit
+    private static final int MIN_SAMPLES = 8;
+
+    // Minimum jobs with and without a transformer before its multiplier is reported
+    private static final int MIN_CONTRAST = 3;
+
+    // Shrinkage of transformer coefficients towards "no effect"
+    private static final double PRIOR_WEIGHT = 2.0;
+
+    private final HistoryService historyService;
+    private final Gson gson = new Gson();
+
+    private volatile Map<String, TransformerCost> costs;
+
+    public TransformerCostModel(HistoryService historyService) {
+        this.historyService = historyService;
+    }
+
+    /**
+     * Cost of each transformer, keyed by transformer ID.
+     */
+    public Map<String, TransformerCost> costs() {
+        Map<String, TransformerCost> current = costs;
+        if (current == null) {
+            current = fit();
+            costs = current;
+        }
+        return current;
+    }
+
+    /**
+     * Drop the fitted model so the next lookup includes newly completed jobs.
+     */
+    public void invalidate() {
+        costs = null;
+    }
+
+    private Map<String, TransformerCost> fit() {
+        List<Sample> samples = new ArrayList<>();
+        for (ObfuscationJob job : historyService.findCompletedRuns(SAMPLE_LIMIT)) {
+            ObfuscationConfig config = gson.fromJson(job.getConfigJson(), ObfuscationConfig.class);
+            JobMetrics metrics = gson.fromJson(job.getMetricsJson(), JobMetrics.class);
+            if (config != null && metrics != null && metrics.getInputBytes() != null) {
+                samples.add(new Sample(config, metrics));
+            }
+        }
+
+        double[] time = coefficients(samples, s -> s.metrics.getSkidfuscatorMs() != null
+                ? Math.log(Math.max(1, s.metrics.getSkidfuscatorMs())) : Double.NaN);
+        double[] size = coefficients(samples, s -> s.metrics.getOutputBytes() != null
+                && s.metrics.getInputBytes() > 0
+                ? Math.log((double) skidfuscatorOutputBytes(s.metrics) / s.metrics.getInputBytes()) : Double.NaN);
+        double[] memory = coefficients(samples, s -> s.metrics.getPeakRssBytes() != null
+                ? Math.log(s.metrics.getPeakRssBytes()) : Double.NaN);
+
+        Map<String, TransformerCost> result = new HashMap<>();
+        for (int t = 0; t < TRANSFORMERS.size(); t++) {
+            String transformer = TRANSFORMERS.get(t);
+            int enabled = (int) samples.stream().filter(s -> s.config.isTransformerEnabled(transformer)).count();
+            int disabled = samples.size() - enabled;
+            boolean identifiable = enabled >= MIN_CONTRAST && disabled >= MIN_CONTRAST;
+
+            result.put(transformer, new TransformerCost(
+                    identifiable ? multiplier(time, t) : null,
+                    identifiable ? multiplier(size, t) : null,
+                    identifiable ? multiplier(memory, t) : null,
+                    enabled, disabled));
+        }
+
+        log.debug("Fitted transformer cost model from {} jobs", samples.size());
+        return result;
+    }
+
+    /**
+     * Fit one cost; samples where the target is NaN are skipped.
+     *
+     * @return [intercept, size slope, transformer coefficients...], or null
+     */
+    private double[] coefficients(List<Sample> samples, ToDoubleFunction<Sample> target) {
+        List<double[]> x = new ArrayList<>();
+        List<Double> y = new ArrayList<>();
+
+        for (Sample sample : samples) {
+            double value = target.applyAsDouble(sample);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                continue;
+            }
+            long bytes = sample.metrics.getClassBytes() != null ? sample.metrics.getClassBytes()
+                    : sample.metrics.getInputBytes();
+            double[] features = new double[2 + TRANSFORMERS.size()];
+            features[0] = 1.0;
+            features[1] = Math.log(bytes / 1024.0 + 1);
+            for (int t = 0; t < TRANSFORMERS.size(); t++) {
+                features[2 + t] = sample.config.isTransformerEnabled(TRANSFORMERS.get(t)) ? 1.0 : 0.0;
+            }
+            x.add(features);
+            y.add(value);
+        }
+
+        if (x.size() < MIN_SAMPLES) {
+            return null;
+        }
+
+        double[] penalty = new double[2 + TRANSFORMERS.size()];
+        penalty[0] = 1e-6;
+        penalty[1] = 1e-6;
+        for (int t = 0; t < TRANSFORMERS.size(); t++) {
+            penalty[2 + t] = PRIOR_WEIGHT;
+        }
+        return LeastSquares.ridge(x, y, penalty);
+    }
+
+    /**
+     * Output size before the optional repack stage.
+     */
+    private long skidfuscatorOutputBytes(JobMetrics metrics) {
+        return metrics.getOutputBytes() + (metrics.getRepackSavedBytes() != null ? metrics.getRepackSavedBytes() : 0);
+    }
+
+    private Double multiplier(double[] coefficients, int transformer) {
+        if (coefficients == null) {
+            return null;
+        }
+        return Math.round(Math.exp(coefficients[2 + transformer]) * 100) / 100.0;
+    }
+
+    private record Sample(ObfuscationConfig config, JobMetrics metrics) {
+    }
+
+    /**
+     * Expected cost multipliers of enabling a transformer, all else equal.
+     * Multipliers are null until enough history exists.
+     */
+    public record TransformerCost(Double buildTimeMultiplier, Double sizeMultiplier, Double peakMemoryMultiplier,
+            int samplesEnabled, int samplesDisabled) {
+    }
+}
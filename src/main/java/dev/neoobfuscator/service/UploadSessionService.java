@@ -0,0 +1,327 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.JarAnalysis;
+import dev.neoobfuscator.model.ResumableUpload;
+import dev.neoobfuscator.model.StoredUpload;
+import dev.neoobfuscator.model.UploadSession;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Upload sessions: a JAR is uploaded and analyzed once, then obfuscated by
+ * reference as often as needed until the session expires.
+ *
+ * Large JARs can also be uploaded resumably in chunks (tus-style: create with
+ * the total length, PATCH at the current offset, HEAD to find the offset
+ * after a dropped connection). Chunks are written at their final position in
+ * the file and hashed as they arrive; the last chunk turns the upload into a
+ * session with the same ID.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+
+    // Prefix of session files in the upload directory
+    private static final String FILE_PREFIX = "upload-";
+
+    private final FileStorageService fileStorage;
+    private final JarAnalysisService jarAnalysis;
+
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Resumable> resumables = new ConcurrentHashMap<>();
+
+    @Value("${neo.uploads.session-ttl-minutes:60}")
+    private long sessionTtlMinutes;
+
+    @Value("${neo.uploads.resumable-max-size-mb:4096}")
+    private long resumableMaxSizeMb;
+
+    public UploadSessionService(FileStorageService fileStorage, JarAnalysisService jarAnalysis) {
+        this.fileStorage = fileStorage;
+        this.jarAnalysis = jarAnalysis;
+    }
+
+    /**
+     * Sessions do not survive a restart, so neither do their files.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        fileStorage.deleteUploads(FILE_PREFIX);
+    }
+
+    /**
+     * Store an uploaded JAR and analyze it.
+     */
+    public UploadSession create(MultipartFile file) throws IOException {
+        String id = UUID.randomUUID().toString();
+        return open(id, store(file, id));
+    }
+
+    private UploadSession open(String id, StoredUpload upload) throws IOException {
+        JarAnalysis analysis;
+        try (InputStream in = Files.newInputStream(Paths.get(upload.getPath()))) {
+            analysis = jarAnalysis.analyze(in);
+        } catch (IOException e) {
+            Files.deleteIfExists(Paths.get(upload.getPath()));
+            throw e;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        UploadSession session = UploadSession.builder()
+                .id(id)
+                .upload(upload)
+                .analysis(analysis)
+                .createdAt(now)
+                .expiresAt(now.plusMinutes(sessionTtlMinutes))
+                .build();
+        sessions.put(id, session);
+
+        log.info("Created upload session {} for {} ({} bytes)", id, upload.getOriginalFilename(), upload.getSize());
+        return session;
+    }
+
+    /**
+     * Store an uploaded JAR without opening a session. The caller deletes the
+     * file once jobs have been created from it.
+     */
+    public StoredUpload stage(MultipartFile file) throws IOException {
+        return store(file, UUID.randomUUID().toString());
+    }
+
+    private StoredUpload store(MultipartFile file, String id) throws IOException {
+        return fileStorage.storeUpload(file, FILE_PREFIX + id);
+    }
+
+    public long getResumableMaxBytes() {
+        return resumableMaxSizeMb * 1024 * 1024;
+    }
+
+    /**
+     * Start a resumable upload of a file with a known length.
+     */
+    public ResumableUpload createResumable(String originalFilename, long length) throws IOException {
+        if (length <= 0 || length > getResumableMaxBytes()) {
+            throw new IllegalArgumentException("Upload length must be between 1 and " + getResumableMaxBytes());
+        }
+        String id = UUID.randomUUID().toString();
+        Path path = fileStorage.newUploadPath(FILE_PREFIX + id, originalFilename);
+        Files.createFile(path);
+
+        Resumable resumable = new Resumable(id, originalFilename, path, length);
+        resumable.touch(sessionTtlMinutes);
+        resumables.put(id, resumable);
+        log.info("Started resumable upload {} for {} ({} bytes)", id, originalFilename, length);
+        return resumable.toModel();
+    }
+
+    /**
+     * Find an unexpired resumable upload, including one that has completed
+     * (its session is then set).
+     */
+    public Optional<ResumableUpload> findResumable(String id) {
+        Resumable resumable = resumables.get(id);
+        if (resumable != null && !resumable.expiresAt.isBefore(LocalDateTime.now())) {
+            return Optional.of(resumable.toModel());
+        }
+        return find(id).map(session -> ResumableUpload.builder()
+                .id(id)
+                .originalFilename(session.getUpload().getOriginalFilename())
+                .length(session.getUpload().getSize())
+                .offset(session.getUpload().getSize())
+                .expiresAt(session.getExpiresAt())
+                .session(session)
+                .build());
+    }
+
+    /**
+     * Append a chunk to a resumable upload. The bytes that arrive before the
+     * body ends or the connection drops are kept, so the client resumes from
+     * the offset reported by {@link #findResumable}.
+     *
+     * @param offset offset the client believes the upload is at
+     * @throws IllegalStateException    if the offset does not match or
+     *                                  another chunk is being written
+     * @throws IllegalArgumentException if the chunk runs past the declared
+     *                                  length or the finished file is not a JAR
+     */
+    public ResumableUpload appendChunk(String id, long offset, InputStream body) throws IOException {
+        Resumable resumable = resumables.get(id);
+        if (resumable == null) {
+            throw new IllegalStateException("Upload is not in progress");
+        }
+        if (!resumable.lock.tryLock()) {
+            throw new IllegalStateException("Another chunk is being written to this upload");
+        }
+        try {
+            if (offset != resumable.offset) {
+                throw new IllegalStateException("Upload is at offset " + resumable.offset + ", not " + offset);
+            }
+
+            byte[] buffer = new byte[64 * 1024];
+            try (FileChannel channel = FileChannel.open(resumable.path, StandardOpenOption.WRITE)) {
+                int n;
+                while ((n = body.read(buffer)) > 0) {
+                    if (resumable.offset + n > resumable.length) {
+                        throw new IllegalArgumentException("Chunk runs past the upload length");
+                    }
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk, resumable.offset + chunk.position());
+                    }
+                    resumable.digest.update(buffer, 0, n);
+                    resumable.offset += n;
+                }
+            } finally {
+                resumable.touch(sessionTtlMinutes);
+            }
+
+            if (resumable.offset == resumable.length) {
+                complete(resumable);
+            }
+            return findResumable(id).orElseThrow();
+        } finally {
+            resumable.lock.unlock();
+        }
+    }
+
+    private void complete(Resumable resumable) throws IOException {
+        StoredUpload upload = StoredUpload.builder()
+                .path(resumable.path.toString())
+                .originalFilename(resumable.originalFilename)
+                .size(resumable.length)
+                .sha256(HexFormat.of().formatHex(resumable.digest.digest()))
+                .build();
+        resumables.remove(resumable.id);
+        try {
+            open(resumable.id, upload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Upload is not a valid JAR: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancel a resumable upload and delete what has been written.
+     */
+    public boolean deleteResumable(String id) {
+        Resumable resumable = resumables.remove(id);
+        if (resumable == null) {
+            return delete(id);
+        }
+        try {
+            Files.deleteIfExists(resumable.path);
+        } catch (IOException e) {
+            log.warn("Could not delete resumable upload {}: {}", id, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Find an unexpired session.
+     */
+    public Optional<UploadSession> find(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null || session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    /**
+     * Delete a session and its file. Jobs created from it keep their own copy.
+     */
+    public boolean delete(String id) {
+        UploadSession session = sessions.remove(id);
+        if (session == null) {
+            return false;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(session.getUpload().getPath()));
+        } catch (IOException e) {
+            log.warn("Could not delete upload {}: {}", id, e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * Drop expired sessions every minute.
+     */
+    @Scheduled(fixedRate = 60000)
+    public void expireSessions() {
+        LocalDateTime now = LocalDateTime.now();
+        int expired = 0;
+        for (UploadSession session : sessions.values()) {
+            if (session.getExpiresAt().isBefore(now) && delete(session.getId())) {
+                expired++;
+            }
+        }
+        for (Resumable resumable : resumables.values()) {
+            if (resumable.expiresAt.isBefore(now) && !resumable.lock.isLocked() && deleteResumable(resumable.id)) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} upload sessions", expired);
+        }
+    }
+
+    /**
+     * Write state of a resumable upload. Chunks are only accepted at the
+     * current offset, so the digest sees the bytes in file order.
+     */
+    private static final class Resumable {
+
+        private final String id;
+        private final String originalFilename;
+        private final Path path;
+        private final long length;
+        private final MessageDigest digest = FileStorageService.sha256();
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long offset;
+        private volatile LocalDateTime expiresAt;
+
+        Resumable(String id, String originalFilename, Path path, long length) {
+            this.id = id;
+            this.originalFilename = originalFilename;
+            this.path = path;
+            this.length = length;
+        }
+
+        // Incomplete uploads expire after a period without new chunks
+        void touch(long ttlMinutes) {
+            expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes);
+        }
+
+        ResumableUpload toModel() {
+            return ResumableUpload.builder()
+                    .id(id)
+                    .originalFilename(originalFilename)
+                    .length(length)
+                    .offset(offset)
+                    .expiresAt(expiresAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package dev.neoobfuscator.service;
+
+import dev.neoobfuscator.model.TenantUsage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Accounts the child JVM CPU time and bytes each tenant's jobs use, per day:
+ * the job's Skidfuscator run, and the extra runs made for it by benchmarks
+ * and engine trials.
+ *
+ * Finished jobs add to in-memory counters, which are written to SQLite in
+ * one batch every few seconds rather than once per job.
+ */
+@Service
+public class UsageService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageService.class);
+
+    // Tenant of jobs submitted without an API key
+    public static final String ANONYMOUS = "anonymous";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Usage not yet written, keyed by tenant and day
+    private final Map<UsageKey, Delta> pending = new ConcurrentHashMap<>();
+
+    public UsageService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS tenant_usage (
+                        tenant TEXT NOT NULL,
+                        day TEXT NOT NULL,
+                        jobs INTEGER NOT NULL DEFAULT 0,
+                        failed_jobs INTEGER NOT NULL DEFAULT 0,
+                        cpu_ms INTEGER NOT NULL DEFAULT 0,
+                        input_bytes INTEGER NOT NULL DEFAULT 0,
+                        output_bytes INTEGER NOT NULL DEFAULT 0,
+                        PRIMARY KEY (tenant, day)
+                    )
+                """);
+    }
+
+    private record UsageKey(String tenant, LocalDate day) {
+    }
+
+    private record Delta(long jobs, long failedJobs, long cpuMs, long inputBytes, long outputBytes) {
+        Delta plus(Delta other) {
+            return new Delta(jobs + other.jobs, failedJobs + other.failedJobs, cpuMs + other.cpuMs,
+                    inputBytes + other.inputBytes, outputBytes + other.outputBytes);
+        }
+    }
+
+    /**
+     * Account one Skidfuscator run.
+     *
+     * @param tenant the job's tenant, null for anonymous jobs
+     */
+    public void record(String tenant, boolean failed, long cpuMs, long inputBytes, long outputBytes) {
+        UsageKey key = new UsageKey(tenant != null ? tenant : ANONYMOUS, LocalDate.now());
+        Delta delta = new Delta(1, failed ? 1 : 0, cpuMs, inputBytes, outputBytes);
+        pending.merge(key, delta, Delta::plus);
+    }
+
+    /**
+     * Account CPU time of extra child JVM runs made for a job, such as
+     * benchmark variants and forks, or engine trials. Not counted as a job.
+     *
+     * @param tenant the job's tenant, null for anonymous jobs
+     */
+    public void recordCpu(String tenant, long cpuMs) {
+        if (cpuMs <= 0) {
+            return;
+        }
+        UsageKey key = new UsageKey(tenant != null ? tenant : ANONYMOUS, LocalDate.now());
+        pending.merge(key, new Delta(0, 0, cpuMs, 0, 0), Delta::plus);
+    }
+
+    /**
+     * Write pending usage in one batch.
+     */
+    @Scheduled(fixedDelayString = "${neo.usage.flush-interval-ms:10000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // remove() hands over each entry atomically; later records start a new one
+        List<Object[]> rows = new ArrayList<>();
+        for (UsageKey key : new ArrayList<>(pending.keySet())) {
+            Delta delta = pending.remove(key);
+            if (delta != null) {
+                rows.add(new Object[] { key.tenant(), key.day().toString(), delta.jobs(), delta.failedJobs(),
+                        delta.cpuMs(), delta.inputBytes(), delta.outputBytes() });
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate("""
+                        INSERT INTO tenant_usage (tenant, day, jobs, failed_jobs, cpu_ms, input_bytes, output_bytes)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        ON CONFLICT (tenant, day) DO UPDATE SET
+                            jobs = jobs + excluded.jobs,
+                            failed_jobs = failed_jobs + excluded.failed_jobs,
+                            cpu_ms = cpu_ms + excluded.cpu_ms,
+                            input_bytes = input_bytes + excluded.input_bytes,
+                            output_bytes = output_bytes + excluded.output_bytes
+                    """, rows);
+        } catch (RuntimeException e) {
+            // Keep the usage for the next attempt
+            for (Object[] row : rows) {
+                pending.merge(new UsageKey((String) row[0], LocalDate.parse((String) row[1])),
+                        new Delta((long) row[2], (long) row[3], (long) row[4], (long) row[5], (long) row[6]),
+                        Delta::plus);
+            }
+            log.warn("Could not write tenant usage, will retry: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Daily usage between two days inclusive, including usage not yet written.
+     *
+     * @param tenant a single tenant, or null for all
+     */
+    public List<TenantUsage> find(String tenant, LocalDate from, LocalDate to) {
+        flush();
+        String sql = "SELECT * FROM tenant_usage WHERE day >= ? AND day <= ?"
+                + (tenant != null ? " AND tenant = ?" : "") + " ORDER BY day, tenant";
+        Object[] args = tenant != null
+                ? new Object[] { from.toString(), to.toString(), tenant }
+                : new Object[] { from.toString(), to.toString() };
+        return jdbcTemplate.query(sql, (rs, rowNum) -> TenantUsage.builder()
+                .tenant(rs.getString("tenant"))
+                .day(rs.getString("day"))
+                .jobs(rs.getLong("jobs"))
+                .failedJobs(rs.getLong("failed_jobs"))
+                .cpuSeconds(rs.getLong("cpu_ms") / 1000.0)
+                .inputBytes(rs.getLong("input_bytes"))
+                .outputBytes(rs.getLong("output_bytes"))
+                .build(), args);
+    }
+}
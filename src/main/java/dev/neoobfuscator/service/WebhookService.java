@@ -0,0 +1,531 @@
+package dev.neoobfuscator.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.neoobfuscator.model.JobStatus;
+import dev.neoobfuscator.model.ObfuscationJob;
+import dev.neoobfuscator.model.WebhookSubscription;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Notifies registered URLs when jobs complete or fail, so clients do not
+ * have to poll /api/status.
+ *
+ * Deliveries are POSTed as JSON by a small dispatcher pool with a bounded
+ * number of pending deliveries. Failed deliveries (network errors, 408, 429
+ * and 5xx) are retried with exponential backoff and jitter. Each request is
+ * signed with HMAC-SHA256 over "timestamp.body" using the subscription's
+ * secret, sent as {@code X-NeoGuard-Signature: t=<unix seconds>,v1=<hex>}.
+ *
+ * Webhook hosts are resolved on registration and again before each attempt;
+ * loopback, link-local, private and other internal addresses are refused
+ * unless neo.webhooks.allow-private-addresses is set.
+ */
+@Service
+public class WebhookService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookService.class);
+
+    public static final String EVENT_COMPLETED = "job.completed";
+    public static final String EVENT_FAILED = "job.failed";
+    public static final Set<String> EVENTS = Set.of(EVENT_COMPLETED, EVENT_FAILED);
+    private static final String EVENT_PING = "ping";
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HistoryService historyService;
+    private final ObjectMapper objectMapper;
+    private final SecureRandom random = new SecureRandom();
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService retryScheduler;
+
+    // Deliveries queued, in flight or waiting for a retry
+    private final AtomicInteger pending = new AtomicInteger();
+    private final int maxPending;
+
+    @Value("${neo.webhooks.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${neo.webhooks.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${neo.webhooks.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${neo.webhooks.timeout-seconds:10}")
+    private long timeoutSeconds;
+
+    @Value("${neo.webhooks.public-url:}")
+    private String publicUrl;
+
+    @Value("${neo.webhooks.allow-private-addresses:false}")
+    private boolean allowPrivateAddresses;
+
+    public WebhookService(JdbcTemplate jdbcTemplate, HistoryService historyService, ObjectMapper objectMapper,
+            @Value("${neo.webhooks.threads:2}") int threads,
+            @Value("${neo.webhooks.queue-capacity:1000}") int queueCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.historyService = historyService;
+        this.objectMapper = objectMapper;
+        this.maxPending = queueCapacity;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "Webhook-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Webhook-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("""
+                    CREATE TABLE IF NOT EXISTS webhooks (
+                        id TEXT PRIMARY KEY,
+                        url TEXT NOT NULL,
+                        secret TEXT NOT NULL,
+                        job_id TEXT,
+                        tenant TEXT,
+                        events TEXT NOT NULL,
+                        created_at TEXT,
+                        last_status INTEGER,
+                        last_error TEXT,
+                        last_delivery_at TEXT
+                    )
+                """);
+        List<String> columns = jdbcTemplate.query("PRAGMA table_info(webhooks)",
+                (rs, rowNum) -> rs.getString("name"));
+        if (!columns.contains("tenant")) {
+            jdbcTemplate.execute("ALTER TABLE webhooks ADD COLUMN tenant TEXT");
+        }
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_webhooks_job_id ON webhooks (job_id)");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Register a webhook.
+     *
+     * @param secret signing secret, or null to generate one
+     * @param jobId  job to notify about, or null for all jobs
+     * @param tenant tenant that registered it, or null
+     * @param events events to send, or null for all
+     * @return the subscription, including its secret
+     */
+    public WebhookSubscription register(String url, String secret, String jobId, String tenant,
+            Set<String> events) {
+        validateUrl(url);
+        Set<String> selected = events == null || events.isEmpty() ? EVENTS : events;
+        if (!EVENTS.containsAll(selected)) {
+            throw new IllegalArgumentException("Unknown webhook event; expected one of " + EVENTS);
+        }
+        if (secret == null || secret.isBlank()) {
+            byte[] bytes = new byte[32];
+            random.nextBytes(bytes);
+            secret = HexFormat.of().formatHex(bytes);
+        }
+
+        WebhookSubscription subscription = WebhookSubscription.builder()
+                .id(UUID.randomUUID().toString())
+                .url(url)
+                .secret(secret)
+                .jobId(jobId)
+                .tenant(tenant)
+                .events(new LinkedHashSet<>(selected))
+                .createdAt(LocalDateTime.now())
+                .build();
+        jdbcTemplate.update("INSERT INTO webhooks (id, url, secret, job_id, tenant, events, created_at) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                subscription.getId(), url, secret, jobId, tenant, String.join(",", selected),
+                subscription.getCreatedAt().format(FORMATTER));
+
+        // The job may have finished before the webhook was registered
+        if (jobId != null) {
+            historyService.findSummaryById(jobId)
+                    .filter(job -> job.getStatus() == JobStatus.COMPLETED || job.getStatus() == JobStatus.FAILED)
+                    .ifPresent(this::jobFinished);
+        }
+        return subscription;
+    }
+
+    /**
+     * @throws IllegalArgumentException unless the URL is absolute http(s) and
+     *                                  its host resolves to public addresses only
+     */
+    public void validateUrl(String url) {
+        URI uri;
+        try {
+            uri = URI.create(url);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid webhook URL");
+        }
+        if (uri.getHost() == null || !("http".equals(uri.getScheme()) || "https".equals(uri.getScheme()))) {
+            throw new IllegalArgumentException("Webhook URL must be an absolute http or https URL");
+        }
+        checkHost(uri.getHost());
+    }
+
+    /**
+     * Resolve a webhook host and refuse internal addresses, so webhooks
+     * cannot be used to reach services next to NeoGuard.
+     *
+     * @throws IllegalArgumentException if the host does not resolve or any
+     *                                  of its addresses is not public
+     */
+    private void checkHost(String host) {
+        if (allowPrivateAddresses) {
+            return;
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = InetAddress.getAllByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Webhook host cannot be resolved: " + host);
+        }
+        for (InetAddress address : addresses) {
+            if (isInternal(address)) {
+                throw new IllegalArgumentException("Webhook host resolves to a non-public address: " + host);
+            }
+        }
+    }
+
+    private static boolean isInternal(InetAddress address) {
+        if (address.isLoopbackAddress() || address.isLinkLocalAddress() || address.isSiteLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            int first = bytes[0] & 0xff;
+            int second = bytes[1] & 0xff;
+            // 0.0.0.0/8, carrier-grade NAT 100.64.0.0/10, 192.0.0.0/24, benchmarking 198.18.0.0/15, reserved
+            return first == 0 || first == 100 && (second & 0xc0) == 64 || first == 192 && second == 0
+                    && bytes[2] == 0 || first == 198 && (second & 0xfe) == 18 || first >= 240;
+        }
+        // Unique local fc00::/7, and site-local fec0::/10 in case it was not caught above
+        return (bytes[0] & 0xfe) == 0xfc || (bytes[0] & 0xff) == 0xfe && (bytes[1] & 0xc0) == 0xc0;
+    }
+
+    /**
+     * All registered webhooks, without secrets.
+     */
+    public List<WebhookSubscription> findAll() {
+        return withoutSecrets(jdbcTemplate.query(
+                "SELECT * FROM webhooks ORDER BY created_at DESC", SUBSCRIPTION_MAPPER));
+    }
+
+    /**
+     * Job webhooks registered by a tenant (null for callers without a key),
+     * without secrets.
+     */
+    public List<WebhookSubscription> findByTenant(String tenant) {
+        return withoutSecrets(jdbcTemplate.query(
+                "SELECT * FROM webhooks WHERE job_id IS NOT NULL AND tenant IS ? ORDER BY created_at DESC",
+                SUBSCRIPTION_MAPPER, tenant));
+    }
+
+    private static List<WebhookSubscription> withoutSecrets(List<WebhookSubscription> subscriptions) {
+        subscriptions.forEach(subscription -> subscription.setSecret(null));
+        return subscriptions;
+    }
+
+    public Optional<WebhookSubscription> findById(String id) {
+        return jdbcTemplate.query("SELECT * FROM webhooks WHERE id = ?", SUBSCRIPTION_MAPPER, id)
+                .stream().findFirst();
+    }
+
+    public boolean delete(String id) {
+        return jdbcTemplate.update("DELETE FROM webhooks WHERE id = ?", id) > 0;
+    }
+
+    /**
+     * Send a ping event to a webhook to check that it is reachable and
+     * verifies signatures.
+     */
+    public boolean ping(String id) {
+        Optional<WebhookSubscription> subscription = findById(id);
+        if (subscription.isEmpty()) {
+            return false;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("webhookId", id);
+        enqueue(subscription.get(), EVENT_PING, UUID.randomUUID().toString(), payload);
+        return true;
+    }
+
+    /**
+     * Queue notifications for a job that has completed or failed.
+     * Job-scoped webhooks are removed as they are notified, so each is sent
+     * at most once even when this races with registration.
+     */
+    public void jobFinished(String jobId) {
+        historyService.findSummaryById(jobId).ifPresent(this::jobFinished);
+    }
+
+    private void jobFinished(ObfuscationJob job) {
+        String event = job.getStatus() == JobStatus.COMPLETED ? EVENT_COMPLETED : EVENT_FAILED;
+        List<WebhookSubscription> subscriptions = jdbcTemplate.query(
+                "SELECT * FROM webhooks WHERE job_id = ? OR job_id IS NULL", SUBSCRIPTION_MAPPER, job.getId());
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> payload = jobPayload(job);
+        for (WebhookSubscription subscription : subscriptions) {
+            if (subscription.getJobId() != null
+                    && jdbcTemplate.update("DELETE FROM webhooks WHERE id = ?", subscription.getId()) == 0) {
+                continue;
+            }
+            if (!subscription.getEvents().contains(event)) {
+                continue;
+            }
+            // Stable per webhook and job, so receivers can drop duplicates
+            String deliveryId = UUID.nameUUIDFromBytes((subscription.getId() + ":" + job.getId() + ":" + event)
+                    .getBytes(StandardCharsets.UTF_8)).toString();
+            enqueue(subscription, event, deliveryId, payload);
+        }
+    }
+
+    private Map<String, Object> jobPayload(ObfuscationJob job) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("jobId", job.getId());
+        payload.put("status", job.getStatus().name());
+        payload.put("originalFilename", job.getOriginalFilename());
+        payload.put("createdAt", job.getCreatedAt() != null ? job.getCreatedAt().toString() : null);
+        payload.put("completedAt", job.getCompletedAt() != null ? job.getCompletedAt().toString() : null);
+        payload.put("errorMessage", job.getErrorMessage());
+        if (job.getStatus() == JobStatus.COMPLETED) {
+            payload.put("downloadUrl", publicUrl.replaceAll("/+$", "") + "/api/download/" + job.getId());
+        }
+        if (job.getLeaderId() != null) {
+            payload.put("coalescedWith", job.getLeaderId());
+        }
+        return payload;
+    }
+
+    private void enqueue(WebhookSubscription subscription, String event, String deliveryId,
+            Map<String, Object> data) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("event", event);
+        body.put("deliveryId", deliveryId);
+        body.put("timestamp", Instant.now().toString());
+        body.putAll(data);
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            log.error("Could not serialize webhook payload", e);
+            return;
+        }
+
+        if (pending.incrementAndGet() > maxPending) {
+            pending.decrementAndGet();
+            log.warn("Webhook queue full, dropping {} delivery {} to {}", event, deliveryId, subscription.getUrl());
+            return;
+        }
+        Delivery delivery = new Delivery(subscription.getId(), subscription.getUrl(), subscription.getSecret(),
+                event, deliveryId, json);
+        dispatcher.execute(() -> attempt(delivery, 1));
+    }
+
+    private void attempt(Delivery delivery, int attempt) {
+        Integer status = null;
+        String error = null;
+        long retryAfterMs = 0;
+        try {
+            // The host may resolve elsewhere than when it was registered
+            checkHost(URI.create(delivery.url()).getHost());
+        } catch (IllegalArgumentException e) {
+            log.warn("Webhook {} delivery {} to {} refused: {}", delivery.event(), delivery.deliveryId(),
+                    delivery.url(), e.getMessage());
+            finish(delivery, null, e.getMessage());
+            return;
+        }
+        try {
+            String timestamp = Long.toString(Instant.now().getEpochSecond());
+            HttpRequest request = HttpRequest.newBuilder(URI.create(delivery.url()))
+                    .timeout(Duration.ofSeconds(timeoutSeconds))
+                    .header("Content-Type", "application/json")
+                    .header("User-Agent", "NeoGuard-Webhooks")
+                    .header("X-NeoGuard-Event", delivery.event())
+                    .header("X-NeoGuard-Delivery", delivery.deliveryId())
+                    .header("X-NeoGuard-Attempt", Integer.toString(attempt))
+                    .header("X-NeoGuard-Signature", "t=" + timestamp + ",v1="
+                            + sign(delivery.secret(), timestamp, delivery.body()))
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(delivery.body()))
+                    .build();
+            HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+            status = response.statusCode();
+            if (status / 100 == 2) {
+                finish(delivery, status, null);
+                return;
+            }
+            error = "HTTP " + status;
+            retryAfterMs = response.headers().firstValue("Retry-After").map(WebhookService::retryAfterMs).orElse(0L);
+            if (status / 100 == 4 && status != 408 && status != 429) {
+                // The receiver rejected the request; sending it again will not help
+                log.warn("Webhook {} delivery {} to {} rejected with {}", delivery.event(), delivery.deliveryId(),
+                        delivery.url(), error);
+                finish(delivery, status, error);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(delivery, null, "Interrupted");
+            return;
+        } catch (IOException | IllegalArgumentException e) {
+            error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+        }
+
+        if (attempt >= maxAttempts) {
+            log.warn("Webhook {} delivery {} to {} failed after {} attempts: {}", delivery.event(),
+                    delivery.deliveryId(), delivery.url(), attempt, error);
+            finish(delivery, status, error);
+            return;
+        }
+
+        long delayMs = Math.max(backoffMs(attempt), Math.min(retryAfterMs, maxBackoffMs));
+        log.debug("Webhook delivery {} attempt {} failed ({}), retrying in {} ms", delivery.deliveryId(), attempt,
+                error, delayMs);
+        try {
+            retryScheduler.schedule(() -> dispatcher.execute(() -> attempt(delivery, attempt + 1)),
+                    delayMs, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // Shutting down
+            finish(delivery, status, error);
+        }
+    }
+
+    /**
+     * Parse Retry-After, given in seconds or as an HTTP date.
+     *
+     * @return the delay it asks for, or 0 if it cannot be parsed
+     */
+    static long retryAfterMs(String value) {
+        String trimmed = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(trimmed)) * 1000;
+        } catch (NumberFormatException e) {
+            // Not seconds; try the date form
+        }
+        try {
+            Instant until = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return Math.max(0, Duration.between(Instant.now(), until).toMillis());
+        } catch (DateTimeParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter: between half and all of
+     * initial * 2^(attempt - 1), capped.
+     */
+    private long backoffMs(int attempt) {
+        long base = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return base / 2 + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private void finish(Delivery delivery, Integer status, String error) {
+        pending.decrementAndGet();
+        try {
+            jdbcTemplate.update("UPDATE webhooks SET last_status = ?, last_error = ?, last_delivery_at = ? "
+                            + "WHERE id = ?",
+                    status, error, LocalDateTime.now().format(FORMATTER), delivery.webhookId());
+        } catch (RuntimeException e) {
+            log.debug("Could not record webhook delivery outcome: {}", e.getMessage());
+        }
+    }
+
+    private static String sign(String secret, String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    private static final RowMapper<WebhookSubscription> SUBSCRIPTION_MAPPER = (rs, rowNum) -> {
+        int lastStatus = rs.getInt("last_status");
+        boolean delivered = !rs.wasNull();
+        return WebhookSubscription.builder()
+                .id(rs.getString("id"))
+                .url(rs.getString("url"))
+                .secret(rs.getString("secret"))
+                .jobId(rs.getString("job_id"))
+                .tenant(rs.getString("tenant"))
+                .events(new LinkedHashSet<>(Arrays.asList(rs.getString("events").split(","))))
+                .createdAt(parseDateTime(rs.getString("created_at")))
+                .lastStatus(delivered ? lastStatus : null)
+                .lastError(rs.getString("last_error"))
+                .lastDeliveryAt(parseDateTime(rs.getString("last_delivery_at")))
+                .build();
+    };
+
+    private static LocalDateTime parseDateTime(String value) {
+        return value == null || value.isEmpty() ? null : LocalDateTime.parse(value, FORMATTER);
+    }
+
+    private record Delivery(String webhookId, String url, String secret, String event, String deliveryId,
+            byte[] body) {
+    }
+}
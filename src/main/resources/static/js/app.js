@@ -6,10 +6,18 @@
 // State Management
 // ===========================
 
+// Files at least this large are uploaded in resumable chunks
+const RESUMABLE_THRESHOLD = 32 * 1024 * 1024;
+const RESUMABLE_CHUNK_SIZE = 8 * 1024 * 1024;
+const RESUMABLE_MAX_RETRIES = 8;
+
 const state = {
     currentPage: 'home',
     selectedFile: null,
+    upload: null,
     currentJobId: null,
+    estimatedSeconds: null,
+    completedShown: false,
     pollingInterval: null
 };
 
@@ -61,6 +69,9 @@ const elements = {
     flowException: document.getElementById('flowException'),
     flowRange: document.getElementById('flowRange'),
     flowSwitch: document.getElementById('flowSwitch'),
+    hotMethodProfile: document.getElementById('hotMethodProfile'),
+    repack: document.getElementById('repack'),
+    benchmark: document.getElementById('benchmark'),
 
     // Progress Modal
     progressModal: document.getElementById('progressModal'),
@@ -70,6 +81,8 @@ const elements = {
     progressFooter: document.getElementById('progressFooter'),
     closeProgress: document.getElementById('closeProgress'),
     downloadResult: document.getElementById('downloadResult'),
+    benchmarkResult: document.getElementById('benchmarkResult'),
+    benchmarkOutput: document.getElementById('benchmarkOutput'),
 
     // Toast Container
     toastContainer: document.getElementById('toastContainer')
@@ -182,32 +195,100 @@ function handleFileSelection(file) {
     // Reset file input
     elements.fileInput.value = '';
 
-    // Auto-detect main package
-    detectMainPackage(file);
+    // Upload once; the server detects the main package
+    state.upload = uploadFile(file);
 }
 
-async function detectMainPackage(file) {
+async function uploadFile(file) {
     try {
-        const formData = new FormData();
-        formData.append('file', file);
-
-        const response = await fetch('/api/analyze', {
-            method: 'POST',
-            body: formData
-        });
+        let data;
+        if (file.size >= RESUMABLE_THRESHOLD) {
+            data = await uploadResumable(file);
+        } else {
+            const formData = new FormData();
+            formData.append('file', file);
+
+            const response = await fetch('/api/uploads', {
+                method: 'POST',
+                body: formData
+            });
+            data = await response.json();
+        }
 
-        const data = await response.json();
+        if (!data.success) {
+            elements.mainPackage.placeholder = 'com.example.yourProject';
+            return null;
+        }
 
-        if (data.success && data.mainPackage) {
+        if (data.mainPackage) {
             elements.mainPackage.value = data.mainPackage;
             elements.mainPackage.placeholder = 'com.example.yourProject';
             showToast('success', `Detected package: ${data.mainPackage}`);
         } else {
             elements.mainPackage.placeholder = 'com.example.yourProject';
         }
+        return data.uploadId;
     } catch (error) {
-        console.error('Package detection error:', error);
+        console.error('Upload error:', error);
         elements.mainPackage.placeholder = 'com.example.yourProject';
+        return null;
+    }
+}
+
+/**
+ * Upload a large file in chunks, resuming from the server's offset after a
+ * failed chunk. Resolves to the upload session once the last chunk lands.
+ */
+async function uploadResumable(file) {
+    const createResponse = await fetch('/api/uploads/resumable?filename=' + encodeURIComponent(file.name), {
+        method: 'POST',
+        headers: { 'Upload-Length': String(file.size), 'Tus-Resumable': '1.0.0' }
+    });
+    const created = await createResponse.json();
+    if (!created.success) {
+        return created;
+    }
+
+    const url = '/api/uploads/resumable/' + created.uploadId;
+    let offset = 0;
+    let retries = 0;
+    while (true) {
+        try {
+            const response = await fetch(url, {
+                method: 'PATCH',
+                headers: {
+                    'Content-Type': 'application/offset+octet-stream',
+                    'Upload-Offset': String(offset),
+                    'Tus-Resumable': '1.0.0'
+                },
+                body: file.slice(offset, offset + RESUMABLE_CHUNK_SIZE)
+            });
+            if (response.status === 200) {
+                return await response.json();
+            }
+            if (response.status !== 204) {
+                throw new Error('HTTP ' + response.status);
+            }
+            offset = Number(response.headers.get('Upload-Offset'));
+            retries = 0;
+            elements.mainPackage.placeholder = `Uploading... ${Math.floor(offset * 100 / file.size)}%`;
+        } catch (error) {
+            if (++retries > RESUMABLE_MAX_RETRIES) {
+                throw error;
+            }
+            await new Promise(resolve => setTimeout(resolve, Math.min(30000, 1000 * 2 ** retries)));
+            // Resume from whatever the server has
+            const head = await fetch(url, { method: 'HEAD' }).catch(() => null);
+            if (head && head.ok) {
+                offset = Number(head.headers.get('Upload-Offset'));
+                if (offset === file.size) {
+                    // The last chunk landed but its response was lost
+                    return await (await fetch('/api/uploads/' + created.uploadId)).json();
+                }
+            } else if (head && head.status === 404) {
+                throw error;
+            }
+        }
     }
 }
 
@@ -287,7 +368,9 @@ async function startObfuscation() {
         flowCondition: elements.flowCondition.checked,
         flowException: elements.flowException.checked,
         flowRange: elements.flowRange.checked,
-        flowSwitch: elements.flowSwitch.checked
+        flowSwitch: elements.flowSwitch.checked,
+        repack: elements.repack.checked,
+        benchmark: elements.benchmark.checked
     };
 
     // Close file modal and show progress modal
@@ -300,12 +383,22 @@ async function startObfuscation() {
     elements.progressStatus.className = 'progress-status';
     elements.logOutput.innerHTML = '<span class="log-line">Starting obfuscation...</span>';
     elements.progressFooter.style.display = 'none';
+    elements.benchmarkResult.style.display = 'none';
+    state.completedShown = false;
 
     try {
-        // Create form data
+        // Reuse the upload session, or send the file if the upload failed
+        const uploadId = state.upload ? await state.upload : null;
         const formData = new FormData();
-        formData.append('file', state.selectedFile);
+        if (uploadId) {
+            formData.append('uploadId', uploadId);
+        } else {
+            formData.append('file', state.selectedFile);
+        }
         formData.append('config', JSON.stringify(config));
+        if (elements.hotMethodProfile.files.length) {
+            formData.append('profile', elements.hotMethodProfile.files[0]);
+        }
 
         // Upload and start obfuscation
         const response = await fetch('/api/obfuscate', {
@@ -320,9 +413,16 @@ async function startObfuscation() {
         }
 
         state.currentJobId = data.jobId;
+        state.estimatedSeconds = data.estimatedSeconds || null;
         elements.progressFill.style.width = '20%';
         elements.progressStatus.textContent = 'Obfuscation in progress...';
         addLogLine('Job created: ' + data.jobId);
+        if (data.hotMethods) {
+            addLogLine(`Hot methods exempted from flow obfuscation: ${data.hotMethods.length}`);
+        }
+        if (state.estimatedSeconds) {
+            addLogLine(`Estimated time: ~${formatDuration(state.estimatedSeconds)}`);
+        }
 
         // Start polling for status
         startPolling();
@@ -372,28 +472,39 @@ async function checkJobStatus() {
                 break;
 
             case 'PROCESSING':
-                elements.progressFill.style.width = '60%';
-                elements.progressStatus.textContent = 'Processing...';
+                renderProgress(data.progress);
                 break;
 
             case 'COMPLETED':
+                // Keep polling while a requested benchmark is still running
+                renderBenchmark(data.benchmark);
+                if (!data.benchmark || ['COMPLETED', 'FAILED'].includes(data.benchmark.status)) {
+                    stopPolling();
+                }
+                if (state.completedShown) {
+                    return;
+                }
+                state.completedShown = true;
+
                 elements.progressFill.style.width = '100%';
                 elements.progressStatus.textContent = 'Obfuscation complete!';
                 elements.progressStatus.classList.add('success');
+                if (data.logs) {
+                    updateLogs(data.logs);
+                }
                 addLogLine('Obfuscation completed successfully!', 'success');
 
                 // Show download button
                 elements.progressFooter.style.display = 'flex';
                 elements.downloadResult.style.display = 'flex';
 
-                stopPolling();
                 showToast('success', 'Obfuscation completed successfully!');
 
                 // Auto-download the obfuscated file
                 setTimeout(() => {
                     window.location.href = `/api/download/${state.currentJobId}`;
                 }, 500);
-                break;
+                return;
 
             case 'FAILED':
                 elements.progressFill.style.width = '100%';
@@ -420,6 +531,71 @@ async function checkJobStatus() {
     }
 }
 
+function renderProgress(progress) {
+    if (!progress || progress.percent == null) {
+        elements.progressFill.style.width = '40%';
+        elements.progressStatus.textContent = state.estimatedSeconds
+            ? `Processing... (estimated ~${formatDuration(state.estimatedSeconds)})`
+            : 'Processing...';
+        return;
+    }
+
+    // Map parsed completion onto the part of the bar after queueing
+    elements.progressFill.style.width = `${Math.round(30 + progress.percent * 0.65)}%`;
+
+    let text = progress.phase || 'Processing';
+    if (progress.classesTotal) {
+        text += ` (${progress.classesProcessed}/${progress.classesTotal} classes)`;
+    }
+    if (progress.transformer) {
+        text += ` - ${progress.transformer}`;
+    }
+    if (progress.etaSeconds != null) {
+        text += `, ~${formatDuration(progress.etaSeconds)} left`;
+    }
+    elements.progressStatus.textContent = text;
+}
+
+function renderBenchmark(benchmark) {
+    if (!benchmark) {
+        elements.benchmarkResult.style.display = 'none';
+        return;
+    }
+
+    elements.benchmarkResult.style.display = 'block';
+    const lines = [];
+
+    if (benchmark.status === 'PENDING' || benchmark.status === 'PROCESSING') {
+        lines.push({ text: 'Benchmarking obfuscated output...' });
+    } else if (benchmark.status === 'FAILED') {
+        lines.push({ text: 'Benchmark failed: ' + (benchmark.error || 'Unknown error'), type: 'error' });
+    } else {
+        lines.push({ text: `${benchmark.methodCount} methods measured` });
+        (benchmark.transformers || []).forEach(t => {
+            if (t.error) {
+                lines.push({ text: `${t.transformer}: ${t.error}`, type: 'error' });
+            } else if (!t.methods) {
+                lines.push({ text: `${t.transformer}: no comparable methods` });
+            } else {
+                const throughput = `${t.throughputChangePct > 0 ? '+' : ''}${t.throughputChangePct}% throughput`;
+                const allocation = t.allocationChangePct != null
+                    ? `, ${t.allocationChangePct > 0 ? '+' : ''}${t.allocationChangePct}% allocation`
+                    : '';
+                lines.push({ text: `${t.transformer}: ${throughput}${allocation}`,
+                    type: t.throughputChangePct < -10 ? 'error' : 'success' });
+            }
+        });
+    }
+
+    elements.benchmarkOutput.innerHTML = '';
+    lines.forEach(({ text, type }) => {
+        const line = document.createElement('span');
+        line.className = `log-line ${type || ''}`;
+        line.textContent = text;
+        elements.benchmarkOutput.appendChild(line);
+    });
+}
+
 function addLogLine(message, type = '') {
     const line = document.createElement('span');
     line.className = `log-line ${type}`;
@@ -554,6 +730,13 @@ function formatFileSize(bytes) {
     return parseFloat((bytes / Math.pow(k, i)).toFixed(2)) + ' ' + sizes[i];
 }
 
+function formatDuration(seconds) {
+    if (seconds < 60) return `${seconds}s`;
+    const minutes = Math.floor(seconds / 60);
+    const rest = seconds % 60;
+    return rest ? `${minutes}m ${rest}s` : `${minutes}m`;
+}
+
 function formatDate(dateString) {
     if (!dateString) return '-';
     try {
@@ -45,22 +45,35 @@ fi
 echo "  Starting NeoGuard..."
 echo ""
 
-# Determine JAR file location
-if [ -f "neoguard.jar" ]; then
-    JAR_FILE="neoguard.jar"
-elif [ -f "target/neo-guard-1.0.0.jar" ]; then
-    JAR_FILE="target/neo-guard-1.0.0.jar"
+# Runtime image from tools/jlink/build-runtime.sh: trimmed JRE, unpacked
+# application and its CDS archive. Otherwise the JAR on the java in PATH.
+RUNTIME_DIR="${RUNTIME_DIR:-}"
+if [ -n "${RUNTIME_DIR}" ] && [ -f "${RUNTIME_DIR}/app/classpath.args" ]; then
+    JAVA="${RUNTIME_DIR}/jre/bin/java"
+    LAUNCH="@${RUNTIME_DIR}/app/classpath.args"
+    if [ -f "${RUNTIME_DIR}/app.jsa" ]; then
+        LAUNCH="-XX:SharedArchiveFile=${RUNTIME_DIR}/app.jsa -Xshare:auto ${LAUNCH}"
+    fi
 else
-    echo "  ERROR: Could not find NeoGuard JAR file!"
-    exit 1
+    # Determine JAR file location
+    if [ -f "neoguard.jar" ]; then
+        JAR_FILE="neoguard.jar"
+    elif [ -f "target/neo-guard-1.0.0.jar" ]; then
+        JAR_FILE="target/neo-guard-1.0.0.jar"
+    else
+        echo "  ERROR: Could not find NeoGuard JAR file!"
+        exit 1
+    fi
+    JAVA="java"
+    LAUNCH="-jar ${JAR_FILE}"
 fi
 
 # Start the application with proper JVM settings
-exec java \
+exec ${JAVA} \
     -Xms128M \
     -Xmx${MAX_MEMORY} \
     -Dterminal.jline=false \
     -Dterminal.ansi=true \
     ${JAVA_OPTS} \
-    -jar ${JAR_FILE} \
+    ${LAUNCH} \
     --server.port=${SERVER_PORT}
@@ -0,0 +1,333 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Client for NeoGuard delta downloads.
+ *
+ * A server holding build N can fetch build N+1 as a delta against N, so the
+ * transfer scales with what changed rather than with the JAR. The rebuilt
+ * file is checked against the SHA-256 the delta carries before it replaces
+ * anything.
+ *
+ * Usage:
+ *   java DeltaPatch.java apply BASE.jar PATCH.delta OUT.jar
+ *   java DeltaPatch.java fetch --url=http://localhost:8080 --job=NEW_JOB_ID
+ *       --since=BASE_JOB_ID --base=BASE.jar --out=OUT.jar [--key=API_KEY]
+ *
+ * fetch writes the full output when the server sends one instead of a delta
+ * (the base job is gone, the delta would not be smaller or is still being
+ * computed), and downloads it when a delta does not rebuild the build exactly.
+ */
+public class DeltaPatch {
+
+    private static final byte[] MAGIC = "NEODELTA".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+    private static final String DELTA_BASE_HEADER = "X-Delta-Base";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 4 && args[0].equals("apply")) {
+            apply(Paths.get(args[1]), Paths.get(args[2]), Paths.get(args[3]));
+            System.out.println("Wrote " + args[3]);
+        } else if (args.length > 0 && args[0].equals("fetch")) {
+            fetch(options(args));
+        } else {
+            System.err.println("Usage: java DeltaPatch.java apply BASE.jar PATCH.delta OUT.jar");
+            System.err.println("       java DeltaPatch.java fetch --url=URL --job=ID --since=BASE_ID"
+                    + " --base=BASE.jar --out=OUT.jar [--key=API_KEY]");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Rebuild the target of a delta from its base. OUT is written through a
+     * temporary file, so it may be the base itself.
+     */
+    static void apply(Path base, Path patch, Path out) throws IOException {
+        Path temp = Files.createTempFile(out.toAbsolutePath().getParent(), ".patch-", ".tmp");
+        try (FileChannel baseChannel = FileChannel.open(base, StandardOpenOption.READ);
+                DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(new GZIPInputStream(Files.newInputStream(patch)), 64 * 1024))) {
+
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION) {
+                throw new IOException("Not a NeoGuard delta, or an unsupported version");
+            }
+            long baseLength = in.readLong();
+            byte[] baseSha256 = in.readNBytes(32);
+            long targetLength = in.readLong();
+            byte[] targetSha256 = in.readNBytes(32);
+
+            if (baseChannel.size() != baseLength || !Arrays.equals(sha256(baseChannel), baseSha256)) {
+                throw new IOException("Base file does not match the delta's base build");
+            }
+
+            MessageDigest digest = newSha256();
+            long written = 0;
+            try (OutputStream target = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                byte[] buffer = new byte[64 * 1024];
+                while (true) {
+                    int op = in.read();
+                    if (op == 'E') {
+                        break;
+                    } else if (op == 'C') {
+                        long offset = in.readLong();
+                        long length = in.readLong();
+                        copyRange(baseChannel, offset, length, target, buffer);
+                        written += length;
+                    } else if (op == 'D') {
+                        byte[] entry = rebuildEntry(baseEntry(baseChannel, in), in);
+                        target.write(entry);
+                        written += entry.length;
+                    } else if (op == 'A') {
+                        int length = in.readInt();
+                        long remaining = length;
+                        while (remaining > 0) {
+                            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                            if (n < 0) {
+                                throw new EOFException("Truncated delta");
+                            }
+                            target.write(buffer, 0, n);
+                            remaining -= n;
+                        }
+                        written += length;
+                    } else {
+                        throw new IOException(op < 0 ? "Truncated delta" : "Unknown delta op " + op);
+                    }
+                }
+            }
+
+            if (written != targetLength || !Arrays.equals(digest.digest(), targetSha256)) {
+                throw new IOException("Rebuilt file does not match the target checksum");
+            }
+            Files.move(temp, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * The base entry a 'D' op starts from, inflated.
+     */
+    private static byte[] baseEntry(FileChannel baseChannel, DataInputStream in) throws IOException {
+        long offset = in.readLong();
+        long length = in.readLong();
+        if (offset < 0 || length < 0 || length > Integer.MAX_VALUE || offset + length > baseChannel.size()) {
+            throw new IOException("Delta copies outside the base file");
+        }
+        ByteBuffer compressed = ByteBuffer.allocate((int) length);
+        while (compressed.hasRemaining()) {
+            if (baseChannel.read(compressed, offset + compressed.position()) < 0) {
+                throw new EOFException("Unexpected end of base file");
+            }
+        }
+        return inflate(compressed.array());
+    }
+
+    /**
+     * Rest of a 'D' op: the target entry's content rebuilt from the base
+     * entry's, then deflated as it was in the target.
+     */
+    private static byte[] rebuildEntry(byte[] base, DataInputStream in) throws IOException {
+        int level = in.readInt();
+        int size = in.readInt();
+        if (size < 0) {
+            throw new IOException("Corrupt delta");
+        }
+        byte[] content = new byte[size];
+        int position = 0;
+        while (true) {
+            int op = in.read();
+            if (op == 'e') {
+                break;
+            } else if (op != 'c' && op != 'a') {
+                throw new IOException(op < 0 ? "Truncated delta" : "Unknown delta op " + op);
+            }
+            int from = op == 'c' ? in.readInt() : 0;
+            int length = in.readInt();
+            if (length < 0 || position + length > size) {
+                throw new IOException("Corrupt delta");
+            }
+            if (op == 'c') {
+                if (from < 0 || from + length > base.length) {
+                    throw new IOException("Delta copies outside the base entry");
+                }
+                System.arraycopy(base, from, content, position, length);
+            } else {
+                in.readFully(content, position, length);
+            }
+            position += length;
+        }
+        if (position != size) {
+            throw new IOException("Corrupt delta");
+        }
+
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(size / 2 + 64);
+            byte[] buffer = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[64 * 1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Base entry is not valid deflate data");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Base entry is not valid deflate data", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void fetch(Map<String, String> options) throws IOException, InterruptedException {
+        String url = require(options, "url").replaceAll("/+$", "") + "/api/download/" + require(options, "job");
+        Path base = Paths.get(require(options, "base"));
+        Path out = Paths.get(require(options, "out"));
+
+        Path download = Files.createTempFile(out.toAbsolutePath().getParent(), ".download-", ".tmp");
+        try {
+            HttpResponse<Path> response = get(url + "?since=" + require(options, "since"), options, download);
+            long bytes = Files.size(download);
+            if (response.headers().firstValue(DELTA_BASE_HEADER).isPresent()) {
+                try {
+                    apply(base, download, out);
+                    System.out.println("Applied " + bytes + " byte delta, wrote " + out + " (" + Files.size(out)
+                            + " bytes)");
+                    return;
+                } catch (IOException e) {
+                    // e.g. this JDK's zlib deflates an entry differently from the server's
+                    System.out.println("Delta did not apply (" + e.getMessage() + "), fetching the full build");
+                }
+                get(url, options, download);
+                bytes = Files.size(download);
+            } else {
+                // The server may still be computing the delta; the next fetch gets it
+                System.out.println("Server sent the full build");
+            }
+            Files.move(download, out, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Wrote " + out + " (" + bytes + " bytes)");
+        } finally {
+            Files.deleteIfExists(download);
+        }
+    }
+
+    private static HttpResponse<Path> get(String url, Map<String, String> options, Path file)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        if (options.containsKey("key")) {
+            request.header("X-Api-Key", options.get("key"));
+        }
+        HttpResponse<Path> response = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build()
+                .send(request.build(), HttpResponse.BodyHandlers.ofFile(file));
+        if (response.statusCode() != 200) {
+            throw new IOException("Download failed with HTTP " + response.statusCode());
+        }
+        return response;
+    }
+
+    private static void copyRange(FileChannel channel, long offset, long length, OutputStream out, byte[] buffer)
+            throws IOException {
+        long end = offset + length;
+        if (offset < 0 || end > channel.size()) {
+            throw new IOException("Delta copies outside the base file");
+        }
+        while (offset < end) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, (int) Math.min(buffer.length, end - offset));
+            int n = channel.read(bytes, offset);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of base file");
+            }
+            out.write(buffer, 0, n);
+            offset += n;
+        }
+    }
+
+    private static byte[] sha256(FileChannel channel) throws IOException {
+        MessageDigest digest = newSha256();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        while (true) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                return digest.digest();
+            }
+            digest.update(buffer.flip());
+            position += n;
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--") && args[i].contains("=")) {
+                int eq = args[i].indexOf('=');
+                options.put(args[i].substring(2, eq), args[i].substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static String require(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null || value.isEmpty()) {
+            System.err.println("Missing --" + name + "=");
+            System.exit(2);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,93 @@
+#!/bin/bash
+
+# ================================
+# Builds the NeoGuard runtime image
+# ================================
+# Usage: build-runtime.sh APP_JAR OUT_DIR [SKIDFUSCATOR_JAR]
+#
+#   OUT_DIR/jre      jlink runtime with only the modules NeoGuard and
+#                    Skidfuscator use, and a CDS archive of its own classes
+#   OUT_DIR/app      NeoGuard unpacked into plain JARs; start with
+#                    `java @OUT_DIR/app/classpath.args`
+#   OUT_DIR/app.jsa  CDS archive of the classes loaded while NeoGuard starts
+#
+# Skidfuscator child JVMs run on the same runtime. Their CDS archive is built
+# by NeoGuard on first start, on top of the runtime's own.
+#
+# Needs a JDK (jlink, jdeps, jar) of the Java version to ship. app.jsa is
+# only valid with OUT_DIR at this path: build where the image will run.
+# Used by the Dockerfile and `mvn -Pjlink package`.
+
+set -e
+
+if [ -z "$1" ] || [ -z "$2" ]; then
+    echo "Usage: $0 APP_JAR OUT_DIR [SKIDFUSCATOR_JAR]" >&2
+    exit 2
+fi
+
+APP_JAR="$(cd "$(dirname "$1")" && pwd)/$(basename "$1")"
+mkdir -p "$2"
+OUT="$(cd "$2" && pwd)"
+SKIDFUSCATOR_JAR="$3"
+BIN="${JAVA_HOME:+$JAVA_HOME/bin/}"
+
+# Loaded reflectively or as service providers, so invisible to jdeps:
+# TLS key exchange (S3, webhooks), extra charsets, JNDI (Tomcat), zip file systems
+EXTRA_MODULES="jdk.crypto.ec,jdk.charsets,java.naming,jdk.zipfs"
+
+rm -rf "$OUT/jre" "$OUT/app" "$OUT/app.jsa"
+mkdir -p "$OUT/app"
+(cd "$OUT/app" && "${BIN}jar" -xf "$APP_JAR")
+
+echo "Resolving modules..."
+MODULES=$("${BIN}jdeps" --print-module-deps --ignore-missing-deps --multi-release 17 -q \
+    --class-path "$OUT/app/BOOT-INF/lib/*" "$OUT/app/BOOT-INF/classes" "$OUT"/app/BOOT-INF/lib/*.jar)
+if [ -n "$SKIDFUSCATOR_JAR" ] && [ -f "$SKIDFUSCATOR_JAR" ]; then
+    MODULES="$MODULES,$("${BIN}jdeps" --print-module-deps --ignore-missing-deps --multi-release 17 -q \
+        "$SKIDFUSCATOR_JAR")"
+else
+    echo "  No Skidfuscator JAR given, only NeoGuard's modules are included"
+fi
+MODULES=$(echo "$MODULES,$EXTRA_MODULES" | tr ',' '\n' | grep -v '^$' | sort -u | paste -sd, -)
+echo "  $MODULES"
+
+"${BIN}jlink" \
+    --add-modules "$MODULES" \
+    --strip-debug \
+    --no-man-pages \
+    --no-header-files \
+    --compress=2 \
+    --output "$OUT/jre"
+
+# Default CDS archive of the runtime's classes; dynamic archives build on it
+"$OUT/jre/bin/java" -Xshare:dump > /dev/null
+
+# CDS only accepts JARs on the classpath, so the application classes are
+# packed into one; the Spring Boot launcher is not needed
+MAIN_CLASS=$(sed -n 's/^Start-Class: *//p' "$OUT/app/META-INF/MANIFEST.MF" | tr -d '\r')
+"${BIN}jar" --create --file "$OUT/app/neoguard.jar" -C "$OUT/app/BOOT-INF/classes" .
+rm -rf "$OUT/app/BOOT-INF/classes" "$OUT/app/org"
+
+# Classpath in the order Spring Boot would use, plus the main class
+CLASSPATH="$OUT/app/neoguard.jar"
+for lib in $(sed -n 's/^- "\(.*\)"/\1/p' "$OUT/app/BOOT-INF/classpath.idx"); do
+    CLASSPATH="$CLASSPATH:$OUT/app/$lib"
+done
+printf -- '-cp %s\n%s\n' "$CLASSPATH" "$MAIN_CLASS" > "$OUT/app/classpath.args"
+
+# Training start: refresh the context, record the loaded classes, exit
+echo "Training the application CDS archive..."
+TRAIN_DIR=$(mktemp -d)
+(
+    cd "$TRAIN_DIR"
+    mkdir -p data
+    JVM_CDS_ENABLED=false "$OUT/jre/bin/java" \
+        -XX:ArchiveClassesAtExit="$OUT/app.jsa" \
+        -Dspring.context.exit=onRefresh \
+        @"$OUT/app/classpath.args" \
+        --server.port=0 > "$TRAIN_DIR/train.log" 2>&1
+) || { grep -v '\[cds\]' "$TRAIN_DIR/train.log" | tail -40 >&2; rm -rf "$TRAIN_DIR"; exit 1; }
+rm -rf "$TRAIN_DIR"
+
+echo "Runtime: $(du -sh "$OUT/jre" | cut -f1), application archive: $(du -sh "$OUT/app.jsa" | cut -f1)"
+echo "Built $OUT"
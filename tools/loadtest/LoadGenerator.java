@@ -0,0 +1,375 @@
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Open-loop load generator for the NeoGuard HTTP API.
+ *
+ * Starts jobs at a fixed rate regardless of how fast earlier ones finish, and
+ * drives each through upload, status polling and download. Reports p50/p99
+ * latency per request type, end-to-end job time and completed jobs per
+ * minute.
+ *
+ * Usage: java LoadGenerator.java --jar=app.jar [--url=http://localhost:8080]
+ * [--rate=30] [--duration=60] [--mode=direct|session] [--poll-ms=1000]
+ * [--config={...}] [--unique=true] [--timeout=600] [--webhook=PORT]
+ *
+ * --rate is jobs started per minute, --duration and --timeout are seconds.
+ * With --unique (the default) every job gets a distinct JAR so identical
+ * submissions are not coalesced into one Skidfuscator run. With --webhook,
+ * jobs are not polled: a receiver on PORT waits for each job's completion
+ * webhook and checks its signature.
+ */
+public final class LoadGenerator {
+
+    private static final Pattern JOB_ID = Pattern.compile("\"jobId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern UPLOAD_ID = Pattern.compile("\"uploadId\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern STATUS = Pattern.compile("\"status\"\\s*:\\s*\"([A-Z_]+)\"");
+    private static final Pattern SIGNATURE = Pattern.compile("t=(\\d+),v1=([0-9a-f]+)");
+
+    private final String url;
+    private final byte[] jar;
+    private final String jarName;
+    private final boolean sessions;
+    private final boolean unique;
+    private final String config;
+    private final long pollMs;
+    private final long timeoutS;
+    private final int webhookPort;
+    private final String webhookSecret = UUID.randomUUID().toString();
+    private final Map<String, CompletableFuture<String>> webhookStatus = new ConcurrentHashMap<>();
+    private final AtomicInteger badSignatures = new AtomicInteger();
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    private LoadGenerator(Map<String, String> options) throws IOException {
+        Path jarPath = Paths.get(required(options, "jar"));
+        this.url = options.getOrDefault("url", "http://localhost:8080").replaceAll("/+$", "");
+        this.jar = Files.readAllBytes(jarPath);
+        this.jarName = jarPath.getFileName().toString();
+        this.sessions = options.getOrDefault("mode", "direct").equals("session");
+        this.unique = Boolean.parseBoolean(options.getOrDefault("unique", "true"));
+        this.config = options.getOrDefault("config", "{}");
+        this.pollMs = Long.parseLong(options.getOrDefault("poll-ms", "1000"));
+        this.timeoutS = Long.parseLong(options.getOrDefault("timeout", "600"));
+        this.webhookPort = Integer.parseInt(options.getOrDefault("webhook", "0"));
+        for (String name : List.of("upload", "submit", "status", "download", "job")) {
+            recorders.put(name, new Recorder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.err.println("Invalid argument: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        double rate = Double.parseDouble(options.getOrDefault("rate", "30"));
+        long durationS = Long.parseLong(options.getOrDefault("duration", "60"));
+        new LoadGenerator(options).run(rate, durationS);
+    }
+
+    private void run(double ratePerMinute, long durationS) throws IOException, InterruptedException {
+        System.out.printf("Load test: %s, %.1f jobs/min for %d s, %s uploads, %s%n", url, ratePerMinute, durationS,
+                sessions ? "session" : "direct", webhookPort > 0 ? "webhooks on port " + webhookPort : "polling");
+        HttpServer receiver = webhookPort > 0 ? startReceiver() : null;
+
+        ExecutorService workers = Executors.newCachedThreadPool();
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+        long intervalNanos = (long) (60e9 / ratePerMinute);
+        long start = System.nanoTime();
+
+        scheduler.scheduleAtFixedRate(() -> {
+            started.incrementAndGet();
+            inFlight.incrementAndGet();
+            workers.submit(this::runJob);
+        }, 0, intervalNanos, TimeUnit.NANOSECONDS);
+        scheduler.scheduleAtFixedRate(() -> System.out.printf("[%3ds] started=%d inFlight=%d completed=%d failed=%d%n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), started.get(), inFlight.get(),
+                completed.get(), failed.get()), 10, 10, TimeUnit.SECONDS);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationS));
+        scheduler.shutdownNow();
+        workers.shutdown();
+        if (!workers.awaitTermination(timeoutS, TimeUnit.SECONDS)) {
+            System.out.println("Timed out waiting for " + inFlight.get() + " jobs");
+            workers.shutdownNow();
+        }
+        double elapsedMinutes = (System.nanoTime() - start) / 60e9;
+
+        System.out.println();
+        System.out.printf("%-9s %7s %7s %9s %9s %9s%n", "request", "count", "errors", "p50 ms", "p99 ms", "max ms");
+        recorders.forEach((name, recorder) -> recorder.print(name));
+        System.out.println();
+        System.out.printf("Jobs: started=%d completed=%d failed=%d request errors=%d%n", started.get(),
+                completed.get(), failed.get(), errors.get());
+        System.out.printf("Throughput: %.2f completed jobs/min%n", completed.get() / elapsedMinutes);
+        if (receiver != null) {
+            System.out.printf("Webhooks: bad signatures=%d%n", badSignatures.get());
+            receiver.stop(0);
+        }
+    }
+
+    /**
+     * Receive completion webhooks, verify their signature and hand the
+     * job's final status to whoever waits for it.
+     */
+    private HttpServer startReceiver() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(webhookPort), 0);
+        server.createContext("/hook", exchange -> {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            String header = exchange.getRequestHeaders().getFirst("X-NeoGuard-Signature");
+            Matcher signature = SIGNATURE.matcher(header != null ? header : "");
+            if (!signature.matches() || !signature.group(2).equals(sign(signature.group(1), body))) {
+                badSignatures.incrementAndGet();
+                exchange.sendResponseHeaders(401, -1);
+                exchange.close();
+                return;
+            }
+            String json = new String(body, StandardCharsets.UTF_8);
+            try {
+                webhookStatus.computeIfAbsent(match(JOB_ID, json), id -> new CompletableFuture<>())
+                        .complete(match(STATUS, json));
+            } catch (IOException ignored) {
+                // Pings carry no job
+            }
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        return server;
+    }
+
+    private String sign(String timestamp, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(webhookSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            mac.update((timestamp + ".").getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void runJob() {
+        try {
+            byte[] body = unique ? withMarker(jar) : jar;
+            long jobStart = System.nanoTime();
+
+            Map<String, String> fields = new HashMap<>(Map.of("config", config));
+            if (webhookPort > 0) {
+                fields.put("webhookUrl", "http://localhost:" + webhookPort + "/hook");
+                fields.put("webhookSecret", webhookSecret);
+            }
+
+            String jobId;
+            if (sessions) {
+                String upload = post("upload", "/api/uploads", Map.of(), body);
+                fields.put("uploadId", match(UPLOAD_ID, upload));
+                jobId = match(JOB_ID, post("submit", "/api/obfuscate", fields, null));
+            } else {
+                jobId = match(JOB_ID, post("submit", "/api/obfuscate", fields, body));
+            }
+
+            String status = "PENDING";
+            if (webhookPort > 0) {
+                status = webhookStatus.computeIfAbsent(jobId, id -> new CompletableFuture<>())
+                        .get(timeoutS, TimeUnit.SECONDS);
+                webhookStatus.remove(jobId);
+            }
+            while (!status.equals("COMPLETED") && !status.equals("FAILED")) {
+                Thread.sleep(pollMs);
+                status = match(STATUS, get("status", "/api/status/" + jobId));
+            }
+            recorders.get("job").record(System.nanoTime() - jobStart);
+
+            if (status.equals("COMPLETED")) {
+                get("download", "/api/download/" + jobId);
+                completed.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private String get(String name, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path)).GET().build();
+        return send(name, request);
+    }
+
+    /**
+     * POST a multipart form; the JAR is sent as the "file" part when given.
+     */
+    private String post(String name, String path, Map<String, String> fields, byte[] file)
+            throws IOException, InterruptedException {
+        String boundary = "----neoguard" + UUID.randomUUID();
+        ByteArrayOutputStream form = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            form.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + field.getKey()
+                    + "\"\r\n\r\n" + field.getValue() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        }
+        if (file != null) {
+            form.writeBytes(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\""
+                    + jarName + "\"\r\nContent-Type: application/java-archive\r\n\r\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            form.writeBytes(file);
+            form.writeBytes("\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+        form.writeBytes(("--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(form.toByteArray()))
+                .build();
+        return send(name, request);
+    }
+
+    private String send(String name, HttpRequest request) throws IOException, InterruptedException {
+        Recorder recorder = recorders.get(name);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() >= 400) {
+                throw new IOException(name + " returned HTTP " + response.statusCode());
+            }
+            recorder.record(System.nanoTime() - start);
+            return new String(response.body(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            recorder.error();
+            errors.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy of the JAR with one extra entry, so its hash differs from every
+     * other job's.
+     */
+    private static byte[] withMarker(byte[] jar) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jar.length + 256);
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(jar));
+                ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                zip.putNextEntry(new ZipEntry(entry.getName()));
+                in.transferTo(zip);
+                zip.closeEntry();
+            }
+            zip.putNextEntry(new ZipEntry("META-INF/loadtest-" + UUID.randomUUID()));
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+
+    private static String match(Pattern pattern, String json) throws IOException {
+        Matcher matcher = pattern.matcher(json);
+        if (!matcher.find()) {
+            throw new IOException("Unexpected response: " + json);
+        }
+        return matcher.group(1);
+    }
+
+    private static String required(Map<String, String> options, String name) {
+        String value = options.get(name);
+        if (value == null) {
+            System.err.println("Missing --" + name);
+            System.exit(2);
+        }
+        return value;
+    }
+
+    /**
+     * Latency samples and error count for one request type.
+     */
+    private static final class Recorder {
+
+        private final List<Long> nanos = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger errors = new AtomicInteger();
+
+        void record(long elapsedNanos) {
+            nanos.add(elapsedNanos);
+        }
+
+        void error() {
+            errors.incrementAndGet();
+        }
+
+        void print(String name) {
+            List<Long> sorted;
+            synchronized (nanos) {
+                sorted = new ArrayList<>(nanos);
+            }
+            if (sorted.isEmpty() && errors.get() == 0) {
+                return;
+            }
+            Collections.sort(sorted);
+            System.out.printf("%-9s %7d %7d %9s %9s %9s%n", name, sorted.size(), errors.get(),
+                    percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.isEmpty() ? "-" : millis(sorted.get(sorted.size() - 1)));
+        }
+
+        private static String percentile(List<Long> sorted, double p) {
+            if (sorted.isEmpty()) {
+                return "-";
+            }
+            int index = (int) Math.ceil(p * sorted.size()) - 1;
+            return millis(sorted.get(Math.max(0, index)));
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.1f", nanos / 1e6);
+        }
+    }
+}
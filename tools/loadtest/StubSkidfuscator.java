@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stand-in for Skidfuscator when load-testing NeoGuard.
+ *
+ * Accepts the same command line NeoGuard builds
+ * ({@code obfuscate <input> -o=<output> -cfg=<config>}), spends a configurable
+ * amount of time, CPU and memory, prints log lines along the way and copies
+ * the input JAR to the output path.
+ *
+ * Behaviour is set through environment variables, which the child process
+ * inherits from NeoGuard:
+ *
+ *   STUB_DURATION_MS   base run time (default 2000)
+ *   STUB_MS_PER_KB     extra run time per KB of input (default 0)
+ *   STUB_CPU_THREADS   threads kept busy during the run (default 1)
+ *   STUB_CPU_LOAD      busy share of each CPU thread, 0-1 (default 0.5)
+ *   STUB_MEMORY_MB     heap retained for the whole run (default 64)
+ *   STUB_LOG_LINES     log lines printed over the run (default 40)
+ *   STUB_FAILURE_RATE  share of runs that fail with exit code 1 (default 0)
+ *   STUB_MAPPING_CLASSES  classes in the ProGuard-format mapping written to
+ *                      mappings/mapping.txt in the working directory (default 0)
+ */
+public final class StubSkidfuscator {
+
+    private static final String[] STAGES = { "Importing classes", "Building hierarchy", "Resolving dependencies",
+            "Running transformers", "Writing output" };
+
+    private static volatile boolean running = true;
+
+    // Keeps the busy loop from being optimized away
+    private static volatile long sink;
+
+    private StubSkidfuscator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !args[0].equals("obfuscate")) {
+            System.err.println("Usage: obfuscate <input> -o=<output> -cfg=<config>");
+            System.exit(2);
+        }
+
+        Path input = Paths.get(args[1]);
+        Path output = null;
+        Path config = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("-o=")) {
+                output = Paths.get(args[i].substring(3));
+            } else if (args[i].startsWith("-cfg=")) {
+                config = Paths.get(args[i].substring(5));
+            }
+        }
+        if (output == null || !Files.exists(input)) {
+            System.err.println("Missing input or output");
+            System.exit(2);
+        }
+        if (config != null && !Files.exists(config)) {
+            System.err.println("Config not found: " + config);
+            System.exit(2);
+        }
+
+        long inputKb = Files.size(input) / 1024;
+        long durationMs = envLong("STUB_DURATION_MS", 2000) + envLong("STUB_MS_PER_KB", 0) * inputKb;
+        int cpuThreads = (int) envLong("STUB_CPU_THREADS", 1);
+        double cpuLoad = Math.max(0, Math.min(1, envDouble("STUB_CPU_LOAD", 0.5)));
+        int memoryMb = (int) envLong("STUB_MEMORY_MB", 64);
+        int logLines = (int) Math.max(STAGES.length, envLong("STUB_LOG_LINES", 40));
+        boolean fail = ThreadLocalRandom.current().nextDouble() < envDouble("STUB_FAILURE_RATE", 0);
+
+        System.out.println("Skidfuscator stub starting: " + input.getFileName() + " (" + inputKb + " KB)");
+
+        // Retain memory for the whole run, touching every page
+        List<byte[]> retained = new ArrayList<>();
+        for (int i = 0; i < memoryMb; i++) {
+            byte[] block = new byte[1024 * 1024];
+            for (int j = 0; j < block.length; j += 4096) {
+                block[j] = 1;
+            }
+            retained.add(block);
+        }
+
+        List<Thread> burners = new ArrayList<>();
+        for (int i = 0; i < cpuThreads && cpuLoad > 0; i++) {
+            String name = "stub-cpu-" + i;
+            Thread thread = new Thread(() -> burn(cpuLoad), name);
+            thread.setDaemon(true);
+            thread.start();
+            burners.add(thread);
+        }
+
+        // Spread log lines evenly over the run
+        long start = System.nanoTime();
+        for (int line = 0; line < logLines; line++) {
+            int stage = line * STAGES.length / logLines;
+            // Progress within the current stage
+            int percent = Math.min(100, (line + 1) * STAGES.length * 100 / logLines - stage * 100);
+            System.out.println("[" + (stage + 1) + "/" + STAGES.length + "] " + STAGES[stage] + "... " + percent + "%");
+            long wakeAt = start + (line + 1) * durationMs * 1_000_000L / logLines;
+            long sleepMs = (wakeAt - System.nanoTime()) / 1_000_000L;
+            if (sleepMs > 0) {
+                Thread.sleep(sleepMs);
+            }
+        }
+
+        running = false;
+        for (Thread thread : burners) {
+            thread.join();
+        }
+
+        if (fail) {
+            System.out.println("Error: simulated failure (STUB_FAILURE_RATE)");
+            System.exit(1);
+        }
+
+        copy(input, output);
+        writeMappings((int) envLong("STUB_MAPPING_CLASSES", 0));
+        System.out.println("Finished in " + (System.nanoTime() - start) / 1_000_000L + " ms, retained "
+                + retained.size() + " MB");
+    }
+
+    /**
+     * Keep a core busy for the given share of each 10 ms slice.
+     */
+    private static void burn(double load) {
+        long sliceNanos = 10_000_000L;
+        long busyNanos = (long) (sliceNanos * load);
+        long x = 0;
+        while (running) {
+            long sliceStart = System.nanoTime();
+            while (System.nanoTime() - sliceStart < busyNanos) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            try {
+                Thread.sleep((sliceNanos - busyNanos) / 1_000_000L);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        sink = x;
+    }
+
+    private static void copy(Path input, Path output) throws IOException {
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        Files.copy(input, output, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Write synthetic mappings: stub.app.ClassN maps to o.c<N in base 36>, each with
+     * four methods over consecutive line ranges.
+     */
+    private static void writeMappings(int classes) throws IOException {
+        if (classes <= 0) {
+            return;
+        }
+        Path dir = Paths.get("mappings");
+        Files.createDirectories(dir);
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < classes; c++) {
+            sb.append("stub.app.Class").append(c).append(" -> o.c").append(Integer.toString(c, 36)).append(":\n");
+            sb.append("    int counter -> a\n");
+            for (int m = 0; m < 4; m++) {
+                int start = m * 20 + 1;
+                sb.append("    ").append(start).append(':').append(start + 19).append(":void method").append(m)
+                        .append("(java.lang.String):").append(100 + m * 20).append(':').append(119 + m * 20)
+                        .append(" -> ").append((char) ('a' + m)).append('\n');
+            }
+        }
+        Files.writeString(dir.resolve("mapping.txt"), sb);
+    }
+
+    private static long envLong(String name, long defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+    private static double envDouble(String name, double defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? Double.parseDouble(value.trim()) : defaultValue;
+    }
+}
@@ -0,0 +1,17 @@
+#!/bin/bash
+
+# ================================
+# Builds the load-test stub Skidfuscator
+# ================================
+# Produces tools/loadtest/build/stub-skidfuscator.jar. Point NeoGuard at it
+# with SKIDFUSCATOR_JAR; LoadGenerator.java runs directly with `java`.
+
+set -e
+cd "$(dirname "$0")"
+
+rm -rf build
+mkdir -p build/classes
+javac -d build/classes StubSkidfuscator.java
+jar --create --file build/stub-skidfuscator.jar --main-class StubSkidfuscator -C build/classes .
+
+echo "Built $(pwd)/build/stub-skidfuscator.jar"